@@ -2,6 +2,7 @@ package app;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.*;
 import org.springframework.cache.annotation.*;
 import org.springframework.cloud.openfeign.*;
 import org.springframework.scheduling.annotation.*;
@@ -15,7 +16,12 @@ import org.springframework.scheduling.annotation.*;
 public class Application {
 
     public static void main(String[] args) {
-        SpringApplication.run(Application.class, args);
+        SpringApplication application = new SpringApplication(Application.class);
+
+        // стъпките на старта  ->  /actuator/startup
+        application.setApplicationStartup(new BufferingApplicationStartup(2048));
+
+        application.run(args);
     }
 
 }
\ No newline at end of file
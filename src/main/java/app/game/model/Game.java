@@ -15,6 +15,8 @@ import java.util.*;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+// keyset пагинация на каталога:  WHERE is_available ORDER BY release_date DESC, id DESC
+@Table(indexes = @Index(name = "idx_game_catalog", columnList = "is_available, release_date, id"))
 public class Game {
 
     @Id
@@ -0,0 +1,31 @@
+package app.game.model;
+
+import lombok.*;
+
+import java.math.*;
+import java.time.*;
+import java.util.*;
+
+
+// READ-ONLY проекция за списъците с игри (explore, owned, purchased).
+// Зарежда се с един SELECT new ... JOIN publisher - без Game entity и без EAGER purchasedByUsers / publisher графа.
+@Getter
+@AllArgsConstructor
+public class GameCardView {
+
+    private final UUID id;
+
+    private final String title;
+
+    private final BigDecimal price;
+
+    private final Genre genre;
+
+    private final String imageCoverUrl;
+
+    private final LocalDateTime releaseDate;
+
+    private final boolean isAvailable;
+
+    private final String publisherUsername;
+}
@@ -0,0 +1,55 @@
+package app.game.model;
+
+import lombok.*;
+
+import java.math.*;
+import java.time.*;
+import java.util.*;
+
+
+// READ-ONLY проекция за страниците на една игра (explore, owned, profile) и проверката за собственост.
+// Това се cache-ва в GAMES_CACHE вместо Game entity-то:  immutable, без purchasedByUsers / publisher графа,
+// така че cache-натият обект не може да бъде променен от покупка и лимитът на cache-а ограничава и паметта.
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+public class GameDetailsView {
+
+    private final UUID id;
+
+    private final String title;
+
+    private final String description;
+
+    private final BigDecimal price;
+
+    private final Genre genre;
+
+    private final String imageCoverUrl;
+
+    private final LocalDateTime releaseDate;
+
+    private final LocalDateTime updatedOn;
+
+    private final boolean isAvailable;
+
+    private final UUID publisherId;
+
+    private final String publisherUsername;
+
+
+    public static GameDetailsView of(Game game) {
+        return new GameDetailsView(
+                game.getId(),
+                game.getTitle(),
+                game.getDescription(),
+                game.getPrice(),
+                game.getGenre(),
+                game.getImageCoverUrl(),
+                game.getReleaseDate(),
+                game.getUpdatedOn(),
+                game.isAvailable(),
+                game.getPublisher() != null ? game.getPublisher().getId() : null,
+                game.getPublisher() != null ? game.getPublisher().getUsername() : null);
+    }
+}
@@ -0,0 +1,51 @@
+package app.game.model;
+
+import lombok.*;
+
+import java.math.*;
+import java.time.*;
+import java.util.*;
+
+
+// Един документ в in-memory search индекса:  полетата за търсене + картата, която се показва в резултатите
+@Getter
+@AllArgsConstructor
+public class GameSearchDocument {
+
+    private final UUID id;
+
+    private final String title;
+
+    private final String description;
+
+    private final BigDecimal price;
+
+    private final Genre genre;
+
+    private final String imageCoverUrl;
+
+    private final LocalDateTime releaseDate;
+
+    private final boolean isAvailable;
+
+    private final String publisherUsername;
+
+
+    public static GameSearchDocument of(Game game) {
+        return new GameSearchDocument(
+                game.getId(),
+                game.getTitle(),
+                game.getDescription(),
+                game.getPrice(),
+                game.getGenre(),
+                game.getImageCoverUrl(),
+                game.getReleaseDate(),
+                game.isAvailable(),
+                game.getPublisher() != null ? game.getPublisher().getUsername() : null);
+    }
+
+
+    public GameCardView toCardView() {
+        return new GameCardView(id, title, price, genre, imageCoverUrl, releaseDate, isAvailable, publisherUsername);
+    }
+}
@@ -0,0 +1,23 @@
+package app.game.model;
+
+import java.util.*;
+
+
+// публикува се от GameService при create / edit / toggle / delete  ->  GameSearchService обновява индекса едва след COMMIT
+// document е snapshot на играта в момента на промяната;  document == null  ->  играта е изтрита
+public record GameSearchIndexEvent(UUID gameId, GameSearchDocument document) {
+
+    public static GameSearchIndexEvent indexed(Game game) {
+        return new GameSearchIndexEvent(game.getId(), GameSearchDocument.of(game));
+    }
+
+
+    public static GameSearchIndexEvent removed(UUID gameId) {
+        return new GameSearchIndexEvent(gameId, null);
+    }
+
+
+    public boolean isRemoval() {
+        return document == null;
+    }
+}
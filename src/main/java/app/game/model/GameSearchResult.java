@@ -0,0 +1,26 @@
+package app.game.model;
+
+import lombok.*;
+
+import java.util.*;
+
+
+// Резултат от търсенето:  попаденията + фасети (Genre, PriceBucket) върху всички съвпадения по текст
+@Getter
+@AllArgsConstructor
+public class GameSearchResult {
+
+    private final String query;
+
+    private final Genre selectedGenre;
+
+    private final PriceBucket selectedPriceBucket;
+
+    private final List<GameCardView> hits;
+
+    private final long totalHits;
+
+    private final Map<Genre, Long> genreFacets;
+
+    private final Map<PriceBucket, Long> priceFacets;
+}
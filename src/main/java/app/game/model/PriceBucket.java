@@ -0,0 +1,35 @@
+package app.game.model;
+
+import lombok.*;
+
+import java.math.*;
+
+
+// Ценови диапазони за фасетите в търсачката:  [from, to)
+@Getter
+@AllArgsConstructor
+public enum PriceBucket {
+
+    UNDER_10("Under 10 EUR", BigDecimal.ZERO, new BigDecimal("10")),
+    FROM_10_TO_30("10 - 30 EUR", new BigDecimal("10"), new BigDecimal("30")),
+    FROM_30_TO_60("30 - 60 EUR", new BigDecimal("30"), new BigDecimal("60")),
+    OVER_60("60+ EUR", new BigDecimal("60"), null);
+
+    private final String label;
+
+    private final BigDecimal from;
+
+    private final BigDecimal to;
+
+
+    public static PriceBucket of(BigDecimal price) {
+
+        for (PriceBucket bucket : values()) {
+            if (bucket.to == null || price.compareTo(bucket.to) < 0) {
+                return bucket;
+            }
+        }
+
+        return OVER_60;
+    }
+}
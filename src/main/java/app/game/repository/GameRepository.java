@@ -1,10 +1,12 @@
 package app.game.repository;
 
 import app.game.model.*;
-import app.user.model.*;
+import org.springframework.data.domain.*;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.*;
 import org.springframework.stereotype.*;
 
+import java.time.*;
 import java.util.*;
 
 
@@ -13,9 +15,78 @@ public interface GameRepository extends JpaRepository<Game, UUID> {
 
     Optional<Game> findByTitle(String title);
 
-    List<Game> findAllByPublisherIdOrderByReleaseDateDesc(UUID publisherId);
+    // само publisherId  ->  за инвалидиране на cache-а при delete, без да зареждаме EAGER графа на играта
+    @Query("SELECT g.publisher.id FROM Game g WHERE g.id = :gameId")
+    Optional<UUID> findPublisherIdById(@Param("gameId") UUID gameId);
 
-    List<Game> findAllByIsAvailableTrueOrderByReleaseDateDesc();
+    // страницата на една игра  -  един SELECT с JOIN към publisher-а, без купувачите
+    @Query("""
+            SELECT new app.game.model.GameDetailsView(g.id, g.title, g.description, g.price, g.genre, g.imageCoverUrl,
+                                                      g.releaseDate, g.updatedOn, g.isAvailable, p.id, p.username)
+            FROM Game g JOIN g.publisher p
+            WHERE g.id = :gameId
+            """)
+    Optional<GameDetailsView> findDetailsById(@Param("gameId") UUID gameId);
 
-    List<Game> findAllByPurchasedByUsersOrderByReleaseDateDesc(User user);
-}
\ No newline at end of file
+    // покупка  ->  един ред в games_users, без да зареждаме и merge-ваме purchasedByUsers на играта
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO games_users (game_id, user_id) VALUES (:gameId, :userId)", nativeQuery = true)
+    void addPurchase(@Param("gameId") UUID gameId, @Param("userId") UUID userId);
+
+
+    // ---------------  LISTINGS  -  GameCardView проекция (без entity граф)  ---------------
+
+    // KEYSET (seek) пагинация за каталога:  ORDER BY releaseDate DESC, id DESC
+    // Първа страница - без курсор
+    @Query("""
+            SELECT new app.game.model.GameCardView(g.id, g.title, g.price, g.genre, g.imageCoverUrl, g.releaseDate, g.isAvailable, p.username)
+            FROM Game g JOIN g.publisher p
+            WHERE g.isAvailable = true
+            ORDER BY g.releaseDate DESC, g.id DESC
+            """)
+    List<GameCardView> findAvailableCatalogFirstPage(Limit limit);
+
+    // Следваща страница - всичко СЛЕД последния ред (releaseDate, id) от предишната страница
+    @Query("""
+            SELECT new app.game.model.GameCardView(g.id, g.title, g.price, g.genre, g.imageCoverUrl, g.releaseDate, g.isAvailable, p.username)
+            FROM Game g JOIN g.publisher p
+            WHERE g.isAvailable = true
+              AND (g.releaseDate < :releaseDate OR (g.releaseDate = :releaseDate AND g.id < :id))
+            ORDER BY g.releaseDate DESC, g.id DESC
+            """)
+    List<GameCardView> findAvailableCatalogPageAfter(@Param("releaseDate") LocalDateTime releaseDate, @Param("id") UUID id, Limit limit);
+
+    @Query("""
+            SELECT new app.game.model.GameCardView(g.id, g.title, g.price, g.genre, g.imageCoverUrl, g.releaseDate, g.isAvailable, p.username)
+            FROM Game g JOIN g.publisher p
+            WHERE g.isAvailable = true
+            ORDER BY g.releaseDate DESC, g.id DESC
+            """)
+    List<GameCardView> findAllAvailableCards();
+
+    @Query("""
+            SELECT new app.game.model.GameCardView(g.id, g.title, g.price, g.genre, g.imageCoverUrl, g.releaseDate, g.isAvailable, p.username)
+            FROM Game g JOIN g.publisher p
+            WHERE p.id = :publisherId
+            ORDER BY g.releaseDate DESC, g.id DESC
+            """)
+    List<GameCardView> findAllCardsByPublisherId(@Param("publisherId") UUID publisherId);
+
+    // JOIN към games_users само за филтъра - купувачите не се зареждат
+    @Query("""
+            SELECT new app.game.model.GameCardView(g.id, g.title, g.price, g.genre, g.imageCoverUrl, g.releaseDate, g.isAvailable, p.username)
+            FROM Game g JOIN g.publisher p JOIN g.purchasedByUsers buyer
+            WHERE buyer.id = :userId
+            ORDER BY g.releaseDate DESC, g.id DESC
+            """)
+    List<GameCardView> findAllCardsPurchasedByUserId(@Param("userId") UUID userId);
+
+
+    // ---------------  SEARCH  -  документи за in-memory индекса  ---------------
+
+    @Query("""
+            SELECT new app.game.model.GameSearchDocument(g.id, g.title, g.description, g.price, g.genre, g.imageCoverUrl, g.releaseDate, g.isAvailable, p.username)
+            FROM Game g JOIN g.publisher p
+            """)
+    List<GameSearchDocument> findAllSearchDocuments();
+}
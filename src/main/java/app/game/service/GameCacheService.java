@@ -0,0 +1,65 @@
+package app.game.service;
+
+import app.shared.config.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.cache.*;
+import org.springframework.stereotype.*;
+
+import java.util.*;
+
+
+// Точна инвалидация на game cache-овете след промяна.
+// Извиква се от GameService, защото при toggle / edit / delete publisherId идва от entity-то, а не от аргументите на метода,
+// и не може да се изрази само с @CacheEvict.
+@Service
+public class GameCacheService {
+
+    private final CacheManager cacheManager;
+
+
+    @Autowired
+    public GameCacheService(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+
+    // играта + всички списъци, в които участва  ->  след toggle / edit / delete / save
+    public void evictGameAndListings(UUID gameId, UUID publisherId) {
+        evictGame(gameId);
+        evictAvailableGames();
+        evictPublisherGames(publisherId);
+    }
+
+
+    // една игра  ->  getGameDetails
+    public void evictGame(UUID gameId) {
+        evict(CacheConfiguration.GAMES_CACHE, gameId);
+    }
+
+
+    // каталогът  ->  getAllAvailableGames (един запис)
+    public void evictAvailableGames() {
+
+        Cache cache = cacheManager.getCache(CacheConfiguration.AVAILABLE_GAMES_CACHE);
+
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+
+    // игрите на един publisher  ->  getAllGamesByPublisherId
+    public void evictPublisherGames(UUID publisherId) {
+        evict(CacheConfiguration.PUBLISHER_GAMES_CACHE, publisherId);
+    }
+
+
+    private void evict(String cacheName, UUID key) {
+
+        Cache cache = cacheManager.getCache(cacheName);
+
+        if (cache != null && key != null) {
+            cache.evict(key);
+        }
+    }
+}
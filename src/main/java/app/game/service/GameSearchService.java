@@ -0,0 +1,297 @@
+package app.game.service;
+
+import app.game.model.*;
+import app.game.repository.*;
+import lombok.extern.slf4j.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.context.event.*;
+import org.springframework.context.event.*;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.*;
+import org.springframework.stereotype.*;
+import org.springframework.transaction.event.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+import java.util.regex.*;
+
+
+// IN-MEMORY full-text индекс на каталога (title + description) с фасети по Genre и PriceBucket.
+// Търсенето не стига до MySQL (няма LIKE '%..%'):  inverted index  term -> gameIds, prefix match по всеки term.
+// Поддържа се актуален от GameService (create / edit / delete / toggle  ->  GameSearchIndexEvent след COMMIT,
+// така че rollback не оставя в индекса несъществуваща игра) и се rebuild-ва при старт и периодично,
+// за да се синхронизира с промени, направени от други node-ове.
+@Slf4j
+@Service
+public class GameSearchService {
+
+    public static final int MAX_HITS = 50;
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final GameRepository gameRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // само един rebuild наведнъж (старт + @Scheduled)
+    private final Lock rebuildLock = new ReentrantLock();
+
+    // term -> ids на игрите, в чийто title/description се среща
+    private NavigableMap<String, Set<UUID>> postings = new TreeMap<>();
+    private Map<UUID, GameSearchDocument> documents = new HashMap<>();
+    private Map<UUID, Set<String>> titleTerms = new HashMap<>();
+
+    // != null  ->  тече rebuild;  промените, дошли докато той чете базата, се прилагат и върху новия индекс след swap-а
+    private List<GameSearchIndexEvent> pendingChanges;
+
+
+    @Autowired
+    public GameSearchService(GameRepository gameRepository) {
+        this.gameRepository = gameRepository;
+    }
+
+
+    // BUILD - след като всички CommandLineRunner-и (UserInitialize) са заредили игрите
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuildIndex();
+    }
+
+
+    @Scheduled(fixedDelayString = "${search.index.refresh-interval-ms:300000}", initialDelayString = "${search.index.refresh-interval-ms:300000}")
+    public void rebuildIndex() {
+
+        rebuildLock.lock();
+        try {
+            long start = System.nanoTime();
+
+            lock.writeLock().lock();
+            try {
+                pendingChanges = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            NavigableMap<String, Set<UUID>> newPostings = new TreeMap<>();
+            Map<UUID, GameSearchDocument> newDocuments = new HashMap<>();
+            Map<UUID, Set<String>> newTitleTerms = new HashMap<>();
+
+            try {
+                // четенето е извън lock-а  ->  търсенето и промените (onGameChanged) не чакат базата
+                for (GameSearchDocument document : gameRepository.findAllSearchDocuments()) {
+                    addDocument(document, newPostings, newDocuments, newTitleTerms);
+                }
+            } catch (RuntimeException e) {
+                // старият индекс остава;  промените вече са приложени в него
+                lock.writeLock().lock();
+                try {
+                    pendingChanges = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+
+            int replayed;
+
+            lock.writeLock().lock();
+            try {
+                // промените по време на четенето  ->  върху новия индекс, в реда на пристигане (последната печели)
+                for (GameSearchIndexEvent change : pendingChanges) {
+                    apply(change, newPostings, newDocuments, newTitleTerms);
+                }
+                replayed = pendingChanges.size();
+                pendingChanges = null;
+
+                postings = newPostings;
+                documents = newDocuments;
+                titleTerms = newTitleTerms;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            log.info("Game search index rebuilt with {} games and {} terms ({} changes replayed) in {} ms.",
+                    newDocuments.size(), newPostings.size(), replayed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+
+    // след COMMIT на промяната в GameService;  без транзакция (fallbackExecution)  ->  веднага
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onGameChanged(GameSearchIndexEvent event) {
+        applyChange(event);
+    }
+
+
+    // CREATE / UPDATE  ->  замества стария документ на играта;  DELETE  ->  маха го
+    // единственият път за запис в индекса  ->  по време на rebuild промяната влиза и в pendingChanges
+    private void applyChange(GameSearchIndexEvent change) {
+
+        if (change.gameId() == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            apply(change, postings, documents, titleTerms);
+
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    // SEARCH  -  всички думи от заявката трябва да съвпаднат (AND), всяка като prefix на term
+    // Фасетите се смятат върху всички текстови съвпадения, а genre / priceBucket филтрират само попаденията
+    public GameSearchResult search(String query, Genre genre, PriceBucket priceBucket) {
+
+        List<String> queryTerms = tokenize(query);
+
+        lock.readLock().lock();
+        try {
+            List<GameSearchDocument> matches = new ArrayList<>();
+
+            for (UUID gameId : matchingIds(queryTerms)) {
+                GameSearchDocument document = documents.get(gameId);
+
+                if (document != null && document.isAvailable()) {
+                    matches.add(document);
+                }
+            }
+
+            Map<Genre, Long> genreFacets = new EnumMap<>(Genre.class);
+            Map<PriceBucket, Long> priceFacets = new EnumMap<>(PriceBucket.class);
+
+            for (GameSearchDocument document : matches) {
+                genreFacets.merge(document.getGenre(), 1L, Long::sum);
+                priceFacets.merge(PriceBucket.of(document.getPrice()), 1L, Long::sum);
+            }
+
+            List<GameSearchDocument> hits = matches.stream()
+                    .filter(document -> genre == null || document.getGenre() == genre)
+                    .filter(document -> priceBucket == null || PriceBucket.of(document.getPrice()) == priceBucket)
+                    .sorted(Comparator
+                            .comparingLong((GameSearchDocument document) -> titleScore(document.getId(), queryTerms)).reversed()
+                            .thenComparing(GameSearchDocument::getReleaseDate, Comparator.reverseOrder()))
+                    .toList();
+
+            List<GameCardView> cards = hits.stream()
+                    .limit(MAX_HITS)
+                    .map(GameSearchDocument::toCardView)
+                    .toList();
+
+            return new GameSearchResult(query, genre, priceBucket, cards, hits.size(), genreFacets, priceFacets);
+
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    // празна заявка  ->  целият каталог (само фасетите/филтрите работят)
+    private Set<UUID> matchingIds(List<String> queryTerms) {
+
+        if (queryTerms.isEmpty()) {
+            return documents.keySet();
+        }
+
+        Set<UUID> result = null;
+
+        for (String term : queryTerms) {
+            Set<UUID> termMatches = new HashSet<>();
+            postings.subMap(term, true, term + Character.MAX_VALUE, true).values().forEach(termMatches::addAll);
+
+            if (result == null) {
+                result = termMatches;
+            } else {
+                result.retainAll(termMatches);
+            }
+
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+
+        return result;
+    }
+
+
+    // колко от думите в заявката съвпадат в заглавието  ->  заглавието тежи повече от описанието
+    private long titleScore(UUID gameId, List<String> queryTerms) {
+
+        Set<String> terms = titleTerms.getOrDefault(gameId, Set.of());
+
+        return queryTerms.stream()
+                .filter(queryTerm -> terms.stream().anyMatch(term -> term.startsWith(queryTerm)))
+                .count();
+    }
+
+
+    private void addDocument(GameSearchDocument document, NavigableMap<String, Set<UUID>> postings, Map<UUID, GameSearchDocument> documents, Map<UUID, Set<String>> titleTerms) {
+
+        Set<String> terms = new HashSet<>(tokenize(document.getTitle()));
+        titleTerms.put(document.getId(), Set.copyOf(terms));
+        terms.addAll(tokenize(document.getDescription()));
+
+        for (String term : terms) {
+            postings.computeIfAbsent(term, key -> new HashSet<>()).add(document.getId());
+        }
+
+        documents.put(document.getId(), document);
+    }
+
+
+    private void apply(GameSearchIndexEvent change, NavigableMap<String, Set<UUID>> postings, Map<UUID, GameSearchDocument> documents, Map<UUID, Set<String>> titleTerms) {
+
+        removeDocument(change.gameId(), postings, documents, titleTerms);
+
+        if (!change.isRemoval()) {
+            addDocument(change.document(), postings, documents, titleTerms);
+        }
+    }
+
+
+    private void removeDocument(UUID gameId, NavigableMap<String, Set<UUID>> postings, Map<UUID, GameSearchDocument> documents, Map<UUID, Set<String>> titleTerms) {
+
+        GameSearchDocument previous = documents.remove(gameId);
+        titleTerms.remove(gameId);
+
+        if (previous == null) {
+            return;
+        }
+
+        Set<String> terms = new HashSet<>(tokenize(previous.getTitle()));
+        terms.addAll(tokenize(previous.getDescription()));
+
+        for (String term : terms) {
+            Set<UUID> ids = postings.get(term);
+
+            if (ids != null) {
+                ids.remove(gameId);
+
+                if (ids.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+
+    static List<String> tokenize(String text) {
+
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+
+        return Arrays.stream(TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT)))
+                .filter(token -> !token.isEmpty())
+                .distinct()
+                .toList();
+    }
+}
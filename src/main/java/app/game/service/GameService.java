@@ -4,16 +4,23 @@ import app.game.model.*;
 import app.game.repository.*;
 import app.loyalty.service.*;
 import app.notice.service.*;
+import app.shared.config.*;
 import app.shared.exception.*;
+import app.shared.pagination.*;
 import app.transaction.model.*;
 import app.user.model.*;
 import app.user.service.*;
 import app.wallet.model.*;
 import app.wallet.service.*;
 import app.web.dto.*;
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.Timer;
 import jakarta.validation.*;
 import lombok.extern.slf4j.*;
 import org.springframework.beans.factory.annotation.*;
+import org.springframework.cache.annotation.*;
+import org.springframework.context.*;
+import org.springframework.data.domain.*;
 import org.springframework.http.*;
 import org.springframework.stereotype.*;
 import org.springframework.transaction.annotation.*;
@@ -28,6 +35,9 @@ import java.util.*;
 @Service
 public class GameService {
 
+    public static final int DEFAULT_CATALOG_PAGE_SIZE = 24;
+    private static final int MAX_CATALOG_PAGE_SIZE = 100;
+
     private final GameRepository gameRepository;
 
     private final UserService userService;
@@ -36,14 +46,40 @@ public class GameService {
 
     private final NoticeService noticeService;
 
+    // search индексът се обновява след COMMIT  ->  GameSearchService.onGameChanged
+    private final ApplicationEventPublisher eventPublisher;
+    private final GameCacheService gameCacheService;
+
+    // времето на покупката по изход  ->  /actuator/metrics/games.purchase?tag=outcome:success
+    static final String PURCHASE_SUCCESS = "success";
+    static final String PURCHASE_INSUFFICIENT_FUNDS = "insufficient_funds";
+    static final String PURCHASE_INACTIVE_WALLET = "inactive_wallet";
+    static final String PURCHASE_ALREADY_OWNED = "already_owned";
+    static final String PURCHASE_OWN_GAME = "own_game";
+    static final String PURCHASE_ERROR = "error";
+
+    private final Map<String, Timer> purchaseTimers = new HashMap<>();
+    private final MeterRegistry meterRegistry;
+
 
     @Autowired
-    public GameService(GameRepository gameRepository, UserService userService, WalletService walletService, LoyaltyService loyaltyService, NoticeService noticeService) {
+    public GameService(GameRepository gameRepository, UserService userService, WalletService walletService, LoyaltyService loyaltyService, NoticeService noticeService, ApplicationEventPublisher eventPublisher, GameCacheService gameCacheService, MeterRegistry meterRegistry) {
         this.gameRepository = gameRepository;
         this.userService = userService;
         this.walletService = walletService;
         this.loyaltyService = loyaltyService;
         this.noticeService = noticeService;
+        this.eventPublisher = eventPublisher;
+        this.gameCacheService = gameCacheService;
+        this.meterRegistry = meterRegistry;
+
+        for (String outcome : List.of(PURCHASE_SUCCESS, PURCHASE_INSUFFICIENT_FUNDS, PURCHASE_INACTIVE_WALLET,
+                PURCHASE_ALREADY_OWNED, PURCHASE_OWN_GAME, PURCHASE_ERROR)) {
+            purchaseTimers.put(outcome, Timer.builder("games.purchase")
+                    .description("Game purchases by outcome")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
     }
 
 
@@ -78,14 +114,19 @@ public class GameService {
                 .build();
 
         gameRepository.save(game);
+        eventPublisher.publishEvent(GameSearchIndexEvent.indexed(game));
+
+        // новата игра е недостъпна  ->  каталогът не се променя, само списъкът на publisher-а
+        gameCacheService.evictPublisherGames(user.getId());
         log.info("Successfully create new game with Title: [%s].".formatted(game.getTitle()));
     }
 
 
     //@Transactional(readOnly = true)    // Гарантира, че винаги чете от базата
-    // get ALL by PUBLISHERID
-    public List<Game> getAllGamesByPublisherId(UUID publisherId) {
-        return gameRepository.findAllByPublisherIdOrderByReleaseDateDesc(publisherId);
+    // get ALL by PUBLISHERID  -  GameCardView, без entity граф
+    @Cacheable(cacheNames = CacheConfiguration.PUBLISHER_GAMES_CACHE, key = "#publisherId")
+    public List<GameCardView> getAllGamesByPublisherId(UUID publisherId) {
+        return gameRepository.findAllCardsByPublisherId(publisherId);
     }
 
 
@@ -98,12 +139,34 @@ public class GameService {
 
 
     // get ALL AVAILABLE GAMES  -  true
-    public List<Game> getAllAvailableGames() {
-        return gameRepository.findAllByIsAvailableTrueOrderByReleaseDateDesc();
+    @Cacheable(cacheNames = CacheConfiguration.AVAILABLE_GAMES_CACHE)
+    public List<GameCardView> getAllAvailableGames() {
+        return gameRepository.findAllAvailableCards();
+    }
+
+
+    // КАТАЛОГ  -  keyset пагинация по (releaseDate, id)
+    // cursor == null  ->  първа страница
+    // Взимаме size + 1 реда, за да знаем дали има следваща страница без COUNT(*)
+    public KeysetPage<GameCardView> getAvailableGamesPage(String cursor, int size) {
+
+        int pageSize = Math.max(1, Math.min(size, MAX_CATALOG_PAGE_SIZE));
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<GameCardView> games;
+
+        if (cursor == null || cursor.isBlank()) {
+            games = gameRepository.findAvailableCatalogFirstPage(limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            games = gameRepository.findAvailableCatalogPageAfter(after.getTimestamp(), after.getId(), limit);
+        }
+
+        return KeysetPage.of(games, pageSize, game -> new KeysetCursor(game.getReleaseDate(), game.getId()));
     }
 
 
-    // get ONE game
+    // get ONE game  -  entity-то за промени (toggle / edit / покупка);  не се cache-ва, винаги чете от базата
     public Game getGameById(UUID gameId) {
         return gameRepository
                 .findById(gameId)
@@ -111,9 +174,23 @@ public class GameService {
     }
 
 
+    // get ONE game  -  за показване и проверка за собственост;  cache-ва се immutable GameDetailsView, не entity-то
+    @Cacheable(cacheNames = CacheConfiguration.GAMES_CACHE, key = "#gameId")
+    public GameDetailsView getGameDetails(UUID gameId) {
+        return gameRepository
+                .findDetailsById(gameId)
+                .orElseThrow(() -> new DomainException("Game with id [%s] does not exist.".formatted(gameId)));
+    }
+
+
     // delete ONE game
     public void deleteGameById(UUID gameId) {
+
+        Optional<UUID> publisherId = gameRepository.findPublisherIdById(gameId);
+
         gameRepository.deleteById(gameId);
+        eventPublisher.publishEvent(GameSearchIndexEvent.removed(gameId));
+        gameCacheService.evictGameAndListings(gameId, publisherId.orElse(null));
     }
 
 
@@ -133,7 +210,8 @@ public class GameService {
         }
 
         gameRepository.save(game);
-
+        eventPublisher.publishEvent(GameSearchIndexEvent.indexed(game));
+        gameCacheService.evictGameAndListings(gameId, publisherIdOf(game));
     }
 
 
@@ -207,6 +285,8 @@ public class GameService {
 
         // game.set
         gameRepository.save(game);
+        eventPublisher.publishEvent(GameSearchIndexEvent.indexed(game));
+        gameCacheService.evictGameAndListings(gameId, publisherIdOf(game));
     }
 
 
@@ -222,9 +302,29 @@ public class GameService {
     @Transactional
     public Transaction purchaseGame(Game game, User user) {
 
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = PURCHASE_ERROR;
+
+        try {
+            Transaction transaction = buy(game, user);
+            outcome = purchaseOutcome(transaction);
+            return transaction;
+
+        } catch (DomainException e) {
+            outcome = e instanceof PurchaseRejectedException rejected ? rejected.getOutcome() : PURCHASE_ERROR;
+            throw e;
+
+        } finally {
+            sample.stop(purchaseTimers.get(outcome));
+        }
+    }
+
+
+    private Transaction buy(Game game, User user) {
+
         // Проверяваме дали текущият user е Publisher на играта
         if (game.getPublisher().getId().equals(user.getId())) {
-            throw new DomainException("You cannot buy your own created game!");
+            throw new PurchaseRejectedException(PURCHASE_OWN_GAME, "You cannot buy your own created game!");
         }
 
 
@@ -235,7 +335,7 @@ public class GameService {
                 .anyMatch(g -> g.getId().equals(game.getId()));
 
         if (alreadyOwned) {
-            throw new DomainException("You already own this game!");
+            throw new PurchaseRejectedException(PURCHASE_ALREADY_OWNED, "You already own this game!");
         }
 
 
@@ -266,16 +366,12 @@ public class GameService {
         // купихме вече играта и я добавяме към библиотеката LIST на USER-а  (bought games)  >>
         user.getBoughtGames().add(game);
 
-        // Добавяме потребителя към списъка на купилите играта
-        game.getPurchasedByUsers().add(user);
-
-
-        // Запазваме и двете страни в базата; Гарантираме, че релацията @ManyToMany се обновява и в двете посоки!  >>
         // 1. запазваме User-a в db
         userService.saveUser(user);
 
-        // 2. запазваме Game-a в db
-        gameRepository.save(game);
+        // 2. Game притежава games_users  ->  вмъкваме само реда на покупката;  game.purchasedByUsers не се пипа,
+        //    така при rollback няма какво да остане в паметта, а cache-натият GameDetailsView не съдържа купувачите
+        gameRepository.addPurchase(game.getId(), user.getId());
 
 
         // обновяване на Loyalty GAMES STATUS (up +1)  ->  след покупка на GAME
@@ -286,21 +382,57 @@ public class GameService {
         String username = user.getUsername();
         String gameUrl = "http://localhost:8080/games/" + game.getId() + "/explore";
         String publisher = game.getPublisher().getUsername();
-        noticeService.createNotice(user.getId(), game.getId(), "Game Purchased", content, username, gameUrl, publisher);
+        // outbox - записва се в тази транзакция, изпраща се към notice-svc след COMMIT (NoticeOutboxDispatcher)
+        noticeService.enqueueNotice(user.getId(), game.getId(), "Game Purchased", content, username, gameUrl, publisher);
 
 
         return transactionChargeResult;
     }
 
 
-    public List<Game> getMyPurchasedGames(User user) {
-        return gameRepository.findAllByPurchasedByUsersOrderByReleaseDateDesc(user);
+    private static String purchaseOutcome(Transaction transaction) {
+
+        if (transaction.getStatus() != TransactionStatus.FAILED) {
+            return PURCHASE_SUCCESS;
+        }
+
+        return WalletService.INACTIVE_WALLET_REASON.equals(transaction.getFailureReason()) ? PURCHASE_INACTIVE_WALLET : PURCHASE_INSUFFICIENT_FUNDS;
+    }
+
+
+    // отказана покупка  -  DomainException (същото съобщение към потребителя) + изхода за метриката
+    private static class PurchaseRejectedException extends DomainException {
+
+        private final String outcome;
+
+        private PurchaseRejectedException(String outcome, String message) {
+            super(message);
+            this.outcome = outcome;
+        }
+
+        private String getOutcome() {
+            return outcome;
+        }
+    }
+
+
+    // купените игри на user-а  -  GameCardView, без да hydrate-ваме purchasedByUsers на всяка игра
+    public List<GameCardView> getMyPurchasedGames(UUID userId) {
+        return gameRepository.findAllCardsPurchasedByUserId(userId);
+    }
+
+
+    private UUID publisherIdOf(Game game) {
+        return game.getPublisher() != null ? game.getPublisher().getId() : null;
     }
 
 
     @Transactional
     public Game saveGame(Game game) {
         Game savedGame = gameRepository.save(game);
+        eventPublisher.publishEvent(GameSearchIndexEvent.indexed(savedGame));
+        gameCacheService.evictGameAndListings(savedGame.getId(), publisherIdOf(savedGame));
+
         log.info("Game created: {} (Price: {})", game.getTitle(), game.getPrice());
         return savedGame;
     }
@@ -0,0 +1,44 @@
+package app.idempotency.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.*;
+import java.util.*;
+
+
+// Idempotency ключ за POST заявки (напр. покупка на игра):  (user_id, idempotency_key) е UNIQUE
+// transactionId == null  ->  заявката още се изпълнява;  != null  ->  резултатът се връща повторно (replay)
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_user_key", columnNames = {"user_id", "idempotency_key"}),
+        indexes = @Index(name = "idx_idempotency_expires_on", columnList = "expires_on"))
+public class IdempotencyKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(name = "idempotency_key", nullable = false, length = 64)
+    private String idempotencyKey;
+
+    // за коя заявка е използван ключът (напр. "buy:<gameId>") - същият ключ за друга заявка се отказва
+    @Column(nullable = false)
+    private String scope;
+
+    private UUID transactionId;
+
+    @Column(nullable = false)
+    private LocalDateTime createdOn;
+
+    @Column(name = "expires_on", nullable = false)
+    private LocalDateTime expiresOn;
+}
@@ -0,0 +1,52 @@
+package app.idempotency.repository;
+
+import app.idempotency.model.*;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.*;
+import org.springframework.stereotype.*;
+import org.springframework.transaction.annotation.*;
+
+import java.time.*;
+import java.util.*;
+
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, UUID> {
+
+    Optional<IdempotencyKey> findByUserIdAndIdempotencyKey(UUID userId, String idempotencyKey);
+
+    boolean existsByUserIdAndIdempotencyKey(UUID userId, String idempotencyKey);
+
+    // скаларна заявка  ->  винаги отива до базата (не връща вече заредена entity от persistence context-а)
+    @Query("SELECT k.transactionId FROM IdempotencyKey k WHERE k.userId = :userId AND k.idempotencyKey = :idempotencyKey")
+    Optional<UUID> findTransactionId(@Param("userId") UUID userId, @Param("idempotencyKey") String idempotencyKey);
+
+    // само докато резервацията е на тази заявка (id)  ->  0 реда, ако е била reclaim-ната като изоставена
+    // изпълнява се в транзакцията на операцията  ->  покупката и transactionId се записват заедно или изобщо не
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyKey k SET k.transactionId = :transactionId WHERE k.id = :reservationId AND k.transactionId IS NULL")
+    int complete(@Param("reservationId") UUID reservationId, @Param("transactionId") UUID transactionId);
+
+    // освобождава незавършена резервация (заявката е гръмнала)  ->  клиентът може да опита пак със същия ключ
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.id = :reservationId AND k.transactionId IS NULL")
+    int release(@Param("reservationId") UUID reservationId);
+
+    // изоставена резервация (процесът е паднал преди COMMIT)  ->  операцията не е записана и ключът може да се поеме отново
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.userId = :userId AND k.idempotencyKey = :idempotencyKey AND k.transactionId IS NULL AND k.createdOn < :staleBefore")
+    int deleteIfAbandoned(@Param("userId") UUID userId, @Param("idempotencyKey") String idempotencyKey, @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.userId = :userId AND k.idempotencyKey = :idempotencyKey AND k.expiresOn < :now")
+    int deleteIfExpired(@Param("userId") UUID userId, @Param("idempotencyKey") String idempotencyKey, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.expiresOn < :now")
+    int deleteAllExpired(@Param("now") LocalDateTime now);
+}
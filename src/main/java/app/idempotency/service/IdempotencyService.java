@@ -0,0 +1,182 @@
+package app.idempotency.service;
+
+import app.idempotency.model.*;
+import app.idempotency.repository.*;
+import app.shared.exception.*;
+import lombok.extern.slf4j.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.dao.*;
+import org.springframework.stereotype.*;
+import org.springframework.transaction.support.*;
+
+import java.time.*;
+import java.util.*;
+import java.util.function.*;
+
+
+// IDEMPOTENCY за POST заявки, които създават Transaction (покупка на игра):
+// 1-вата заявка с даден ключ резервира (user_id, idempotency_key) -> изпълнява операцията и записва transactionId В ЕДНА транзакция.
+// Дубликат (double-click, retry през load balancer-а) НЕ изпълнява операцията отново, а връща същия transactionId.
+// Резервация без transactionId, по-стара от ${idempotency.reservation-lease}, е изоставена (процесът е паднал преди COMMIT,
+// значи и операцията не е записана)  ->  следващият retry я поема и изпълнява операцията.
+// Ключовете живеят ${idempotency.ttl} и се трият от IdempotencyKeyCleanupScheduler.
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    public static final int MAX_KEY_LENGTH = 64;
+
+    private static final long POLL_INTERVAL_MS = 50;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Duration reservationLease;
+    private final long inFlightWaitMs;
+
+
+    @Autowired
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${idempotency.ttl:24h}") Duration ttl,
+                              @Value("${idempotency.reservation-lease:30s}") Duration reservationLease,
+                              @Value("${idempotency.in-flight-wait-ms:5000}") long inFlightWaitMs) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.ttl = ttl;
+        this.reservationLease = reservationLease;
+        this.inFlightWaitMs = inFlightWaitMs;
+    }
+
+
+    // operation се изпълнява най-много веднъж за (userId, key);  връща id на (оригиналната) Transaction
+    public UUID executeOnce(UUID userId, String key, String scope, Supplier<UUID> operation) {
+
+        if (key == null || key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new DomainException("Invalid idempotency key.");
+        }
+
+        Reservation reservation = reserve(userId, key, scope);
+
+        if (!reservation.owned()) {
+            return replay(reservation.key(), scope);
+        }
+
+        UUID reservationId = reservation.key().getId();
+
+        try {
+            // операцията (@Transactional покупка) се присъединява към тази транзакция  ->  покупката и ключът се COMMIT-ват заедно
+            return transactionTemplate.execute(status -> {
+                UUID transactionId = operation.get();
+
+                if (idempotencyKeyRepository.complete(reservationId, transactionId) == 0) {
+                    // резервацията е поета от retry като изоставена  ->  rollback на операцията, retry-ят я изпълнява
+                    throw new DomainException("A request with idempotency key [%s] is still being processed.".formatted(key));
+                }
+
+                return transactionId;
+            });
+        } catch (RuntimeException e) {
+            // операцията не е минала  ->  освобождаваме ключа, за да може да се опита отново
+            idempotencyKeyRepository.release(reservationId);
+            throw e;
+        }
+    }
+
+
+    public int deleteExpiredKeys() {
+        return idempotencyKeyRepository.deleteAllExpired(LocalDateTime.now());
+    }
+
+
+    // owned  ->  ключът е резервиран от ТАЗИ заявка;  иначе  ->  вече съществуващият запис
+    private Reservation reserve(UUID userId, String key, String scope) {
+
+        LocalDateTime now = LocalDateTime.now();
+
+        Optional<IdempotencyKey> existing = idempotencyKeyRepository.findByUserIdAndIdempotencyKey(userId, key);
+
+        if (existing.isPresent()) {
+            IdempotencyKey current = existing.get();
+
+            if (!current.getExpiresOn().isAfter(now)) {
+                // изтекъл, но още неизтрит от scheduler-а
+                idempotencyKeyRepository.deleteIfExpired(userId, key, now);
+
+            } else if (isAbandoned(current, now) && idempotencyKeyRepository.deleteIfAbandoned(userId, key, now.minus(reservationLease)) > 0) {
+                log.warn("Reclaiming abandoned idempotency key [{}] reserved on {}.", key, current.getCreatedOn());
+
+            } else {
+                return new Reservation(current, false);
+            }
+        }
+
+        IdempotencyKey reservation = IdempotencyKey.builder()
+                .userId(userId)
+                .idempotencyKey(key)
+                .scope(scope)
+                .createdOn(now)
+                .expiresOn(now.plus(ttl))
+                .build();
+
+        try {
+            return new Reservation(idempotencyKeyRepository.saveAndFlush(reservation), true);
+        } catch (DataIntegrityViolationException e) {
+            // паралелна заявка със същия ключ е резервирала първа (UNIQUE user_id + idempotency_key)
+            return new Reservation(idempotencyKeyRepository.findByUserIdAndIdempotencyKey(userId, key)
+                    .orElseThrow(() -> new DomainException("Idempotency key [%s] could not be reserved.".formatted(key), e)), false);
+        }
+    }
+
+
+    private boolean isAbandoned(IdempotencyKey key, LocalDateTime now) {
+        return key.getTransactionId() == null && key.getCreatedOn().isBefore(now.minus(reservationLease));
+    }
+
+
+    private UUID replay(IdempotencyKey existing, String scope) {
+
+        if (!existing.getScope().equals(scope)) {
+            throw new DomainException("Idempotency key [%s] was already used for a different request.".formatted(existing.getIdempotencyKey()));
+        }
+
+        if (existing.getTransactionId() != null) {
+            log.info("Replaying transaction [{}] for idempotency key [{}].", existing.getTransactionId(), existing.getIdempotencyKey());
+            return existing.getTransactionId();
+        }
+
+        return awaitCompletion(existing.getUserId(), existing.getIdempotencyKey());
+    }
+
+
+    // оригиналната заявка още се изпълнява  ->  изчакваме резултата ѝ (ограничено време)
+    private UUID awaitCompletion(UUID userId, String key) {
+
+        long deadline = System.currentTimeMillis() + inFlightWaitMs;
+
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            Optional<UUID> transactionId = idempotencyKeyRepository.findTransactionId(userId, key);
+
+            if (transactionId.isPresent()) {
+                return transactionId.get();
+            }
+
+            if (!idempotencyKeyRepository.existsByUserIdAndIdempotencyKey(userId, key)) {
+                throw new DomainException("The original request failed. Please try again.");
+            }
+        }
+
+        throw new DomainException("A request with idempotency key [%s] is still being processed.".formatted(key));
+    }
+
+
+    private record Reservation(IdempotencyKey key, boolean owned) {
+    }
+}
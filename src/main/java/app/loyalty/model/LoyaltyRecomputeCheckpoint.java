@@ -0,0 +1,51 @@
+package app.loyalty.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.*;
+import java.util.*;
+
+
+// Checkpoint на преизчисляването на Loyalty (LoyaltyRecomputeService) - по един ред на пускане.
+// lastMemberId е keyset курсорът:  записва се в СЪЩАТА транзакция като UPDATE-а на chunk-а,
+// така след срив следващото пускане продължава от първия необработен member, без да повтаря или пропуска chunk.
+// completedOn = null  ->  пускането не е завършило
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "loyalty_recompute_checkpoints")
+public class LoyaltyRecomputeCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    // null  ->  още нито един chunk
+    private UUID lastMemberId;
+
+    @Column(nullable = false)
+    private long processedCount;
+
+    // редове, чиито gamesPurchased или type реално са се променили
+    @Column(nullable = false)
+    private long updatedCount;
+
+    // общ брой Loyalty редове при старта  ->  за прогреса в %
+    @Column(nullable = false)
+    private long totalCount;
+
+    @Column(nullable = false)
+    private int premiumThreshold;
+
+    @Column(nullable = false)
+    private LocalDateTime startedOn;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedOn;
+
+    private LocalDateTime completedOn;
+}
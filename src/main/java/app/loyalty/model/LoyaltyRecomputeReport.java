@@ -0,0 +1,31 @@
+package app.loyalty.model;
+
+import lombok.*;
+
+import java.time.*;
+
+
+// Резултат от едно пускане на преизчисляването на Loyalty (LoyaltyRecomputeService)
+@Getter
+@AllArgsConstructor
+public class LoyaltyRecomputeReport {
+
+    // членове, обработени в ТОВА пускане (при продължение - без вече обработените преди срива)
+    private final long processedCount;
+
+    // редове, чиито gamesPurchased или type реално са се променили
+    private final long updatedCount;
+
+    private final int chunks;
+
+    // true  ->  продължено от checkpoint на недовършено пускане
+    private final boolean resumed;
+
+    private final Duration duration;
+
+
+    public double getMembersPerSecond() {
+        long millis = Math.max(1, duration.toMillis());
+        return processedCount * 1000.0 / millis;
+    }
+}
@@ -0,0 +1,15 @@
+package app.loyalty.repository;
+
+import app.loyalty.model.*;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.stereotype.*;
+
+import java.util.*;
+
+
+@Repository
+public interface LoyaltyRecomputeCheckpointRepository extends JpaRepository<LoyaltyRecomputeCheckpoint, UUID> {
+
+    // недовършено пускане (срив / рестарт)  ->  оттам продължаваме
+    Optional<LoyaltyRecomputeCheckpoint> findFirstByCompletedOnIsNullOrderByStartedOnDesc();
+}
@@ -2,7 +2,9 @@ package app.loyalty.repository;
 
 import app.loyalty.model.*;
 import app.user.model.*;
+import org.springframework.data.domain.*;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.*;
 import org.springframework.stereotype.*;
 
 import java.util.*;
@@ -13,4 +15,47 @@ public interface LoyaltyRepository extends JpaRepository<Loyalty, UUID> {
 
     // Търси по "member" на (User)
     Optional<Loyalty> findByMemberId(UUID memberId);
-}
\ No newline at end of file
+
+    // само типът  ->  без EAGER зареждане на member (User)
+    @Query("SELECT l.type FROM Loyalty l WHERE l.member.id = :memberId")
+    Optional<LoyaltyType> findTypeByMemberId(@Param("memberId") UUID memberId);
+
+
+    // ATOMIC  -  +1 покупка и евентуално PREMIUM в един UPDATE (row lock), без read-modify-write в Java.
+    // CASE вижда стария gamesPurchased  ->  "+ 1" е броят след покупката.  PREMIUM не се сваля обратно до DEFAULT.
+    // 0 засегнати реда  ->  няма Loyalty за този member
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            UPDATE Loyalty l
+            SET l.gamesPurchased = l.gamesPurchased + 1,
+                l.type = CASE WHEN l.gamesPurchased + 1 >= :premiumThreshold THEN app.loyalty.model.LoyaltyType.PREMIUM ELSE l.type END
+            WHERE l.member.id = :memberId
+            """)
+    int incrementGamesPurchased(@Param("memberId") UUID memberId, @Param("premiumThreshold") int premiumThreshold);
+
+
+    // ---------------  RECOMPUTE  -  keyset chunk-ове по member id (LoyaltyRecomputeService)  ---------------
+
+    @Query("SELECT l.member.id FROM Loyalty l ORDER BY l.member.id")
+    List<UUID> findMemberIdsFirstChunk(Limit limit);
+
+    @Query("SELECT l.member.id FROM Loyalty l WHERE l.member.id > :afterMemberId ORDER BY l.member.id")
+    List<UUID> findMemberIdsAfter(@Param("afterMemberId") UUID afterMemberId, Limit limit);
+
+    // SET-BASED:  gamesPurchased и type наново от games_users за целия chunk с един UPDATE (без зареждане на entity-та)
+    // пипат се само редовете, които реално се различават  ->  върнатият брой е броят на поправените
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            UPDATE Loyalty l
+            SET l.gamesPurchased = (SELECT COUNT(g) FROM Game g JOIN g.purchasedByUsers u WHERE u.id = l.member.id),
+                l.type = CASE WHEN (SELECT COUNT(g) FROM Game g JOIN g.purchasedByUsers u WHERE u.id = l.member.id) >= :premiumThreshold
+                              THEN app.loyalty.model.LoyaltyType.PREMIUM
+                              ELSE app.loyalty.model.LoyaltyType.DEFAULT END
+            WHERE l.member.id IN :memberIds
+              AND (l.gamesPurchased <> (SELECT COUNT(g) FROM Game g JOIN g.purchasedByUsers u WHERE u.id = l.member.id)
+                   OR l.type <> CASE WHEN (SELECT COUNT(g) FROM Game g JOIN g.purchasedByUsers u WHERE u.id = l.member.id) >= :premiumThreshold
+                                     THEN app.loyalty.model.LoyaltyType.PREMIUM
+                                     ELSE app.loyalty.model.LoyaltyType.DEFAULT END)
+            """)
+    int recomputeByMemberIds(@Param("memberIds") Collection<UUID> memberIds, @Param("premiumThreshold") int premiumThreshold);
+}
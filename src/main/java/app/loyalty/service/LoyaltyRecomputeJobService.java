@@ -0,0 +1,97 @@
+package app.loyalty.service;
+
+import app.loyalty.model.*;
+import app.schedulerlock.service.*;
+import io.micrometer.core.instrument.*;
+import lombok.extern.slf4j.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.scheduling.annotation.*;
+import org.springframework.stereotype.*;
+
+import java.time.*;
+import java.util.concurrent.atomic.*;
+
+
+// JOB-ът за преизчисляване на Loyalty (LoyaltyRecomputeService) под lock  -  само един node (SchedulerLockService).
+// Пуска се от cron-а (LoyaltyRecomputeScheduler) и от admin бутона в /users (triggerRecompute).
+// При срив следващото пускане продължава от checkpoint-а;  lock-ът изтича след LOCK_AT_MOST_FOR.
+// Метрики:  loyalty.recompute.processed / loyalty.recompute.updated (counters),  loyalty.recompute.duration (timer),
+//           loyalty.recompute.last.throughput (gauge - членове/сек при последното пускане)
+@Slf4j
+@Service
+public class LoyaltyRecomputeJobService {
+
+    static final String LOCK_NAME = "loyaltyRecompute";
+    private static final Duration LOCK_AT_MOST_FOR = Duration.ofHours(1);
+    private static final Duration LOCK_AT_LEAST_FOR = Duration.ofMinutes(1);
+
+    private final LoyaltyRecomputeService loyaltyRecomputeService;
+    private final SchedulerLockService schedulerLockService;
+
+    private final int chunkSize;
+
+    private final Counter processedCounter;
+    private final Counter updatedCounter;
+    private final Timer durationTimer;
+    private final AtomicLong lastThroughput = new AtomicLong();
+
+
+    @Autowired
+    public LoyaltyRecomputeJobService(LoyaltyRecomputeService loyaltyRecomputeService,
+                                      SchedulerLockService schedulerLockService,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${loyalty.recompute.chunk-size:1000}") int chunkSize) {
+        this.loyaltyRecomputeService = loyaltyRecomputeService;
+        this.schedulerLockService = schedulerLockService;
+        this.chunkSize = chunkSize;
+
+        this.processedCounter = Counter.builder("loyalty.recompute.processed")
+                .description("Loyalty members recomputed")
+                .register(meterRegistry);
+        this.updatedCounter = Counter.builder("loyalty.recompute.updated")
+                .description("Loyalty members whose gamesPurchased or type was corrected")
+                .register(meterRegistry);
+        this.durationTimer = Timer.builder("loyalty.recompute.duration")
+                .description("Duration of the loyalty recompute job")
+                .register(meterRegistry);
+
+        Gauge.builder("loyalty.recompute.last.throughput", lastThroughput, AtomicLong::get)
+                .description("Members per second in the last loyalty recompute")
+                .register(meterRegistry);
+    }
+
+
+    // в нишката на извикващия (cron-а);  false  ->  друг node вече преизчислява
+    public boolean recompute() {
+
+        boolean ran = schedulerLockService.runLocked(LOCK_NAME, LOCK_AT_MOST_FOR, LOCK_AT_LEAST_FOR, this::runRecompute);
+
+        if (!ran) {
+            log.info("Loyalty recompute is already running on another node.");
+        }
+
+        return ran;
+    }
+
+
+    // admin бутон  -  в отделна нишка (@EnableAsync), HTTP заявката не чака целия job
+    @Async
+    public void triggerRecompute() {
+        recompute();
+    }
+
+
+    private void runRecompute() {
+        LoyaltyRecomputeReport report = loyaltyRecomputeService.recomputeAll(chunkSize);
+
+        processedCounter.increment(report.getProcessedCount());
+        updatedCounter.increment(report.getUpdatedCount());
+        durationTimer.record(report.getDuration());
+        lastThroughput.set(Math.round(report.getMembersPerSecond()));
+
+        log.info("Loyalty recompute {}: {} members in {} chunks, {} corrected, {} ms ({} members/s).",
+                report.isResumed() ? "resumed and finished" : "finished",
+                report.getProcessedCount(), report.getChunks(), report.getUpdatedCount(),
+                report.getDuration().toMillis(), Math.round(report.getMembersPerSecond()));
+    }
+}
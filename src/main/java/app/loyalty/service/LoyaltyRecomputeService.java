@@ -0,0 +1,168 @@
+package app.loyalty.service;
+
+import app.loyalty.model.*;
+import app.loyalty.repository.*;
+import app.shared.config.*;
+import lombok.extern.slf4j.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.cache.*;
+import org.springframework.data.domain.*;
+import org.springframework.stereotype.*;
+import org.springframework.transaction.support.*;
+
+import java.time.*;
+import java.util.*;
+
+
+// ПРЕИЗЧИСЛЯВАНЕ на Loyalty (gamesPurchased + type) от games_users за всички членове - след смяна на PREMIUM_THRESHOLD
+// или поправка на исторически данни.
+// Keyset chunk-ове по member id + един set-based UPDATE на chunk (без зареждане на entity-та).
+// Всеки chunk е в собствена транзакция ЗАЕДНО с checkpoint-а (LoyaltyRecomputeCheckpoint)  ->  след срив следващото пускане
+// продължава от последния commit-нат chunk.
+@Slf4j
+@Service
+public class LoyaltyRecomputeService {
+
+    private static final int PROGRESS_LOG_EVERY_CHUNKS = 10;
+
+    private final LoyaltyRepository loyaltyRepository;
+    private final LoyaltyRecomputeCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache loyaltyTypes;
+
+
+    @Autowired
+    public LoyaltyRecomputeService(LoyaltyRepository loyaltyRepository,
+                                   LoyaltyRecomputeCheckpointRepository checkpointRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   CacheManager cacheManager) {
+        this.loyaltyRepository = loyaltyRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.loyaltyTypes = cacheManager.getCache(CacheConfiguration.LOYALTY_TYPES_CACHE);
+    }
+
+
+    public LoyaltyRecomputeReport recomputeAll(int chunkSize) {
+
+        long start = System.nanoTime();
+
+        Optional<LoyaltyRecomputeCheckpoint> unfinished = findResumableRun();
+        boolean resumed = unfinished.isPresent();
+
+        LoyaltyRecomputeCheckpoint checkpoint = unfinished.orElseGet(this::startNewRun);
+
+        if (resumed) {
+            log.info("Resuming loyalty recompute after member {} ({} / {} members already processed).",
+                    checkpoint.getLastMemberId(), checkpoint.getProcessedCount(), checkpoint.getTotalCount());
+        }
+
+        long processed = 0;
+        long updated = 0;
+        int chunks = 0;
+
+        List<UUID> chunk = nextChunk(checkpoint.getLastMemberId(), chunkSize);
+
+        while (!chunk.isEmpty()) {
+            List<UUID> memberIds = chunk;
+            LoyaltyRecomputeCheckpoint current = checkpoint;
+            long updatedBefore = current.getUpdatedCount();
+
+            checkpoint = transactionTemplate.execute(status -> recomputeChunk(current, memberIds));
+
+            chunks++;
+            processed += memberIds.size();
+            updated += checkpoint.getUpdatedCount() - updatedBefore;
+
+            if (chunks % PROGRESS_LOG_EVERY_CHUNKS == 0) {
+                logProgress(checkpoint, processed, start);
+            }
+
+            if (memberIds.size() < chunkSize) {
+                break;
+            }
+
+            chunk = nextChunk(checkpoint.getLastMemberId(), chunkSize);
+        }
+
+        checkpoint.setCompletedOn(LocalDateTime.now());
+        checkpoint.setUpdatedOn(LocalDateTime.now());
+        checkpointRepository.save(checkpoint);
+
+        return new LoyaltyRecomputeReport(processed, updated, chunks, resumed, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+
+    // недовършено пускане със същия праг  ->  продължаваме;  с друг праг (сменен PREMIUM_THRESHOLD)  ->  затваряме го и почваме отначало
+    private Optional<LoyaltyRecomputeCheckpoint> findResumableRun() {
+
+        Optional<LoyaltyRecomputeCheckpoint> unfinished = checkpointRepository.findFirstByCompletedOnIsNullOrderByStartedOnDesc();
+
+        if (unfinished.isPresent() && unfinished.get().getPremiumThreshold() != LoyaltyService.PREMIUM_THRESHOLD) {
+            LoyaltyRecomputeCheckpoint stale = unfinished.get();
+            log.warn("Unfinished loyalty recompute {} used premium threshold {}; starting over with {}.",
+                    stale.getId(), stale.getPremiumThreshold(), LoyaltyService.PREMIUM_THRESHOLD);
+
+            stale.setCompletedOn(LocalDateTime.now());
+            checkpointRepository.save(stale);
+            return Optional.empty();
+        }
+
+        return unfinished;
+    }
+
+
+    private LoyaltyRecomputeCheckpoint startNewRun() {
+
+        LocalDateTime now = LocalDateTime.now();
+
+        return checkpointRepository.save(LoyaltyRecomputeCheckpoint.builder()
+                .totalCount(loyaltyRepository.count())
+                .premiumThreshold(LoyaltyService.PREMIUM_THRESHOLD)
+                .startedOn(now)
+                .updatedOn(now)
+                .build());
+    }
+
+
+    private List<UUID> nextChunk(UUID afterMemberId, int chunkSize) {
+
+        if (afterMemberId == null) {
+            return loyaltyRepository.findMemberIdsFirstChunk(Limit.of(chunkSize));
+        }
+
+        return loyaltyRepository.findMemberIdsAfter(afterMemberId, Limit.of(chunkSize));
+    }
+
+
+    // UPDATE на chunk-а + checkpoint в една транзакция
+    private LoyaltyRecomputeCheckpoint recomputeChunk(LoyaltyRecomputeCheckpoint checkpoint, List<UUID> memberIds) {
+
+        int changed = loyaltyRepository.recomputeByMemberIds(memberIds, checkpoint.getPremiumThreshold());
+
+        checkpoint.setLastMemberId(memberIds.get(memberIds.size() - 1));
+        checkpoint.setProcessedCount(checkpoint.getProcessedCount() + memberIds.size());
+        checkpoint.setUpdatedCount(checkpoint.getUpdatedCount() + changed);
+        checkpoint.setUpdatedOn(LocalDateTime.now());
+
+        // типът може да се е сменил  ->  evict след commit (TransactionAwareCacheManagerProxy)
+        if (changed > 0) {
+            memberIds.forEach(loyaltyTypes::evict);
+        }
+
+        return checkpointRepository.save(checkpoint);
+    }
+
+
+    private void logProgress(LoyaltyRecomputeCheckpoint checkpoint, long processedThisRun, long startNanos) {
+
+        long total = Math.max(1, checkpoint.getTotalCount());
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+
+        log.info("Loyalty recompute: {} / {} members ({}%), {} updated, {} members/s.",
+                checkpoint.getProcessedCount(), checkpoint.getTotalCount(),
+                Math.min(100, checkpoint.getProcessedCount() * 100 / total),
+                checkpoint.getUpdatedCount(),
+                processedThisRun * 1000 / elapsedMillis);
+    }
+}
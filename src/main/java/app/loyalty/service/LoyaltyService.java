@@ -2,11 +2,14 @@ package app.loyalty.service;
 
 import app.loyalty.model.*;
 import app.loyalty.repository.*;
+import app.shared.config.*;
 import app.shared.exception.*;
 import app.user.model.*;
 import lombok.extern.slf4j.*;
 import org.springframework.beans.factory.annotation.*;
+import org.springframework.cache.*;
 import org.springframework.stereotype.*;
+import org.springframework.transaction.annotation.*;
 
 import java.util.*;
 
@@ -15,15 +18,20 @@ import java.util.*;
 @Service
 public class LoyaltyService {
 
-    private static final int PREMIUM_THRESHOLD = 2;         // След 2 покупки става PREMIUM
+    public static final int PREMIUM_THRESHOLD = 2;          // След 2 покупки става PREMIUM  (LoyaltyRecomputeService / BulkDataSeeder го ползват)
     private static final double DISCOUNT_PERCENTAGE = 0.3;  // 30% отстъпка за всяка следваща покупка
 
     private final LoyaltyRepository loyaltyRepository;
 
+    // userId -> LoyaltyType  (ограничен Caffeine cache, виж cache.loyalty-types.spec)
+    // пълни се при първо четене и се обновява от updateLoyaltyAfterPurchase  ->  отстъпката при покупка е без заявка
+    private final Cache loyaltyTypes;
+
 
     @Autowired
-    public LoyaltyService(LoyaltyRepository loyaltyRepository) {
+    public LoyaltyService(LoyaltyRepository loyaltyRepository, CacheManager cacheManager) {
         this.loyaltyRepository = loyaltyRepository;
+        this.loyaltyTypes = cacheManager.getCache(CacheConfiguration.LOYALTY_TYPES_CACHE);
     }
 
 
@@ -52,20 +60,23 @@ public class LoyaltyService {
 
 
     // UPDATE
-    // ОБНОВЯВАНЕ на Loyalty след покупка на игра
+    // ОБНОВЯВАНЕ на Loyalty след покупка на игра  -  един атомарен UPDATE (без SELECT на entity-то)
+    // паралелни покупки на един и същи user не губят увеличения
+    @Transactional
     public void updateLoyaltyAfterPurchase(User member) {
 
-        Loyalty loyalty = getLoyaltyByUserId(member.getId());
-
-        // Увеличаваме броя на покупките
-        loyalty.setGamesPurchased(loyalty.getGamesPurchased() + 1);
+        int updated = loyaltyRepository.incrementGamesPurchased(member.getId(), PREMIUM_THRESHOLD);
 
-        // Проверяваме дали трябва да стане PREMIUM
-        if (loyalty.getGamesPurchased() >= PREMIUM_THRESHOLD) {
-            loyalty.setType(LoyaltyType.PREMIUM);
+        if (updated == 0) {
+            throw new DomainException("Loyalty record not found for user with id: " + member.getId());
         }
 
-        loyaltyRepository.save(loyalty);
+        // PREMIUM остава PREMIUM;  иначе новият тип се чете в същата транзакция и се записва в cache-а
+        // в транзакция (покупката)  ->  put-ът се прилага едва след commit (TransactionAwareCacheManagerProxy) и е последният запис
+        if (loyaltyTypes.get(member.getId(), LoyaltyType.class) != LoyaltyType.PREMIUM) {
+            loyaltyRepository.findTypeByMemberId(member.getId())
+                    .ifPresent(type -> loyaltyTypes.put(member.getId(), type));
+        }
     }
 
 
@@ -84,14 +95,34 @@ public class LoyaltyService {
     // Проверка дали потребителят е:  PREMIUM member вече  ->  true/false
     public boolean hasPremiumDiscount(UUID userId) {
 
-        Loyalty loyalty = getLoyaltyByUserId(userId);
-
-        boolean isPremium = loyalty.getType() == LoyaltyType.PREMIUM;
+        boolean isPremium = getLoyaltyType(userId) == LoyaltyType.PREMIUM;
 
         return isPremium;
     }
 
 
+    // от cache-а;  при липса  ->  една заявка само за типа
+    // putIfAbsent  ->  прочетеният тук (може би вече стар) тип не презаписва типа, записан от покупка междувременно
+    public LoyaltyType getLoyaltyType(UUID userId) {
+
+        LoyaltyType type = loyaltyTypes.get(userId, LoyaltyType.class);
+
+        if (type == null) {
+            type = loyaltyRepository
+                    .findTypeByMemberId(userId)
+                    .orElseThrow(() -> new DomainException("Loyalty record not found for user with id: " + userId));
+
+            Cache.ValueWrapper existing = loyaltyTypes.putIfAbsent(userId, type);
+
+            if (existing != null && existing.get() instanceof LoyaltyType cached) {
+                return cached;
+            }
+        }
+
+        return type;
+    }
+
+
     // връща правилната отстъпка (0% или 30%)
     public double getDiscountPercentage(UUID userId) {
 
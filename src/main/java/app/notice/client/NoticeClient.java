@@ -9,7 +9,8 @@ import org.springframework.web.bind.annotation.*;
 import java.util.*;
 
 
-@FeignClient(name = "notice-svc", url = "http://localhost:8081/api/v1/notices")
+// connect / read timeout-и:  spring.cloud.openfeign.client.config.notice-svc.*  (application.properties)
+@FeignClient(name = "notice-svc", url = "${notice-svc.url:http://localhost:8081/api/v1/notices}")
 public interface NoticeClient {
 
     // ТЕСТОВ МЕТОД за Hello
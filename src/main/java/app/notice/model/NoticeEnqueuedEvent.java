@@ -0,0 +1,8 @@
+package app.notice.model;
+
+import java.util.*;
+
+
+// публикува се при запис в outbox-а  ->  dispatcher-ът тръгва веднага след COMMIT, без да чака следващия poll
+public record NoticeEnqueuedEvent(UUID messageId) {
+}
@@ -0,0 +1,59 @@
+package app.notice.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.*;
+import java.util.*;
+
+
+// TRANSACTIONAL OUTBOX:  notice-ът се записва в същата DB транзакция като покупката,
+// а NoticeOutboxDispatcher го изпраща към notice-svc асинхронно (batch + retry с backoff)
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "notice_outbox", indexes = @Index(name = "idx_notice_outbox_due", columnList = "status, next_attempt_on"))
+public class NoticeOutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    private UUID userId;
+
+    private UUID gameId;
+
+    @Column(nullable = false)
+    private String title;
+
+    @Column(length = 1000)
+    private String description;
+
+    private String username;
+
+    private String gameUrl;
+
+    private String publisher;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private NoticeOutboxStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    // кога може да се опита (отново) изпращане  -  backoff след грешка, lease докато се изпраща
+    @Column(name = "next_attempt_on", nullable = false)
+    private LocalDateTime nextAttemptOn;
+
+    private String lastError;
+
+    @Column(nullable = false)
+    private LocalDateTime createdOn;
+
+    private LocalDateTime sentOn;
+}
@@ -0,0 +1,7 @@
+package app.notice.model;
+
+public enum NoticeOutboxStatus {
+    PENDING,
+    SENT,
+    FAILED;
+}
@@ -0,0 +1,56 @@
+package app.notice.repository;
+
+import app.notice.model.*;
+import org.springframework.data.domain.*;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.*;
+import org.springframework.stereotype.*;
+import org.springframework.transaction.annotation.*;
+
+import java.time.*;
+import java.util.*;
+
+
+@Repository
+public interface NoticeOutboxRepository extends JpaRepository<NoticeOutboxMessage, UUID> {
+
+    // най-старите чакащи съобщения, чието време за (повторен) опит е настъпило
+    @Query("""
+            SELECT m FROM NoticeOutboxMessage m
+            WHERE m.status = app.notice.model.NoticeOutboxStatus.PENDING AND m.nextAttemptOn <= :now
+            ORDER BY m.nextAttemptOn, m.createdOn
+            """)
+    List<NoticeOutboxMessage> findDue(@Param("now") LocalDateTime now, Limit limit);
+
+    // CLAIM:  условен UPDATE  ->  само един dispatcher (нишка / node) взима съобщението;  0 реда = някой друг го е взел
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE NoticeOutboxMessage m SET m.nextAttemptOn = :leaseUntil
+            WHERE m.id = :id AND m.status = app.notice.model.NoticeOutboxStatus.PENDING AND m.nextAttemptOn <= :now
+            """)
+    int claim(@Param("id") UUID id, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    // веднага след успешното изпращане на съобщението  ->  изтекъл lease или crash по-късно в batch-а не го изпраща отново
+    @Transactional
+    @Modifying
+    @Query("UPDATE NoticeOutboxMessage m SET m.status = app.notice.model.NoticeOutboxStatus.SENT, m.sentOn = :sentOn WHERE m.id = :id")
+    int markSent(@Param("id") UUID id, @Param("sentOn") LocalDateTime sentOn);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE NoticeOutboxMessage m
+            SET m.status = :status, m.attempts = :attempts, m.nextAttemptOn = :nextAttemptOn, m.lastError = :lastError
+            WHERE m.id = :id
+            """)
+    int markFailedAttempt(@Param("id") UUID id, @Param("status") NoticeOutboxStatus status, @Param("attempts") int attempts,
+                          @Param("nextAttemptOn") LocalDateTime nextAttemptOn, @Param("lastError") String lastError);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM NoticeOutboxMessage m WHERE m.status = app.notice.model.NoticeOutboxStatus.SENT AND m.sentOn < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+
+    long countByStatus(NoticeOutboxStatus status);
+}
@@ -0,0 +1,200 @@
+package app.notice.service;
+
+import app.notice.model.*;
+import app.notice.repository.*;
+import app.schedulerlock.service.*;
+import lombok.extern.slf4j.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.data.domain.*;
+import org.springframework.scheduling.annotation.*;
+import org.springframework.stereotype.*;
+import org.springframework.transaction.event.*;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+
+// DISPATCHER на notice outbox-а:  чете чакащите съобщения на batch-ове, claim-ва всяко (условен UPDATE),
+// изпраща го към notice-svc ИЗВЪН DB транзакция и го маркира SENT веднага след успеха (не в края на batch-а:
+// batch от 50 x Feign timeout може да надхвърли lease-а и друг node да вземе вече изпратени съобщения).
+// При грешка:  attempts++  и  nextAttemptOn = now + backoff (експоненциален, с таван);  след maxAttempts  ->  FAILED.
+@Slf4j
+@Component
+public class NoticeOutboxDispatcher {
+
+    private static final int MAX_BATCHES_PER_RUN = 20;
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private static final String PURGE_LOCK_NAME = "noticeOutboxPurge";
+    private static final Duration PURGE_LOCK_AT_MOST_FOR = Duration.ofMinutes(10);
+    private static final Duration PURGE_LOCK_AT_LEAST_FOR = Duration.ofMinutes(1);
+
+    private final NoticeOutboxRepository noticeOutboxRepository;
+    private final NoticeService noticeService;
+    private final SchedulerLockService schedulerLockService;
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+    private final Duration sentRetention;
+
+    // събитията от много покупки се сливат в едно изпълнение
+    private final AtomicBoolean dispatching = new AtomicBoolean(false);
+    private final AtomicBoolean dispatchRequested = new AtomicBoolean(false);
+
+
+    @Autowired
+    public NoticeOutboxDispatcher(NoticeOutboxRepository noticeOutboxRepository,
+                                  NoticeService noticeService,
+                                  SchedulerLockService schedulerLockService,
+                                  @Value("${notice.outbox.batch-size:50}") int batchSize,
+                                  @Value("${notice.outbox.max-attempts:8}") int maxAttempts,
+                                  @Value("${notice.outbox.initial-backoff:5s}") Duration initialBackoff,
+                                  @Value("${notice.outbox.max-backoff:10m}") Duration maxBackoff,
+                                  @Value("${notice.outbox.lease:1m}") Duration lease,
+                                  @Value("${notice.outbox.sent-retention:7d}") Duration sentRetention) {
+        this.noticeOutboxRepository = noticeOutboxRepository;
+        this.noticeService = noticeService;
+        this.schedulerLockService = schedulerLockService;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+        this.sentRetention = sentRetention;
+    }
+
+
+    // веднага след COMMIT на покупката, в отделна нишка (@EnableAsync)
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onNoticeEnqueued(NoticeEnqueuedEvent event) {
+        dispatchPendingNotices();
+    }
+
+
+    // резервен poll  -  retry-ите с backoff и съобщенията, чието събитие е изпуснато (рестарт, друг node)
+    @Scheduled(fixedDelayString = "${notice.outbox.poll-interval-ms:5000}", initialDelayString = "${notice.outbox.poll-interval-ms:5000}")
+    public void dispatchPendingNotices() {
+
+        dispatchRequested.set(true);
+
+        // вече тече изпълнение  ->  то ще види флага и ще направи още един проход
+        if (!dispatching.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            while (dispatchRequested.getAndSet(false)) {
+                drain();
+            }
+        } finally {
+            dispatching.set(false);
+        }
+    }
+
+
+    // всеки час - трие изпратените съобщения, по-стари от sent-retention;  само един node (SchedulerLockService)
+    // poll-ът горе НЕ е под lock - всяко съобщение се claim-ва поотделно, node-овете си делят работата
+    @Scheduled(cron = "0 30 * * * *")
+    public void purgeSentNotices() {
+        schedulerLockService.runLocked(PURGE_LOCK_NAME, PURGE_LOCK_AT_MOST_FOR, PURGE_LOCK_AT_LEAST_FOR, this::purgeSent);
+    }
+
+
+    private void purgeSent() {
+        int deleted = noticeOutboxRepository.deleteSentBefore(LocalDateTime.now().minus(sentRetention));
+
+        if (deleted > 0) {
+            log.info("Purged {} sent notice outbox messages.", deleted);
+        }
+    }
+
+
+    private void drain() {
+
+        for (int i = 0; i < MAX_BATCHES_PER_RUN && noticeService.isNoticeSvcAvailable(); i++) {
+            List<NoticeOutboxMessage> batch = noticeOutboxRepository.findDue(LocalDateTime.now(), Limit.of(batchSize));
+
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            dispatchBatch(batch);
+
+            if (batch.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+
+    private void dispatchBatch(List<NoticeOutboxMessage> batch) {
+
+        int sentCount = 0;
+
+        for (NoticeOutboxMessage message : batch) {
+
+            // circuit-ът е OPEN  ->  спираме; съобщенията остават PENDING без да губят опити
+            if (!noticeService.isNoticeSvcAvailable()) {
+                log.info("notice-svc circuit is open, postponing notice outbox dispatch.");
+                break;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+
+            // claim  ->  докато трае lease-ът, никой друг dispatcher не го взима
+            if (noticeOutboxRepository.claim(message.getId(), now, now.plus(lease)) == 0) {
+                continue;
+            }
+
+            boolean sent;
+            String error = null;
+            try {
+                sent = noticeService.createNotice(message.getUserId(), message.getGameId(), message.getTitle(), message.getDescription(),
+                        message.getUsername(), message.getGameUrl(), message.getPublisher());
+            } catch (RuntimeException e) {
+                sent = false;
+                error = e.getMessage();
+            }
+
+            if (sent) {
+                noticeOutboxRepository.markSent(message.getId(), LocalDateTime.now());
+                sentCount++;
+            } else {
+                scheduleRetry(message, error != null ? error : "notice-svc did not accept the notice");
+            }
+        }
+
+        if (sentCount > 0) {
+            log.info("Dispatched {} notices to notice-svc.", sentCount);
+        }
+    }
+
+
+    private void scheduleRetry(NoticeOutboxMessage message, String error) {
+
+        int attempts = message.getAttempts() + 1;
+        String lastError = error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+
+        if (attempts >= maxAttempts) {
+            noticeOutboxRepository.markFailedAttempt(message.getId(), NoticeOutboxStatus.FAILED, attempts, LocalDateTime.now(), lastError);
+            log.error("Notice outbox message [{}] for user [{}] failed after {} attempts.", message.getId(), message.getUserId(), attempts);
+            return;
+        }
+
+        LocalDateTime nextAttemptOn = LocalDateTime.now().plus(backoff(attempts));
+        noticeOutboxRepository.markFailedAttempt(message.getId(), NoticeOutboxStatus.PENDING, attempts, nextAttemptOn, lastError);
+        log.warn("Notice outbox message [{}] failed (attempt {}), next attempt at {}.", message.getId(), attempts, nextAttemptOn);
+    }
+
+
+    // initialBackoff * 2^(attempts - 1), но не повече от maxBackoff
+    Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+}
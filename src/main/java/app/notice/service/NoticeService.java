@@ -2,29 +2,104 @@ package app.notice.service;
 
 import app.notice.client.*;
 import app.notice.client.dto.*;
+import app.notice.model.*;
+import app.notice.repository.*;
+import io.github.resilience4j.bulkhead.*;
+import io.github.resilience4j.circuitbreaker.*;
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.*;
 import org.springframework.beans.factory.annotation.*;
+import org.springframework.context.*;
 import org.springframework.core.io.*;
 import org.springframework.http.*;
 import org.springframework.stereotype.*;
+import org.springframework.transaction.annotation.*;
 
+import java.time.*;
 import java.util.*;
+import java.util.function.*;
 
 
+// Всички извиквания към notice-svc минават през CircuitBreaker + Bulkhead "notice-svc" (resilience4j):
+// при недостъпен notice-svc circuit-ът се отваря и извикванията се отказват веднага (без да чакат Feign timeout-а),
+// а bulkhead-ът ограничава колко нишки могат да чакат notice-svc едновременно.
 @Slf4j
 @Service
 public class NoticeService {
 
     private final NoticeClient noticeClient;
+    private final NoticeOutboxRepository noticeOutboxRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final MeterRegistry meterRegistry;
+    private final Counter enqueuedCounter;
+
+    public static final String NOTICE_SVC = "notice-svc";
+
+    // извикванията към notice-svc  ->  /actuator/metrics/notice.svc.requests?tag=operation:create&tag=outcome:rejected
+    // rejected  ->  circuit-ът е OPEN или bulkhead-ът е пълен (без HTTP заявка)
+    static final String OUTCOME_SUCCESS = "success";
+    static final String OUTCOME_FAILURE = "failure";
+    static final String OUTCOME_REJECTED = "rejected";
 
 
     @Autowired
-    public NoticeService(NoticeClient noticeClient) {
+    public NoticeService(NoticeClient noticeClient,
+                         NoticeOutboxRepository noticeOutboxRepository,
+                         ApplicationEventPublisher eventPublisher,
+                         CircuitBreakerRegistry circuitBreakerRegistry,
+                         BulkheadRegistry bulkheadRegistry,
+                         MeterRegistry meterRegistry) {
         this.noticeClient = noticeClient;
+        this.noticeOutboxRepository = noticeOutboxRepository;
+        this.eventPublisher = eventPublisher;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(NOTICE_SVC);
+        this.bulkhead = bulkheadRegistry.bulkhead(NOTICE_SVC);
+        this.meterRegistry = meterRegistry;
+        this.enqueuedCounter = Counter.builder("notice.outbox.enqueued")
+                .description("Notices written to the outbox")
+                .register(meterRegistry);
+    }
+
+
+    // false  ->  circuit-ът е OPEN;  outbox dispatcher-ът не харчи retry опити, докато notice-svc е долу
+    public boolean isNoticeSvcAvailable() {
+        return circuitBreaker.getState() != CircuitBreaker.State.OPEN && circuitBreaker.getState() != CircuitBreaker.State.FORCED_OPEN;
+    }
+
+
+    // OUTBOX:  само INSERT в текущата транзакция (напр. покупката) - без HTTP към notice-svc;
+    // изпращането е в NoticeOutboxDispatcher след COMMIT, така че покупката не чака notice-svc
+    @Transactional
+    public void enqueueNotice(UUID userId, UUID gameId, String title, String content, String username, String gameUrl, String publisher) {
+
+        LocalDateTime now = LocalDateTime.now();
+
+        NoticeOutboxMessage message = NoticeOutboxMessage.builder()
+                .userId(userId)
+                .gameId(gameId)
+                .title(title)
+                .description(content)
+                .username(username)
+                .gameUrl(gameUrl)
+                .publisher(publisher)
+                .status(NoticeOutboxStatus.PENDING)
+                .attempts(0)
+                .nextAttemptOn(now)
+                .createdOn(now)
+                .build();
+
+        NoticeOutboxMessage savedMessage = noticeOutboxRepository.save(message);
+
+        eventPublisher.publishEvent(new NoticeEnqueuedEvent(savedMessage.getId()));
+        enqueuedCounter.increment();
     }
 
 
-    public void createNotice(UUID userId, UUID gameId, String title, String content, String username, String gameUrl, String publisher) {
+    // синхронно извикване на notice-svc;  true  ->  notice-ът е създаден (2xx)
+    public boolean createNotice(UUID userId, UUID gameId, String title, String content, String username, String gameUrl, String publisher) {
 
         NoticeRequest request = NoticeRequest.builder()
                 .userId(userId)
@@ -37,24 +112,43 @@ public class NoticeService {
                 .build();
 
         ResponseEntity<Void> httpResponse;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = OUTCOME_FAILURE;
 
         try {
-            httpResponse = noticeClient.createNotice(request);
-            log.info("Successfully created notice for user with ID: {}", userId);
+            httpResponse = callNoticeSvc(() -> noticeClient.createNotice(request));
 
             if (!httpResponse.getStatusCode().is2xxSuccessful()) {
                 log.error("[Feign call to notice-svc failed] Can't create notice to user with id = [%s]".formatted(userId));
+                return false;
             }
 
+            log.info("Successfully created notice for user with ID: {}", userId);
+            outcome = OUTCOME_SUCCESS;
+            return true;
+
+        } catch (CallNotPermittedException | BulkheadFullException e) {
+            log.warn("Can't create notice to user with id = [{}]: notice-svc calls are not permitted ({}).", userId, e.getClass().getSimpleName());
+            outcome = OUTCOME_REJECTED;
+            return false;
+
         } catch (Exception e) {
             log.warn("Can't create notice to user with id = [%s] due to 500 Internal Server Error.".formatted(userId));
+            return false;
+
+        } finally {
+            sample.stop(requestTimer("create", outcome));
         }
     }
 
 
     public Resource downloadNotice(UUID gameId, UUID userId) {
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = OUTCOME_FAILURE;
+
         try {
-            ResponseEntity<Resource> response = noticeClient.downloadNotice(gameId, userId);
+            ResponseEntity<Resource> response = callNoticeSvc(() -> noticeClient.downloadNotice(gameId, userId));
 
             if (!response.getStatusCode().is2xxSuccessful()) {
                 log.warn("Can't create notice to user with id = [{}] due to {}", userId, response.getStatusCode());
@@ -66,15 +160,39 @@ public class NoticeService {
                 return null;
             }
 
+            outcome = OUTCOME_SUCCESS;
             return response.getBody();
 
+        } catch (CallNotPermittedException | BulkheadFullException e) {
+            log.warn("Failed to download notice for gameId: {} and userId: {}: notice-svc calls are not permitted.", gameId, userId);
+            outcome = OUTCOME_REJECTED;
+            return null;
+
         } catch (Exception e) {
             log.warn("Failed to download notice for gameId: {} and userId: {}", gameId, userId, e.getMessage());
             return null;
+
+        } finally {
+            sample.stop(requestTimer("download", outcome));
         }
     }
 
 
+    private Timer requestTimer(String operation, String outcome) {
+        return Timer.builder("notice.svc.requests")
+                .description("Calls to notice-svc by operation and outcome")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+
+    // Bulkhead (вътре) -> CircuitBreaker (отвън):  при OPEN circuit хвърля CallNotPermittedException веднага
+    private <T> T callNoticeSvc(Supplier<T> call) {
+        return CircuitBreaker.decorateSupplier(circuitBreaker, Bulkhead.decorateSupplier(bulkhead, call)).get();
+    }
+
+
 }
 
 
@@ -0,0 +1,83 @@
+package app.notice.service;
+
+import app.notice.client.*;
+import io.github.resilience4j.circuitbreaker.*;
+import lombok.extern.slf4j.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.actuate.health.*;
+import org.springframework.boot.autoconfigure.condition.*;
+import org.springframework.http.*;
+import org.springframework.scheduling.annotation.*;
+import org.springframework.stereotype.*;
+
+import java.time.*;
+import java.util.concurrent.atomic.*;
+
+
+// HEALTH на notice-svc  ->  /actuator/health/noticeSvc
+// Проверката тече във фонов режим (@Scheduled), а health() само връща последния резултат:
+// стартът на приложението и /actuator/health никога не чакат notice-svc.
+// Недостъпен notice-svc  ->  DEGRADED (магазинът работи, notice-ите чакат в outbox-а), а не DOWN.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "notice-svc.health.enabled", havingValue = "true", matchIfMissing = true)
+public class NoticeSvcHealthIndicator implements HealthIndicator {
+
+    public static final Status DEGRADED = new Status("DEGRADED", "notice-svc is unreachable; notices are queued in the outbox");
+
+    private final NoticeClient noticeClient;
+    private final CircuitBreaker circuitBreaker;
+
+    // UNKNOWN до първата проверка
+    private final AtomicReference<Health> lastHealth = new AtomicReference<>(Health.unknown().withDetail("reason", "not checked yet").build());
+
+
+    @Autowired
+    public NoticeSvcHealthIndicator(NoticeClient noticeClient, CircuitBreakerRegistry circuitBreakerRegistry) {
+        this.noticeClient = noticeClient;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(NoticeService.NOTICE_SVC);
+    }
+
+
+    @Override
+    public Health health() {
+        return Health.status(lastHealth.get().getStatus())
+                .withDetails(lastHealth.get().getDetails())
+                .withDetail("circuitBreakerState", circuitBreaker.getState())
+                .build();
+    }
+
+
+    // scheduler-ът има няколко нишки (spring.task.scheduling.pool.size)  ->  бавен notice-svc не блокира другите задачи
+    @Scheduled(fixedDelayString = "${notice-svc.health.probe-interval-ms:30000}", initialDelayString = "${notice-svc.health.initial-delay-ms:5000}")
+    public void probe() {
+
+        LocalDateTime checkedOn = LocalDateTime.now();
+        long start = System.nanoTime();
+
+        Health health;
+        try {
+            ResponseEntity<String> response = noticeClient.getHelloMessage("health-check");
+            long latencyMs = (System.nanoTime() - start) / 1_000_000;
+
+            Health.Builder builder = response.getStatusCode().is2xxSuccessful() ? Health.up() : Health.status(DEGRADED);
+            health = builder
+                    .withDetail("httpStatus", response.getStatusCode().value())
+                    .withDetail("latencyMs", latencyMs)
+                    .withDetail("checkedOn", checkedOn)
+                    .build();
+
+        } catch (Exception e) {
+            health = Health.status(DEGRADED)
+                    .withDetail("error", e.getClass().getSimpleName())
+                    .withDetail("checkedOn", checkedOn)
+                    .build();
+        }
+
+        Health previous = lastHealth.getAndSet(health);
+
+        if (!health.getStatus().equals(previous.getStatus())) {
+            log.info("notice-svc health changed: {} -> {}", previous.getStatus(), health.getStatus());
+        }
+    }
+}
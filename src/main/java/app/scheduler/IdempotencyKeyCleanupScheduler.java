@@ -0,0 +1,47 @@
+package app.scheduler;
+
+import app.idempotency.service.*;
+import app.schedulerlock.service.*;
+import lombok.extern.slf4j.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.scheduling.annotation.*;
+import org.springframework.stereotype.*;
+
+import java.time.*;
+
+
+// SCHEDULER:  трие изтеклите idempotency ключове (TTL = idempotency.ttl);  само един node (SchedulerLockService)
+@Slf4j
+@Component
+public class IdempotencyKeyCleanupScheduler {
+
+    private final IdempotencyService idempotencyService;
+    private final SchedulerLockService schedulerLockService;
+
+    private static final String LOCK_NAME = "idempotencyKeyCleanup";
+    private static final Duration LOCK_AT_MOST_FOR = Duration.ofMinutes(10);
+    private static final Duration LOCK_AT_LEAST_FOR = Duration.ofMinutes(1);
+
+
+    @Autowired
+    public IdempotencyKeyCleanupScheduler(IdempotencyService idempotencyService, SchedulerLockService schedulerLockService) {
+        this.idempotencyService = idempotencyService;
+        this.schedulerLockService = schedulerLockService;
+    }
+
+
+    // на всеки час
+    @Scheduled(cron = "0 0 * * * *")
+    public void deleteExpiredIdempotencyKeys() {
+        schedulerLockService.runLocked(LOCK_NAME, LOCK_AT_MOST_FOR, LOCK_AT_LEAST_FOR, this::deleteExpiredKeys);
+    }
+
+
+    private void deleteExpiredKeys() {
+        int deleted = idempotencyService.deleteExpiredKeys();
+
+        if (deleted > 0) {
+            log.info("Deleted {} expired idempotency keys.", deleted);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package app.scheduler;
+
+import app.loyalty.service.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.scheduling.annotation.*;
+import org.springframework.stereotype.*;
+
+
+// SCHEDULER:  преизчислява Loyalty на всички членове от games_users (LoyaltyRecomputeJobService - lock, метрики).
+// По подразбиране НЕ е насрочен (loyalty.recompute.cron=-);  admin-ът го пуска от /users.
+@Component
+public class LoyaltyRecomputeScheduler {
+
+    private final LoyaltyRecomputeJobService loyaltyRecomputeJobService;
+
+
+    @Autowired
+    public LoyaltyRecomputeScheduler(LoyaltyRecomputeJobService loyaltyRecomputeJobService) {
+        this.loyaltyRecomputeJobService = loyaltyRecomputeJobService;
+    }
+
+
+    @Scheduled(cron = "${loyalty.recompute.cron:-}")
+    public void recomputeLoyalty() {
+        loyaltyRecomputeJobService.recompute();
+    }
+}
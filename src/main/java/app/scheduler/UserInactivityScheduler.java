@@ -1,31 +1,69 @@
 package app.scheduler;
 
+import app.schedulerlock.service.*;
 import app.user.model.*;
 import app.user.service.*;
+import io.micrometer.core.instrument.*;
 import lombok.extern.slf4j.*;
 import org.springframework.beans.factory.annotation.*;
 import org.springframework.scheduling.annotation.*;
 import org.springframework.stereotype.*;
 
-import java.util.*;
+import java.time.*;
+import java.util.concurrent.atomic.*;
 
 
 // SCHEDULER:  намира активни потребители, но невлизали от над 60 дни (user.getUpdatedOn()) в платформата Jubbisoft и:  user.setActive(false)
+// Set-based:  keyset chunk-ове + bulk UPDATE (UserService.deactivateInactiveUsers), без да зарежда потребителите в паметта.
+// Метрики:  users.inactivity.scanned / users.inactivity.deactivated (counters),  users.inactivity.duration (timer),
+//           users.inactivity.last.scanned / users.inactivity.last.deactivated (gauges - последното изпълнение)
+// При няколко node-а job-ът се изпълнява само от един (SchedulerLockService).
 @Slf4j
 @Component
 public class UserInactivityScheduler {
 
     private final UserService userService;
+    private final SchedulerLockService schedulerLockService;
 
     private static final int INACTIVITY_DAYS_LIMIT = 60;
 
+    static final String LOCK_NAME = "userInactivity";
+    private static final Duration LOCK_AT_MOST_FOR = Duration.ofHours(2);
+    private static final Duration LOCK_AT_LEAST_FOR = Duration.ofMinutes(5);
+
     // за тестване:
     // private static final int INACTIVITY_DAYS_LIMIT = 0;
 
+    private final int chunkSize;
+
+    private final Counter scannedCounter;
+    private final Counter deactivatedCounter;
+    private final Timer durationTimer;
+    private final AtomicLong lastScanned = new AtomicLong();
+    private final AtomicLong lastDeactivated = new AtomicLong();
+
 
     @Autowired
-    public UserInactivityScheduler(UserService userService) {
+    public UserInactivityScheduler(UserService userService,
+                                   SchedulerLockService schedulerLockService,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${users.inactivity.chunk-size:1000}") int chunkSize) {
         this.userService = userService;
+        this.schedulerLockService = schedulerLockService;
+        this.chunkSize = chunkSize;
+
+        this.scannedCounter = Counter.builder("users.inactivity.scanned")
+                .description("Users scanned by the inactivity job")
+                .register(meterRegistry);
+        this.deactivatedCounter = Counter.builder("users.inactivity.deactivated")
+                .description("Users deactivated by the inactivity job")
+                .register(meterRegistry);
+        this.durationTimer = Timer.builder("users.inactivity.duration")
+                .description("Duration of the inactivity job")
+                .register(meterRegistry);
+
+        Gauge.builder("users.inactivity.last.scanned", lastScanned, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("users.inactivity.last.deactivated", lastDeactivated, AtomicLong::get).register(meterRegistry);
     }
 
 
@@ -35,13 +73,24 @@ public class UserInactivityScheduler {
     // всеки ден в 03:00
     @Scheduled(cron = "0 0 3 * * *")
     public void deactivateInactiveUsers() {
-        List<User> inactiveUsers = userService.getInactiveUsersByLastActivity(INACTIVITY_DAYS_LIMIT);
+        schedulerLockService.runLocked(LOCK_NAME, LOCK_AT_MOST_FOR, LOCK_AT_LEAST_FOR, this::runDeactivation);
+    }
+
+
+    private void runDeactivation() {
+        DeactivationReport report = userService.deactivateInactiveUsers(INACTIVITY_DAYS_LIMIT, chunkSize);
+
+        scannedCounter.increment(report.getScannedCount());
+        deactivatedCounter.increment(report.getDeactivatedCount());
+        durationTimer.record(report.getDuration());
+        lastScanned.set(report.getScannedCount());
+        lastDeactivated.set(report.getDeactivatedCount());
 
-        if (!inactiveUsers.isEmpty()) {
-            userService.deactivateUsers(inactiveUsers);
-            log.info("Deactivated {} inactive users.", inactiveUsers.size());
+        if (report.getDeactivatedCount() > 0) {
+            log.info("Deactivated {} inactive users ({} scanned in {} chunks, {} ms).",
+                    report.getDeactivatedCount(), report.getScannedCount(), report.getChunks(), report.getDuration().toMillis());
         } else {
             log.info("No inactive users to deactivate.");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,60 @@
+package app.schedulerlock.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.*;
+
+import java.time.*;
+import java.util.*;
+
+
+// Lease lock за scheduled job (по един ред на job):  lockUntil > now  ->  някой node държи job-а.
+// Ако node-ът падне, lock-ът изтича сам при lockUntil (lockAtMostFor).
+// Persistable + isNew  ->  save() прави INSERT (persist), а не merge - два node-а не могат да презапишат един и същ ред.
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "scheduler_locks")
+public class SchedulerLock implements Persistable<String> {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(nullable = false)
+    private LocalDateTime lockUntil;
+
+    @Column(nullable = false)
+    private LocalDateTime lockedAt;
+
+    @Column(nullable = false)
+    private String lockedBy;
+
+    // различен при всяко взимане  ->  release освобождава само СВОЯ lock
+    @Column(nullable = false)
+    private UUID lockToken;
+
+    @Transient
+    @Builder.Default
+    private boolean isNew = true;
+
+
+    @Override
+    public String getId() {
+        return name;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+}
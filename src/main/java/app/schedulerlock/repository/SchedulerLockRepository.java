@@ -0,0 +1,35 @@
+package app.schedulerlock.repository;
+
+import app.schedulerlock.model.*;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.*;
+import org.springframework.stereotype.*;
+import org.springframework.transaction.annotation.*;
+
+import java.time.*;
+import java.util.*;
+
+
+@Repository
+public interface SchedulerLockRepository extends JpaRepository<SchedulerLock, String> {
+
+    // условен UPDATE  ->  само един node получава 1 (lock-ът е свободен или изтекъл)
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE SchedulerLock l
+            SET l.lockUntil = :lockUntil, l.lockedAt = :now, l.lockedBy = :lockedBy, l.lockToken = :lockToken
+            WHERE l.name = :name AND l.lockUntil <= :now
+            """)
+    int acquire(@Param("name") String name,
+                @Param("now") LocalDateTime now,
+                @Param("lockUntil") LocalDateTime lockUntil,
+                @Param("lockedBy") String lockedBy,
+                @Param("lockToken") UUID lockToken);
+
+    // lockUntil = max(now, lockedAt + lockAtLeastFor);  0  ->  lock-ът е изтекъл и вече е взет от друг
+    @Transactional
+    @Modifying
+    @Query("UPDATE SchedulerLock l SET l.lockUntil = :lockUntil WHERE l.name = :name AND l.lockToken = :lockToken")
+    int release(@Param("name") String name, @Param("lockToken") UUID lockToken, @Param("lockUntil") LocalDateTime lockUntil);
+}
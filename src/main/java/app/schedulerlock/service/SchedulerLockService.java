@@ -0,0 +1,121 @@
+package app.schedulerlock.service;
+
+import app.schedulerlock.model.*;
+import app.schedulerlock.repository.*;
+import io.micrometer.core.instrument.*;
+import lombok.extern.slf4j.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.dao.*;
+import org.springframework.stereotype.*;
+
+import java.net.*;
+import java.time.*;
+import java.util.*;
+
+
+// РАЗПРЕДЕЛЕН LOCK за @Scheduled job-ове (ShedLock стил) върху основната база - таблица scheduler_locks.
+// Всеки node пуска cron-а, но само един взима lock-а и изпълнява job-а;  останалите го пропускат.
+// lockAtMostFor  -  lease:  ако node-ът падне по време на job-а, lock-ът изтича сам след това време.
+// lockAtLeastFor -  lock-ът се държи поне толкова, дори job-ът да е приключил (часовниците на node-овете се разминават с секунди).
+// Времето е на приложението  ->  часовниците на node-овете трябва да са синхронизирани (NTP).
+// Метрики (tag job):  scheduler.lock.acquired / scheduler.lock.skipped (counters),  scheduler.lock.held (timer - колко е държан)
+@Slf4j
+@Service
+public class SchedulerLockService {
+
+    private final SchedulerLockRepository schedulerLockRepository;
+    private final MeterRegistry meterRegistry;
+    private final String nodeId;
+
+
+    @Autowired
+    public SchedulerLockService(SchedulerLockRepository schedulerLockRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${scheduler.lock.node-id:}") String nodeId) {
+        this.schedulerLockRepository = schedulerLockRepository;
+        this.meterRegistry = meterRegistry;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+    }
+
+
+    // true  ->  job-ът е изпълнен от този node;  false  ->  lock-ът е зает (друг node го изпълнява)
+    public boolean runLocked(String jobName, Duration lockAtMostFor, Duration lockAtLeastFor, Runnable job) {
+
+        LocalDateTime acquiredAt = LocalDateTime.now();
+        UUID lockToken = UUID.randomUUID();
+
+        if (!tryAcquire(jobName, acquiredAt, acquiredAt.plus(lockAtMostFor), lockToken)) {
+            meterRegistry.counter("scheduler.lock.skipped", "job", jobName).increment();
+            log.debug("Skipping job [{}] - lock is held by another node.", jobName);
+            return false;
+        }
+
+        meterRegistry.counter("scheduler.lock.acquired", "job", jobName).increment();
+        long start = System.nanoTime();
+
+        try {
+            job.run();
+        } finally {
+            meterRegistry.timer("scheduler.lock.held", "job", jobName).record(Duration.ofNanos(System.nanoTime() - start));
+            release(jobName, lockToken, acquiredAt, lockAtLeastFor);
+        }
+
+        return true;
+    }
+
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+
+    private boolean tryAcquire(String jobName, LocalDateTime now, LocalDateTime lockUntil, UUID lockToken) {
+
+        if (schedulerLockRepository.acquire(jobName, now, lockUntil, nodeId, lockToken) == 1) {
+            return true;
+        }
+
+        if (schedulerLockRepository.existsById(jobName)) {
+            return false;
+        }
+
+        // първо изпълнение на job-а  ->  редът още не съществува;  INSERT с вече взет lock
+        SchedulerLock lock = SchedulerLock.builder()
+                .name(jobName)
+                .lockUntil(lockUntil)
+                .lockedAt(now)
+                .lockedBy(nodeId)
+                .lockToken(lockToken)
+                .build();
+        try {
+            schedulerLockRepository.saveAndFlush(lock);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // друг node е вмъкнал реда междувременно  ->  той държи lock-а
+            return false;
+        }
+    }
+
+
+    private void release(String jobName, UUID lockToken, LocalDateTime acquiredAt, Duration lockAtLeastFor) {
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime minLockUntil = acquiredAt.plus(lockAtLeastFor);
+        LocalDateTime lockUntil = minLockUntil.isAfter(now) ? minLockUntil : now;
+
+        if (schedulerLockRepository.release(jobName, lockToken, lockUntil) == 0) {
+            log.warn("Lock for job [{}] expired before the job finished (lockAtMostFor is too short).", jobName);
+        }
+    }
+
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+}
@@ -0,0 +1,58 @@
+package app.security;
+
+import app.user.model.*;
+import app.user.service.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.core.*;
+import org.springframework.security.core.*;
+import org.springframework.security.core.context.*;
+import org.springframework.stereotype.*;
+import org.springframework.web.bind.support.*;
+import org.springframework.web.context.request.*;
+import org.springframework.web.method.support.*;
+
+
+// Controller параметър от тип CurrentUserView  ->  логнатият потребител (или null за анонимен).
+// Зарежда се най-много веднъж на заявка (request attribute), а между заявките идва от краткия currentUsers cache.
+// Handler-ите, които реално променят User (покупка, wallet, профил), продължават да ползват userService.getById().
+@Component
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private static final String REQUEST_ATTRIBUTE = CurrentUserArgumentResolver.class.getName() + ".CURRENT_USER";
+
+    private final UserService userService;
+
+
+    @Autowired
+    public CurrentUserArgumentResolver(UserService userService) {
+        this.userService = userService;
+    }
+
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return CurrentUserView.class.equals(parameter.getParameterType());
+    }
+
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer, NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+
+        Object resolved = webRequest.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+
+        if (resolved instanceof CurrentUserView currentUser) {
+            return currentUser;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticationMetadata authenticationMetadata) || authenticationMetadata.getUserId() == null) {
+            return null;
+        }
+
+        CurrentUserView currentUser = userService.getCurrentUserView(authenticationMetadata.getUserId());
+        webRequest.setAttribute(REQUEST_ATTRIBUTE, currentUser, RequestAttributes.SCOPE_REQUEST);
+
+        return currentUser;
+    }
+}
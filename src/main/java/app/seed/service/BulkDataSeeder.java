@@ -0,0 +1,370 @@
+package app.seed.service;
+
+import app.game.model.*;
+import app.loyalty.model.*;
+import app.loyalty.service.*;
+import app.transaction.model.*;
+import app.user.model.*;
+import app.wallet.model.*;
+import lombok.extern.slf4j.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.*;
+import org.springframework.context.annotation.*;
+import org.springframework.jdbc.core.*;
+import org.springframework.security.crypto.password.*;
+import org.springframework.stereotype.*;
+import org.springframework.transaction.support.*;
+
+import java.math.*;
+import java.nio.*;
+import java.time.*;
+import java.util.*;
+
+
+// SEED за load тестове:  синтетични users / wallets / loyalty / games / games_users / transactions в голям обем (напр. 1M / 50k / 50M).
+// Само с профил "seed" (заменя UserInitialize);  при нормален старт bean-ът не съществува.
+// JDBC batch INSERT-и (без Hibernate, без BCrypt на всеки user), по една транзакция на chunk от seed.batch-size потребители.
+// За MySQL пускай с rewriteBatchedStatements=true (application-seed.properties)  ->  всеки batch става един multi-row INSERT.
+// Фиксиран seed.random-seed  ->  едни и същи данни при всяко пускане със същите размери (id-тата също са детерминирани).
+// Пропуска се, ако в базата вече има потребители.
+@Slf4j
+@Component
+@Profile("seed")
+public class BulkDataSeeder implements CommandLineRunner {
+
+    static final String USERNAME_PREFIX = "seed_user_";
+    static final String PUBLISHER_PREFIX = "seed_publisher_";
+    static final String PASSWORD = "123123";
+
+    private static final String JUBBISOFT_LTD = "Jubbisoft Ltd.";
+    private static final String CURRENCY = "EUR";
+    private static final String IMAGE_COVER_URL = "https://picsum.photos/seed/jubbisoft/800/800";
+
+    // детерминирани id-та:  тип в старшите битове, пореден номер в младшите
+    private static final long WALLET_IDS = 0x5EED_0001_0000_0000L;
+    private static final long USER_IDS = 0x5EED_0002_0000_0000L;
+    private static final long LOYALTY_IDS = 0x5EED_0003_0000_0000L;
+    private static final long GAME_IDS = 0x5EED_0004_0000_0000L;
+    private static final long TRANSACTION_IDS = 0x5EED_0005_0000_0000L;
+
+    private static final String INSERT_WALLET = """
+            INSERT INTO wallet (id, balance, status, currency, created_on, updated_on)
+            VALUES (?, ?, ?, ?, ?, ?)""";
+
+    private static final String INSERT_USER = """
+            INSERT INTO users (id, username, password, email, role, country, is_active, created_on, updated_on, wallet_id)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+
+    private static final String INSERT_LOYALTY = """
+            INSERT INTO loyalty (id, type, games_purchased, member_id)
+            VALUES (?, ?, ?, ?)""";
+
+    private static final String INSERT_GAME = """
+            INSERT INTO game (id, title, description, price, genre, is_available, image_cover_url, release_date, updated_on, publisher_id)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+
+    private static final String INSERT_PURCHASE = """
+            INSERT INTO games_users (game_id, user_id)
+            VALUES (?, ?)""";
+
+    private static final String INSERT_TRANSACTION = """
+            INSERT INTO transaction (id, sender, receiver, amount, balance_left, currency, type, status, description, created_on, owner_id)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordEncoder passwordEncoder;
+
+    private final int users;
+    private final int publishers;
+    private final int games;
+    private final long transactions;
+    private final int maxPurchasesPerUser;
+    private final int batchSize;
+    private final long randomSeed;
+
+
+    @Autowired
+    public BulkDataSeeder(JdbcTemplate jdbcTemplate,
+                          TransactionTemplate transactionTemplate,
+                          PasswordEncoder passwordEncoder,
+                          @Value("${seed.users:1000000}") int users,
+                          @Value("${seed.publishers:1000}") int publishers,
+                          @Value("${seed.games:50000}") int games,
+                          @Value("${seed.transactions:50000000}") long transactions,
+                          @Value("${seed.max-purchases-per-user:10}") int maxPurchasesPerUser,
+                          @Value("${seed.batch-size:5000}") int batchSize,
+                          @Value("${seed.random-seed:42}") long randomSeed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.passwordEncoder = passwordEncoder;
+        this.users = users;
+        this.publishers = publishers;
+        this.games = games;
+        this.transactions = transactions;
+        this.maxPurchasesPerUser = maxPurchasesPerUser;
+        this.batchSize = batchSize;
+        this.randomSeed = randomSeed;
+    }
+
+
+    @Override
+    public void run(String... args) {
+
+        // save check  -  както в UserInitialize, не seed-ваме върху съществуващи данни
+        if (!jdbcTemplate.queryForList("SELECT id FROM users LIMIT 1").isEmpty()) {
+            log.info("Seed skipped: the users table is not empty.");
+            return;
+        }
+
+        if (games > 0 && publishers <= 0) {
+            throw new IllegalStateException("seed.publishers must be positive when seed.games is " + games);
+        }
+
+        long start = System.nanoTime();
+        log.info("Seeding {} publishers, {} games, {} users, {} transactions (seed {}, batch {}).",
+                publishers, games, users, transactions, randomSeed, batchSize);
+
+        Random random = new Random(randomSeed);
+        // датите са спрямо днешния ден  ->  updatedOn е в последните 60 дни и UserInactivityScheduler не деактивира всички
+        LocalDateTime now = LocalDate.now().atStartOfDay();
+        String passwordHash = passwordEncoder.encode(PASSWORD);
+
+        List<BigDecimal> gamePrices = new ArrayList<>(games);
+        List<String> gameTitles = new ArrayList<>(games);
+
+        seedPublishers(random, now, passwordHash);
+        seedGames(random, now, gamePrices, gameTitles);
+        long seededTransactions = seedUsers(random, now, passwordHash, gamePrices, gameTitles);
+
+        Duration duration = Duration.ofNanos(System.nanoTime() - start);
+        log.info("Seed finished in {} s: {} users, {} games, {} transactions.",
+                duration.toSeconds(), publishers + users, games, seededTransactions);
+    }
+
+
+    // publisher-ите са ADMIN-и без покупки  -  всяка игра има publisher
+    private void seedPublishers(Random random, LocalDateTime now, String passwordHash) {
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Batch wallets = new Batch(INSERT_WALLET);
+            Batch accounts = new Batch(INSERT_USER);
+            Batch loyalties = new Batch(INSERT_LOYALTY);
+
+            for (int i = 0; i < publishers; i++) {
+                LocalDateTime createdOn = now.minusDays(365 + random.nextInt(365));
+                UUID walletId = id(WALLET_IDS, i);
+                UUID userId = id(USER_IDS, i);
+
+                wallets.add(bytes(walletId), new BigDecimal("250.00"), WalletStatus.ACTIVE.ordinal(), CURRENCY, createdOn, createdOn);
+                accounts.add(bytes(userId), PUBLISHER_PREFIX + i, passwordHash, PUBLISHER_PREFIX + i + "@seed.jubbisoft.com",
+                        UserRole.ADMIN.name(), randomCountry(random).name(), true, createdOn, now.minusDays(random.nextInt(30)), bytes(walletId));
+                loyalties.add(bytes(id(LOYALTY_IDS, i)), LoyaltyType.DEFAULT.name(), 0, bytes(userId));
+            }
+
+            wallets.flush();
+            accounts.flush();
+            loyalties.flush();
+        });
+
+        log.info("Seeded {} publishers.", publishers);
+    }
+
+
+    private void seedGames(Random random, LocalDateTime now, List<BigDecimal> gamePrices, List<String> gameTitles) {
+
+        Genre[] genres = Genre.values();
+
+        for (int from = 0; from < games; from += batchSize) {
+            int to = Math.min(games, from + batchSize);
+            int first = from;
+
+            transactionTemplate.executeWithoutResult(status -> {
+                Batch batch = new Batch(INSERT_GAME);
+
+                for (int i = first; i < to; i++) {
+                    // цени 4.99 - 69.99
+                    BigDecimal price = BigDecimal.valueOf(5 + random.nextInt(66)).subtract(new BigDecimal("0.01"));
+                    String title = "Seed Game %06d".formatted(i);
+                    LocalDateTime releaseDate = now.minusDays(random.nextInt(3 * 365)).plusMinutes(i);
+                    gamePrices.add(price);
+                    gameTitles.add(title);
+
+                    batch.add(bytes(id(GAME_IDS, i)), title,
+                            "Synthetic game %d for load testing.".formatted(i),
+                            price, genres[random.nextInt(genres.length)].name(),
+                            random.nextInt(10) != 0,       // ~10% не са налични
+                            IMAGE_COVER_URL, releaseDate, releaseDate,
+                            bytes(id(USER_IDS, i % publishers)));
+                }
+
+                batch.flush();
+            });
+        }
+
+        log.info("Seeded {} games.", games);
+    }
+
+
+    // всеки user:  wallet, user, покупки (games_users) + Loyalty, съвпадащ с тях, и история на транзакциите
+    // история:  начален депозит, покриващ покупките  ->  по една WITHDRAWAL на покупка  ->  депозити до transactions / users
+    private long seedUsers(Random random, LocalDateTime now, String passwordHash, List<BigDecimal> gamePrices, List<String> gameTitles) {
+
+        long seededTransactions = 0;
+        long start = System.nanoTime();
+
+        for (int from = 0; from < users; from += batchSize) {
+            int to = Math.min(users, from + batchSize);
+            int first = from;
+
+            Long chunkTransactions = transactionTemplate.execute(status -> {
+                Batch wallets = new Batch(INSERT_WALLET);
+                Batch accounts = new Batch(INSERT_USER);
+                Batch loyalties = new Batch(INSERT_LOYALTY);
+                Batch purchases = new Batch(INSERT_PURCHASE);
+                Batch history = new Batch(INSERT_TRANSACTION);
+                long transactionId = transactionsBefore(first);
+
+                for (int i = first; i < to; i++) {
+                    int index = publishers + i;
+                    UUID walletId = id(WALLET_IDS, index);
+                    UUID userId = id(USER_IDS, index);
+                    LocalDateTime createdOn = now.minusDays(60 + random.nextInt(2 * 365)).plusSeconds(i);
+
+                    int historySize = transactionsOf(i);
+                    List<Integer> bought = randomGames(random, Math.max(0, historySize - 1));
+
+                    BigDecimal spent = bought.stream().map(gamePrices::get).reduce(BigDecimal.ZERO, BigDecimal::add);
+                    BigDecimal balance = BigDecimal.ZERO;
+                    LocalDateTime at = createdOn;
+
+                    for (int t = 0; t < historySize; t++) {
+                        at = at.plusMinutes(1 + random.nextInt(60 * 24));
+                        boolean purchase = t > 0 && t <= bought.size();
+                        BigDecimal amount;
+                        String description;
+
+                        if (purchase) {
+                            int game = bought.get(t - 1);
+                            amount = gamePrices.get(game);
+                            balance = balance.subtract(amount);
+                            description = "Purchase of game '%s'".formatted(gameTitles.get(game));
+                        } else {
+                            amount = t == 0 ? spent.add(BigDecimal.valueOf(10 + random.nextInt(91))) : BigDecimal.valueOf(5 + random.nextInt(46));
+                            balance = balance.add(amount);
+                            description = "Added funds %.2f EUR".formatted(amount.doubleValue());
+                        }
+
+                        history.add(bytes(id(TRANSACTION_IDS, transactionId++)),
+                                purchase ? walletId.toString() : JUBBISOFT_LTD,
+                                purchase ? JUBBISOFT_LTD : walletId.toString(),
+                                amount, balance, CURRENCY,
+                                (purchase ? TransactionType.WITHDRAWAL : TransactionType.DEPOSIT).name(),
+                                TransactionStatus.APPROVED.name(), description, at, bytes(userId));
+                    }
+
+                    LocalDateTime updatedOn = now.minusDays(random.nextInt(60));
+
+                    wallets.add(bytes(walletId), balance, WalletStatus.ACTIVE.ordinal(), CURRENCY, createdOn, updatedOn);
+                    accounts.add(bytes(userId), USERNAME_PREFIX + i, passwordHash, USERNAME_PREFIX + i + "@seed.jubbisoft.com",
+                            UserRole.USER.name(), randomCountry(random).name(), true, createdOn, updatedOn, bytes(walletId));
+                    LoyaltyType type = bought.size() >= LoyaltyService.PREMIUM_THRESHOLD ? LoyaltyType.PREMIUM : LoyaltyType.DEFAULT;
+                    loyalties.add(bytes(id(LOYALTY_IDS, index)), type.name(), bought.size(), bytes(userId));
+                    bought.forEach(game -> purchases.add(bytes(id(GAME_IDS, game)), bytes(userId)));
+
+                    // FK ред:  wallet  ->  user  ->  loyalty / games_users / transaction
+                    if (history.size() >= batchSize) {
+                        wallets.flush();
+                        accounts.flush();
+                        history.flush();
+                    }
+                }
+
+                wallets.flush();
+                accounts.flush();
+                loyalties.flush();
+                purchases.flush();
+                history.flush();
+
+                return transactionId - transactionsBefore(first);
+            });
+
+            seededTransactions += chunkTransactions;
+
+            long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            log.info("Seeded {} / {} users, {} transactions ({} users/s).", to, users, seededTransactions, to * 1000L / elapsedMillis);
+        }
+
+        return seededTransactions;
+    }
+
+
+    // transactions се разпределят равномерно  -  първите (transactions % users) потребители имат по една в повече
+    private int transactionsOf(int user) {
+        return (int) (transactions / users + (user < transactions % users ? 1 : 0));
+    }
+
+
+    private long transactionsBefore(int user) {
+        return user * (transactions / users) + Math.min(user, transactions % users);
+    }
+
+
+    // 0..max различни игри;  по-ниските индекси са по-популярни (квадратично разпределение)
+    private List<Integer> randomGames(Random random, int historyLimit) {
+
+        int count = Math.min(Math.min(historyLimit, games), random.nextInt(maxPurchasesPerUser + 1));
+        Set<Integer> picked = new LinkedHashSet<>();
+
+        while (picked.size() < count) {
+            double r = random.nextDouble();
+            picked.add((int) (games * r * r));
+        }
+
+        return new ArrayList<>(picked);
+    }
+
+
+    private static Country randomCountry(Random random) {
+        Country[] countries = Country.values();
+        return countries[random.nextInt(countries.length)];
+    }
+
+
+    private static UUID id(long type, long index) {
+        return new UUID(type, index);
+    }
+
+
+    // UUID колоните са binary(16) в MySQL;  H2 приема същите 16 байта за колона от тип uuid
+    private static byte[] bytes(UUID id) {
+        return ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array();
+    }
+
+
+    // натрупва редове за един INSERT и ги праща с JdbcTemplate.batchUpdate
+    private final class Batch {
+
+        private final String sql;
+        private final List<Object[]> rows = new ArrayList<>();
+
+        private Batch(String sql) {
+            this.sql = sql;
+        }
+
+        private void add(Object... row) {
+            rows.add(row);
+        }
+
+        private int size() {
+            return rows.size();
+        }
+
+        private void flush() {
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql, rows);
+                rows.clear();
+            }
+        }
+    }
+}
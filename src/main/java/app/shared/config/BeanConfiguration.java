@@ -1,5 +1,8 @@
 package app.shared.config;
 
+import app.shared.jpa.*;
+import io.micrometer.core.instrument.*;
+import org.springframework.beans.factory.annotation.*;
 import org.springframework.context.annotation.*;
 import org.springframework.security.crypto.bcrypt.*;
 import org.springframework.security.crypto.password.*;
@@ -13,4 +16,13 @@ public class BeanConfiguration {
 
         return new BCryptPasswordEncoder();
     }
-}
\ No newline at end of file
+
+
+    // SQL заявки на HTTP заявка  ->  jpa.request.queries + WARN лог над прага
+    @Bean
+    public QueryCountFilter queryCountFilter(MeterRegistry meterRegistry,
+                                             @Value("${jpa.query-count.warn-threshold:30}") int warnThreshold) {
+
+        return new QueryCountFilter(meterRegistry, warnThreshold);
+    }
+}
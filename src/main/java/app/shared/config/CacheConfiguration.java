@@ -0,0 +1,53 @@
+package app.shared.config;
+
+import com.github.benmanes.caffeine.cache.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.cache.*;
+import org.springframework.cache.caffeine.*;
+import org.springframework.cache.transaction.*;
+import org.springframework.context.annotation.*;
+
+
+// Caffeine cache manager  -  всеки cache има собствен лимит (maximumSize) и TTL (expireAfterWrite).
+// recordStats  ->  hit / miss / eviction метрики в /actuator/metrics/cache.*  (CacheMetricsRegistrar на Spring Boot)
+// TransactionAware  ->  evict / put в @Transactional метод се прилагат едва след commit,
+// така паралелна заявка не може да върне в cache-а стари данни преди записът да е видим.
+@Configuration
+public class CacheConfiguration {
+
+    public static final String GAMES_CACHE = "games";
+    public static final String AVAILABLE_GAMES_CACHE = "availableGames";
+    public static final String PUBLISHER_GAMES_CACHE = "publisherGames";
+    public static final String CURRENT_USERS_CACHE = "currentUsers";
+    public static final String USER_STATS_CACHE = "userStats";
+    public static final String TREASURY_BALANCE_CACHE = "treasuryBalance";
+    public static final String LOYALTY_TYPES_CACHE = "loyaltyTypes";
+
+
+    @Bean
+    public CacheManager cacheManager(@Value("${cache.games.spec:maximumSize=2000,expireAfterWrite=10m}") String gamesSpec,
+                                     @Value("${cache.available-games.spec:maximumSize=1,expireAfterWrite=5m}") String availableGamesSpec,
+                                     @Value("${cache.publisher-games.spec:maximumSize=500,expireAfterWrite=10m}") String publisherGamesSpec,
+                                     @Value("${cache.current-users.spec:maximumSize=10000,expireAfterWrite=30s}") String currentUsersSpec,
+                                     @Value("${cache.user-stats.spec:maximumSize=1,expireAfterWrite=60s}") String userStatsSpec,
+                                     @Value("${cache.treasury-balance.spec:maximumSize=16,expireAfterWrite=5s}") String treasuryBalanceSpec,
+                                     @Value("${cache.loyalty-types.spec:maximumSize=100000,expireAfterWrite=1h}") String loyaltyTypesSpec,
+                                     @Value("${cache.default.spec:maximumSize=1000,expireAfterWrite=10m}") String defaultSpec) {
+
+        CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager();
+        caffeineCacheManager.setAllowNullValues(false);
+
+        // всички останали cache-ове (@Cacheable с ново име) също са ограничени
+        caffeineCacheManager.setCaffeine(Caffeine.from(defaultSpec).recordStats());
+
+        caffeineCacheManager.registerCustomCache(GAMES_CACHE, Caffeine.from(gamesSpec).recordStats().build());
+        caffeineCacheManager.registerCustomCache(AVAILABLE_GAMES_CACHE, Caffeine.from(availableGamesSpec).recordStats().build());
+        caffeineCacheManager.registerCustomCache(PUBLISHER_GAMES_CACHE, Caffeine.from(publisherGamesSpec).recordStats().build());
+        caffeineCacheManager.registerCustomCache(CURRENT_USERS_CACHE, Caffeine.from(currentUsersSpec).recordStats().build());
+        caffeineCacheManager.registerCustomCache(USER_STATS_CACHE, Caffeine.from(userStatsSpec).recordStats().build());
+        caffeineCacheManager.registerCustomCache(TREASURY_BALANCE_CACHE, Caffeine.from(treasuryBalanceSpec).recordStats().build());
+        caffeineCacheManager.registerCustomCache(LOYALTY_TYPES_CACHE, Caffeine.from(loyaltyTypesSpec).recordStats().build());
+
+        return new TransactionAwareCacheManagerProxy(caffeineCacheManager);
+    }
+}
@@ -4,17 +4,54 @@ import app.security.*;
 import org.springframework.beans.factory.annotation.*;
 import org.springframework.boot.autoconfigure.security.servlet.*;
 import org.springframework.context.annotation.*;
+import org.springframework.core.annotation.*;
+import org.springframework.security.config.*;
 import org.springframework.security.config.annotation.method.configuration.*;
 import org.springframework.security.config.annotation.web.builders.*;
+import org.springframework.security.config.http.*;
 import org.springframework.security.web.*;
 import org.springframework.security.web.util.matcher.*;
+import org.springframework.web.method.support.*;
 import org.springframework.web.servlet.config.annotation.*;
 
+import java.util.*;
+
 
 @Configuration
 @EnableMethodSecurity
 public class WebMvcConfiguration implements WebMvcConfigurer {
 
+    private final CurrentUserArgumentResolver currentUserArgumentResolver;
+
+
+    @Autowired
+    public WebMvcConfiguration(CurrentUserArgumentResolver currentUserArgumentResolver) {
+        this.currentUserArgumentResolver = currentUserArgumentResolver;
+    }
+
+
+    // CurrentUserView като параметър на controller метод
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(currentUserArgumentResolver);
+    }
+
+
+    // /actuator/prometheus  -  Prometheus не минава през form login  ->  HTTP Basic с ADMIN потребител, без сесия
+    @Bean
+    @Order(1)
+    public SecurityFilterChain prometheusSecurityFilterChain(HttpSecurity http) throws Exception {
+
+        http
+                .securityMatcher("/actuator/prometheus")
+                .authorizeHttpRequests(matchers -> matchers.anyRequest().hasRole("ADMIN"))
+                .httpBasic(Customizer.withDefaults())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
+
+        return http.build();
+    }
+
+
     // HttpSecurity - configure authentication & authorization
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -22,7 +59,9 @@ public class WebMvcConfiguration implements WebMvcConfigurer {
         http
                 .authorizeHttpRequests(matchers -> matchers
                         .requestMatchers(PathRequest.toStaticResources().atCommonLocations()).permitAll()
-                        .requestMatchers("/", "/register", "/contact", "/games/explore", "/games/{gameId}/explore", "/about-us", "/terms").permitAll()
+                        .requestMatchers("/", "/register", "/contact", "/games/explore", "/games/explore/page", "/games/search", "/games/{gameId}/explore", "/about-us", "/terms").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .formLogin(form -> form
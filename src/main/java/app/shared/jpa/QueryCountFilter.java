@@ -0,0 +1,68 @@
+package app.shared.jpa;
+
+import io.micrometer.core.instrument.*;
+import jakarta.servlet.*;
+import jakarta.servlet.http.*;
+import lombok.extern.slf4j.*;
+import org.springframework.core.*;
+import org.springframework.core.annotation.*;
+import org.springframework.web.filter.*;
+import org.springframework.web.servlet.*;
+
+import java.io.*;
+
+
+// SQL заявки на HTTP заявка (N+1 при EAGER графите на User / Game / Transaction / Loyalty):
+//   метрика jpa.request.queries (uri = pattern-ът на endpoint-а)  ->  /actuator/metrics/jpa.request.queries?tag=uri:/games/explore
+//   WARN лог над jpa.query-count.warn-threshold заявки;  всяка заявка  ->  DEBUG (logging.level.app.shared.jpa=DEBUG)
+// Bean-ът е в BeanConfiguration  ->  @WebMvcTest тестовете (без MeterRegistry) не го зареждат
+// Преди Spring Security  ->  броят се и заявките на login-а
+// Брои само заявките на нишката на request-а:  async export-ът (StreamingResponseBody) и @Async задачите НЕ влизат
+@Slf4j
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+    private final int warnThreshold;
+
+
+    public QueryCountFilter(MeterRegistry meterRegistry, int warnThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.warnThreshold = warnThreshold;
+    }
+
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+
+        long before = QueryCounter.current();
+
+        try {
+            filterChain.doFilter(request, response);
+
+        } finally {
+            long queries = QueryCounter.current() - before;
+            String uri = uriPattern(request);
+
+            DistributionSummary.builder("jpa.request.queries")
+                    .description("Hibernate SQL statements per HTTP request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .record(queries);
+
+            if (queries > warnThreshold) {
+                log.warn("{} {} ran {} SQL queries (threshold {}).", request.getMethod(), request.getRequestURI(), queries, warnThreshold);
+            } else {
+                log.debug("{} {} ran {} SQL queries.", request.getMethod(), request.getRequestURI(), queries);
+            }
+        }
+    }
+
+
+    // /games/{gameId}/explore, а не всяко id поотделно  -  иначе метриката има по един tag за всяка игра
+    private static String uriPattern(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+}
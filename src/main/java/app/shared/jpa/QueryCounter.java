@@ -0,0 +1,26 @@
+package app.shared.jpa;
+
+import org.hibernate.resource.jdbc.spi.*;
+
+
+// Брои SQL заявките на Hibernate по нишка  ->  колко заявки прави една HTTP заявка (QueryCountFilter) или един тест (QueryBudget).
+// Регистриран като StatementInspector:  spring.jpa.properties.hibernate.session_factory.statement_inspector (application.properties).
+// Броячът само расте  ->  вложените измервания (filter + тест в една нишка) си взимат разлика и не си пречат.
+// JdbcTemplate заявките (BulkDataSeeder) не минават през Hibernate и не се броят.
+public class QueryCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+
+    // заявките, изпълнени досега от текущата нишка
+    public static long current() {
+        return COUNT.get()[0];
+    }
+}
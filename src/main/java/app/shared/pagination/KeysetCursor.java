@@ -0,0 +1,40 @@
+package app.shared.pagination;
+
+import app.shared.exception.*;
+import lombok.*;
+
+import java.nio.charset.*;
+import java.time.*;
+import java.util.*;
+
+
+// Курсор за keyset пагинация:  (timestamp, id) на последния показан ред  ->  каталогът (releaseDate) и историята (createdOn).
+// Към клиента се подава като непрозрачен base64url низ.
+@Getter
+@AllArgsConstructor
+public class KeysetCursor {
+
+    private final LocalDateTime timestamp;
+
+    private final UUID id;
+
+
+    public String encode() {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    public static KeysetCursor decode(String token) {
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 2);
+
+            return new KeysetCursor(LocalDateTime.parse(parts[0]), UUID.fromString(parts[1]));
+
+        } catch (RuntimeException e) {
+            throw new DomainException("Invalid page cursor [%s].".formatted(token), e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package app.shared.pagination;
+
+import lombok.*;
+
+import java.util.*;
+import java.util.function.*;
+
+
+// Една страница (каталог / история) + курсор към следващата (null ако няма повече)
+@Getter
+@AllArgsConstructor
+public class KeysetPage<T> {
+
+    private final List<T> items;
+
+    private final String nextCursor;
+
+
+    // rows  ->  до pageSize + 1 реда от заявката;  допълнителният ред означава, че има следваща страница (без COUNT(*))
+    public static <T> KeysetPage<T> of(List<T> rows, int pageSize, Function<T, KeysetCursor> cursorOf) {
+
+        if (rows.size() <= pageSize) {
+            return new KeysetPage<>(rows, null);
+        }
+
+        List<T> page = rows.subList(0, pageSize);
+        String nextCursor = cursorOf.apply(page.get(pageSize - 1)).encode();
+
+        return new KeysetPage<>(new ArrayList<>(page), nextCursor);
+    }
+
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
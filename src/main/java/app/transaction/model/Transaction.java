@@ -15,6 +15,7 @@ import java.util.*;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Table(indexes = @Index(name = "idx_transaction_owner_created_on", columnList = "owner_id, created_on"))
 public class Transaction {
 
     @Id
@@ -0,0 +1,17 @@
+package app.transaction.model;
+
+import lombok.*;
+
+
+// Формати за /transactions/export?format=...
+@Getter
+@AllArgsConstructor
+public enum TransactionExportFormat {
+
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+
+    private final String fileExtension;
+}
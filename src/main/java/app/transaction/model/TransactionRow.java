@@ -0,0 +1,31 @@
+package app.transaction.model;
+
+import lombok.*;
+
+import java.math.*;
+import java.time.*;
+import java.util.*;
+
+
+// READ-ONLY проекция за историята на транзакциите (/transactions).
+// SELECT new ... само по колоните на transaction - без JOIN към owner и без EAGER графа на User.
+@Getter
+@AllArgsConstructor
+public class TransactionRow {
+
+    private final UUID id;
+
+    private final BigDecimal amount;
+
+    private final Currency currency;
+
+    private final TransactionType type;
+
+    private final TransactionStatus status;
+
+    private final String description;
+
+    private final String failureReason;
+
+    private final LocalDateTime createdOn;
+}
@@ -1,14 +1,52 @@
 package app.transaction.repository;
 
 import app.transaction.model.*;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.*;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.*;
 import org.springframework.stereotype.*;
 
+import java.time.*;
 import java.util.*;
+import java.util.stream.*;
 
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
 
-    List<Transaction> findAllByOwnerIdOrderByCreatedOnDesc(UUID ownerId);
-}
\ No newline at end of file
+    // ---------------  HISTORY  -  TransactionRow проекция, KEYSET пагинация  ---------------
+    // ORDER BY createdOn DESC, id DESC  ->  покрива се от индекса (owner_id, created_on)
+
+    // Първа страница - без курсор
+    @Query("""
+            SELECT new app.transaction.model.TransactionRow(t.id, t.amount, t.currency, t.type, t.status, t.description, t.failureReason, t.createdOn)
+            FROM Transaction t
+            WHERE t.owner.id = :ownerId
+            ORDER BY t.createdOn DESC, t.id DESC
+            """)
+    List<TransactionRow> findHistoryFirstPage(@Param("ownerId") UUID ownerId, Limit limit);
+
+    // Следваща страница - всичко СЛЕД последния ред (createdOn, id) от предишната страница
+    @Query("""
+            SELECT new app.transaction.model.TransactionRow(t.id, t.amount, t.currency, t.type, t.status, t.description, t.failureReason, t.createdOn)
+            FROM Transaction t
+            WHERE t.owner.id = :ownerId
+              AND (t.createdOn < :createdOn OR (t.createdOn = :createdOn AND t.id < :id))
+            ORDER BY t.createdOn DESC, t.id DESC
+            """)
+    List<TransactionRow> findHistoryPageAfter(@Param("ownerId") UUID ownerId, @Param("createdOn") LocalDateTime createdOn, @Param("id") UUID id, Limit limit);
+
+
+    // ---------------  EXPORT  -  JDBC cursor, ред по ред  ---------------
+    // Stream трябва да се чете в @Transactional и да се затвори;  fetch size  ->  драйверът не зарежда целия резултат
+    // (MySQL: useCursorFetch=true в datasource URL-а, иначе Connector/J буферира всичко въпреки fetch size-а)
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("""
+            SELECT new app.transaction.model.TransactionRow(t.id, t.amount, t.currency, t.type, t.status, t.description, t.failureReason, t.createdOn)
+            FROM Transaction t
+            WHERE t.owner.id = :ownerId
+            ORDER BY t.createdOn DESC, t.id DESC
+            """)
+    Stream<TransactionRow> streamHistory(@Param("ownerId") UUID ownerId);
+}
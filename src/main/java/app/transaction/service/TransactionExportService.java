@@ -0,0 +1,110 @@
+package app.transaction.service;
+
+import app.transaction.model.*;
+import app.transaction.repository.*;
+import com.fasterxml.jackson.databind.*;
+import lombok.extern.slf4j.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.stereotype.*;
+import org.springframework.transaction.annotation.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.stream.*;
+
+
+// EXPORT на историята на транзакциите (CSV / NDJSON) директно в OutputStream-а на отговора.
+// Редовете идват от JDBC cursor (TransactionRepository.streamHistory) и се пишат един по един
+// -> паметта е ограничена до fetch size + буфера на writer-а, независимо колко реда има.
+@Slf4j
+@Service
+public class TransactionExportService {
+
+    static final String CSV_HEADER = "id,created_on,type,status,amount,currency,description,failure_reason";
+
+    private static final int FLUSH_EVERY_ROWS = 500;
+
+    private final TransactionRepository transactionRepository;
+    private final ObjectMapper objectMapper;
+
+
+    @Autowired
+    public TransactionExportService(TransactionRepository transactionRepository, ObjectMapper objectMapper) {
+        this.transactionRepository = transactionRepository;
+        this.objectMapper = objectMapper;
+    }
+
+
+    // readOnly транзакция  ->  cursor-ът е отворен докато се пише;  връща броя експортирани редове
+    @Transactional(readOnly = true)
+    public long export(UUID ownerId, TransactionExportFormat format, OutputStream outputStream) {
+
+        long rows = 0;
+
+        try (Stream<TransactionRow> transactions = transactionRepository.streamHistory(ownerId)) {
+
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+
+            if (format == TransactionExportFormat.CSV) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+
+            Iterator<TransactionRow> iterator = transactions.iterator();
+            while (iterator.hasNext()) {
+                TransactionRow transaction = iterator.next();
+
+                writer.write(format == TransactionExportFormat.CSV ? toCsvLine(transaction) : objectMapper.writeValueAsString(transaction));
+                writer.write('\n');
+
+                // клиентът получава данните постепенно, а не чак в края
+                if (++rows % FLUSH_EVERY_ROWS == 0) {
+                    writer.flush();
+                }
+            }
+
+            writer.flush();
+
+        } catch (IOException e) {
+            // най-често - клиентът е прекъснал свалянето
+            throw new UncheckedIOException("Transaction export for user [%s] aborted after %d rows.".formatted(ownerId, rows), e);
+        }
+
+        log.info("Exported {} transactions for user [{}] as {}.", rows, ownerId, format);
+
+        return rows;
+    }
+
+
+    private static String toCsvLine(TransactionRow transaction) {
+        return String.join(",",
+                transaction.getId().toString(),
+                transaction.getCreatedOn().toString(),
+                transaction.getType().name(),
+                transaction.getStatus().name(),
+                transaction.getAmount().toPlainString(),
+                transaction.getCurrency().getCurrencyCode(),
+                csvText(transaction.getDescription()),
+                csvText(transaction.getFailureReason()));
+    }
+
+
+    // RFC 4180 кавички + защита от формули в Excel (=, +, -, @ в началото)
+    private static String csvText(String value) {
+
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+
+        if ("=+-@".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+
+        return value;
+    }
+}
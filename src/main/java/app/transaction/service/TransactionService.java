@@ -1,11 +1,13 @@
 package app.transaction.service;
 
 import app.shared.exception.*;
+import app.shared.pagination.*;
 import app.transaction.model.*;
 import app.transaction.repository.*;
 import app.user.model.*;
 import lombok.extern.slf4j.*;
 import org.springframework.beans.factory.annotation.*;
+import org.springframework.data.domain.*;
 import org.springframework.stereotype.*;
 
 import java.math.*;
@@ -17,6 +19,9 @@ import java.util.*;
 @Service
 public class TransactionService {
 
+    public static final int DEFAULT_HISTORY_PAGE_SIZE = 25;
+    public static final int MAX_HISTORY_PAGE_SIZE = 100;
+
     private final TransactionRepository transactionRepository;
 
 
@@ -49,11 +54,24 @@ public class TransactionService {
     }
 
 
-    public List<Transaction> getAllByOwnerId(UUID ownerId) {
+    // ИСТОРИЯ  -  keyset пагинация по (createdOn, id), най-новите първи
+    // cursor == null  ->  първа страница
+    // Взимаме size + 1 реда, за да знаем дали има следваща страница без COUNT(*)
+    public KeysetPage<TransactionRow> getHistoryPage(UUID ownerId, String cursor, int size) {
+
+        int pageSize = Math.max(1, Math.min(size, MAX_HISTORY_PAGE_SIZE));
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<TransactionRow> transactions;
 
-        List<Transaction> transactions = transactionRepository.findAllByOwnerIdOrderByCreatedOnDesc(ownerId);
+        if (cursor == null || cursor.isBlank()) {
+            transactions = transactionRepository.findHistoryFirstPage(ownerId, limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            transactions = transactionRepository.findHistoryPageAfter(ownerId, after.getTimestamp(), after.getId(), limit);
+        }
 
-        return transactions;
+        return KeysetPage.of(transactions, pageSize, transaction -> new KeysetCursor(transaction.getCreatedOn(), transaction.getId()));
     }
 
 
@@ -25,8 +25,13 @@ public class Treasury {
     @Column(nullable = false, unique = true)
     private String name;
 
-    // ще го заредя предварително със сума
-    @Column(nullable = false)
+    // начален баланс - с него се зареждат shard-овете (TreasuryShard), когато се създават
+    // (при съществуваща база колоната balance съдържа последния баланс отпреди shard-овете)
+    @Column(name = "balance", nullable = false)
+    private BigDecimal openingBalance;
+
+    // текущ баланс = SUM(balance) по shard-овете;  не е колона - попълва го TreasuryService.getTreasurySnapshot()
+    @Transient
     private BigDecimal balance;
 
     @Column(nullable = false)
@@ -0,0 +1,38 @@
+package app.treasury.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.*;
+import java.time.*;
+import java.util.*;
+
+
+// Част (shard) от баланса на Treasury.  Текущият баланс на Treasury = SUM(balance) по всички shard-ове.
+// Всяко плащане намалява ЕДИН shard с атомарен UPDATE  ->  паралелните плащания заключват различни редове, а не един общ.
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "treasury_shards",
+        uniqueConstraints = @UniqueConstraint(name = "uk_treasury_shard_index", columnNames = {"treasury_id", "shard_index"}))
+public class TreasuryShard {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "treasury_id", nullable = false)
+    private UUID treasuryId;
+
+    @Column(name = "shard_index", nullable = false)
+    private int shardIndex;
+
+    @Column(nullable = false)
+    private BigDecimal balance;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedOn;
+}
@@ -0,0 +1,43 @@
+package app.treasury.repository;
+
+import app.treasury.model.*;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.*;
+import org.springframework.stereotype.*;
+import org.springframework.transaction.annotation.*;
+
+import java.math.*;
+import java.time.*;
+import java.util.*;
+
+
+@Repository
+public interface TreasuryShardRepository extends JpaRepository<TreasuryShard, UUID> {
+
+    long countByTreasuryId(UUID treasuryId);
+
+    // кандидати за плащане - shard-ове, които (по snapshot, без lock) покриват сумата
+    @Query("SELECT s.id FROM TreasuryShard s WHERE s.treasuryId = :treasuryId AND s.balance >= :amount")
+    List<UUID> findShardIdsWithBalanceAtLeast(@Param("treasuryId") UUID treasuryId, @Param("amount") BigDecimal amount);
+
+    // ATOMIC  -  проверката и промяната са в един UPDATE;  присъединява се към транзакцията на плащането (последна стъпка)
+    // ->  row lock-ът на shard-а се държи само до COMMIT-а, а не докато трае цялото плащане
+    // 0 засегнати реда  ->  shard-ът вече няма достатъчно баланс
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE TreasuryShard s
+            SET s.balance = s.balance - :amount, s.updatedOn = :updatedOn
+            WHERE s.id = :shardId AND s.balance >= :amount
+            """)
+    int withdrawIfSufficientBalance(@Param("shardId") UUID shardId, @Param("amount") BigDecimal amount, @Param("updatedOn") LocalDateTime updatedOn);
+
+    // бавният път:  нито един shard не покрива сумата сам  ->  заключваме всички (винаги в един и същ ред)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM TreasuryShard s WHERE s.treasuryId = :treasuryId ORDER BY s.shardIndex")
+    List<TreasuryShard> findAllByTreasuryIdForUpdate(@Param("treasuryId") UUID treasuryId);
+
+    @Query("SELECT COALESCE(SUM(s.balance), 0) FROM TreasuryShard s WHERE s.treasuryId = :treasuryId")
+    BigDecimal sumBalanceByTreasuryId(@Param("treasuryId") UUID treasuryId);
+}
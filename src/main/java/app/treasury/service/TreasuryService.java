@@ -11,10 +11,13 @@ import app.user.service.*;
 import app.wallet.model.*;
 import app.wallet.service.*;
 
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.*;
 import org.springframework.beans.factory.annotation.*;
 import org.springframework.stereotype.*;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -22,50 +25,113 @@ import org.springframework.stereotype.Service;
 import java.math.*;
 import java.time.*;
 import java.util.*;
+import java.util.function.*;
 
 
 @Slf4j
 @Service
 public class TreasuryService {
 
+    public static final String TREASURY_NAME = "Treasury vault";
+
+    private static final BigDecimal PAYOUT_AMOUNT = new BigDecimal("100.00");
+
     private final TreasuryRepository treasuryRepository;
+    private final TreasuryShardService treasuryShardService;
+    private final BigDecimal openingBalance;
+
+    // Treasury е едно и не се сменя  ->  търси се по име само веднъж (name / currency / createdOn не се променят)
+    private volatile Treasury treasury;
+
+    // вместо INFO лог на всяко плащане  ->  /actuator/metrics/treasury.payouts?tag=result:approved
+    private final Counter approvedCounter;
+    private final Counter insufficientFundsCounter;
+    private final Counter inactiveWalletCounter;
+    private final Timer payoutTimer;
 
     private final UserService userService;
     private final WalletService walletService;
     private final TransactionService transactionService;
+    private final TransactionTemplate transactionTemplate;
 
 
     @Autowired
-    public TreasuryService(TreasuryRepository treasuryRepository, UserService userService, WalletService walletService, TransactionService transactionService) {
+    public TreasuryService(TreasuryRepository treasuryRepository,
+                           TreasuryShardService treasuryShardService,
+                           UserService userService,
+                           WalletService walletService,
+                           TransactionService transactionService,
+                           TransactionTemplate transactionTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${treasury.opening-balance:1000.00}") BigDecimal openingBalance) {
         this.treasuryRepository = treasuryRepository;
+        this.treasuryShardService = treasuryShardService;
+        this.openingBalance = openingBalance;
         this.userService = userService;
         this.walletService = walletService;
         this.transactionService = transactionService;
+        this.transactionTemplate = transactionTemplate;
+
+        this.approvedCounter = payoutCounter(meterRegistry, "approved");
+        this.insufficientFundsCounter = payoutCounter(meterRegistry, "insufficient_funds");
+        this.inactiveWalletCounter = payoutCounter(meterRegistry, "inactive_wallet");
+        this.payoutTimer = Timer.builder("treasury.payout.duration")
+                .description("Duration of treasury payouts (shard withdraw + wallet deposit)")
+                .register(meterRegistry);
+    }
+
+
+    private static Counter payoutCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("treasury.payouts")
+                .description("Treasury payouts by result")
+                .tag("result", result)
+                .register(meterRegistry);
     }
 
 
     // Методът обработва транзакцията и връща true ако е успешна, false ако е неуспешна
-    @Transactional
+    // Парите се теглят атомарно от един (случаен) shard на Treasury  ->  без lost update и без един общ заключен ред.
+    // Депозитът в wallet-а и тегленето от shard-а са в ЕДНА кратка транзакция  ->  crash по средата не губи пари.
+    // Условният UPDATE на shard-а е последен  ->  горещият shard ред е заключен само до COMMIT-а.
+    // Изпразнен междувременно shard  ->  rollback и нов опит (нова транзакция) със следващия кандидат, накрая бавният път.
     public boolean processTransaction(UUID userId) {
+        return payoutTimer.record(() -> payout(userId));
+    }
+
+
+    private boolean payout(UUID userId) {
 
-        // взимаме Treasury (единственото) в проекта ни
-        Treasury treasury = treasuryRepository
-                .findByName("Treasury vault")
-                .orElseThrow(() -> new IllegalStateException("Treasury not initialized!"));
+        // взимаме Treasury (единственото) в проекта ни  -  от паметта, без заявка по име
+        Treasury treasury = getTreasury();
 
-        BigDecimal newAmount = new BigDecimal("100.00");
+        BigDecimal newAmount = PAYOUT_AMOUNT;
 
         User user = userService.getById(userId);
         Wallet wallet = user.getWallet();
 
         String JUBBISOFT_LTD = "Jubbisoft Ltd.";
 
-        if (treasury.getBalance().compareTo(newAmount) < 0) {
+        UUID treasuryId = treasury.getId();
+        PayoutResult result = PayoutResult.INSUFFICIENT_FUNDS;
+
+        for (UUID shardId : treasuryShardService.findCandidateShards(treasuryId, newAmount)) {
+            result = payoutInTransaction(wallet.getId(), newAmount, () -> treasuryShardService.withdrawFromShard(treasuryId, shardId, newAmount));
+
+            if (result != PayoutResult.INSUFFICIENT_FUNDS) {
+                break;
+            }
+        }
+
+        if (result == PayoutResult.INSUFFICIENT_FUNDS) {
+            result = payoutInTransaction(wallet.getId(), newAmount, () -> !treasuryShardService.withdrawAcrossShards(treasuryId, newAmount).isEmpty());
+        }
+
+        if (result == PayoutResult.INSUFFICIENT_FUNDS) {
             log.error("FAILED TRANSACTION: Treasury does not have enough funds! User: {}, Wallet: {}", user.getUsername(), wallet.getId());
 
             String transactionFailedDescription = "Attempt to add funds: %.2f EUR".formatted(newAmount.doubleValue());
 
-            // Създаване на FAILED Transaction
+            // Създаване на FAILED Transaction  -  след rollback-а, за да остане записана
             Transaction failedTransaction = transactionService.createNewTransaction(
                     wallet.getOwner(),
                     JUBBISOFT_LTD,
@@ -79,27 +145,20 @@ public class TreasuryService {
                     "Treasury does not have enough funds"
             );
 
+            insufficientFundsCounter.increment();
+
             // Връща false, ако средствата не достигат
             return false;
         }
 
-
-        // BigDecimal.valueOf(100)
-        // BigDecimal newAmount = new BigDecimal("100.00");
-        // Ако има достатъчно средства: Добавяме пари към Wallet-а и създаваме Transaction
-        Transaction transaction = walletService.addFunds(wallet.getId(), newAmount);
-
-        if (transaction.getStatus() == TransactionStatus.FAILED) {
+        if (result == PayoutResult.INACTIVE_WALLET) {
             log.error("FAILED TRANSACTION: Wallet is INACTIVE! User: {}, Wallet: {}", user.getUsername(), wallet.getId());
+            inactiveWalletCounter.increment();
             return false;
         }
 
-
-        treasury.setBalance(treasury.getBalance().subtract(newAmount));
-        treasuryRepository.save(treasury);
-
         // Връща true, ако транзакцията е успешна
-        log.info("SUCCESS TRANSACTION: {} EUR added to user {} (Wallet: {})", newAmount, user.getUsername(), wallet.getId());
+        approvedCounter.increment();
 
         return true;
     }
@@ -116,33 +175,90 @@ public class TreasuryService {
     }
 
 
-    public Treasury getByName(String name) {
+    // единственото Treasury (TREASURY_NAME);  balance  ->  SUM по shard-овете, от кратко живия cache (treasuryBalance)
+    // връща копие - споделеното Treasury не се променя от паралелните заявки
+    public Treasury getTreasurySnapshot() {
+
+        Treasury treasury = getTreasury();
+
+        return Treasury.builder()
+                .id(treasury.getId())
+                .name(treasury.getName())
+                .openingBalance(treasury.getOpeningBalance())
+                .balance(treasuryShardService.getBalance(treasury.getId()))
+                .currency(treasury.getCurrency())
+                .createdOn(treasury.getCreatedOn())
+                .updatedOn(treasury.getUpdatedOn())
+                .build();
+    }
+
+
+    // депозит в wallet-а + теглене от Treasury (последно) в една транзакция;  неуспешно теглене  ->  rollback и на депозита
+    private PayoutResult payoutInTransaction(UUID walletId, BigDecimal amount, BooleanSupplier withdraw) {
+
+        return transactionTemplate.execute(status -> {
+
+            // Добавяме пари към Wallet-а и създаваме Transaction
+            Transaction transaction = walletService.addFunds(walletId, amount);
+
+            if (transaction.getStatus() == TransactionStatus.FAILED) {
+                // парите не стигат до wallet-а  ->  Treasury не се пипа;  FAILED Transaction остава
+                return PayoutResult.INACTIVE_WALLET;
+            }
+
+            if (!withdraw.getAsBoolean()) {
+                status.setRollbackOnly();
+                return PayoutResult.INSUFFICIENT_FUNDS;
+            }
+
+            return PayoutResult.APPROVED;
+        });
+    }
+
+
+    private enum PayoutResult {
+        APPROVED, INSUFFICIENT_FUNDS, INACTIVE_WALLET
+    }
+
 
-        Treasury treasury = treasuryRepository
-                .findByName("Treasury vault")
-                .orElseThrow(() -> new DomainException("Treasury with this name [%s] does not exist.".formatted("Treasury vault")));
+    private Treasury getTreasury() {
 
-        log.info("Retrieved Treasury: {} (Balance: {})", treasury.getName(), treasury.getBalance());
+        Treasury cached = treasury;
+        if (cached == null) {
+            cached = treasuryRepository
+                    .findByName(TREASURY_NAME)
+                    .orElseThrow(() -> new DomainException("Treasury with this name [%s] does not exist.".formatted(TREASURY_NAME)));
+            treasury = cached;
+        }
 
-        return treasury;
+        return cached;
     }
 
 
+    // създава Treasury и shard-овете му;  съществуващо Treasury без shard-ове (отпреди шардирането) получава shard-ове от колоната balance
     @Transactional
     public void initializeTreasury() {
 
-        if (treasuryRepository.findByName("Treasury vault").isEmpty()) {
+        Optional<Treasury> existing = treasuryRepository.findByName(TREASURY_NAME);
+
+        if (existing.isEmpty()) {
 
             Treasury treasury = Treasury.builder()
-                    .name("Treasury vault")
-                    .balance(new BigDecimal("1000.00"))
+                    .name(TREASURY_NAME)
+                    .openingBalance(openingBalance)
                     .currency(Currency.getInstance("EUR"))
                     .createdOn(LocalDateTime.now())
                     .updatedOn(LocalDateTime.now())
                     .build();
 
-            treasuryRepository.save(treasury);
-            log.info("Treasury initialized with balance 1000 EUR.");
+            treasury = treasuryRepository.save(treasury);
+            treasuryShardService.createShards(treasury.getId(), openingBalance);
+            log.info("Treasury initialized with balance {} EUR.", openingBalance);
+
+        } else if (!treasuryShardService.hasShards(existing.get().getId())) {
+
+            treasuryShardService.createShards(existing.get().getId(), existing.get().getOpeningBalance());
+            log.info("Treasury balance migrated to shards.");
 
         } else {
             log.info("Treasury already exists. Skipping initialization.");
@@ -0,0 +1,128 @@
+package app.treasury.service;
+
+import app.shared.config.*;
+import app.treasury.model.*;
+import app.treasury.repository.*;
+import lombok.extern.slf4j.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.cache.annotation.*;
+import org.springframework.stereotype.*;
+import org.springframework.transaction.annotation.*;
+
+import java.math.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+
+// SHARD-ове на баланса на Treasury (treasury.shards на брой).
+// Бърз път:  атомарно "balance -= amount WHERE balance >= amount" върху СЛУЧАЕН shard, който покрива сумата
+//            ->  N паралелни плащания се разпределят по N реда вместо да чакат един.
+// Бавен път (почти празно Treasury, парите са разпилени по shard-овете):  заключва всички shard-ове подред и взима от няколко.
+// И двата се викат в транзакцията на плащането (TreasuryService), като последна стъпка след депозита в wallet-а
+//            ->  ако плащането не мине, rollback-ът връща и изтеглените пари.
+// Една транзакция заключва или ЕДИН shard (бърз път), или ВСИЧКИ подред (бавен път)  ->  няма deadlock между тях;
+// неуспешен бърз опит прекратява транзакцията и следващият опит е в нова (TreasuryService).
+@Slf4j
+@Service
+public class TreasuryShardService {
+
+    private final TreasuryShardRepository treasuryShardRepository;
+    private final int shardCount;
+
+
+    @Autowired
+    public TreasuryShardService(TreasuryShardRepository treasuryShardRepository,
+                                @Value("${treasury.shards:8}") int shardCount) {
+        this.treasuryShardRepository = treasuryShardRepository;
+        this.shardCount = Math.max(1, shardCount);
+    }
+
+
+    public boolean hasShards(UUID treasuryId) {
+        return treasuryShardRepository.countByTreasuryId(treasuryId) > 0;
+    }
+
+
+    // разделя openingBalance поравно;  остатъкът от деленето отива в shard 0
+    @CacheEvict(cacheNames = CacheConfiguration.TREASURY_BALANCE_CACHE, key = "#treasuryId")
+    @Transactional
+    public void createShards(UUID treasuryId, BigDecimal openingBalance) {
+
+        BigDecimal perShard = openingBalance.divide(BigDecimal.valueOf(shardCount), 2, RoundingMode.DOWN);
+        BigDecimal remainder = openingBalance.subtract(perShard.multiply(BigDecimal.valueOf(shardCount)));
+
+        List<TreasuryShard> shards = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(TreasuryShard.builder()
+                    .treasuryId(treasuryId)
+                    .shardIndex(i)
+                    .balance(i == 0 ? perShard.add(remainder) : perShard)
+                    .updatedOn(LocalDateTime.now())
+                    .build());
+        }
+
+        treasuryShardRepository.saveAll(shards);
+        log.info("Treasury balance {} split across {} shards.", openingBalance, shardCount);
+    }
+
+
+    // кандидати за бързия път - shard-ове, които (по snapshot, без lock) покриват сумата, в случаен ред
+    public List<UUID> findCandidateShards(UUID treasuryId, BigDecimal amount) {
+
+        List<UUID> candidates = new ArrayList<>(treasuryShardRepository.findShardIdsWithBalanceAtLeast(treasuryId, amount));
+        Collections.shuffle(candidates, ThreadLocalRandom.current());
+
+        return candidates;
+    }
+
+
+    // бърз път;  false  ->  друго плащане е изпразнило shard-а след snapshot-а
+    @CacheEvict(cacheNames = CacheConfiguration.TREASURY_BALANCE_CACHE, key = "#treasuryId")
+    public boolean withdrawFromShard(UUID treasuryId, UUID shardId, BigDecimal amount) {
+        return treasuryShardRepository.withdrawIfSufficientBalance(shardId, amount, LocalDateTime.now()) == 1;
+    }
+
+
+    // бавен път:  shardId -> изтеглена сума;  празен Map  ->  Treasury няма достатъчно средства (нищо не е изтеглено)
+    // lock-овете се освобождават при COMMIT / rollback на транзакцията на плащането
+    @CacheEvict(cacheNames = CacheConfiguration.TREASURY_BALANCE_CACHE, key = "#treasuryId")
+    @Transactional
+    public Map<UUID, BigDecimal> withdrawAcrossShards(UUID treasuryId, BigDecimal amount) {
+
+        LocalDateTime now = LocalDateTime.now();
+        List<TreasuryShard> shards = treasuryShardRepository.findAllByTreasuryIdForUpdate(treasuryId);
+
+        BigDecimal total = shards.stream().map(TreasuryShard::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (total.compareTo(amount) < 0) {
+            return Map.of();
+        }
+
+        Map<UUID, BigDecimal> withdrawals = new LinkedHashMap<>();
+        BigDecimal remaining = amount;
+
+        for (TreasuryShard shard : shards) {
+            if (remaining.signum() == 0) {
+                break;
+            }
+
+            BigDecimal taken = shard.getBalance().min(remaining);
+            if (taken.signum() > 0) {
+                // редовете са заключени от нас  ->  промяната се flush-ва с транзакцията (dirty checking)
+                shard.setBalance(shard.getBalance().subtract(taken));
+                shard.setUpdatedOn(now);
+                withdrawals.put(shard.getId(), taken);
+                remaining = remaining.subtract(taken);
+            }
+        }
+
+        return withdrawals;
+    }
+
+
+    // кратък TTL (cache.treasury-balance.spec);  плащанията го инвалидират
+    @Cacheable(cacheNames = CacheConfiguration.TREASURY_BALANCE_CACHE, key = "#treasuryId")
+    public BigDecimal getBalance(UUID treasuryId) {
+        return treasuryShardRepository.sumBalanceByTreasuryId(treasuryId);
+    }
+}
@@ -0,0 +1,25 @@
+package app.user.model;
+
+import lombok.*;
+
+import java.time.*;
+import java.util.*;
+
+
+// Логнатият потребител, както го виждат header-ът и sidebar-ът:  без wallet / boughtGames / createdGames (EAGER графа на User).
+// Зарежда се най-много веднъж на заявка от CurrentUserArgumentResolver и се кешира за кратко (currentUsers cache).
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor
+public class CurrentUserView {
+
+    private final UUID id;
+
+    private final String username;
+
+    private final UserRole role;
+
+    private final boolean isActive;
+
+    private final LocalDateTime createdOn;
+}
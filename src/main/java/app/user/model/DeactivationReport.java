@@ -0,0 +1,22 @@
+package app.user.model;
+
+import lombok.*;
+
+import java.time.*;
+
+
+// Резултат от деактивирането на неактивни потребители (UserInactivityScheduler)
+@Getter
+@AllArgsConstructor
+public class DeactivationReport {
+
+    // редове, прочетени от keyset chunk-овете (само id-та)
+    private final long scannedCount;
+
+    // редове, реално деактивирани от bulk UPDATE-ите
+    private final long deactivatedCount;
+
+    private final int chunks;
+
+    private final Duration duration;
+}
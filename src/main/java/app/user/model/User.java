@@ -16,7 +16,11 @@ import java.util.*;
 @NoArgsConstructor
 @Entity
 // ВАЖНО: 'user' key word in H2
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_stats", columnList = "is_active, role, country"),
+        @Index(name = "idx_users_created_on", columnList = "created_on"),
+        @Index(name = "idx_users_inactivity", columnList = "is_active, updated_on")
+})
 public class User {
 
     @Id
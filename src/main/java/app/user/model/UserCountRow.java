@@ -0,0 +1,18 @@
+package app.user.model;
+
+import lombok.*;
+
+
+// Един ред от  GROUP BY isActive, role, country  -  броят се смята в базата
+@Getter
+@AllArgsConstructor
+public class UserCountRow {
+
+    private final boolean isActive;
+
+    private final UserRole role;
+
+    private final Country country;
+
+    private final Long count;
+}
@@ -0,0 +1,24 @@
+package app.user.model;
+
+import lombok.*;
+
+
+// Филтри за таблицата с потребители;  null  ->  без филтър
+@Builder
+@Getter
+public class UserFilter {
+
+    private final Boolean active;
+
+    private final UserRole role;
+
+    private final Country country;
+
+    // търсене по начало на username-а (prefix)
+    private final String username;
+
+
+    public static UserFilter none() {
+        return UserFilter.builder().build();
+    }
+}
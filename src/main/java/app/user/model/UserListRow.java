@@ -0,0 +1,25 @@
+package app.user.model;
+
+import lombok.*;
+
+import java.time.*;
+import java.util.*;
+
+
+// Един ред от таблицата с потребители (admin panel)  -  само нужните колони, без EAGER графа на User
+@Getter
+@AllArgsConstructor
+public class UserListRow {
+
+    private final UUID id;
+
+    private final String username;
+
+    private final UserRole role;
+
+    private final boolean isActive;
+
+    private final Country country;
+
+    private final LocalDateTime createdOn;
+}
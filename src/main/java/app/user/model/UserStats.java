@@ -0,0 +1,56 @@
+package app.user.model;
+
+import lombok.*;
+
+import java.time.*;
+import java.util.*;
+
+
+// Snapshot на статистиките за admin panel-а:  сглобява се от ЕДНА GROUP BY заявка (UserCountRow)
+@Getter
+@AllArgsConstructor
+public class UserStats {
+
+    private final long totalCount;
+
+    private final long activeCount;
+
+    private final long inactiveCount;
+
+    private final Map<UserRole, Long> countByRole;
+
+    // само държавите с поне един потребител, подредени по брой (DESC)
+    private final Map<Country, Long> countByCountry;
+
+    private final LocalDateTime generatedOn;
+
+
+    public static UserStats of(List<UserCountRow> rows) {
+
+        long active = 0;
+        long inactive = 0;
+        Map<UserRole, Long> byRole = new EnumMap<>(UserRole.class);
+        Map<Country, Long> byCountry = new EnumMap<>(Country.class);
+
+        for (UserRole role : UserRole.values()) {
+            byRole.put(role, 0L);
+        }
+
+        for (UserCountRow row : rows) {
+            if (row.isActive()) {
+                active += row.getCount();
+            } else {
+                inactive += row.getCount();
+            }
+            byRole.merge(row.getRole(), row.getCount(), Long::sum);
+            byCountry.merge(row.getCountry(), row.getCount(), Long::sum);
+        }
+
+        Map<Country, Long> sortedByCountry = new LinkedHashMap<>();
+        byCountry.entrySet().stream()
+                .sorted(Map.Entry.<Country, Long>comparingByValue().reversed())
+                .forEach(entry -> sortedByCountry.put(entry.getKey(), entry.getValue()));
+
+        return new UserStats(active + inactive, active, inactive, byRole, sortedByCountry, LocalDateTime.now());
+    }
+}
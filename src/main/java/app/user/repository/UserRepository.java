@@ -1,9 +1,13 @@
 package app.user.repository;
 
 import app.user.model.*;
+import org.springframework.data.domain.*;
 import org.springframework.stereotype.*;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.*;
+import org.springframework.transaction.annotation.*;
 
+import java.time.*;
 import java.util.*;
 
 
@@ -13,4 +17,71 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByUsername(String username);
     //List<User> findByEmail(String email);
     Optional<User> findByEmail(String email);
-}
\ No newline at end of file
+
+    // CurrentUserView  -  само колоните за header / sidebar, без wallet и игрите
+    @Query("""
+            SELECT new app.user.model.CurrentUserView(u.id, u.username, u.role, u.isActive, u.createdOn)
+            FROM User u
+            WHERE u.id = :id
+            """)
+    Optional<CurrentUserView> findCurrentUserViewById(@Param("id") UUID id);
+
+
+    // ---------------  ADMIN PANEL  -  броене и страниране в базата (без findAll())  ---------------
+
+    long countByIsActive(boolean isActive);
+
+    // една заявка за всички броячи (active / inactive, по роля, по държава);  покрива се от idx_users_stats
+    @Query("""
+            SELECT new app.user.model.UserCountRow(u.isActive, u.role, u.country, COUNT(u))
+            FROM User u
+            GROUP BY u.isActive, u.role, u.country
+            """)
+    List<UserCountRow> countGroupedByStatusRoleAndCountry();
+
+    // страница от таблицата;  null параметър  ->  без филтър;  username  ->  prefix ('abc%'), ползва unique индекса
+    @Query(value = """
+            SELECT new app.user.model.UserListRow(u.id, u.username, u.role, u.isActive, u.country, u.createdOn)
+            FROM User u
+            WHERE (:active IS NULL OR u.isActive = :active)
+              AND (:role IS NULL OR u.role = :role)
+              AND (:country IS NULL OR u.country = :country)
+              AND (:username IS NULL OR u.username LIKE :username ESCAPE '!')
+            """,
+            countQuery = """
+            SELECT COUNT(u)
+            FROM User u
+            WHERE (:active IS NULL OR u.isActive = :active)
+              AND (:role IS NULL OR u.role = :role)
+              AND (:country IS NULL OR u.country = :country)
+              AND (:username IS NULL OR u.username LIKE :username ESCAPE '!')
+            """)
+    Page<UserListRow> findUserListPage(@Param("active") Boolean active,
+                                       @Param("role") UserRole role,
+                                       @Param("country") Country country,
+                                       @Param("username") String usernamePattern,
+                                       Pageable pageable);
+
+
+    // ---------------  SCHEDULER  -  keyset chunk-ове от id-та + bulk UPDATE (константна памет)  ---------------
+
+    @Query("""
+            SELECT u.id FROM User u
+            WHERE u.isActive = true AND u.updatedOn < :cutoff
+            ORDER BY u.id
+            """)
+    List<UUID> findInactiveUserIdsFirstChunk(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    @Query("""
+            SELECT u.id FROM User u
+            WHERE u.isActive = true AND u.updatedOn < :cutoff AND u.id > :afterId
+            ORDER BY u.id
+            """)
+    List<UUID> findInactiveUserIdsAfter(@Param("cutoff") LocalDateTime cutoff, @Param("afterId") UUID afterId, Limit limit);
+
+    // условието се проверява отново  ->  потребител, влязъл между SELECT-а и UPDATE-а, не се деактивира
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.isActive = false WHERE u.id IN :ids AND u.isActive = true AND u.updatedOn < :cutoff")
+    int deactivateInactiveByIds(@Param("ids") Collection<UUID> ids, @Param("cutoff") LocalDateTime cutoff);
+}
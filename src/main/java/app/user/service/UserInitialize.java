@@ -13,6 +13,7 @@ import app.wallet.repository.*;
 import app.wallet.service.*;
 import org.springframework.beans.factory.annotation.*;
 import org.springframework.boot.*;
+import org.springframework.context.annotation.*;
 import org.springframework.security.crypto.password.*;
 import org.springframework.stereotype.*;
 
@@ -22,7 +23,9 @@ import java.util.*;
 
 
 // КОГАТО СТАРТИРА нашия APP ще се стартира и UserInit понеже ползва CommandLineRunner с run
+// С профил "seed" НЕ се стартира  ->  данните ги генерира BulkDataSeeder (app.seed.service)
 @Component
+@Profile("!seed")
 public class UserInitialize implements CommandLineRunner {
 
     private final UserService userService;
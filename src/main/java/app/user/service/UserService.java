@@ -2,6 +2,7 @@ package app.user.service;
 
 import app.loyalty.service.*;
 import app.security.*;
+import app.shared.config.*;
 import app.shared.exception.*;
 import app.user.model.*;
 import app.user.model.User;
@@ -12,6 +13,9 @@ import app.web.dto.*;
 import jakarta.persistence.*;
 import lombok.extern.slf4j.*;
 import org.springframework.beans.factory.annotation.*;
+import org.springframework.cache.annotation.*;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.*;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.security.crypto.password.*;
 import org.springframework.stereotype.*;
@@ -26,6 +30,13 @@ import java.util.*;
 @Service
 public class UserService implements UserDetailsService {
 
+    public static final int DEFAULT_USERS_PAGE_SIZE = 25;
+    public static final int MAX_USERS_PAGE_SIZE = 100;
+
+    // колоните, по които таблицата с потребители може да се сортира
+    private static final Set<String> USER_SORT_PROPERTIES = Set.of("username", "role", "isActive", "country", "createdOn");
+    private static final String DEFAULT_USER_SORT = "createdOn";
+
     private final UserRepository userRepository;
 
     private final PasswordEncoder passwordEncoder;
@@ -153,7 +164,22 @@ public class UserService implements UserDetailsService {
     }
 
 
+    // Логнатият потребител за header / sidebar  -  без EAGER графа на User
+    // Кешира се за кратко (currentUsers);  switchStatus / switchRole / deactivateInactiveUsers го инвалидират
+    @Cacheable(cacheNames = CacheConfiguration.CURRENT_USERS_CACHE, key = "#userId")
+    public CurrentUserView getCurrentUserView(UUID userId) {
+
+        return userRepository
+                .findCurrentUserViewById(userId)
+                .orElseThrow(() -> new DomainException("User with id [%s] does not exist.".formatted(userId)));
+    }
+
+
     //@CacheEvict(value = "users", allEntries = true)
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfiguration.CURRENT_USERS_CACHE, key = "#userId"),
+            @CacheEvict(cacheNames = CacheConfiguration.USER_STATS_CACHE, allEntries = true)
+    })
     public void switchStatus(UUID userId) {
 
         User user = getById(userId);
@@ -169,6 +195,10 @@ public class UserService implements UserDetailsService {
 
 
     //@CacheEvict(value = "users", allEntries = true)
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfiguration.CURRENT_USERS_CACHE, key = "#userId"),
+            @CacheEvict(cacheNames = CacheConfiguration.USER_STATS_CACHE, allEntries = true)
+    })
     public void switchRole(UUID userId) {
 
         User user = getById(userId);
@@ -207,32 +237,86 @@ public class UserService implements UserDetailsService {
     }
 
 
-    // SCHEDULER
-    public List<User> getInactiveUsersByLastActivity(int inactiveDays) {
+    // SCHEDULER  -  деактивира активните потребители, невлизали от над inactiveDays дни.
+    // Keyset chunk-ове от id-та (ORDER BY id, id > последното)  +  един bulk UPDATE на chunk (отделна транзакция):
+    // в паметта има най-много chunkSize UUID-а, независимо колко са потребителите.
+    @CacheEvict(cacheNames = {CacheConfiguration.CURRENT_USERS_CACHE, CacheConfiguration.USER_STATS_CACHE}, allEntries = true)
+    public DeactivationReport deactivateInactiveUsers(int inactiveDays, int chunkSize) {
+
+        long start = System.nanoTime();
         LocalDateTime cutoff = LocalDateTime.now().minusDays(inactiveDays);
-        return userRepository.findAll()
-                .stream()
-                .filter(user -> user.isActive() && user.getUpdatedOn().isBefore(cutoff))
-                .toList();
-    }
 
+        long scanned = 0;
+        long deactivated = 0;
+        int chunks = 0;
 
-    // SCHEDULER
-    public void deactivateUsers(List<User> users) {
-        users.forEach(user -> user.setActive(false));
-        userRepository.saveAll(users);
+        List<UUID> chunk = userRepository.findInactiveUserIdsFirstChunk(cutoff, Limit.of(chunkSize));
+
+        while (!chunk.isEmpty()) {
+            chunks++;
+            scanned += chunk.size();
+            deactivated += userRepository.deactivateInactiveByIds(chunk, cutoff);
+
+            log.debug("Inactivity chunk {}: scanned {} users, deactivated {} so far.", chunks, scanned, deactivated);
+
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+
+            chunk = userRepository.findInactiveUserIdsAfter(cutoff, chunk.get(chunk.size() - 1), Limit.of(chunkSize));
+        }
+
+        return new DeactivationReport(scanned, deactivated, chunks, Duration.ofNanos(System.nanoTime() - start));
     }
 
 
     // SCHEDULER - USERS Tab (Admin panel)
     public long countActiveUsers() {
-        return userRepository.findAll().stream().filter(User::isActive).count();
+        return userRepository.countByIsActive(true);
     }
 
 
     // SCHEDULER - USERS Tab (Admin panel)
     public long countInactiveUsers() {
-        return userRepository.findAll().stream().filter(u -> !u.isActive()).count();
+        return userRepository.countByIsActive(false);
+    }
+
+
+    // USERS Tab (Admin panel)  -  всички броячи с ЕДНА GROUP BY заявка;
+    // кешира се за кратко (userStats), админ действията (status / role / deactivate) го инвалидират веднага
+    @Cacheable(cacheNames = CacheConfiguration.USER_STATS_CACHE, key = "'all'")
+    public UserStats getUserStats() {
+        return UserStats.of(userRepository.countGroupedByStatusRoleAndCountry());
+    }
+
+
+    // USERS Tab (Admin panel)  -  една страница (UserListRow), филтрирана и сортирана в базата
+    public Page<UserListRow> getUsersPage(UserFilter filter, int page, int size, String sortBy, Sort.Direction direction) {
+
+        String sortProperty = USER_SORT_PROPERTIES.contains(sortBy) ? sortBy : DEFAULT_USER_SORT;
+        int pageSize = Math.max(1, Math.min(size, MAX_USERS_PAGE_SIZE));
+
+        // id като втори ключ  ->  стабилен ред между страниците при еднакви стойности
+        Sort sort = Sort.by(direction, sortProperty).and(Sort.by(Sort.Direction.ASC, "id"));
+        Pageable pageable = PageRequest.of(Math.max(page, 0), pageSize, sort);
+
+        return userRepository.findUserListPage(filter.getActive(), filter.getRole(), filter.getCountry(), toPrefixPattern(filter.getUsername()), pageable);
+    }
+
+
+    // 'ab_c'  ->  'ab!_c%'  (LIKE ... ESCAPE '!')
+    private static String toPrefixPattern(String username) {
+
+        if (username == null || username.isBlank()) {
+            return null;
+        }
+
+        String escaped = username.trim()
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_");
+
+        return escaped + "%";
     }
 
 }
\ No newline at end of file
@@ -3,12 +3,38 @@ package app.wallet.repository;
 import app.user.model.*;
 import app.wallet.model.*;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.*;
 import org.springframework.stereotype.*;
 
+import java.math.*;
+import java.time.*;
 import java.util.*;
 
 
 @Repository
 public interface WalletRepository extends JpaRepository<Wallet, UUID> {
     Optional<Wallet> findByOwner(User owner);
-}
\ No newline at end of file
+
+
+    // ATOMIC  -  проверката за баланс и промяната са в един UPDATE (row lock в InnoDB), без read-modify-write в Java.
+    // 0 засегнати реда  ->  няма достатъчно баланс или wallet-ът не е ACTIVE
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            UPDATE Wallet w
+            SET w.balance = w.balance - :amount, w.updatedOn = :updatedOn
+            WHERE w.id = :walletId AND w.status = :status AND w.balance >= :amount
+            """)
+    int withdrawIfSufficientBalance(@Param("walletId") UUID walletId, @Param("amount") BigDecimal amount, @Param("status") WalletStatus status, @Param("updatedOn") LocalDateTime updatedOn);
+
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            UPDATE Wallet w
+            SET w.balance = w.balance + :amount, w.updatedOn = :updatedOn
+            WHERE w.id = :walletId AND w.status = :status
+            """)
+    int deposit(@Param("walletId") UUID walletId, @Param("amount") BigDecimal amount, @Param("status") WalletStatus status, @Param("updatedOn") LocalDateTime updatedOn);
+
+    // текущият баланс след UPDATE-а  -  в същата транзакция редът е още заключен от нас
+    @Query("SELECT w.balance FROM Wallet w WHERE w.id = :walletId")
+    BigDecimal findBalanceById(@Param("walletId") UUID walletId);
+}
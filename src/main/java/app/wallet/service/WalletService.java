@@ -6,6 +6,8 @@ import app.transaction.service.*;
 import app.user.model.*;
 import app.wallet.model.*;
 import app.wallet.repository.*;
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.*;
 import org.springframework.beans.factory.annotation.*;
 import org.springframework.stereotype.*;
@@ -14,6 +16,7 @@ import org.springframework.transaction.annotation.*;
 import java.math.*;
 import java.time.*;
 import java.util.*;
+import java.util.function.*;
 
 
 @Slf4j
@@ -21,17 +24,25 @@ import java.util.*;
 public class WalletService {
 
     private static final String JUBBISOFT_LTD = "Jubbisoft Ltd.";
+    public static final String INACTIVE_WALLET_REASON = "Inactive wallet status";
+
+    // времето по статус на Transaction  ->  /actuator/metrics/wallet.charge?tag=status:failed
+    static final String CHARGE_METRIC = "wallet.charge";
+    static final String ADD_FUNDS_METRIC = "wallet.add.funds";
 
     private final WalletRepository walletRepository;
 
     private final TransactionService transactionService;
 
+    private final MeterRegistry meterRegistry;
+
 
     @Autowired
-    public WalletService(WalletRepository walletRepository, TransactionService transactionService) {
+    public WalletService(WalletRepository walletRepository, TransactionService transactionService, MeterRegistry meterRegistry) {
 
         this.walletRepository = walletRepository;
         this.transactionService = transactionService;
+        this.meterRegistry = meterRegistry;
     }
 
 
@@ -61,6 +72,11 @@ public class WalletService {
 
     @Transactional
     public Transaction addFunds(UUID walletId, BigDecimal amount) {
+        return timed(ADD_FUNDS_METRIC, "Wallet deposits by transaction status", () -> deposit(walletId, amount));
+    }
+
+
+    private Transaction deposit(UUID walletId, BigDecimal amount) {
 
         Wallet wallet = getWalletById(walletId);
 
@@ -87,18 +103,35 @@ public class WalletService {
 
 
         // WalletStatus.ACTIVE  >>
-        wallet.setBalance(wallet.getBalance().add(amount));
-        wallet.setUpdatedOn(LocalDateTime.now());
+        // atomic UPDATE balance = balance + amount  -  паралелни депозити / покупки не се презаписват
+        int updatedRows = walletRepository.deposit(walletId, amount, WalletStatus.ACTIVE, LocalDateTime.now());
+
+        if (updatedRows == 0) {
+            // wallet-ът е деактивиран междувременно
+            log.error("FAILED TRANSACTION: Wallet is INACTIVE! Wallet ID: %s".formatted(walletId));
+
+            return transactionService.createNewTransaction(
+                    wallet.getOwner(),
+                    JUBBISOFT_LTD,
+                    walletId.toString(),
+                    amount,
+                    walletRepository.findBalanceById(walletId),
+                    wallet.getCurrency(),
+                    TransactionType.DEPOSIT,
+                    TransactionStatus.FAILED,
+                    transactionDescription,
+                    "Inactive wallet");
+        }
 
-        walletRepository.save(wallet);
-        log.info("SUCCESS TRANSACTION: %.2f EUR added to Wallet %s (New Balance: %.2f)".formatted(amount.doubleValue(), walletId, wallet.getBalance()));
+        BigDecimal newBalance = walletRepository.findBalanceById(walletId);
+        log.info("SUCCESS TRANSACTION: %.2f EUR added to Wallet %s (New Balance: %.2f)".formatted(amount.doubleValue(), walletId, newBalance));
 
         Transaction transaction = transactionService.createNewTransaction(
                 wallet.getOwner(),
                 JUBBISOFT_LTD,
                 walletId.toString(),
                 amount,
-                wallet.getBalance(),
+                newBalance,
                 wallet.getCurrency(),
                 TransactionType.DEPOSIT,
                 TransactionStatus.APPROVED,
@@ -119,13 +152,18 @@ public class WalletService {
 
     @Transactional
     public Transaction charge(User user, UUID walletId, BigDecimal amount, String description) {
+        return timed(CHARGE_METRIC, "Wallet charges by transaction status", () -> withdraw(user, walletId, amount, description));
+    }
+
+
+    private Transaction withdraw(User user, UUID walletId, BigDecimal amount, String description) {
 
         Wallet wallet = getWalletById(walletId);
         String failureReason = null;
         boolean isFailedTransaction = false;
 
         if (wallet.getStatus() == WalletStatus.INACTIVE) {
-            failureReason = "Inactive wallet status";
+            failureReason = INACTIVE_WALLET_REASON;
             isFailedTransaction = true;
         }
 
@@ -152,17 +190,32 @@ public class WalletService {
 
 
         // if success:
-        wallet.setBalance(wallet.getBalance().subtract(amount));
-        wallet.setUpdatedOn(LocalDateTime.now());
+        // Проверката по-горе е върху прочетения wallet и може вече да е остаряла (паралелна покупка от същия user).
+        // Истинската проверка е в UPDATE ... WHERE balance >= amount  -  втората заявка чака row lock-а и вижда новия баланс.
+        int updatedRows = walletRepository.withdrawIfSufficientBalance(walletId, amount, WalletStatus.ACTIVE, LocalDateTime.now());
 
-        walletRepository.save(wallet);
+        if (updatedRows == 0) {
+            log.warn("Concurrent charge rejected for wallet [%s]: not enough balance or inactive wallet.".formatted(walletId));
+
+            return transactionService.createNewTransaction(
+                    user,
+                    wallet.getId().toString(),
+                    JUBBISOFT_LTD,
+                    amount,
+                    walletRepository.findBalanceById(walletId),
+                    wallet.getCurrency(),
+                    TransactionType.WITHDRAWAL,
+                    TransactionStatus.FAILED,
+                    description,
+                    "Not enough balance to purchase this game!");
+        }
 
         Transaction transaction = transactionService.createNewTransaction(
                 user,
                 wallet.getId().toString(),
                 JUBBISOFT_LTD,
                 amount,
-                wallet.getBalance(),
+                walletRepository.findBalanceById(walletId),
                 wallet.getCurrency(),
                 TransactionType.WITHDRAWAL,
                 TransactionStatus.APPROVED,
@@ -172,6 +225,26 @@ public class WalletService {
         return transaction;
     }
 
+    // status:  approved / failed (Transaction-а)  или  error (exception, напр. несъществуващ wallet)
+    private Transaction timed(String metric, String description, Supplier<Transaction> operation) {
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String status = "error";
+
+        try {
+            Transaction transaction = operation.get();
+            status = transaction.getStatus().name().toLowerCase();
+            return transaction;
+
+        } finally {
+            sample.stop(Timer.builder(metric)
+                    .description(description)
+                    .tag("status", status)
+                    .register(meterRegistry));
+        }
+    }
+
+
     @Transactional
     public Wallet saveWallet(Wallet wallet) {
         Wallet savedWallet = walletRepository.save(wallet);
@@ -2,8 +2,10 @@ package app.web;
 
 import app.game.model.*;
 import app.game.service.*;
+import app.idempotency.service.*;
 import app.notice.service.*;
 import app.security.*;
+import app.shared.pagination.*;
 import app.transaction.model.*;
 import app.user.model.*;
 import app.user.service.*;
@@ -32,35 +34,74 @@ public class GameController {
     private final UserService userService;
     private final GameService gameService;
     private final NoticeService noticeService;
+    private final GameSearchService gameSearchService;
+    private final IdempotencyService idempotencyService;
 
 
     @Autowired
-    public GameController(UserService userService, GameService gameService, NoticeService noticeService) {
+    public GameController(UserService userService, GameService gameService, NoticeService noticeService, GameSearchService gameSearchService, IdempotencyService idempotencyService) {
         this.userService = userService;
         this.gameService = gameService;
         this.noticeService = noticeService;
+        this.gameSearchService = gameSearchService;
+        this.idempotencyService = idempotencyService;
     }
 
 
     // PUBLIC GAMES  -  EXPLORE button
     // /games/explore
     @GetMapping("/explore")
-    public ModelAndView getAllPublicGames(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public ModelAndView getAllPublicGames(@RequestParam(name = "cursor", required = false) String cursor, CurrentUserView currentUser) {
 
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("games-public");
 
-        if (authenticationMetadata != null && authenticationMetadata.getUserId() != null) {
-            User user = userService.getById(authenticationMetadata.getUserId());
-            modelAndView.addObject("user", user); // Добавяме user в модела
-        } else {
-            modelAndView.addObject("user", null); // Гарантираме, че user винаги съществува в Thymeleaf
-        }
+        modelAndView.addObject("user", currentUser); // null за анонимен - header-ът показва Login / Register
 
         // List<Game> allSystemGames = gameService.getAllGames();
-        List<Game> allAvailablePublicGames = gameService.getAllAvailableGames();
+        // Само една страница (keyset), следващите се зареждат с infinite scroll от /games/explore/page
+        KeysetPage<GameCardView> catalogPage = gameService.getAvailableGamesPage(cursor, GameService.DEFAULT_CATALOG_PAGE_SIZE);
+
+        modelAndView.addObject("allAvailablePublicGames", catalogPage.getItems());
+        modelAndView.addObject("nextCursor", catalogPage.getNextCursor());
+
+        return modelAndView;
+    }
+
+
+    // INFINITE SCROLL  -  връща само фрагмента с картите на следващата страница
+    // /games/explore/page?cursor=...
+    @GetMapping("/explore/page")
+    public ModelAndView getPublicGamesPage(@RequestParam(name = "cursor", required = false) String cursor) {
+
+        KeysetPage<GameCardView> catalogPage = gameService.getAvailableGamesPage(cursor, GameService.DEFAULT_CATALOG_PAGE_SIZE);
+
+        ModelAndView modelAndView = new ModelAndView();
+        modelAndView.setViewName("games-public :: gameCards");
+
+        modelAndView.addObject("allAvailablePublicGames", catalogPage.getItems());
+        modelAndView.addObject("nextCursor", catalogPage.getNextCursor());
+
+        return modelAndView;
+    }
+
+
+    // SEARCH  -  full-text по title/description + филтри по genre и ценови диапазон
+    // /games/search?q=...&genre=...&price=...
+    @GetMapping("/search")
+    public ModelAndView searchGames(@RequestParam(name = "q", required = false) String query,
+                                    @RequestParam(name = "genre", required = false) Genre genre,
+                                    @RequestParam(name = "price", required = false) PriceBucket priceBucket,
+                                    CurrentUserView currentUser) {
 
-        modelAndView.addObject("allAvailablePublicGames", allAvailablePublicGames);
+        ModelAndView modelAndView = new ModelAndView();
+        modelAndView.setViewName("games-search");
+
+        modelAndView.addObject("user", currentUser);
+
+        GameSearchResult searchResult = gameSearchService.search(query, genre, priceBucket);
+
+        modelAndView.addObject("searchResult", searchResult);
 
         return modelAndView;
     }
@@ -70,19 +111,17 @@ public class GameController {
     // /games/new
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/new")
-    public ModelAndView getNewGamePage(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public ModelAndView getNewGamePage(CurrentUserView currentUser) {
 
         // 1. Проверка дали потребителят е логнат
-        if (authenticationMetadata == null || authenticationMetadata.getUserId() == null) {
+        if (currentUser == null) {
             return new ModelAndView("redirect:/login");
         }
 
-        User user = userService.getById(authenticationMetadata.getUserId());
-
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("add-game");
 
-        modelAndView.addObject("user", user);
+        modelAndView.addObject("user", currentUser);
         modelAndView.addObject("createGameRequest", new CreateGameRequest());  // показваме празно DTO FORM
 
         return modelAndView;
@@ -123,21 +162,18 @@ public class GameController {
     // /games/{gameId}
     @PreAuthorize("hasRole('ADMIN')")
     @DeleteMapping("/{gameId}")
-    public String deleteGame(@PathVariable UUID gameId, @AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public String deleteGame(@PathVariable UUID gameId, CurrentUserView currentUser) {
 
         // 1. Проверка дали потребителят е логнат
-        if (authenticationMetadata == null || authenticationMetadata.getUserId() == null) {
+        if (currentUser == null) {
             return "redirect:/login";
         }
 
         // 2. Извличане на игра.  Взимаме играта по ID (методът хвърля грешка, ако играта не съществува)
-        Game game = gameService.getGameById(gameId);
-
-        // 3. Взимаме текущия потребител
-        User user = userService.getById(authenticationMetadata.getUserId());
+        GameDetailsView game = gameService.getGameDetails(gameId);
 
-        // 4. Проверка за собственост.  Дали текущият потребител е собственикът на играта
-        if (!game.getPublisher().getId().equals(user.getId())) {
+        // 3. Проверка за собственост.  Дали текущият потребител е собственикът на играта
+        if (!game.getPublisherId().equals(currentUser.getId())) {
             throw new AccessDeniedException("You do not have permission to delete this game.");
         }
 
@@ -150,19 +186,14 @@ public class GameController {
     // PUBLIC GAMES  for  USERS  (not for all - NOT LOGGED-IN)
     // /games/{gameId}
     @GetMapping("/{gameId}/explore")
-    public ModelAndView viewGame(@PathVariable UUID gameId, @AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public ModelAndView viewGame(@PathVariable UUID gameId, CurrentUserView currentUser) {
 
-        Game game = gameService.getGameById(gameId);
+        GameDetailsView game = gameService.getGameDetails(gameId);
 
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("game");
 
-        if (authenticationMetadata != null && authenticationMetadata.getUserId() != null) {
-            User user = userService.getById(authenticationMetadata.getUserId());
-            modelAndView.addObject("user", user); // Добавяме user в модела
-        } else {
-            modelAndView.addObject("user", null); // Гарантираме, че user винаги съществува в Thymeleaf
-        }
+        modelAndView.addObject("user", currentUser);
 
         modelAndView.addObject("game", game);
 
@@ -174,20 +205,18 @@ public class GameController {
     // /games/{gameId}/availability
     @PreAuthorize("hasRole('ADMIN')")
     @PutMapping("/{gameId}/availability")
-    public String changeGameAvailability(@PathVariable UUID gameId, @AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public String changeGameAvailability(@PathVariable UUID gameId, CurrentUserView currentUser) {
 
         // 1. Проверка дали потребителят е логнат
-        if (authenticationMetadata == null || authenticationMetadata.getUserId() == null) {
+        if (currentUser == null) {
             return "redirect:/login";
         }
 
-        User user = userService.getById(authenticationMetadata.getUserId());
-
         // 2. Извличане на игра.  Взимаме играта по ID (методът хвърля грешка, ако играта не съществува)
-        Game game = gameService.getGameById(gameId);
+        GameDetailsView game = gameService.getGameDetails(gameId);
 
         // 3. Проверка за собственост.  Дали текущият потребител е собственикът на играта
-        if (!game.getPublisher().getId().equals(user.getId())) {
+        if (!game.getPublisherId().equals(currentUser.getId())) {
             throw new AccessDeniedException("You do not have permission to change status of this game.");
         }
 
@@ -201,22 +230,20 @@ public class GameController {
     // /games/owned
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/owned")
-    public ModelAndView getAllOwnedGames(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public ModelAndView getAllOwnedGames(CurrentUserView currentUser) {
 
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("owned-games");
 
         // Проверка дали потребителят е логнат
-        if (authenticationMetadata == null || authenticationMetadata.getUserId() == null) {
+        if (currentUser == null) {
             return new ModelAndView("redirect:/login");
         }
 
-        User user = userService.getById(authenticationMetadata.getUserId());
-
-        modelAndView.addObject("user", user); // Добавяме user в модела
+        modelAndView.addObject("user", currentUser); // Добавяме user в модела
 
         // Взимаме всички игри, които са публикувани от текущия потребител
-        List<Game> ownedGames = gameService.getAllGamesByPublisherId(user.getId());
+        List<GameCardView> ownedGames = gameService.getAllGamesByPublisherId(currentUser.getId());
 
         // Добавяме игрите в модела
         modelAndView.addObject("ownedGames", ownedGames);
@@ -228,26 +255,24 @@ public class GameController {
     // /games/{gameId}/owned
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/{gameId}/owned")
-    public ModelAndView viewOwnedGame(@PathVariable UUID gameId, @AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public ModelAndView viewOwnedGame(@PathVariable UUID gameId, CurrentUserView currentUser) {
 
         // Проверка за логнат потребител
-        if (authenticationMetadata == null || authenticationMetadata.getUserId() == null) {
+        if (currentUser == null) {
             return new ModelAndView("redirect:/login");
         }
 
-        User user = userService.getById(authenticationMetadata.getUserId());
-
-        Game game = gameService.getGameById(gameId);
+        GameDetailsView game = gameService.getGameDetails(gameId);
 
         // Проверка за собственост.  Дали текущият потребител е собственикът на играта
-        if (!game.getPublisher().getId().equals(user.getId())) {
+        if (!game.getPublisherId().equals(currentUser.getId())) {
             return new ModelAndView("redirect:/games/owned");
         }
 
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("game-owned");
 
-        modelAndView.addObject("user", user); // Добавяме user в модела
+        modelAndView.addObject("user", currentUser); // Добавяме user в модела
 
         modelAndView.addObject("game", game);
 
@@ -259,27 +284,25 @@ public class GameController {
     // /games/{gameId}/profile
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/{gameId}/profile")
-    public ModelAndView getProfileMenu(@PathVariable UUID gameId, @AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public ModelAndView getProfileMenu(@PathVariable UUID gameId, CurrentUserView currentUser) {
 
         // 1. Проверка за логнат потребител
-        if (authenticationMetadata == null || authenticationMetadata.getUserId() == null) {
+        if (currentUser == null) {
             return new ModelAndView("redirect:/login");
         }
 
-        User user = userService.getById(authenticationMetadata.getUserId());
-
         // 2. Извличане на игра.  Взимаме играта по ID (методът хвърля грешка, ако играта не съществува)
-        Game game = gameService.getGameById(gameId);
+        GameDetailsView game = gameService.getGameDetails(gameId);
 
         // 3. Проверка за собственост.  Дали текущият потребител е собственикът на играта
-        if (!game.getPublisher().getId().equals(user.getId())) {
+        if (!game.getPublisherId().equals(currentUser.getId())) {
             throw new AccessDeniedException("You do not have permission to edit this game.");
         }
 
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("game-profile");
 
-        modelAndView.addObject("user", user);
+        modelAndView.addObject("user", currentUser);
         modelAndView.addObject("game", game);
         modelAndView.addObject("gameEditRequest", DtoMapperGame.mapGameToGameEditRequest(game));
 
@@ -291,20 +314,18 @@ public class GameController {
     // /games/{gameId}/profile
     @PreAuthorize("hasRole('ADMIN')")
     @PutMapping("/{gameId}/profile")
-    public ModelAndView updateGameProfile(@PathVariable UUID gameId, @Valid GameEditRequest gameEditRequest, BindingResult bindingResult, @AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public ModelAndView updateGameProfile(@PathVariable UUID gameId, @Valid GameEditRequest gameEditRequest, BindingResult bindingResult, CurrentUserView currentUser) {
 
         // 1. Проверка за логнат потребител
-        if (authenticationMetadata == null || authenticationMetadata.getUserId() == null) {
+        if (currentUser == null) {
             return new ModelAndView("redirect:/login");
         }
 
-        User user = userService.getById(authenticationMetadata.getUserId());
-
         // 2. Извличане на игра.  Взимаме играта по ID (методът хвърля грешка, ако играта не съществува)
-        Game game = gameService.getGameById(gameId);
+        GameDetailsView game = gameService.getGameDetails(gameId);
 
         // 3. Проверка за собственост.  Дали текущият потребител е собственикът на играта
-        if (!game.getPublisher().getId().equals(user.getId())) {
+        if (!game.getPublisherId().equals(currentUser.getId())) {
             throw new AccessDeniedException("You do not have permission to edit this game.");
         }
 
@@ -314,7 +335,7 @@ public class GameController {
             ModelAndView modelAndView = new ModelAndView();
             modelAndView.setViewName("game-profile");
 
-            modelAndView.addObject("user", user);
+            modelAndView.addObject("user", currentUser);
             modelAndView.addObject("game", game);
             modelAndView.addObject("gameEditRequest", gameEditRequest);
 
@@ -326,7 +347,7 @@ public class GameController {
             bindingResult.rejectValue("title", "error.gameEditRequest", "Title is already in use! Choose another title.");
 
             return new ModelAndView("game-profile")
-                    .addObject("user", user)
+                    .addObject("user", currentUser)
                     .addObject("game", game)
                     .addObject("gameEditRequest", gameEditRequest);
         }
@@ -347,18 +368,27 @@ public class GameController {
     // POST - Buy Game
     // /games/{gameId}/buy
     @PostMapping("/{gameId}/buy")
-    public ModelAndView buyGame(@PathVariable UUID gameId, @AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public ModelAndView buyGame(@PathVariable UUID gameId,
+                                @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKeyHeader,
+                                @RequestParam(name = "idempotencyKey", required = false) String idempotencyKeyParam,
+                                @AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
 
         // 1. Проверка за логнат потребител
         if (authenticationMetadata == null || authenticationMetadata.getUserId() == null) {
             return new ModelAndView("redirect:/login");
         }
 
-        User user = userService.getById(authenticationMetadata.getUserId());
-        Game game = gameService.getGameById(gameId);
+        // Idempotency ключ - от header-а (API клиенти) или от скритото поле във формата (double-click / retry)
+        String idempotencyKey = idempotencyKeyHeader != null ? idempotencyKeyHeader : idempotencyKeyParam;
 
-        // Опит за покупка (ако няма баланс, ще хвърли грешка)
-        Transaction buyGameResult = gameService.purchaseGame(game, user);
+        if (idempotencyKey == null) {
+            Transaction buyGameResult = purchase(gameId, authenticationMetadata.getUserId());
+            return new ModelAndView("redirect:/transactions/" + buyGameResult.getId());
+        }
+
+        // Дубликат  ->  само redirect към оригиналната Transaction (без wallet / loyalty / notice работа)
+        UUID transactionId = idempotencyService.executeOnce(authenticationMetadata.getUserId(), idempotencyKey, "buy:" + gameId,
+                () -> purchase(gameId, authenticationMetadata.getUserId()).getId());
 
         // Презареждане на страницата на играта с допълнителни атрибути
         // ModelAndView modelAndView = new ModelAndView();
@@ -366,28 +396,36 @@ public class GameController {
         // modelAndView.addObject("game", game);
         // modelAndView.addObject("successMessage", "Game purchased successfully!");
 
-        return new ModelAndView("redirect:/transactions/" + buyGameResult.getId());
+        return new ModelAndView("redirect:/transactions/" + transactionId);
+    }
+
+
+    // Опит за покупка (ако няма баланс, ще хвърли грешка)
+    private Transaction purchase(UUID gameId, UUID userId) {
+
+        User user = userService.getById(userId);
+        Game game = gameService.getGameById(gameId);
+
+        return gameService.purchaseGame(game, user);
     }
 
 
     // /games/purchased
     @GetMapping("/purchased")
-    public ModelAndView getPurchasedGames(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public ModelAndView getPurchasedGames(CurrentUserView currentUser) {
 
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("purchased-games");
 
         // Проверка дали потребителят е логнат
-        if (authenticationMetadata == null || authenticationMetadata.getUserId() == null) {
+        if (currentUser == null) {
             return new ModelAndView("redirect:/login");
         }
 
-        User user = userService.getById(authenticationMetadata.getUserId());
-
-        modelAndView.addObject("user", user); // Добавяме user в модела
+        modelAndView.addObject("user", currentUser); // Добавяме user в модела
 
         // Взимаме всички игри, които са публикувани от текущия потребител
-        List<Game> purchasedGames = gameService.getMyPurchasedGames(user);
+        List<GameCardView> purchasedGames = gameService.getMyPurchasedGames(currentUser.getId());
 
         // Добавяме игрите в модела
         modelAndView.addObject("purchasedGames", purchasedGames);
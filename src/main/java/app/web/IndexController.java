@@ -29,66 +29,47 @@ public class IndexController {
 
 
     @GetMapping("/")
-    public ModelAndView getIndexPage(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public ModelAndView getIndexPage(CurrentUserView currentUser) {
 
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("index");
 
-        if (authenticationMetadata != null && authenticationMetadata.getUserId() != null) {
-            User user = userService.getById(authenticationMetadata.getUserId());
-            modelAndView.addObject("user", user); // Добавяме user в модела
-        } else {
-            modelAndView.addObject("user", null); // Гарантираме, че user винаги съществува в Thymeleaf
-        }
+        // header / sidebar  -  CurrentUserView (null за анонимен), без зареждане на целия User
+        modelAndView.addObject("user", currentUser);
 
         return modelAndView;
     }
 
     @GetMapping("/contact")
-    public ModelAndView getContactPage(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public ModelAndView getContactPage(CurrentUserView currentUser) {
 
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("contact");
 
-        if (authenticationMetadata != null && authenticationMetadata.getUserId() != null) {
-            User user = userService.getById(authenticationMetadata.getUserId());
-            modelAndView.addObject("user", user); // Добавяме user в модела
-        } else {
-            modelAndView.addObject("user", null); // Гарантираме, че user винаги съществува в Thymeleaf
-        }
+        modelAndView.addObject("user", currentUser);
 
         return modelAndView;
     }
 
 
     @GetMapping("/about-us")
-    public ModelAndView getAboutUsPage(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public ModelAndView getAboutUsPage(CurrentUserView currentUser) {
 
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("about-us");
 
-        if (authenticationMetadata != null && authenticationMetadata.getUserId() != null) {
-            User user = userService.getById(authenticationMetadata.getUserId());
-            modelAndView.addObject("user", user); // Добавяме user в модела
-        } else {
-            modelAndView.addObject("user", null); // Гарантираме, че user винаги съществува в Thymeleaf
-        }
+        modelAndView.addObject("user", currentUser);
 
         return modelAndView;
     }
 
     @GetMapping("/terms")
-    public ModelAndView getTermsPage(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public ModelAndView getTermsPage(CurrentUserView currentUser) {
 
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("terms");
 
-        if (authenticationMetadata != null && authenticationMetadata.getUserId() != null) {
-            User user = userService.getById(authenticationMetadata.getUserId());
-            modelAndView.addObject("user", user);       // Добавяме user в модела
-        } else {
-            modelAndView.addObject("user", null);       // Гарантираме, че user винаги съществува в Thymeleaf
-        }
+        modelAndView.addObject("user", currentUser);
 
         return modelAndView;
     }
@@ -7,10 +7,12 @@ import app.security.*;
 import app.user.model.*;
 import app.user.service.*;
 import org.springframework.beans.factory.annotation.*;
+import org.springframework.security.access.prepost.*;
 import org.springframework.security.core.annotation.*;
 import org.springframework.stereotype.*;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.*;
+import org.springframework.web.servlet.mvc.support.*;
 
 import java.util.*;
 
@@ -19,43 +21,55 @@ import java.util.*;
 @RequestMapping("/users")
 public class LoyaltyController {
 
-    private final UserService userService;
     private final GameService gameService;
     private final LoyaltyService loyaltyService;
+    private final LoyaltyRecomputeJobService loyaltyRecomputeJobService;
 
 
     @Autowired
-    public LoyaltyController(UserService userService, GameService gameService, LoyaltyService loyaltyService) {
-        this.userService = userService;
+    public LoyaltyController(GameService gameService, LoyaltyService loyaltyService, LoyaltyRecomputeJobService loyaltyRecomputeJobService) {
         this.gameService = gameService;
         this.loyaltyService = loyaltyService;
+        this.loyaltyRecomputeJobService = loyaltyRecomputeJobService;
     }
 
 
     // GET Loyalty Page  -  преглед на статуса на лоялност
     @GetMapping("/{userId}/loyalty")
-    public ModelAndView getLoyaltyPage(@PathVariable UUID userId, @AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public ModelAndView getLoyaltyPage(@PathVariable UUID userId, CurrentUserView currentUser) {
 
-        if (authenticationMetadata == null || authenticationMetadata.getUserId() == null) {
+        if (currentUser == null) {
             return new ModelAndView("redirect:/login");
         }
 
         // Защита:  можеш да виждаш само своята лоялност
-        if (!authenticationMetadata.getUserId().equals(userId)) {
+        if (!currentUser.getId().equals(userId)) {
             return new ModelAndView("redirect:/home");
         }
 
-        User user = userService.getById(authenticationMetadata.getUserId());
         Loyalty loyalty = loyaltyService.getLoyaltyByUserId(userId);
 
 
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("loyalty");
 
-        modelAndView.addObject("user", user);
+        modelAndView.addObject("user", currentUser);
         modelAndView.addObject("loyalty", loyalty);
         modelAndView.addObject("discount", loyaltyService.getDiscountPercentage(userId) * 100);   // Преобразуваме в %
 
         return modelAndView;
     }
-}
\ No newline at end of file
+
+
+    // POST  -  преизчисляване на Loyalty на всички членове (admin);  job-ът тече асинхронно, прогресът е в лога / метриките
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/loyalty/recompute")
+    public ModelAndView recomputeLoyalty(RedirectAttributes redirectAttributes) {
+
+        loyaltyRecomputeJobService.triggerRecompute();
+
+        redirectAttributes.addFlashAttribute("successMessage", "Loyalty recompute started.");
+
+        return new ModelAndView("redirect:/users");
+    }
+}
@@ -1,15 +1,18 @@
 package app.web;
 
 import app.security.*;
+import app.shared.pagination.*;
 import app.transaction.model.*;
 import app.transaction.service.*;
 import app.user.model.*;
 import app.user.service.*;
 import org.springframework.beans.factory.annotation.*;
+import org.springframework.http.*;
 import org.springframework.security.core.annotation.*;
 import org.springframework.stereotype.*;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.*;
+import org.springframework.web.servlet.mvc.method.annotation.*;
 
 import java.util.*;
 
@@ -19,52 +22,75 @@ import java.util.*;
 public class TransactionController {
 
     private final TransactionService transactionService;
-    private final UserService userService;
+    private final TransactionExportService transactionExportService;
 
 
     @Autowired
-    public TransactionController(TransactionService transactionService, UserService userService) {
+    public TransactionController(TransactionService transactionService, TransactionExportService transactionExportService) {
         this.transactionService = transactionService;
-        this.userService = userService;
+        this.transactionExportService = transactionExportService;
     }
 
 
+    // /transactions?cursor=...  -  една keyset страница, "Older" води към следващата
     @GetMapping
-    public ModelAndView showAllTransactions(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public ModelAndView showAllTransactions(@RequestParam(name = "cursor", required = false) String cursor, CurrentUserView currentUser) {
 
-        if (authenticationMetadata == null || authenticationMetadata.getUserId() == null) {
+        if (currentUser == null) {
             return new ModelAndView("redirect:/login");
         }
 
-        User user = userService.getById(authenticationMetadata.getUserId());
-
-        List<Transaction> transactions = transactionService.getAllByOwnerId(user.getId());
+        KeysetPage<TransactionRow> transactionPage = transactionService.getHistoryPage(currentUser.getId(), cursor, TransactionService.DEFAULT_HISTORY_PAGE_SIZE);
 
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("transactions");
 
-        modelAndView.addObject("user", user);
-        modelAndView.addObject("transactions", transactions);
+        modelAndView.addObject("user", currentUser);
+        modelAndView.addObject("transactions", transactionPage.getItems());
+        modelAndView.addObject("nextCursor", transactionPage.getNextCursor());
+        modelAndView.addObject("isFirstPage", cursor == null || cursor.isBlank());
 
         return modelAndView;
     }
 
+    // EXPORT  -  цялата история като CSV / NDJSON файл
+    // /transactions/export?format=CSV|NDJSON
+    // StreamingResponseBody се изпълнява в async executor-а  ->  request нишката се освобождава веднага,
+    // а редовете се пишат директно от JDBC cursor-а в отговора (без да се събират в паметта)
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(@RequestParam(name = "format", defaultValue = "CSV") TransactionExportFormat format,
+                                                                   CurrentUserView currentUser) {
+
+        if (currentUser == null) {
+            return ResponseEntity.status(HttpStatus.FOUND).header(HttpHeaders.LOCATION, "/login").build();
+        }
+
+        UUID ownerId = currentUser.getId();
+        String fileName = "transactions-%s.%s".formatted(currentUser.getUsername(), format.getFileExtension());
+
+        StreamingResponseBody body = outputStream -> transactionExportService.export(ownerId, format, outputStream);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+
+
     @GetMapping("/{id}")
-    public ModelAndView getTransactionById(@PathVariable UUID id, @AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public ModelAndView getTransactionById(@PathVariable UUID id, CurrentUserView currentUser) {
 
-        if (authenticationMetadata == null || authenticationMetadata.getUserId() == null) {
+        if (currentUser == null) {
             return new ModelAndView("redirect:/login");
         }
 
-        User user = userService.getById(authenticationMetadata.getUserId());
-
         Transaction transaction = transactionService.getById(id);
 
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("transaction-result");
 
         modelAndView.addObject("transaction", transaction);
-        modelAndView.addObject("user", user);
+        modelAndView.addObject("user", currentUser);
 
         return modelAndView;
     }
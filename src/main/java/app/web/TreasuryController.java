@@ -19,13 +19,11 @@ import org.springframework.web.servlet.mvc.support.*;
 public class TreasuryController {
 
     private final TreasuryService treasuryService;
-    private final UserService userService;
 
 
     @Autowired
-    public TreasuryController(TreasuryService treasuryService, UserService userService) {
+    public TreasuryController(TreasuryService treasuryService) {
         this.treasuryService = treasuryService;
-        this.userService = userService;
     }
 
 
@@ -49,19 +47,18 @@ public class TreasuryController {
     // GET
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping
-    public ModelAndView getTreasury(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public ModelAndView getTreasury(CurrentUserView currentUser) {
 
-        if (authenticationMetadata == null || authenticationMetadata.getUserId() == null) {
+        if (currentUser == null) {
             return new ModelAndView("redirect:/login");
         }
 
-        User user = userService.getById(authenticationMetadata.getUserId());
-        Treasury treasury = treasuryService.getByName("Treasury vault");
+        Treasury treasury = treasuryService.getTreasurySnapshot();
 
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("treasury");
 
-        modelAndView.addObject("user", user);
+        modelAndView.addObject("user", currentUser);
         modelAndView.addObject("treasury", treasury);
 
 
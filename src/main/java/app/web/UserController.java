@@ -10,6 +10,7 @@ import app.web.dto.*;
 import app.web.mapper.*;
 import jakarta.validation.*;
 import org.springframework.beans.factory.annotation.*;
+import org.springframework.data.domain.*;
 import org.springframework.security.access.*;
 import org.springframework.security.access.prepost.*;
 import org.springframework.security.core.annotation.*;
@@ -36,29 +37,57 @@ public class UserController {
     }
 
 
-    // /users
+    // /users?status=active&role=ADMIN&country=BULGARIA&q=lub&page=0&size=25&sort=createdOn&dir=desc
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping
-    public ModelAndView getAllUsers(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
-
-        if (authenticationMetadata == null || authenticationMetadata.getUserId() == null) {
+    public ModelAndView getAllUsers(@RequestParam(name = "status", required = false) String status,
+                                    @RequestParam(name = "role", required = false) UserRole role,
+                                    @RequestParam(name = "country", required = false) Country country,
+                                    @RequestParam(name = "q", required = false) String query,
+                                    @RequestParam(name = "page", defaultValue = "0") int page,
+                                    @RequestParam(name = "size", defaultValue = "" + UserService.DEFAULT_USERS_PAGE_SIZE) int size,
+                                    @RequestParam(name = "sort", defaultValue = "createdOn") String sort,
+                                    @RequestParam(name = "dir", defaultValue = "desc") String dir,
+                                    CurrentUserView currentUser) {
+
+        if (currentUser == null) {
             return new ModelAndView("redirect:/login");
         }
 
-        User user = userService.getById(authenticationMetadata.getUserId());
+        // List<User> users = userService.getAllUsers();  ->  целата таблица с EAGER графа;  сега само една страница
+        UserFilter filter = UserFilter.builder()
+                .active("active".equals(status) ? Boolean.TRUE : "inactive".equals(status) ? Boolean.FALSE : null)
+                .role(role)
+                .country(country)
+                .username(query)
+                .build();
 
-        List<User> users = userService.getAllUsers();
+        Sort.Direction direction = Sort.Direction.fromOptionalString(dir).orElse(Sort.Direction.DESC);
+        Page<UserListRow> usersPage = userService.getUsersPage(filter, page, size, sort, direction);
 
-        long activeCount = userService.countActiveUsers();
-        long inactiveCount = userService.countInactiveUsers();
+        // броячите - една GROUP BY заявка, кеширана (userStats)
+        UserStats stats = userService.getUserStats();
 
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("users");
-        modelAndView.addObject("users", users);
-        modelAndView.addObject("user", user);
-
-        modelAndView.addObject("activeCount", activeCount);
-        modelAndView.addObject("inactiveCount", inactiveCount);
+        modelAndView.addObject("users", usersPage.getContent());
+        modelAndView.addObject("usersPage", usersPage);
+        modelAndView.addObject("user", currentUser);
+
+        modelAndView.addObject("stats", stats);
+        modelAndView.addObject("activeCount", stats.getActiveCount());
+        modelAndView.addObject("inactiveCount", stats.getInactiveCount());
+
+        // текущите филтри / сортиране  ->  за формата и линковете
+        modelAndView.addObject("status", status);
+        modelAndView.addObject("role", role);
+        modelAndView.addObject("country", country);
+        modelAndView.addObject("q", query);
+        modelAndView.addObject("size", usersPage.getSize());
+        modelAndView.addObject("sort", sort);
+        modelAndView.addObject("dir", direction.name().toLowerCase());
+        modelAndView.addObject("roles", UserRole.values());
+        modelAndView.addObject("countries", Country.values());
 
         return modelAndView;
     }
@@ -126,20 +155,19 @@ public class UserController {
     // /users/{id}/view
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/{userId}/view")
-    public ModelAndView viewUser(@PathVariable UUID userId, @AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public ModelAndView viewUser(@PathVariable UUID userId, CurrentUserView currentUser) {
 
-        if (authenticationMetadata == null || authenticationMetadata.getUserId() == null) {
+        if (currentUser == null) {
             return new ModelAndView("redirect:/login");
         }
 
-        User user = userService.getById(authenticationMetadata.getUserId());
         User viewSomeUser = userService.getById(userId);
         Loyalty loyalty = loyaltyService.getLoyaltyByUserId(userId);
         double loyaltyDiscount = loyaltyService.getDiscountPercentage(userId) * 100;
 
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("view-user");
-        modelAndView.addObject("user", user);
+        modelAndView.addObject("user", currentUser);
         modelAndView.addObject("viewSomeUser", viewSomeUser);
         modelAndView.addObject("loyalty", loyalty);
         modelAndView.addObject("loyaltyDiscount", loyaltyDiscount);
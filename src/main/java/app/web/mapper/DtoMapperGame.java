@@ -21,4 +21,16 @@ public class DtoMapperGame {
         return gameEditRequest;
     }
 
+
+    public static GameEditRequest mapGameToGameEditRequest(GameDetailsView game) {
+
+        return GameEditRequest.builder()
+                .title(game.getTitle())
+                .description(game.getDescription())
+                .price(game.getPrice())
+                .genre(game.getGenre())
+                .imageCoverUrl(game.getImageCoverUrl())
+                .build();
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,164 @@
+package app;
+
+import app.notice.client.*;
+import com.sun.net.httpserver.*;
+import lombok.extern.slf4j.*;
+import org.junit.jupiter.api.*;
+import org.springframework.boot.*;
+import org.springframework.boot.builder.*;
+import org.springframework.context.*;
+import org.springframework.http.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+// STARTUP BENCHMARK  -  само с  mvn -P benchmark test
+// Стартира приложението RUNS пъти на режим срещу бавен и срещу недостъпен notice-svc и логва min / median / max:
+//   BASELINE  ->  старият синхронен hello call към notice-svc при boot (LegacyNoticeSvcStartupCall = премахнатия TestInit)
+//   CURRENT   ->  текущият код (фонова проверка NoticeSvcHealthIndicator, стартът не чака notice-svc)
+// Feign timeout-ите са текущите (connect 1 s / read 3 s) и в двата режима  ->  разликата е само синхронното извикване.
+@Slf4j
+@Tag("benchmark")
+public class ApplicationStartupBenchmarkITest {
+
+    private static final int RUNS = 5;
+    private static final int SLOW_NOTICE_SVC_DELAY_MS = 2_000;
+
+
+    @Test
+    void startupWithSlowNoticeSvc() throws IOException {
+        HttpServer slowNoticeSvc = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        slowNoticeSvc.setExecutor(Executors.newCachedThreadPool());
+        slowNoticeSvc.createContext("/", exchange -> {
+            try {
+                Thread.sleep(SLOW_NOTICE_SVC_DELAY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        slowNoticeSvc.start();
+
+        try {
+            String url = "http://localhost:" + slowNoticeSvc.getAddress().getPort() + "/api/v1/notices";
+            String scenario = "slow notice-svc (" + SLOW_NOTICE_SVC_DELAY_MS + " ms)";
+
+            Result[] results = benchmark(scenario, url);
+            Result baseline = results[0];
+            Result current = results[1];
+
+            // и двата режима стартират;  baseline чака отговора на notice-svc
+            assertThat(baseline.failures()).isZero();
+            assertThat(current.failures()).isZero();
+        } finally {
+            slowNoticeSvc.stop(0);
+        }
+    }
+
+
+    @Test
+    void startupWithUnreachableNoticeSvc() throws IOException {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+
+        String url = "http://localhost:" + closedPort + "/api/v1/notices";
+
+        Result[] results = benchmark("unreachable notice-svc", url);
+        Result baseline = results[0];
+        Result current = results[1];
+
+        // baseline не стартира изобщо (ApplicationRunner-ът гърми);  текущият код стартира всеки път
+        assertThat(baseline.failures()).isEqualTo(RUNS);
+        assertThat(current.failures()).isZero();
+    }
+
+
+    // режимите се редуват run по run (и след един незачетен warm-up старт)  ->  JIT / class loading не облагодетелства нито един
+    private Result[] benchmark(String scenario, String noticeSvcUrl) {
+        boot(noticeSvcUrl, false, "warmup");
+
+        List<Long> baselineTimesMs = new ArrayList<>();
+        List<Long> currentTimesMs = new ArrayList<>();
+        int baselineFailures = 0;
+        int currentFailures = 0;
+
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            baselineFailures += boot(noticeSvcUrl, true, "baseline" + run) ? 0 : 1;
+            baselineTimesMs.add((System.nanoTime() - start) / 1_000_000);
+
+            start = System.nanoTime();
+            currentFailures += boot(noticeSvcUrl, false, "current" + run) ? 0 : 1;
+            currentTimesMs.add((System.nanoTime() - start) / 1_000_000);
+        }
+
+        return new Result[]{
+                report("BASELINE", scenario, baselineFailures, baselineTimesMs),
+                report("CURRENT", scenario, currentFailures, currentTimesMs)
+        };
+    }
+
+
+    // true  ->  контекстът е стартирал (и е затворен);  false  ->  стартът е гръмнал
+    private boolean boot(String noticeSvcUrl, boolean baseline, String database) {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(Application.class).profiles("test");
+
+        if (baseline) {
+            builder.sources(LegacyNoticeSvcStartupCall.class);
+        }
+
+        try (ConfigurableApplicationContext context = builder.run("--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:startup-" + database + ";MODE=MYSQL",
+                "--notice-svc.url=" + noticeSvcUrl,
+                "--notice-svc.health.enabled=" + !baseline,
+                "--notice-svc.health.initial-delay-ms=0")) {
+
+            return context.isActive();
+        } catch (RuntimeException e) {
+            // ApplicationRunner-ът е гръмнал  ->  стартът е неуспешен
+            log.info("STARTUP [{}] failed: {}", database, e.getMessage());
+            return false;
+        }
+    }
+
+
+    private Result report(String mode, String scenario, int failures, List<Long> timesMs) {
+        List<Long> sorted = timesMs.stream().sorted().toList();
+        long medianMs = sorted.get(sorted.size() / 2);
+
+        log.info("STARTUP {} [{}]  runs={}  failed={}  min={} ms  median={} ms  max={} ms  all={}",
+                mode, scenario, RUNS, failures, sorted.get(0), medianMs, sorted.get(sorted.size() - 1), timesMs);
+
+        return new Result(failures);
+    }
+
+
+    // старият TestInit  -  синхронно извикване към notice-svc по време на boot;  регистрира се само в BASELINE режим
+    // (без @Component  ->  component scan-ът на app.* не го взима в останалите тестове)
+    static class LegacyNoticeSvcStartupCall implements ApplicationRunner {
+
+        private final NoticeClient noticeClient;
+
+        LegacyNoticeSvcStartupCall(NoticeClient noticeClient) {
+            this.noticeClient = noticeClient;
+        }
+
+        @Override
+        public void run(ApplicationArguments args) {
+            ResponseEntity<String> response = noticeClient.getHelloMessage("Test-Test");
+            log.info("notice-svc hello: {}", response.getStatusCode());
+        }
+    }
+
+
+    private record Result(int failures) {
+    }
+}
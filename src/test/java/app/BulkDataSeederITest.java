@@ -0,0 +1,108 @@
+package app;
+
+import app.loyalty.service.*;
+import app.seed.service.*;
+import app.transaction.repository.*;
+import app.user.repository.*;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.builder.*;
+import org.springframework.boot.test.context.*;
+import org.springframework.context.*;
+import org.springframework.jdbc.core.*;
+import org.springframework.security.crypto.password.*;
+import org.springframework.test.annotation.*;
+import org.springframework.test.context.*;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+// "test" е последен  ->  H2 datasource-ът от application-test.properties печели пред MySQL url-а от application-seed.properties
+@ActiveProfiles({"seed", "test"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest(properties = {
+        "seed.users=300",
+        "seed.publishers=5",
+        "seed.games=40",
+        "seed.transactions=1234",
+        "seed.max-purchases-per-user=6",
+        "seed.batch-size=64",
+        "seed.random-seed=7"
+})
+public class BulkDataSeederITest {
+
+    private static final String FINGERPRINT_SQL = """
+            SELECT (SELECT SUM(balance) FROM wallet),
+                   (SELECT COUNT(*) FROM games_users),
+                   (SELECT SUM(games_purchased) FROM loyalty),
+                   (SELECT SUM(price) FROM game WHERE is_available)""";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private LoyaltyRecomputeService loyaltyRecomputeService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private BulkDataSeeder bulkDataSeeder;
+
+
+    @Test
+    void seedProfile_shouldReplaceUserInitializeWithConsistentBulkData() {
+        // Then - само seed данни, UserInitialize не е стартиран
+        assertThat(userRepository.count()).isEqualTo(305);
+        assertThat(userRepository.findByUsername("Lub123")).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM game", Long.class)).isEqualTo(40);
+        assertThat(transactionRepository.count()).isEqualTo(1234);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM loyalty", Long.class)).isEqualTo(305);
+
+        // Loyalty съвпада с games_users  ->  преизчисляването няма какво да поправи
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM games_users", Long.class)).isPositive();
+        assertThat(loyaltyRecomputeService.recomputeAll(100).getUpdatedCount()).isZero();
+
+        // балансът на wallet-а = последният balance_left в историята, никога отрицателен
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction WHERE balance_left < 0", Long.class)).isZero();
+
+        // seed потребителите могат да влизат
+        String password = userRepository.findByUsername("seed_user_299").orElseThrow().getPassword();
+        assertThat(passwordEncoder.matches("123123", password)).isTrue();
+    }
+
+
+    @Test
+    void seed_shouldBeReproducibleAndSkipNonEmptyDatabase() throws Exception {
+        // Given
+        Map<String, Object> fingerprint = jdbcTemplate.queryForMap(FINGERPRINT_SQL);
+
+        // When - втори run върху същата база  ->  пропуска се
+        bulkDataSeeder.run();
+
+        // Then
+        assertThat(userRepository.count()).isEqualTo(305);
+
+        // същият seed върху нова база  ->  същите данни
+        ConfigurableApplicationContext other = new SpringApplicationBuilder(Application.class)
+                .profiles("seed", "test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:seed_copy;MODE=MYSQL",
+                        "--seed.users=300", "--seed.publishers=5", "--seed.games=40", "--seed.transactions=1234",
+                        "--seed.max-purchases-per-user=6", "--seed.batch-size=64", "--seed.random-seed=7");
+        try {
+            assertThat(other.getBean(JdbcTemplate.class).queryForMap(FINGERPRINT_SQL).values())
+                    .containsExactlyElementsOf(fingerprint.values());
+        } finally {
+            other.close();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package app;
+
+import app.game.model.*;
+import app.game.service.*;
+import app.shared.config.*;
+import app.user.model.*;
+import app.user.service.*;
+import app.web.dto.*;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.test.context.*;
+import org.springframework.cache.*;
+import org.springframework.test.annotation.*;
+import org.springframework.test.context.*;
+
+import java.math.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest
+public class GameCacheITest {
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+
+    @Test
+    void cachedGameAndListings_shouldBeEvictedWhenGameChanges() {
+        // Given
+        User publisher = userService.register(new RegisterRequest("cache_publisher", "123123", Country.BULGARIA));
+
+        gameService.createNewGame(CreateGameRequest.builder()
+                .title("Cached Game")
+                .description("Cache eviction test game")
+                .price(new BigDecimal("19.99"))
+                .genre(Genre.ACTION)
+                .imageCoverUrl("cover.jpg")
+                .build(), publisher);
+
+        UUID gameId = gameService.getAllGamesByPublisherId(publisher.getId()).get(0).getId();
+
+        // When - второто четене идва от cache-а
+        GameDetailsView first = gameService.getGameDetails(gameId);
+        GameDetailsView second = gameService.getGameDetails(gameId);
+        List<GameCardView> available = gameService.getAllAvailableGames();
+
+        // Then
+        assertThat(second).isSameAs(first);
+        assertThat(cacheManager.getCache(CacheConfiguration.GAMES_CACHE).get(gameId)).isNotNull();
+        assertThat(available).noneMatch(card -> card.getId().equals(gameId));
+
+        // When - публикуване на играта  ->  играта и списъците се инвалидират
+        gameService.toggleAvailability(gameId);
+
+        // Then
+        assertThat(cacheManager.getCache(CacheConfiguration.GAMES_CACHE).get(gameId)).isNull();
+        assertThat(cacheManager.getCache(CacheConfiguration.PUBLISHER_GAMES_CACHE).get(publisher.getId())).isNull();
+        assertThat(gameService.getGameDetails(gameId)).isNotSameAs(first);
+        assertThat(gameService.getGameDetails(gameId).isAvailable()).isTrue();
+        assertThat(gameService.getAllAvailableGames()).anyMatch(card -> card.getId().equals(gameId));
+        assertThat(gameService.getAllGamesByPublisherId(publisher.getId()).get(0).isAvailable()).isTrue();
+    }
+}
@@ -0,0 +1,81 @@
+package app;
+
+import app.game.model.*;
+import app.game.repository.*;
+import app.game.service.*;
+import app.shared.pagination.*;
+import app.user.model.*;
+import app.user.service.*;
+import app.web.dto.*;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.test.context.*;
+import org.springframework.test.annotation.*;
+import org.springframework.test.context.*;
+
+import java.math.*;
+import java.time.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest
+public class GameCatalogKeysetITest {
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private UserService userService;
+
+
+    @Test
+    void walkingAllKeysetPages_shouldReturnEveryAvailableGameExactlyOnceInOrder() {
+        // Given - игри с ЕДНАКВА releaseDate, за да проверим tie-break по id
+        User publisher = userService.register(new RegisterRequest("catalog_publisher", "123123", Country.BULGARIA));
+        LocalDateTime sameReleaseDate = LocalDateTime.now().withNano(0);
+
+        for (int i = 0; i < 7; i++) {
+            gameRepository.save(Game.builder()
+                    .publisher(publisher)
+                    .title("Keyset Game " + i)
+                    .description("Keyset pagination test game")
+                    .price(new BigDecimal("9.99"))
+                    .genre(Genre.STRATEGY)
+                    .isAvailable(i != 3)    // една скрита игра не трябва да излиза в каталога
+                    .imageCoverUrl("cover.jpg")
+                    .releaseDate(sameReleaseDate)
+                    .updatedOn(sameReleaseDate)
+                    .build());
+        }
+
+        List<UUID> expected = gameRepository.findAll().stream().filter(Game::isAvailable).map(Game::getId).toList();
+
+        // When - обхождаме каталога страница по страница
+        List<GameCardView> walked = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+
+        do {
+            KeysetPage<GameCardView> page = gameService.getAvailableGamesPage(cursor, 4);
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(4);
+
+            walked.addAll(page.getItems());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        // Then
+        assertThat(walked).extracting(GameCardView::getId).doesNotHaveDuplicates().containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(walked).extracting(GameCardView::getReleaseDate).isSortedAccordingTo(Comparator.reverseOrder());
+        assertThat(walked).allMatch(GameCardView::isAvailable);
+        assertThat(walked).extracting(GameCardView::getPublisherUsername).isNotEmpty().doesNotContainNull();
+        assertThat(pages).isEqualTo((expected.size() + 3) / 4);
+    }
+}
@@ -0,0 +1,96 @@
+package app;
+
+import app.game.model.*;
+import app.game.repository.*;
+import app.game.service.*;
+import app.loyalty.service.*;
+import app.shared.exception.*;
+import app.user.model.*;
+import app.user.service.*;
+import app.wallet.model.*;
+import app.wallet.repository.*;
+import app.web.dto.*;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.test.context.*;
+import org.springframework.test.annotation.*;
+import org.springframework.test.context.*;
+import org.springframework.test.context.bean.override.mockito.*;
+
+import java.math.*;
+import java.time.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+
+// Покупка, върната с rollback (loyalty / outbox грешка), не оставя купувача нито в базата, нито в паметта:
+// следващата покупка на същата игра не записва "фантомния" купувач в games_users.
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest
+public class GamePurchaseRollbackITest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @MockitoSpyBean
+    private LoyaltyService loyaltyService;
+
+
+    @Test
+    void rolledBackPurchase_shouldNotLeavePhantomBuyerForNextPurchase() {
+        // Given
+        User publisher = userService.register(new RegisterRequest("rollback_publisher", "123123", Country.BULGARIA));
+        User failedBuyer = userService.register(new RegisterRequest("rollback_failed", "123123", Country.BULGARIA));
+        User nextBuyer = userService.register(new RegisterRequest("rollback_next", "123123", Country.BULGARIA));
+        fund(failedBuyer);
+        fund(nextBuyer);
+
+        Game game = gameRepository.save(Game.builder()
+                .title("Rollback Game")
+                .description("Purchase rollback test game")
+                .price(new BigDecimal("10.00"))
+                .genre(Genre.ACTION)
+                .isAvailable(true)
+                .imageCoverUrl("cover.jpg")
+                .releaseDate(LocalDateTime.now())
+                .updatedOn(LocalDateTime.now())
+                .publisher(publisher)
+                .purchasedByUsers(new ArrayList<>())
+                .build());
+
+        doThrow(new DomainException("Loyalty update failed")).doCallRealMethod()
+                .when(loyaltyService).updateLoyaltyAfterPurchase(any());
+
+        // When - първата покупка гърми след записа в games_users  ->  rollback;  втората минава
+        assertThatThrownBy(() -> gameService.purchaseGame(gameService.getGameById(game.getId()), userService.getById(failedBuyer.getId())))
+                .isInstanceOf(DomainException.class);
+
+        gameService.purchaseGame(gameService.getGameById(game.getId()), userService.getById(nextBuyer.getId()));
+
+        // Then
+        assertThat(gameService.getMyPurchasedGames(failedBuyer.getId())).isEmpty();
+        assertThat(gameService.getMyPurchasedGames(nextBuyer.getId())).extracting(GameCardView::getId).containsExactly(game.getId());
+        assertThat(gameService.getGameById(game.getId()).getPurchasedByUsers()).extracting(User::getId).containsExactly(nextBuyer.getId());
+    }
+
+
+    private void fund(User user) {
+        Wallet wallet = walletRepository.findByOwner(user).orElseThrow();
+        wallet.setBalance(new BigDecimal("100.00"));
+        walletRepository.save(wallet);
+    }
+}
@@ -0,0 +1,160 @@
+package app;
+
+import app.game.model.*;
+import app.game.repository.*;
+import app.game.service.*;
+import app.idempotency.model.*;
+import app.idempotency.repository.*;
+import app.idempotency.service.*;
+import app.transaction.model.*;
+import app.transaction.repository.*;
+import app.user.model.*;
+import app.user.service.*;
+import app.wallet.model.*;
+import app.wallet.repository.*;
+import app.web.dto.*;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.test.context.*;
+import org.springframework.test.annotation.*;
+import org.springframework.test.context.*;
+
+import java.math.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest
+public class IdempotentGamePurchaseITest {
+
+    private static final int DUPLICATE_REQUESTS = 8;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    private User buyerUser;
+    private Game testGame;
+
+
+    @BeforeEach
+    void setUp() {
+        User creatorUser = userService.register(new RegisterRequest("idem_creator", "pass123", Country.BULGARIA));
+        buyerUser = userService.register(new RegisterRequest("idem_buyer", "123123", Country.BULGARIA));
+
+        if (buyerUser.getBoughtGames() == null) {
+            buyerUser.setBoughtGames(new ArrayList<>());
+        }
+
+        Wallet buyerWallet = walletRepository.findByOwner(buyerUser).orElseThrow();
+        buyerWallet.setBalance(BigDecimal.valueOf(200.00));
+        walletRepository.save(buyerWallet);
+
+        testGame = gameRepository.save(Game.builder()
+                .title("Retry Storm")
+                .price(BigDecimal.valueOf(50.00))
+                .publisher(creatorUser)
+                .releaseDate(LocalDateTime.now())
+                .updatedOn(LocalDateTime.now())
+                .description("Double-click proof")
+                .imageCoverUrl("cover.jpg")
+                .genre(Genre.ACTION)
+                .purchasedByUsers(new ArrayList<>())
+                .build());
+    }
+
+
+    @Test
+    void duplicateBuyRequestsWithSameKey_shouldChargeOnceAndReplayTheSameTransaction() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String scope = "buy:" + testGame.getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(DUPLICATE_REQUESTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<UUID>> results = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < DUPLICATE_REQUESTS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return idempotencyService.executeOnce(buyerUser.getId(), key, scope,
+                            () -> gameService.purchaseGame(testGame, buyerUser).getId());
+                }));
+            }
+            start.countDown();
+
+            Set<UUID> transactionIds = new HashSet<>();
+            for (Future<UUID> result : results) {
+                transactionIds.add(result.get(30, TimeUnit.SECONDS));
+            }
+
+            // всички дубликати виждат една и съща Transaction
+            assertThat(transactionIds).hasSize(1);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // retry след като оригиналът е завършил  ->  replay
+        UUID replayed = idempotencyService.executeOnce(buyerUser.getId(), key, scope,
+                () -> gameService.purchaseGame(testGame, buyerUser).getId());
+        assertThat(transactionRepository.findById(replayed)).isPresent();
+
+        Wallet wallet = walletRepository.findByOwner(buyerUser).orElseThrow();
+        assertThat(wallet.getBalance()).isEqualByComparingTo("150.00");
+
+        long purchaseTransactions = transactionRepository.findAll().stream()
+                .filter(t -> t.getType() == TransactionType.WITHDRAWAL && t.getDescription().contains(testGame.getTitle()))
+                .count();
+        assertThat(purchaseTransactions).isEqualTo(1);
+    }
+
+
+    @Test
+    void retryAfterCrashBeforeCommit_shouldReclaimAbandonedKeyAndPurchaseOnce() {
+        String key = UUID.randomUUID().toString();
+        String scope = "buy:" + testGame.getId();
+
+        // процесът е паднал след резервацията, преди COMMIT-а на покупката  ->  ключ без transactionId, покупка няма
+        LocalDateTime crashedAt = LocalDateTime.now().minusMinutes(5);
+        idempotencyKeyRepository.saveAndFlush(IdempotencyKey.builder()
+                .userId(buyerUser.getId())
+                .idempotencyKey(key)
+                .scope(scope)
+                .createdOn(crashedAt)
+                .expiresOn(crashedAt.plusHours(24))
+                .build());
+
+        // retry  ->  поема изоставения ключ, вместо да чака и да гръмне
+        UUID transactionId = idempotencyService.executeOnce(buyerUser.getId(), key, scope,
+                () -> gameService.purchaseGame(testGame, buyerUser).getId());
+
+        assertThat(idempotencyKeyRepository.findTransactionId(buyerUser.getId(), key)).contains(transactionId);
+        assertThat(walletRepository.findByOwner(buyerUser).orElseThrow().getBalance()).isEqualByComparingTo("150.00");
+
+        // следващият retry е replay на същата Transaction
+        assertThat(idempotencyService.executeOnce(buyerUser.getId(), key, scope,
+                () -> gameService.purchaseGame(testGame, buyerUser).getId())).isEqualTo(transactionId);
+    }
+}
@@ -0,0 +1,68 @@
+package app;
+
+import app.loyalty.model.*;
+import app.loyalty.service.*;
+import app.user.model.*;
+import app.user.service.*;
+import app.web.dto.*;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.test.context.*;
+import org.springframework.test.annotation.*;
+import org.springframework.test.context.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest
+public class LoyaltyConcurrentPurchaseITest {
+
+    private static final int THREADS = 16;
+    private static final int PURCHASES = 200;
+
+    @Autowired
+    private LoyaltyService loyaltyService;
+
+    @Autowired
+    private UserService userService;
+
+
+    @Test
+    void parallelPurchasesBySameUser_shouldNotLoseLoyaltyIncrements() throws Exception {
+        // Given
+        User user = userService.register(new RegisterRequest("loyal_buyer", "123123", Country.BULGARIA));
+        assertThat(loyaltyService.getDiscountPercentage(user.getId())).isZero();
+
+        // When - 200 паралелни покупки на един и същи user
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < PURCHASES; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    loyaltyService.updateLoyaltyAfterPurchase(user);
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then - нито едно увеличение не е загубено;  PREMIUM е видим и през cache-а
+        Loyalty loyalty = loyaltyService.getLoyaltyByUserId(user.getId());
+        assertThat(loyalty.getGamesPurchased()).isEqualTo(PURCHASES);
+        assertThat(loyalty.getType()).isEqualTo(LoyaltyType.PREMIUM);
+        assertThat(loyaltyService.getDiscountPercentage(user.getId())).isEqualTo(0.3);
+    }
+}
@@ -0,0 +1,168 @@
+package app;
+
+import app.game.model.*;
+import app.game.repository.*;
+import app.game.service.*;
+import app.loyalty.model.*;
+import app.loyalty.repository.*;
+import app.loyalty.service.*;
+import app.user.model.*;
+import app.user.repository.*;
+import app.user.service.*;
+import app.web.dto.*;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.test.context.*;
+import org.springframework.data.domain.*;
+import org.springframework.test.annotation.*;
+import org.springframework.test.context.*;
+
+import java.math.*;
+import java.time.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest
+public class LoyaltyRecomputeITest {
+
+    @Autowired
+    private LoyaltyRecomputeService loyaltyRecomputeService;
+
+    @Autowired
+    private LoyaltyService loyaltyService;
+
+    @Autowired
+    private LoyaltyRepository loyaltyRepository;
+
+    @Autowired
+    private LoyaltyRecomputeCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+
+    @Test
+    void recomputeAll_shouldRebuildLoyaltyFromPurchasesAcrossChunks() {
+        // Given - покупки, записани само в games_users (Loyalty не е обновен), и един повреден Loyalty ред
+        User publisher = userService.register(new RegisterRequest("recompute_publisher", "123123", Country.BULGARIA));
+        User collector = userService.register(new RegisterRequest("recompute_collector", "123123", Country.BULGARIA));
+        User casual = userService.register(new RegisterRequest("recompute_casual", "123123", Country.BULGARIA));
+        User corrupted = userService.register(new RegisterRequest("recompute_corrupted", "123123", Country.BULGARIA));
+
+        List<UUID> gameIds = createGames(publisher, 3);
+        gameIds.forEach(gameId -> recordPurchase(gameId, collector));
+        recordPurchase(gameIds.get(0), casual);
+        corruptLoyalty(corrupted.getId(), 5, LoyaltyType.PREMIUM);
+        // cache-ът помни грешния тип
+        assertThat(loyaltyService.getDiscountPercentage(corrupted.getId())).isEqualTo(0.3);
+
+        // When
+        LoyaltyRecomputeReport report = loyaltyRecomputeService.recomputeAll(2);
+
+        // Then
+        assertThat(report.isResumed()).isFalse();
+        assertThat(report.getProcessedCount()).isEqualTo(loyaltyRepository.count());
+        assertThat(report.getUpdatedCount()).isGreaterThanOrEqualTo(3);
+
+        assertLoyalty(collector.getId(), 3, LoyaltyType.PREMIUM);
+        assertLoyalty(casual.getId(), 1, LoyaltyType.DEFAULT);
+        assertLoyalty(corrupted.getId(), 0, LoyaltyType.DEFAULT);
+        assertThat(loyaltyService.getDiscountPercentage(corrupted.getId())).isZero();
+
+        assertThat(checkpointRepository.findFirstByCompletedOnIsNullOrderByStartedOnDesc()).isEmpty();
+
+        // второ пускане  ->  няма какво да се поправи
+        assertThat(loyaltyRecomputeService.recomputeAll(2).getUpdatedCount()).isZero();
+    }
+
+
+    @Test
+    void recomputeAll_shouldResumeFromCheckpointOfUnfinishedRun() {
+        // Given - пускане, прекъснато след първите 2 члена (keyset ред по member id)
+        for (int i = 0; i < 4; i++) {
+            userService.register(new RegisterRequest("recompute_member_" + i, "123123", Country.BULGARIA));
+        }
+        List<UUID> memberIds = loyaltyRepository.findMemberIdsFirstChunk(Limit.of(1_000));
+        UUID beforeCursor = memberIds.get(0);
+        UUID afterCursor = memberIds.get(memberIds.size() - 1);
+
+        corruptLoyalty(beforeCursor, 7, LoyaltyType.DEFAULT);
+        corruptLoyalty(afterCursor, 7, LoyaltyType.DEFAULT);
+
+        checkpointRepository.save(LoyaltyRecomputeCheckpoint.builder()
+                .lastMemberId(memberIds.get(1))
+                .processedCount(2)
+                .totalCount(memberIds.size())
+                .premiumThreshold(2)
+                .startedOn(LocalDateTime.now().minusMinutes(5))
+                .updatedOn(LocalDateTime.now().minusMinutes(4))
+                .build());
+
+        // When
+        LoyaltyRecomputeReport report = loyaltyRecomputeService.recomputeAll(2);
+
+        // Then - обработени са само членовете след checkpoint-а
+        assertThat(report.isResumed()).isTrue();
+        assertThat(report.getProcessedCount()).isEqualTo(memberIds.size() - 2);
+
+        assertThat(loyaltyRepository.findByMemberId(beforeCursor).orElseThrow().getGamesPurchased()).isEqualTo(7);
+        assertThat(loyaltyRepository.findByMemberId(afterCursor).orElseThrow().getGamesPurchased())
+                .isEqualTo(gameRepository.findAllCardsPurchasedByUserId(afterCursor).size());
+
+        List<LoyaltyRecomputeCheckpoint> runs = checkpointRepository.findAll();
+        assertThat(runs).hasSize(1);
+        assertThat(runs.get(0).getCompletedOn()).isNotNull();
+        assertThat(runs.get(0).getProcessedCount()).isEqualTo(memberIds.size());
+    }
+
+
+    private List<UUID> createGames(User publisher, int count) {
+        for (int i = 0; i < count; i++) {
+            gameService.createNewGame(CreateGameRequest.builder()
+                    .title("Recompute Game " + i)
+                    .description("Loyalty recompute test game")
+                    .price(new BigDecimal("9.99"))
+                    .genre(Genre.ACTION)
+                    .imageCoverUrl("cover.jpg")
+                    .build(), publisher);
+        }
+
+        return gameService.getAllGamesByPublisherId(publisher.getId()).stream().map(GameCardView::getId).toList();
+    }
+
+
+    // само редът в games_users  -  както в исторически данни, без updateLoyaltyAfterPurchase
+    private void recordPurchase(UUID gameId, User buyer) {
+        Game game = gameRepository.findById(gameId).orElseThrow();
+        game.getPurchasedByUsers().add(userRepository.findById(buyer.getId()).orElseThrow());
+        gameRepository.save(game);
+    }
+
+
+    private void corruptLoyalty(UUID memberId, int gamesPurchased, LoyaltyType type) {
+        Loyalty loyalty = loyaltyRepository.findByMemberId(memberId).orElseThrow();
+        loyalty.setGamesPurchased(gamesPurchased);
+        loyalty.setType(type);
+        loyaltyRepository.save(loyalty);
+    }
+
+
+    private void assertLoyalty(UUID memberId, int gamesPurchased, LoyaltyType type) {
+        Loyalty loyalty = loyaltyRepository.findByMemberId(memberId).orElseThrow();
+        assertThat(loyalty.getGamesPurchased()).isEqualTo(gamesPurchased);
+        assertThat(loyalty.getType()).isEqualTo(type);
+    }
+}
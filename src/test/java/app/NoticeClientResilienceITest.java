@@ -0,0 +1,163 @@
+package app;
+
+import app.notice.service.*;
+import com.sun.net.httpserver.*;
+import io.github.resilience4j.circuitbreaker.*;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.actuate.health.*;
+import org.springframework.boot.test.context.*;
+import org.springframework.test.annotation.*;
+import org.springframework.test.context.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+// notice-svc е заменен с локален HTTP stub (WireMock-style):  бавен / 500 отговор  ->  timeout, circuit breaker
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest(properties = {
+        "spring.cloud.openfeign.client.config.notice-svc.connect-timeout=500",
+        "spring.cloud.openfeign.client.config.notice-svc.read-timeout=500",
+        "resilience4j.circuitbreaker.instances.notice-svc.sliding-window-size=4",
+        "resilience4j.circuitbreaker.instances.notice-svc.minimum-number-of-calls=4",
+        "resilience4j.circuitbreaker.instances.notice-svc.failure-rate-threshold=50",
+        "resilience4j.circuitbreaker.instances.notice-svc.wait-duration-in-open-state=1h",
+        "resilience4j.circuitbreaker.instances.notice-svc.register-health-indicator=true",
+        "resilience4j.circuitbreaker.instances.notice-svc.allow-health-indicator-to-fail=false",
+        "management.health.circuitbreakers.enabled=true"
+})
+public class NoticeClientResilienceITest {
+
+    private static HttpServer noticeSvcStub;
+
+    // поведение на stub-а за POST /api/v1/notices
+    private static final AtomicInteger createNoticeStatus = new AtomicInteger(201);
+    private static final AtomicInteger createNoticeDelayMs = new AtomicInteger(0);
+    private static final AtomicInteger createNoticeCalls = new AtomicInteger(0);
+
+    @Autowired
+    private NoticeService noticeService;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private HealthContributorRegistry healthContributorRegistry;
+
+
+    @BeforeAll
+    static void startStub() throws IOException {
+        noticeSvcStub = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        noticeSvcStub.setExecutor(Executors.newCachedThreadPool());
+
+        noticeSvcStub.createContext("/api/v1/notices", exchange -> {
+            int status = 200;
+
+            if ("POST".equals(exchange.getRequestMethod())) {
+                createNoticeCalls.incrementAndGet();
+                sleep(createNoticeDelayMs.get());
+                status = createNoticeStatus.get();
+            }
+
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        noticeSvcStub.start();
+    }
+
+
+    @AfterAll
+    static void stopStub() {
+        noticeSvcStub.stop(0);
+    }
+
+
+    @DynamicPropertySource
+    static void noticeSvcUrl(DynamicPropertyRegistry registry) {
+        registry.add("notice-svc.url", () -> "http://localhost:" + noticeSvcStub.getAddress().getPort() + "/api/v1/notices");
+    }
+
+
+    @BeforeEach
+    void resetStub() {
+        createNoticeStatus.set(201);
+        createNoticeDelayMs.set(0);
+        createNoticeCalls.set(0);
+    }
+
+
+    @Test
+    void healthyNoticeSvc_shouldCreateNotice() {
+        boolean created = createNotice();
+
+        assertThat(created).isTrue();
+        assertThat(createNoticeCalls.get()).isEqualTo(1);
+        assertThat(circuitBreaker().getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+
+    @Test
+    void slowNoticeSvc_shouldBeCutByReadTimeout() {
+        createNoticeDelayMs.set(3_000);
+
+        long start = System.nanoTime();
+        boolean created = createNotice();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(created).isFalse();
+        assertThat(elapsedMs).isLessThan(2_000);
+    }
+
+
+    @Test
+    void failingNoticeSvc_shouldOpenCircuitAndFailFastWithoutCallingIt() {
+        createNoticeStatus.set(500);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(createNotice()).isFalse();
+        }
+
+        assertThat(createNoticeCalls.get()).isEqualTo(4);
+        assertThat(circuitBreaker().getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(noticeService.isNoticeSvcAvailable()).isFalse();
+
+        // OPEN  ->  notice-svc вече не се извиква
+        createNoticeStatus.set(201);
+        long start = System.nanoTime();
+        assertThat(createNotice()).isFalse();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(createNoticeCalls.get()).isEqualTo(4);
+        assertThat(elapsedMs).isLessThan(100);
+
+        // състоянието се вижда през Actuator health (circuitBreakers)
+        assertThat(healthContributorRegistry.getContributor("circuitBreakers")).isNotNull();
+    }
+
+
+    private boolean createNotice() {
+        return noticeService.createNotice(UUID.randomUUID(), UUID.randomUUID(), "Game Purchased", "content", "player", "url", "admin");
+    }
+
+
+    private CircuitBreaker circuitBreaker() {
+        return circuitBreakerRegistry.circuitBreaker(NoticeService.NOTICE_SVC);
+    }
+
+
+    private static void sleep(int millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
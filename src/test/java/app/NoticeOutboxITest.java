@@ -0,0 +1,142 @@
+package app;
+
+import app.game.model.*;
+import app.game.repository.*;
+import app.game.service.*;
+import app.notice.client.*;
+import app.notice.client.dto.*;
+import app.notice.model.*;
+import app.notice.repository.*;
+import app.notice.service.*;
+import app.user.model.*;
+import app.user.service.*;
+import app.wallet.model.*;
+import app.wallet.repository.*;
+import app.web.dto.*;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.test.context.*;
+import org.springframework.http.*;
+import org.springframework.test.annotation.*;
+import org.springframework.test.context.*;
+import org.springframework.test.context.bean.override.mockito.*;
+
+import java.math.*;
+import java.time.*;
+import java.util.*;
+import java.util.function.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest
+public class NoticeOutboxITest {
+
+    @MockitoBean
+    private NoticeClient noticeClient;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private NoticeOutboxRepository noticeOutboxRepository;
+
+    @Autowired
+    private NoticeOutboxDispatcher noticeOutboxDispatcher;
+
+    private User buyerUser;
+    private Game testGame;
+
+
+    @BeforeEach
+    void setUp() {
+        User creatorUser = userService.register(new RegisterRequest("outbox_creator", "pass123", Country.BULGARIA));
+        buyerUser = userService.register(new RegisterRequest("outbox_buyer", "123123", Country.BULGARIA));
+
+        if (buyerUser.getBoughtGames() == null) {
+            buyerUser.setBoughtGames(new ArrayList<>());
+        }
+
+        Wallet buyerWallet = walletRepository.findByOwner(buyerUser).orElseThrow();
+        buyerWallet.setBalance(BigDecimal.valueOf(200.00));
+        walletRepository.save(buyerWallet);
+
+        testGame = gameRepository.save(Game.builder()
+                .title("Outbox Odyssey")
+                .price(BigDecimal.valueOf(50.00))
+                .publisher(creatorUser)
+                .releaseDate(LocalDateTime.now())
+                .updatedOn(LocalDateTime.now())
+                .description("Notices arrive eventually")
+                .imageCoverUrl("cover.jpg")
+                .genre(Genre.RPG)
+                .purchasedByUsers(new ArrayList<>())
+                .build());
+    }
+
+
+    @Test
+    void purchase_shouldWriteOutboxMessage_andDispatcherShouldDeliverItWhenNoticeSvcIsUp() {
+        // notice-svc е недостъпен  ->  покупката минава, съобщението остава PENDING за retry
+        when(noticeClient.createNotice(any(NoticeRequest.class))).thenThrow(new RuntimeException("Connection refused"));
+
+        gameService.purchaseGame(testGame, buyerUser);
+
+        List<NoticeOutboxMessage> messages = noticeOutboxRepository.findAll();
+        assertThat(messages).hasSize(1);
+
+        // dispatcher-ът тръгва и сам след COMMIT (@Async) - изчакваме първия (неуспешен) опит
+        NoticeOutboxMessage message = awaitMessage(messages.get(0).getId(), m -> m.getAttempts() >= 1);
+        assertThat(message.getUserId()).isEqualTo(buyerUser.getId());
+        assertThat(message.getGameId()).isEqualTo(testGame.getId());
+        assertThat(message.getStatus()).isEqualTo(NoticeOutboxStatus.PENDING);
+        assertThat(message.getAttempts()).isGreaterThanOrEqualTo(1);
+
+        // notice-svc се връща, backoff-ът е изтекъл  ->  съобщението се доставя
+        reset(noticeClient);
+        when(noticeClient.createNotice(any(NoticeRequest.class))).thenReturn(new ResponseEntity<>(HttpStatus.CREATED));
+        message.setNextAttemptOn(LocalDateTime.now().minusSeconds(1));
+        noticeOutboxRepository.save(message);
+
+        noticeOutboxDispatcher.dispatchPendingNotices();
+
+        NoticeOutboxMessage delivered = awaitMessage(message.getId(), m -> m.getStatus() == NoticeOutboxStatus.SENT);
+        assertThat(delivered.getStatus()).isEqualTo(NoticeOutboxStatus.SENT);
+        assertThat(delivered.getSentOn()).isNotNull();
+        verify(noticeClient).createNotice(any(NoticeRequest.class));
+    }
+
+
+    private NoticeOutboxMessage awaitMessage(UUID messageId, Predicate<NoticeOutboxMessage> condition) {
+        long deadline = System.currentTimeMillis() + 10_000;
+
+        while (true) {
+            noticeOutboxDispatcher.dispatchPendingNotices();
+            NoticeOutboxMessage message = noticeOutboxRepository.findById(messageId).orElseThrow();
+
+            if (condition.test(message) || System.currentTimeMillis() > deadline) {
+                return message;
+            }
+
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return message;
+            }
+        }
+    }
+}
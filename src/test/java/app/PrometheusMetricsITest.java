@@ -0,0 +1,85 @@
+package app;
+
+import app.game.model.*;
+import app.game.repository.*;
+import app.game.service.*;
+import app.user.model.*;
+import app.user.service.*;
+import app.web.dto.*;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.test.autoconfigure.actuate.observability.*;
+import org.springframework.boot.test.autoconfigure.web.servlet.*;
+import org.springframework.boot.test.context.*;
+import org.springframework.test.annotation.*;
+import org.springframework.test.context.*;
+import org.springframework.test.web.servlet.*;
+
+import java.math.*;
+import java.time.*;
+import java.util.*;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+
+// /actuator/prometheus  -  HTTP Basic само за ADMIN;  метриките на домейна (games.purchase ...) са в Prometheus формат
+// @AutoConfigureObservability  ->  в тестовете Spring Boot иначе изключва Prometheus registry-то
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+public class PrometheusMetricsITest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+
+    @Test
+    void prometheusEndpoint_shouldExposePurchaseMetricsToAdminOnly() throws Exception {
+        // Given - една успешна покупка
+        User publisher = userService.register(new RegisterRequest("metrics_publisher", "123123", Country.BULGARIA));
+        User buyer = userService.register(new RegisterRequest("metrics_buyer", "123123", Country.BULGARIA));
+
+        Game game = gameRepository.save(Game.builder()
+                .title("Metrics Game")
+                .description("Prometheus test game")
+                .price(new BigDecimal("10.00"))
+                .genre(Genre.ACTION)
+                .isAvailable(true)
+                .imageCoverUrl("cover.jpg")
+                .releaseDate(LocalDateTime.now())
+                .updatedOn(LocalDateTime.now())
+                .publisher(publisher)
+                .purchasedByUsers(new ArrayList<>())
+                .build());
+
+        gameService.purchaseGame(game, userService.getById(buyer.getId()));
+
+        // When & Then - ADMIN от UserInitialize
+        mockMvc.perform(get("/actuator/prometheus").with(httpBasic("PlayaDeepCorporation", "123123")))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("games_purchase_seconds_count{outcome=\"success\"} 1")))
+                .andExpect(content().string(containsString("wallet_charge_seconds_count{status=\"approved\"} 1")))
+                .andExpect(content().string(containsString("notice_outbox_enqueued_total")));
+
+        // обикновен потребител  ->  403;  без credentials  ->  401
+        mockMvc.perform(get("/actuator/prometheus").with(httpBasic("metrics_buyer", "123123")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isUnauthorized());
+    }
+}
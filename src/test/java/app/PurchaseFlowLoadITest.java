@@ -0,0 +1,169 @@
+package app;
+
+import app.load.*;
+import com.sun.net.httpserver.*;
+import lombok.extern.slf4j.*;
+import org.junit.jupiter.api.*;
+import org.springframework.boot.builder.*;
+import org.springframework.boot.web.context.*;
+import org.springframework.context.*;
+import org.springframework.jdbc.core.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+// HTTP LOAD TEST на покупката end-to-end  -  само с  mvn -P load test
+// Приложението се стартира на H2 (профили seed + test  ->  BulkDataSeeder) срещу stub notice-svc.
+// Всеки виртуален потребител:  GET /games/explore (анонимно)  ->  POST /login  ->  N пъти:
+//   GET /games/explore  ->  GET /games/{id}/explore  ->  (load.buy-ratio) POST /games/{id}/buy  ->  GET /transactions
+// Параметри:  -Dload.virtual-users=32 -Dload.iterations=25 -Dload.buy-ratio=0.3 -Dload.users=2000 -Dload.games=200
+// Резултат:  p50 / p95 / p99 / max и req/s по endpoint в лога и в target/load/purchase-flow.csv  (или -Dload.result=...)
+@Slf4j
+@Tag("load")
+public class PurchaseFlowLoadITest {
+
+    private static final int VIRTUAL_USERS = Integer.getInteger("load.virtual-users", 32);
+    private static final int ITERATIONS = Integer.getInteger("load.iterations", 25);
+    private static final double BUY_RATIO = Double.parseDouble(System.getProperty("load.buy-ratio", "0.3"));
+    private static final int SEEDED_USERS = Integer.getInteger("load.users", 2_000);
+    private static final int SEEDED_GAMES = Integer.getInteger("load.games", 200);
+    private static final long THINK_TIME_MS = Long.getLong("load.think-time-ms", 0);
+
+
+    @Test
+    void purchaseFlowUnderLoad() throws Exception {
+        HttpServer noticeSvc = startNoticeSvcStub();
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .profiles("seed", "test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:load;MODE=MYSQL",
+                        "--notice-svc.url=http://localhost:" + noticeSvc.getAddress().getPort() + "/api/v1/notices",
+                        "--seed.users=" + SEEDED_USERS,
+                        "--seed.publishers=10",
+                        "--seed.games=" + SEEDED_GAMES,
+                        "--seed.transactions=" + SEEDED_USERS * 5L,
+                        "--logging.level.root=WARN",
+                        "--logging.level.app.PurchaseFlowLoadITest=INFO");
+
+        try {
+            // достатъчно пари за всички покупки  ->  мерим успешния път, а не insufficient funds
+            context.getBean(JdbcTemplate.class).update("UPDATE wallet SET balance = 100000");
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            LatencyRecorder recorder = new LatencyRecorder();
+
+            long elapsedNanos = runVirtualUsers("http://localhost:" + port, recorder);
+
+            List<LatencyRecorder.EndpointReport> reports = recorder.report(elapsedNanos);
+            writeReport(reports, elapsedNanos);
+
+            assertThat(reports).extracting(LatencyRecorder.EndpointReport::endpoint)
+                    .contains("GET /games/explore", "GET /games/{id}/explore", "POST /login", "GET /transactions");
+            assertThat(reports).filteredOn(report -> report.endpoint().startsWith("GET"))
+                    .allSatisfy(report -> assertThat(report.errors()).isZero());
+        } finally {
+            context.close();
+            noticeSvc.stop(0);
+        }
+    }
+
+
+    private long runVirtualUsers(String baseUrl, LatencyRecorder recorder) throws Exception {
+
+        ExecutorService executor = Executors.newFixedThreadPool(VIRTUAL_USERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < VIRTUAL_USERS; i++) {
+                String username = "seed_user_" + (i % SEEDED_USERS);
+                long randomSeed = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    runScenario(new VirtualUser(baseUrl, recorder), username, new Random(randomSeed));
+                    return null;
+                }));
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.MINUTES);
+            }
+            return System.nanoTime() - begin;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+
+    private void runScenario(VirtualUser user, String username, Random random) throws Exception {
+
+        user.get("GET /games/explore", "/games/explore");
+        assertThat(user.login(username, "123123")).as("login of %s", username).isTrue();
+
+        Set<UUID> bought = new HashSet<>();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            List<UUID> catalog = user.get("GET /games/explore", "/games/explore");
+            if (catalog.isEmpty()) {
+                continue;
+            }
+
+            UUID gameId = catalog.get(random.nextInt(catalog.size()));
+            user.get("GET /games/{id}/explore", "/games/" + gameId + "/explore");
+
+            // seed-натите покупки може вече да съдържат играта  ->  500 "already owned" се брои като грешка на buy
+            if (random.nextDouble() < BUY_RATIO && bought.add(gameId)) {
+                user.buy(gameId);
+            }
+
+            user.get("GET /transactions", "/transactions");
+
+            if (THINK_TIME_MS > 0) {
+                Thread.sleep(THINK_TIME_MS);
+            }
+        }
+    }
+
+
+    private void writeReport(List<LatencyRecorder.EndpointReport> reports, long elapsedNanos) throws IOException {
+
+        log.info("PURCHASE FLOW LOAD  virtual users={}  iterations={}  buy ratio={}  duration={} ms",
+                VIRTUAL_USERS, ITERATIONS, BUY_RATIO, elapsedNanos / 1_000_000);
+        reports.forEach(report -> log.info("{}", report));
+
+        Path result = Path.of(System.getProperty("load.result", "target/load/purchase-flow.csv"));
+        Files.createDirectories(result.toAbsolutePath().getParent());
+
+        List<String> lines = new ArrayList<>();
+        lines.add(LatencyRecorder.EndpointReport.CSV_HEADER);
+        reports.forEach(report -> lines.add(report.toCsv()));
+        Files.write(result, lines);
+
+        log.info("Load test results written to {}", result.toAbsolutePath());
+    }
+
+
+    // notice-svc stub  -  приема всяка заявка веднага (outbox-ът не натрупва retry-и по време на теста)
+    private static HttpServer startNoticeSvcStub() throws IOException {
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders("POST".equals(exchange.getRequestMethod()) ? 201 : 200, -1);
+            exchange.close();
+        });
+        server.start();
+
+        return server;
+    }
+}
@@ -0,0 +1,33 @@
+package app;
+
+import app.shared.jpa.*;
+
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+// Query budget за integration тестове  -  брои SQL заявките на Hibernate в текущата нишка (QueryCounter).
+// MockMvc изпълнява заявката в нишката на теста, така че се броят и заявките на controller-а / view-то.
+//   QueryBudget.assertAtMost(3, () -> mockMvc.perform(get("/games/explore")));
+public final class QueryBudget {
+
+    private QueryBudget() {
+    }
+
+
+    public static long count(Callable<?> action) throws Exception {
+        long before = QueryCounter.current();
+        action.call();
+        return QueryCounter.current() - before;
+    }
+
+
+    public static void assertAtMost(long budget, Callable<?> action) throws Exception {
+        long queries = count(action);
+
+        assertThat(queries)
+                .as("SQL queries (budget %d)", budget)
+                .isLessThanOrEqualTo(budget);
+    }
+}
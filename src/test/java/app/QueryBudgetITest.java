@@ -0,0 +1,113 @@
+package app;
+
+import app.game.model.*;
+import app.game.repository.*;
+import app.security.*;
+import app.user.model.*;
+import app.user.service.*;
+import app.web.dto.*;
+import io.micrometer.core.instrument.*;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.test.autoconfigure.web.servlet.*;
+import org.springframework.boot.test.context.*;
+import org.springframework.test.annotation.*;
+import org.springframework.test.context.*;
+import org.springframework.test.web.servlet.*;
+
+import java.math.*;
+import java.time.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class QueryBudgetITest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private GameRepository gameRepository;
+
+
+    @Test
+    void publicCatalog_shouldStayWithinQueryBudget() throws Exception {
+        // Given
+        User publisher = userService.register(new RegisterRequest("budget_publisher", "123123", Country.BULGARIA));
+        for (int i = 0; i < 30; i++) {
+            createGame(publisher, "Budget Game " + i);
+        }
+
+        // When & Then - каталогът е една keyset заявка (GameCardView), без EAGER графа на всяка игра
+        QueryBudget.assertAtMost(3, () -> mockMvc.perform(get("/games/explore")).andExpect(status().isOk()));
+
+        // QueryCountFilter  ->  jpa.request.queries по pattern-а на endpoint-а
+        DistributionSummary perRequest = meterRegistry.get("jpa.request.queries").tag("uri", "/games/explore").summary();
+        assertThat(perRequest.count()).isEqualTo(1);
+        assertThat(perRequest.max()).isBetween(1.0, 3.0);
+
+        // Hibernate statistics  ->  Micrometer
+        assertThat(meterRegistry.get("hibernate.statements").functionCounter().count()).isPositive();
+    }
+
+
+    @Test
+    void gamePage_shouldStayWithinQueryBudgetWhenGameHasManyOwners() throws Exception {
+        // Given - игра с 10 купувача
+        User publisher = userService.register(new RegisterRequest("budget_publisher", "123123", Country.BULGARIA));
+        User viewer = userService.register(new RegisterRequest("budget_viewer", "123123", Country.BULGARIA));
+        Game game = createGame(publisher, "Budget Game");
+
+        for (int i = 0; i < 10; i++) {
+            User owner = userService.register(new RegisterRequest("budget_owner_" + i, "123123", Country.BULGARIA));
+            Game owned = gameRepository.findById(game.getId()).orElseThrow();
+            owned.getPurchasedByUsers().add(userService.getById(owner.getId()));
+            gameRepository.save(owned);
+        }
+
+        AuthenticationMetadata principal = new AuthenticationMetadata(viewer.getId(), viewer.getUsername(), viewer.getPassword(), UserRole.USER, true);
+
+        // When & Then - страницата чете GameDetailsView (един SELECT с JOIN към publisher-а), без EAGER купувачите
+        QueryBudget.assertAtMost(3, () -> mockMvc.perform(get("/games/{gameId}/explore", game.getId()).with(user(principal))).andExpect(status().isOk()));
+
+        // надвишен бюджет  ->  помощникът проваля теста
+        assertThatThrownBy(() -> QueryBudget.assertAtMost(0,
+                () -> mockMvc.perform(get("/transactions").with(user(principal))).andExpect(status().isOk())))
+                .isInstanceOf(AssertionError.class)
+                .hasMessageContaining("SQL queries (budget 0)");
+
+        // историята на транзакциите е една keyset заявка
+        QueryBudget.assertAtMost(3, () -> mockMvc.perform(get("/transactions").with(user(principal))).andExpect(status().isOk()));
+    }
+
+
+    private Game createGame(User publisher, String title) {
+        return gameRepository.save(Game.builder()
+                .title(title)
+                .description("Query budget test game")
+                .price(new BigDecimal("10.00"))
+                .genre(Genre.ACTION)
+                .isAvailable(true)
+                .imageCoverUrl("cover.jpg")
+                .releaseDate(LocalDateTime.now())
+                .updatedOn(LocalDateTime.now())
+                .publisher(publisher)
+                .purchasedByUsers(new ArrayList<>())
+                .build());
+    }
+}
@@ -0,0 +1,108 @@
+package app;
+
+import app.schedulerlock.model.*;
+import app.schedulerlock.repository.*;
+import app.schedulerlock.service.*;
+import io.micrometer.core.instrument.simple.*;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.test.context.*;
+import org.springframework.test.annotation.*;
+import org.springframework.test.context.*;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+// Два "node-а" = две инстанции на SchedulerLockService с различен node-id върху една и съща база
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest
+public class SchedulerLockITest {
+
+    private static final String JOB = "itJob";
+
+    @Autowired
+    private SchedulerLockRepository schedulerLockRepository;
+
+    private SchedulerLockService nodeA;
+    private SchedulerLockService nodeB;
+
+
+    @BeforeEach
+    void setUp() {
+        nodeA = new SchedulerLockService(schedulerLockRepository, new SimpleMeterRegistry(), "node-a");
+        nodeB = new SchedulerLockService(schedulerLockRepository, new SimpleMeterRegistry(), "node-b");
+    }
+
+
+    @Test
+    void onlyOneNodeRunsTheJobWhileTheLockIsHeld() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Boolean> first = executor.submit(() -> nodeA.runLocked(JOB, Duration.ofMinutes(10), Duration.ZERO, () -> {
+            runs.incrementAndGet();
+            started.countDown();
+            await(finish);
+        }));
+
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // node-a още изпълнява job-а  ->  node-b го пропуска
+        assertThat(nodeB.runLocked(JOB, Duration.ofMinutes(10), Duration.ZERO, runs::incrementAndGet)).isFalse();
+        assertThat(schedulerLockRepository.findById(JOB).orElseThrow().getLockedBy()).isEqualTo("node-a");
+
+        finish.countDown();
+        assertThat(first.get(10, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+
+        // освободен (lockAtLeastFor = 0)  ->  следващото изпълнение може да е на всеки node
+        assertThat(nodeB.runLocked(JOB, Duration.ofMinutes(10), Duration.ZERO, runs::incrementAndGet)).isTrue();
+        assertThat(runs.get()).isEqualTo(2);
+    }
+
+
+    @Test
+    void lockAtLeastForKeepsTheLockAfterAShortJob() {
+        assertThat(nodeA.runLocked(JOB, Duration.ofMinutes(10), Duration.ofMinutes(5), () -> { })).isTrue();
+
+        // job-ът е свършил веднага, но lock-ът се държи още 5 мин  ->  cron-ът на друг node с малко изоставащ часовник не го пуска отново
+        assertThat(nodeB.runLocked(JOB, Duration.ofMinutes(10), Duration.ZERO, () -> { })).isFalse();
+        assertThat(schedulerLockRepository.findById(JOB).orElseThrow().getLockUntil()).isAfter(LocalDateTime.now().plusMinutes(4));
+    }
+
+
+    @Test
+    void expiredLockOfACrashedNodeIsTakenOver() {
+        // node-a е паднал по време на job-а  ->  редът остава, но lockUntil вече е минал
+        schedulerLockRepository.saveAndFlush(SchedulerLock.builder()
+                .name(JOB)
+                .lockedAt(LocalDateTime.now().minusHours(3))
+                .lockUntil(LocalDateTime.now().minusHours(1))
+                .lockedBy("node-a")
+                .lockToken(UUID.randomUUID())
+                .build());
+
+        AtomicInteger runs = new AtomicInteger();
+        assertThat(nodeB.runLocked(JOB, Duration.ofMinutes(10), Duration.ZERO, runs::incrementAndGet)).isTrue();
+
+        assertThat(runs.get()).isEqualTo(1);
+        assertThat(schedulerLockRepository.findById(JOB).orElseThrow().getLockedBy()).isEqualTo("node-b");
+    }
+
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package app;
+
+import app.benchmark.*;
+import lombok.extern.slf4j.*;
+import org.junit.jupiter.api.*;
+import org.openjdk.jmh.results.*;
+import org.openjdk.jmh.results.format.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+
+import java.io.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+// JMH BENCHMARK на service слоя  -  само с  mvn -P benchmark test -Dtest=ServiceJmhBenchmarkITest
+// Размер на данните:  -Djmh.users=1000 -Djmh.games=500;  само част от бенчмарковете:  -Djmh.include=loyaltyDiscount
+// Резултат (JSON, за сравнение между build-ове):  target/jmh/service-benchmarks.json  (или -Djmh.result=...)
+@Slf4j
+@Tag("benchmark")
+public class ServiceJmhBenchmarkITest {
+
+    @Test
+    void serviceHotPaths() throws RunnerException {
+        File result = new File(System.getProperty("jmh.result", "target/jmh/service-benchmarks.json"));
+        result.getParentFile().mkdirs();
+
+        Options options = new OptionsBuilder()
+                .include(ServiceHotPathBenchmark.class.getName() + "." + System.getProperty("jmh.include", ""))
+                .param("users", System.getProperty("jmh.users", "200"))
+                .param("games", System.getProperty("jmh.games", "200"))
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.getPath())
+                .shouldFailOnError(true)
+                .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+
+        assertThat(results).isNotEmpty();
+        assertThat(result).exists();
+        log.info("JMH results written to {}", result.getAbsolutePath());
+    }
+}
@@ -1,6 +1,7 @@
 package app;
 
 import app.game.model.Game;
+import app.game.model.GameCardView;
 import app.loyalty.model.*;
 import app.user.model.*;
 import app.wallet.model.*;
@@ -86,10 +87,37 @@ public class TestBuilder {
     }
 
 
+    // read-only проекцията, с която се рендерират списъците с игри
+    public static GameCardView aGameCardView(Game game) {
+        return new GameCardView(
+                game.getId(),
+                game.getTitle(),
+                game.getPrice(),
+                game.getGenre(),
+                game.getImageCoverUrl(),
+                game.getReleaseDate(),
+                game.isAvailable(),
+                game.getPublisher().getUsername());
+    }
+
+
+    public static GameCardView aRandomGameCardView() {
+        return aGameCardView(aRandomGame());
+    }
+
+
     public static Game aRandomGame() {
         User publisher = aRandomAdmin(); // или aRandomUser() ако искаш неадмин
         return aTestGame(publisher);
     }
 
 
-}
\ No newline at end of file
+    public static CurrentUserView aCurrentUserView(User user) {
+        return new CurrentUserView(user.getId(), user.getUsername(), user.getRole(), user.isActive(), user.getCreatedOn());
+    }
+
+
+    public static UserListRow aUserListRow(User user) {
+        return new UserListRow(user.getId(), user.getUsername(), user.getRole(), user.isActive(), user.getCountry(), user.getCreatedOn());
+    }
+}
@@ -0,0 +1,77 @@
+package app;
+
+import app.shared.pagination.*;
+import app.transaction.model.*;
+import app.transaction.service.*;
+import app.user.model.*;
+import app.user.service.*;
+import app.web.dto.*;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.test.context.*;
+import org.springframework.test.annotation.*;
+import org.springframework.test.context.*;
+
+import java.io.*;
+import java.math.*;
+import java.nio.charset.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest
+public class TransactionExportITest {
+
+    @Autowired
+    private TransactionExportService transactionExportService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserService userService;
+
+
+    @Test
+    void exportCsv_shouldStreamEveryOwnTransactionNewestFirst() {
+        // Given
+        User owner = userService.register(new RegisterRequest("export_owner", "123123", Country.BULGARIA));
+        User other = userService.register(new RegisterRequest("export_other", "123123", Country.GERMANY));
+
+        for (int i = 0; i < 1200; i++) {
+            transactionService.createNewTransaction(owner, "wallet", "Jubbisoft", new BigDecimal("1.00"), new BigDecimal("99.00"),
+                    Currency.getInstance("EUR"), TransactionType.WITHDRAWAL, TransactionStatus.APPROVED, "Export row " + i, null);
+        }
+        transactionService.createNewTransaction(other, "wallet", "Jubbisoft", new BigDecimal("1.00"), new BigDecimal("99.00"),
+                Currency.getInstance("EUR"), TransactionType.WITHDRAWAL, TransactionStatus.APPROVED, "Other user", null);
+
+        long ownTransactions = countAllHistory(owner);
+
+        // When - извън транзакция, както в StreamingResponseBody
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = transactionExportService.export(owner.getId(), TransactionExportFormat.CSV, out);
+
+        // Then
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(rows).isEqualTo(ownTransactions).isGreaterThanOrEqualTo(1200);
+        assertThat(lines).hasSize((int) rows + 1);
+        assertThat(lines.get(0)).startsWith("id,created_on");
+        assertThat(lines).noneMatch(line -> line.contains("Other user"));
+        assertThat(lines.subList(1, lines.size())).extracting(line -> line.split(",")[1]).isSortedAccordingTo(Comparator.reverseOrder());
+    }
+
+
+    private long countAllHistory(User owner) {
+        long count = 0;
+        String cursor = null;
+        do {
+            KeysetPage<TransactionRow> page = transactionService.getHistoryPage(owner.getId(), cursor, TransactionService.MAX_HISTORY_PAGE_SIZE);
+            count += page.getItems().size();
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return count;
+    }
+}
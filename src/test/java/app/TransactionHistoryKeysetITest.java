@@ -0,0 +1,81 @@
+package app;
+
+import app.shared.pagination.*;
+import app.transaction.model.*;
+import app.transaction.repository.*;
+import app.transaction.service.*;
+import app.user.model.*;
+import app.user.service.*;
+import app.web.dto.*;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.test.context.*;
+import org.springframework.test.annotation.*;
+import org.springframework.test.context.*;
+
+import java.math.*;
+import java.time.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest
+public class TransactionHistoryKeysetITest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserService userService;
+
+
+    @Test
+    void walkingAllKeysetPages_shouldReturnEveryOwnTransactionExactlyOnceNewestFirst() {
+        // Given - транзакции с ЕДНАКВО createdOn, за да проверим tie-break по id;  чужди транзакции не трябва да излизат
+        User owner = userService.register(new RegisterRequest("history_owner", "123123", Country.BULGARIA));
+        User other = userService.register(new RegisterRequest("history_other", "123123", Country.GERMANY));
+        LocalDateTime sameCreatedOn = LocalDateTime.now().withNano(0);
+
+        for (int i = 0; i < 9; i++) {
+            Transaction transaction = transactionService.createNewTransaction(owner, "wallet", "Jubbisoft", new BigDecimal("1.00"), new BigDecimal("99.00"),
+                    Currency.getInstance("EUR"), TransactionType.WITHDRAWAL, TransactionStatus.APPROVED, "Keyset history " + i, null);
+            if (i % 2 == 0) {
+                transaction.setCreatedOn(sameCreatedOn);
+                transactionRepository.save(transaction);
+            }
+        }
+        transactionService.createNewTransaction(other, "wallet", "Jubbisoft", new BigDecimal("1.00"), new BigDecimal("99.00"),
+                Currency.getInstance("EUR"), TransactionType.WITHDRAWAL, TransactionStatus.APPROVED, "Other user", null);
+
+        List<UUID> expected = transactionRepository.findAll().stream()
+                .filter(t -> t.getOwner() != null && t.getOwner().getId().equals(owner.getId()))
+                .map(Transaction::getId)
+                .toList();
+
+        // When - обхождаме историята страница по страница
+        List<TransactionRow> walked = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+
+        do {
+            KeysetPage<TransactionRow> page = transactionService.getHistoryPage(owner.getId(), cursor, 4);
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(4);
+
+            walked.addAll(page.getItems());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        // Then
+        assertThat(walked).extracting(TransactionRow::getId).doesNotHaveDuplicates().containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(walked).extracting(TransactionRow::getCreatedOn).isSortedAccordingTo(Comparator.reverseOrder());
+        assertThat(walked).extracting(TransactionRow::getDescription).doesNotContain("Other user");
+        assertThat(pages).isEqualTo((expected.size() + 3) / 4);
+    }
+}
@@ -0,0 +1,109 @@
+package app;
+
+import app.treasury.model.*;
+import app.treasury.repository.*;
+import app.treasury.service.*;
+import app.user.model.*;
+import app.user.service.*;
+import app.shared.exception.*;
+import app.web.dto.*;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.test.context.*;
+import org.springframework.test.annotation.*;
+import org.springframework.test.context.*;
+import org.springframework.test.context.bean.override.mockito.*;
+
+import java.math.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest
+public class TreasuryConcurrentPayoutITest {
+
+    private static final int THREADS = 16;
+    private static final int PAYOUTS = 25;
+
+    @Autowired
+    private TreasuryService treasuryService;
+
+    @Autowired
+    private TreasuryShardRepository treasuryShardRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @MockitoSpyBean
+    private TreasuryShardService treasuryShardService;
+
+
+    @Test
+    void parallelPayouts_shouldNeverOverspendOrLoseAnUpdate() throws Exception {
+        // Given - Treasury с 1000.00 EUR в 8 shard-а по 125.00;  25 x 100.00 EUR  ->  точно 10 трябва да минат
+        //         (последните 2 минават само през бавния път - парите са разпилени по shard-овете)
+        List<UUID> userIds = new ArrayList<>();
+        for (int i = 0; i < PAYOUTS; i++) {
+            userIds.add(userService.register(new RegisterRequest("payout_user_" + i, "123123", Country.BULGARIA)).getId());
+        }
+        Treasury treasury = treasuryService.getTreasurySnapshot();
+        assertThat(treasury.getBalance()).isEqualByComparingTo("1000.00");
+
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        try {
+            for (UUID userId : userIds) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return treasuryService.processTransaction(userId);
+                }));
+            }
+            start.countDown();
+
+            long approved = 0;
+            for (Future<Boolean> future : futures) {
+                if (future.get(60, TimeUnit.SECONDS)) {
+                    approved++;
+                }
+            }
+
+            // Then
+            assertThat(approved).isEqualTo(10);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(treasuryService.getTreasurySnapshot().getBalance()).isEqualByComparingTo("0.00");
+        assertThat(treasuryShardRepository.findAll()).hasSize(8).allMatch(shard -> shard.getBalance().signum() >= 0);
+        assertThat(userIds.stream().map(userService::getById).map(u -> u.getWallet().getBalance()).reduce(BigDecimal.ZERO, BigDecimal::add))
+                .isEqualByComparingTo(BigDecimal.valueOf(PAYOUTS * 100L + 1000L));
+    }
+
+
+    @Test
+    void failedShardWithdraw_shouldRollBackWalletDepositToo() {
+        // Given - депозитът в wallet-а вече е направен, когато тегленето от shard-а гърми
+        User user = userService.register(new RegisterRequest("payout_rollback_user", "123123", Country.BULGARIA));
+        BigDecimal walletBalance = userService.getById(user.getId()).getWallet().getBalance();
+        UUID treasuryId = treasuryService.getTreasurySnapshot().getId();
+
+        for (TreasuryShard shard : treasuryShardRepository.findAll()) {
+            doThrow(new DomainException("Shard update failed")).when(treasuryShardService).withdrawFromShard(treasuryId, shard.getId(), new BigDecimal("100.00"));
+        }
+
+        // When
+        assertThatThrownBy(() -> treasuryService.processTransaction(user.getId())).isInstanceOf(DomainException.class);
+
+        // Then - нито парите в wallet-а, нито тези в Treasury са се променили
+        assertThat(userService.getById(user.getId()).getWallet().getBalance()).isEqualByComparingTo(walletBalance);
+        assertThat(treasuryService.getTreasurySnapshot().getBalance()).isEqualByComparingTo("1000.00");
+    }
+}
@@ -0,0 +1,91 @@
+package app;
+
+import app.treasury.service.*;
+import app.user.model.*;
+import app.user.service.*;
+import app.web.dto.*;
+import lombok.extern.slf4j.*;
+import org.junit.jupiter.api.*;
+import org.springframework.boot.builder.*;
+import org.springframework.context.*;
+
+import java.math.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+// TREASURY SHARDING BENCHMARK  -  само с  mvn -P benchmark test
+// Едни и същи паралелни плащания срещу 1 shard (стария "един ред") и срещу 8 shard-а  ->  логва плащания / секунда.
+@Slf4j
+@Tag("benchmark")
+public class TreasuryShardingBenchmarkITest {
+
+    private static final int THREADS = 16;
+    private static final int USERS = 32;
+    private static final int PAYOUTS = 2_000;
+
+
+    @Test
+    void payoutThroughputSingleShardVsSharded() throws Exception {
+        double singleShard = benchmark(1);
+        double sharded = benchmark(8);
+
+        log.info("TREASURY PAYOUTS  threads={}  payouts={}  1 shard={} ops/s  8 shards={} ops/s  speedup={}x",
+                THREADS, PAYOUTS, Math.round(singleShard), Math.round(sharded), String.format("%.2f", sharded / singleShard));
+    }
+
+
+    private double benchmark(int shards) throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:treasury" + shards + ";MODE=MYSQL",
+                        "--treasury.shards=" + shards,
+                        "--treasury.opening-balance=1000000.00");
+
+        try {
+            TreasuryService treasuryService = context.getBean(TreasuryService.class);
+            UserService userService = context.getBean(UserService.class);
+
+            List<UUID> userIds = new ArrayList<>();
+            for (int i = 0; i < USERS; i++) {
+                userIds.add(userService.register(new RegisterRequest("bench_user_" + i, "123123", Country.BULGARIA)).getId());
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Boolean>> futures = new ArrayList<>();
+            long elapsedNanos;
+            try {
+                for (int i = 0; i < PAYOUTS; i++) {
+                    UUID userId = userIds.get(i % USERS);
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        return treasuryService.processTransaction(userId);
+                    }));
+                }
+
+                long begin = System.nanoTime();
+                start.countDown();
+                for (Future<Boolean> future : futures) {
+                    assertThat(future.get(5, TimeUnit.MINUTES)).isTrue();
+                }
+                elapsedNanos = System.nanoTime() - begin;
+            } finally {
+                executor.shutdownNow();
+            }
+
+            BigDecimal expected = new BigDecimal("1000000.00").subtract(new BigDecimal("100.00").multiply(BigDecimal.valueOf(PAYOUTS)));
+            assertThat(treasuryService.getTreasurySnapshot().getBalance()).isEqualByComparingTo(expected);
+
+            double opsPerSecond = PAYOUTS / (elapsedNanos / 1_000_000_000.0);
+            log.info("TREASURY [{} shard(s)]  {} payouts in {} ms  ->  {} ops/s",
+                    shards, PAYOUTS, elapsedNanos / 1_000_000, Math.round(opsPerSecond));
+            return opsPerSecond;
+        } finally {
+            context.close();
+        }
+    }
+}
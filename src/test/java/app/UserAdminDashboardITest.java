@@ -0,0 +1,95 @@
+package app;
+
+import app.user.model.*;
+import app.user.repository.*;
+import app.user.service.*;
+import app.web.dto.*;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.test.context.*;
+import org.springframework.data.domain.*;
+import org.springframework.test.annotation.*;
+import org.springframework.test.context.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest
+public class UserAdminDashboardITest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+
+    @BeforeEach
+    void setUp() {
+        userService.register(new RegisterRequest("dash_alpha", "123123", Country.BULGARIA));
+        userService.register(new RegisterRequest("dash_beta", "123123", Country.GERMANY));
+        userService.register(new RegisterRequest("dash_gamma", "123123", Country.GERMANY));
+        User inactive = userService.register(new RegisterRequest("dash_delta", "123123", Country.FRANCE));
+        User admin = userService.register(new RegisterRequest("dash_admin", "123123", Country.BULGARIA));
+
+        userService.switchStatus(inactive.getId());
+        userService.switchRole(admin.getId());
+    }
+
+
+    @Test
+    void userStats_shouldMatchDatabaseCountsAndFollowAdminActions() {
+        long total = userRepository.count();
+        long active = userRepository.findAll().stream().filter(User::isActive).count();
+
+        UserStats stats = userService.getUserStats();
+
+        assertThat(stats.getTotalCount()).isEqualTo(total);
+        assertThat(stats.getActiveCount()).isEqualTo(active);
+        assertThat(stats.getInactiveCount()).isEqualTo(total - active);
+        assertThat(stats.getCountByRole().values().stream().mapToLong(Long::longValue).sum()).isEqualTo(total);
+        assertThat(stats.getCountByCountry().get(Country.GERMANY)).isGreaterThanOrEqualTo(2);
+        assertThat(userService.countActiveUsers()).isEqualTo(active);
+        assertThat(userService.countInactiveUsers()).isEqualTo(total - active);
+
+        // кеширано - но switchStatus инвалидира snapshot-а веднага
+        User beta = userRepository.findByUsername("dash_beta").orElseThrow();
+        userService.switchStatus(beta.getId());
+
+        assertThat(userService.getUserStats().getInactiveCount()).isEqualTo(stats.getInactiveCount() + 1);
+    }
+
+
+    @Test
+    void usersPage_shouldFilterByPrefixStatusRoleAndCountryAndSort() {
+        Page<UserListRow> dashUsers = userService.getUsersPage(
+                UserFilter.builder().username("dash_").build(), 0, 2, "username", Sort.Direction.ASC);
+
+        assertThat(dashUsers.getTotalElements()).isEqualTo(5);
+        assertThat(dashUsers.getTotalPages()).isEqualTo(3);
+        assertThat(dashUsers.getContent()).extracting(UserListRow::getUsername).containsExactly("dash_admin", "dash_alpha");
+
+        Page<UserListRow> secondPage = userService.getUsersPage(
+                UserFilter.builder().username("dash_").build(), 1, 2, "username", Sort.Direction.ASC);
+        assertThat(secondPage.getContent()).extracting(UserListRow::getUsername).containsExactly("dash_beta", "dash_delta");
+
+        Page<UserListRow> inactive = userService.getUsersPage(
+                UserFilter.builder().active(false).username("dash").build(), 0, 25, "createdOn", Sort.Direction.DESC);
+        assertThat(inactive.getContent()).extracting(UserListRow::getUsername).containsExactly("dash_delta");
+
+        Page<UserListRow> admins = userService.getUsersPage(
+                UserFilter.builder().role(UserRole.ADMIN).country(Country.BULGARIA).username("dash").build(), 0, 25, "createdOn", Sort.Direction.DESC);
+        assertThat(admins.getContent()).extracting(UserListRow::getUsername).containsExactly("dash_admin");
+
+        Page<UserListRow> germans = userService.getUsersPage(
+                UserFilter.builder().country(Country.GERMANY).build(), 0, 25, "username", Sort.Direction.DESC);
+        assertThat(germans.getContent()).extracting(UserListRow::getUsername).containsSubsequence("dash_gamma", "dash_beta");
+
+        // '_' е литерал, а не LIKE wildcard
+        Page<UserListRow> literalUnderscore = userService.getUsersPage(
+                UserFilter.builder().username("dash_a").build(), 0, 25, "username", Sort.Direction.ASC);
+        assertThat(literalUnderscore.getContent()).extracting(UserListRow::getUsername).containsExactly("dash_admin", "dash_alpha");
+    }
+}
@@ -98,6 +98,11 @@ public class UserBuyGameFullFlowITest {
 
         assertThat(hasGame).isTrue();
 
+        // Проверка на purchased листинга (GameCardView проекция)
+        assertThat(gameService.getMyPurchasedGames(updatedUser.getId()))
+                .extracting(GameCardView::getId)
+                .containsExactly(testGame.getId());
+
         // Проверка на wallet баланса
         Wallet wallet = walletRepository.findByOwner(updatedUser).orElseThrow();
         assertThat(wallet.getBalance()).isEqualByComparingTo("150.00");
@@ -0,0 +1,66 @@
+package app;
+
+import app.user.model.*;
+import app.user.repository.*;
+import app.user.service.*;
+import app.web.dto.*;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.test.context.*;
+import org.springframework.test.annotation.*;
+import org.springframework.test.context.*;
+
+import java.time.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest
+public class UserInactivityDeactivationITest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+
+    @Test
+    void deactivateInactiveUsers_shouldDeactivateOnlyStaleActiveUsersAcrossChunks() {
+        for (int i = 0; i < 5; i++) {
+            registerWithLastActivity("stale_" + i, LocalDateTime.now().minusDays(90));
+        }
+        registerWithLastActivity("fresh", LocalDateTime.now().minusDays(10));
+        User alreadyInactive = registerWithLastActivity("already_off", LocalDateTime.now().minusDays(120));
+        userService.switchStatus(alreadyInactive.getId());
+        // switchStatus обновява updatedOn  ->  връщаме го назад
+        alreadyInactive = userRepository.findById(alreadyInactive.getId()).orElseThrow();
+        alreadyInactive.setUpdatedOn(LocalDateTime.now().minusDays(120));
+        userRepository.save(alreadyInactive);
+
+        DeactivationReport report = userService.deactivateInactiveUsers(60, 2);
+
+        assertThat(report.getScannedCount()).isEqualTo(5);
+        assertThat(report.getDeactivatedCount()).isEqualTo(5);
+        assertThat(report.getChunks()).isEqualTo(3);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(userRepository.findByUsername("stale_" + i).orElseThrow().isActive()).isFalse();
+        }
+        assertThat(userRepository.findByUsername("fresh").orElseThrow().isActive()).isTrue();
+
+        // второ пускане  ->  няма какво да се деактивира
+        DeactivationReport secondRun = userService.deactivateInactiveUsers(60, 2);
+        assertThat(secondRun.getDeactivatedCount()).isZero();
+    }
+
+
+    private User registerWithLastActivity(String username, LocalDateTime updatedOn) {
+        User user = userService.register(new RegisterRequest(username, "123123", Country.BULGARIA));
+        user = userRepository.findById(user.getId()).orElseThrow();
+        user.setUpdatedOn(updatedOn);
+        return userRepository.save(user);
+    }
+}
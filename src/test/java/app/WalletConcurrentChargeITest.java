@@ -0,0 +1,110 @@
+package app;
+
+import app.transaction.model.*;
+import app.user.model.*;
+import app.user.service.*;
+import app.wallet.repository.*;
+import app.wallet.service.*;
+import app.web.dto.*;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.test.context.*;
+import org.springframework.test.annotation.*;
+import org.springframework.test.context.*;
+
+import java.math.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@SpringBootTest
+public class WalletConcurrentChargeITest {
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+
+    @Test
+    void hundredsOfParallelCharges_shouldNeverOverspendOrLoseAnUpdate() throws Exception {
+        // Given - нов user с 100.00 EUR;  300 x 0.50 EUR  ->  точно 200 трябва да минат
+        User user = userService.register(new RegisterRequest("concurrent_buyer", "123123", Country.BULGARIA));
+        UUID walletId = user.getWallet().getId();
+        BigDecimal price = new BigDecimal("0.50");
+
+        // When
+        List<Transaction> results = runInParallel(300, i -> walletService.charge(user, walletId, price, "Parallel purchase " + i));
+
+        // Then
+        long approved = results.stream().filter(t -> t.getStatus() == TransactionStatus.APPROVED).count();
+        long failed = results.stream().filter(t -> t.getStatus() == TransactionStatus.FAILED).count();
+
+        assertThat(approved).isEqualTo(200);
+        assertThat(failed).isEqualTo(100);
+        assertThat(walletRepository.findBalanceById(walletId)).isEqualByComparingTo("0.00");
+    }
+
+
+    @Test
+    void parallelDepositsAndCharges_shouldKeepBalanceConsistent() throws Exception {
+        // Given
+        User user = userService.register(new RegisterRequest("concurrent_mixed", "123123", Country.BULGARIA));
+        UUID walletId = user.getWallet().getId();
+        BigDecimal amount = new BigDecimal("1.00");
+
+        // When - 200 депозита и 200 покупки по 1.00 EUR, разбъркани
+        List<Transaction> results = runInParallel(400, i -> i % 2 == 0
+                ? walletService.addFunds(walletId, amount)
+                : walletService.charge(user, walletId, amount, "Parallel purchase " + i));
+
+        // Then - балансът е точно 100 + депозитите - одобрените покупки
+        long deposits = results.stream().filter(t -> t.getType() == TransactionType.DEPOSIT && t.getStatus() == TransactionStatus.APPROVED).count();
+        long charges = results.stream().filter(t -> t.getType() == TransactionType.WITHDRAWAL && t.getStatus() == TransactionStatus.APPROVED).count();
+
+        assertThat(deposits).isEqualTo(200);
+        assertThat(charges).isEqualTo(200);
+        assertThat(walletRepository.findBalanceById(walletId))
+                .isEqualByComparingTo(new BigDecimal("100.00").add(BigDecimal.valueOf(deposits - charges)));
+    }
+
+
+    private List<Transaction> runInParallel(int calls, java.util.function.IntFunction<Transaction> call) throws Exception {
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            List<Future<Transaction>> futures = new ArrayList<>();
+
+            for (int i = 0; i < calls; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return call.apply(index);
+                }));
+            }
+
+            start.countDown();
+
+            List<Transaction> results = new ArrayList<>();
+            for (Future<Transaction> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package app.benchmark;
+
+import app.*;
+import app.game.model.*;
+import app.game.service.*;
+import app.loyalty.service.*;
+import app.user.model.*;
+import app.user.service.*;
+import app.wallet.service.*;
+import app.web.dto.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.*;
+import org.springframework.context.*;
+
+import java.math.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+
+// Приложението (профил test, H2) + данни с размер users / games  -  по един път на fork (Level.Trial).
+// Размерът се сменя с  -Djmh.users=... -Djmh.games=...  (ServiceJmhBenchmarkITest ги подава като @Param).
+@State(Scope.Benchmark)
+public class SeededApplicationState {
+
+    static final BigDecimal GAME_PRICE = new BigDecimal("0.10");
+
+    @Param("200")
+    public int users;
+
+    @Param("200")
+    public int games;
+
+    ConfigurableApplicationContext context;
+
+    GameService gameService;
+    UserService userService;
+    WalletService walletService;
+    LoyaltyService loyaltyService;
+
+    final List<UUID> userIds = new ArrayList<>();
+    final List<String> usernames = new ArrayList<>();
+    final List<UUID> gameIds = new ArrayList<>();
+
+    final AtomicLong nextPurchase = new AtomicLong();
+    final AtomicLong nextCharge = new AtomicLong();
+
+
+    @Setup(Level.Trial)
+    public void boot() {
+        context = new SpringApplicationBuilder(Application.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:jmh;MODE=MYSQL",
+                        "--logging.level.root=WARN",
+                        "--logging.level.app=WARN");
+
+        gameService = context.getBean(GameService.class);
+        userService = context.getBean(UserService.class);
+        walletService = context.getBean(WalletService.class);
+        loyaltyService = context.getBean(LoyaltyService.class);
+
+        seed();
+    }
+
+
+    @TearDown(Level.Trial)
+    public void close() {
+        context.close();
+    }
+
+
+    private void seed() {
+        User publisher = userService.register(new RegisterRequest("jmh_publisher", "123123", Country.BULGARIA));
+
+        for (int i = 0; i < games; i++) {
+            gameService.createNewGame(CreateGameRequest.builder()
+                    .title("JMH Game " + i)
+                    .description("Benchmark game " + i)
+                    .price(GAME_PRICE)
+                    .genre(Genre.values()[i % Genre.values().length])
+                    .imageCoverUrl("cover.jpg")
+                    .build(), publisher);
+        }
+
+        for (GameCardView game : gameService.getAllGamesByPublisherId(publisher.getId())) {
+            gameService.toggleAvailability(game.getId());
+            gameIds.add(game.getId());
+        }
+
+        for (int i = 0; i < users; i++) {
+            String username = "jmh_user_" + i;
+            userIds.add(userService.register(new RegisterRequest(username, "123123", Country.BULGARIA)).getId());
+            usernames.add(username);
+        }
+    }
+}
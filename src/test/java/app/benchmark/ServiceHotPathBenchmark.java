@@ -0,0 +1,82 @@
+package app.benchmark;
+
+import app.game.model.*;
+import app.game.service.*;
+import app.shared.pagination.*;
+import app.transaction.model.*;
+import app.user.model.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import java.math.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+
+// JMH бенчмаркове на горещите пътища в service слоя (H2, данни от SeededApplicationState).
+// Стартират се от ServiceJmhBenchmarkITest (mvn -P benchmark test), резултатът е JSON.
+// Всеки fork стартира собствено приложение с чиста in-memory база  ->  покупките / плащанията на един бенчмарк не влияят на друг.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ServiceHotPathBenchmark {
+
+    private static final BigDecimal CHARGE_AMOUNT = new BigDecimal("0.01");
+
+
+    // GameController.buyGame  ->  userService.getById + gameService.getGameById + purchaseGame
+    @Benchmark
+    public Transaction purchaseGame(SeededApplicationState state) {
+
+        // всяка покупка е нова двойка (user, game)  ->  "You already own this game!" не може да се случи
+        long pair = state.nextPurchase.getAndIncrement();
+        if (pair >= (long) state.users * state.games) {
+            throw new IllegalStateException("All user/game pairs are purchased - raise jmh.users / jmh.games.");
+        }
+
+        UUID userId = state.userIds.get((int) (pair % state.users));
+        UUID gameId = state.gameIds.get((int) (pair / state.users));
+
+        User user = state.userService.getById(userId);
+        Game game = state.gameService.getGameById(gameId);
+
+        return state.gameService.purchaseGame(game, user);
+    }
+
+
+    @Benchmark
+    public Transaction walletCharge(SeededApplicationState state) {
+
+        UUID userId = state.userIds.get((int) (state.nextCharge.getAndIncrement() % state.users));
+        User user = state.userService.getById(userId);
+
+        return state.walletService.charge(user, user.getWallet().getId(), CHARGE_AMOUNT, "JMH charge");
+    }
+
+
+    @Benchmark
+    public double loyaltyDiscount(SeededApplicationState state) {
+        return state.loyaltyService.getDiscountPercentage(randomOf(state.userIds));
+    }
+
+
+    // login  ->  Spring Security вика loadUserByUsername
+    @Benchmark
+    public void loadUserByUsername(SeededApplicationState state, Blackhole blackhole) {
+        blackhole.consume(state.userService.loadUserByUsername(randomOf(state.usernames)));
+    }
+
+
+    // /games/explore  ->  първата keyset страница на каталога
+    @Benchmark
+    public KeysetPage<GameCardView> catalogFirstPage(SeededApplicationState state) {
+        return state.gameService.getAvailableGamesPage(null, GameService.DEFAULT_CATALOG_PAGE_SIZE);
+    }
+
+
+    private static <T> T randomOf(List<T> values) {
+        return values.get(ThreadLocalRandom.current().nextInt(values.size()));
+    }
+}
@@ -0,0 +1,161 @@
+package app.game;
+
+import app.game.model.*;
+import app.game.repository.*;
+import app.game.service.*;
+import app.user.model.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.*;
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+
+import java.math.*;
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+
+@ExtendWith(MockitoExtension.class)
+public class GameSearchServiceUTest {
+
+    @Mock
+    private GameRepository gameRepository;
+
+    @InjectMocks
+    private GameSearchService gameSearchService;
+
+
+    // search()  -  GameSearchService
+    // Всички думи трябва да съвпаднат (AND), като всяка дума се търси като prefix
+    @Test
+    void givenIndexedGames_whenSearchWithPrefixes_thenReturnOnlyGamesMatchingAllTerms() {
+        // Given
+        GameSearchDocument galaxy = aDocument("Galaxy Raiders", "Space shooter with epic battles", Genre.ACTION, "19.99", true, 2);
+        GameSearchDocument farm = aDocument("Happy Farm", "Relaxing farming in space", Genre.STRATEGY, "5.00", true, 1);
+        GameSearchDocument racer = aDocument("Street Racer", "Fast cars", Genre.SPORTS, "39.00", true, 0);
+
+        when(gameRepository.findAllSearchDocuments()).thenReturn(List.of(galaxy, farm, racer));
+        gameSearchService.rebuildIndex();
+
+        // When
+        GameSearchResult result = gameSearchService.search("spa shoot", null, null);
+
+        // Then
+        assertEquals(1, result.getTotalHits());
+        assertEquals(galaxy.getId(), result.getHits().get(0).getId());
+    }
+
+
+    // search()  -  GameSearchService
+    // Съвпадение в заглавието се класира преди съвпадение само в описанието
+    @Test
+    void givenTitleAndDescriptionMatches_whenSearch_thenTitleMatchesComeFirst() {
+        // Given
+        GameSearchDocument farm = aDocument("Happy Farm", "Relaxing farming in space", Genre.STRATEGY, "5.00", true, 0);
+        GameSearchDocument space = aDocument("Space Farm", "Grow crops on Mars", Genre.STRATEGY, "15.00", true, 5);
+
+        when(gameRepository.findAllSearchDocuments()).thenReturn(List.of(farm, space));
+        gameSearchService.rebuildIndex();
+
+        // When
+        GameSearchResult result = gameSearchService.search("space", null, null);
+
+        // Then
+        assertEquals(2, result.getTotalHits());
+        assertEquals(space.getId(), result.getHits().get(0).getId());
+        assertEquals(farm.getId(), result.getHits().get(1).getId());
+    }
+
+
+    // search()  -  GameSearchService
+    // Фасетите броят всички текстови съвпадения, филтрите стесняват само попаденията; недостъпни игри не се показват
+    @Test
+    void givenFilters_whenSearch_thenFacetsCountAllMatchesAndHitsAreFiltered() {
+        // Given
+        GameSearchDocument cheapAction = aDocument("Space Blaster", "Arcade", Genre.ACTION, "4.99", true, 0);
+        GameSearchDocument expensiveAction = aDocument("Space Marines", "Tactical", Genre.ACTION, "69.99", true, 1);
+        GameSearchDocument strategy = aDocument("Space Empire", "4X", Genre.STRATEGY, "29.99", true, 2);
+        GameSearchDocument hidden = aDocument("Space Secret", "Not released", Genre.ACTION, "9.99", false, 3);
+
+        when(gameRepository.findAllSearchDocuments()).thenReturn(List.of(cheapAction, expensiveAction, strategy, hidden));
+        gameSearchService.rebuildIndex();
+
+        // When
+        GameSearchResult result = gameSearchService.search("space", Genre.ACTION, PriceBucket.OVER_60);
+
+        // Then
+        assertEquals(1, result.getTotalHits());
+        assertEquals(expensiveAction.getId(), result.getHits().get(0).getId());
+        assertEquals(2L, result.getGenreFacets().get(Genre.ACTION));
+        assertEquals(1L, result.getGenreFacets().get(Genre.STRATEGY));
+        assertEquals(1L, result.getPriceFacets().get(PriceBucket.UNDER_10));
+        assertEquals(1L, result.getPriceFacets().get(PriceBucket.FROM_10_TO_30));
+        assertEquals(1L, result.getPriceFacets().get(PriceBucket.OVER_60));
+    }
+
+
+    // index() / remove()  -  GameSearchService
+    // Промените от GameService (събития след COMMIT) се отразяват веднага, без rebuild от базата
+    @Test
+    void givenIndexedGame_whenEditedAndRemoved_thenSearchReflectsChanges() {
+        // Given
+        when(gameRepository.findAllSearchDocuments()).thenReturn(List.of());
+        gameSearchService.rebuildIndex();
+
+        Game game = Game.builder()
+                .id(UUID.randomUUID())
+                .title("Dungeon Quest")
+                .description("Classic crawler")
+                .price(new BigDecimal("12.00"))
+                .genre(Genre.ADVENTURE)
+                .isAvailable(true)
+                .releaseDate(LocalDateTime.now())
+                .publisher(User.builder().username("admin").build())
+                .build();
+
+        // When
+        gameSearchService.onGameChanged(GameSearchIndexEvent.indexed(game));
+        game.setTitle("Castle Quest");
+        gameSearchService.onGameChanged(GameSearchIndexEvent.indexed(game));
+
+        // Then
+        assertEquals(0, gameSearchService.search("dungeon quest", null, null).getTotalHits());
+        assertEquals(1, gameSearchService.search("castle", null, null).getTotalHits());
+
+        gameSearchService.onGameChanged(GameSearchIndexEvent.removed(game.getId()));
+        assertEquals(0, gameSearchService.search("castle", null, null).getTotalHits());
+    }
+
+
+    // rebuildIndex()  -  GameSearchService
+    // Промени, дошли докато rebuild-ът чете базата  ->  не се губят при swap-а на индекса
+    @Test
+    void givenChangesDuringRebuild_whenIndexSwapped_thenChangesAreReplayed() {
+        // Given
+        GameSearchDocument deleted = aDocument("Old Castle", "Will be deleted", Genre.ADVENTURE, "9.99", true, 2);
+        GameSearchDocument created = aDocument("New Castle", "Created during rebuild", Genre.ADVENTURE, "9.99", true, 0);
+
+        // snapshot-ът от базата е взет преди промените  ->  съдържа изтритата игра, но не и новата
+        when(gameRepository.findAllSearchDocuments()).thenAnswer(invocation -> {
+            gameSearchService.onGameChanged(new GameSearchIndexEvent(created.getId(), created));
+            gameSearchService.onGameChanged(GameSearchIndexEvent.removed(deleted.getId()));
+            return List.of(deleted);
+        });
+
+        // When
+        gameSearchService.rebuildIndex();
+
+        // Then
+        GameSearchResult result = gameSearchService.search("castle", null, null);
+        assertEquals(1, result.getTotalHits());
+        assertEquals(created.getId(), result.getHits().get(0).getId());
+    }
+
+
+    private GameSearchDocument aDocument(String title, String description, Genre genre, String price, boolean isAvailable, int daysAgo) {
+        return new GameSearchDocument(UUID.randomUUID(), title, description, new BigDecimal(price), genre,
+                null, LocalDateTime.now().minusDays(daysAgo), isAvailable, "admin");
+    }
+}
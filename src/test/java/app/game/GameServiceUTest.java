@@ -5,11 +5,13 @@ import app.game.repository.*;
 import app.game.service.*;
 import app.loyalty.service.*;
 import app.notice.service.*;
+import app.shared.pagination.*;
 import app.transaction.model.*;
 import app.user.model.*;
 import app.user.service.*;
 import app.wallet.service.*;
 import app.web.dto.*;
+import io.micrometer.core.instrument.simple.*;
 import org.junit.jupiter.api.extension.*;
 import org.mockito.*;
 import org.mockito.junit.jupiter.*;
@@ -33,6 +35,8 @@ import org.mockito.*;
 import org.mockito.junit.jupiter.*;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.security.crypto.password.*;
+import org.springframework.context.*;
+import org.springframework.data.domain.*;
 
 import java.math.*;
 import java.time.*;
@@ -54,6 +58,12 @@ public class GameServiceUTest {
     private LoyaltyService loyaltyService;
     @Mock
     private NoticeService noticeService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private GameCacheService gameCacheService;
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @InjectMocks
     private GameService gameService;
@@ -87,6 +97,7 @@ public class GameServiceUTest {
                         game.getPrice().compareTo(new BigDecimal("19.99")) == 0 &&
                         !game.isAvailable()
         ));
+        verify(gameCacheService, times(1)).evictPublisherGames(admin.getId());
     }
 
 
@@ -159,21 +170,21 @@ public class GameServiceUTest {
         // Given
         UUID publisherId = UUID.randomUUID();
 
-        List<Game> mockGames = List.of(
-                Game.builder().id(UUID.randomUUID()).title("Game 1").build(),
-                Game.builder().id(UUID.randomUUID()).title("Game 2").build()
+        List<GameCardView> mockGames = List.of(
+                aCard("Game 1", true),
+                aCard("Game 2", false)
         );
 
-        when(gameRepository.findAllByPublisherIdOrderByReleaseDateDesc(publisherId)).thenReturn(mockGames);
+        when(gameRepository.findAllCardsByPublisherId(publisherId)).thenReturn(mockGames);
 
         // When
-        List<Game> result = gameService.getAllGamesByPublisherId(publisherId);
+        List<GameCardView> result = gameService.getAllGamesByPublisherId(publisherId);
 
         // Then
         assertNotNull(result);
         assertEquals(2, result.size());
         assertEquals("Game 1", result.get(0).getTitle());
-        verify(gameRepository, times(1)).findAllByPublisherIdOrderByReleaseDateDesc(publisherId);
+        verify(gameRepository, times(1)).findAllCardsByPublisherId(publisherId);
     }
 
 
@@ -184,15 +195,15 @@ public class GameServiceUTest {
     void givenNoGamesByPublisherId_whenGetAllGamesByPublisherId_thenReturnEmptyList() {
         // Given
         UUID publisherId = UUID.randomUUID();
-        when(gameRepository.findAllByPublisherIdOrderByReleaseDateDesc(publisherId)).thenReturn(Collections.emptyList());
+        when(gameRepository.findAllCardsByPublisherId(publisherId)).thenReturn(Collections.emptyList());
 
         // When
-        List<Game> result = gameService.getAllGamesByPublisherId(publisherId);
+        List<GameCardView> result = gameService.getAllGamesByPublisherId(publisherId);
 
         // Then
         assertNotNull(result);
         assertTrue(result.isEmpty());
-        verify(gameRepository, times(1)).findAllByPublisherIdOrderByReleaseDateDesc(publisherId);
+        verify(gameRepository, times(1)).findAllCardsByPublisherId(publisherId);
     }
 
 
@@ -242,21 +253,21 @@ public class GameServiceUTest {
     @Test
     void givenAvailableGamesInDatabase_whenGetAllAvailableGames_thenReturnList() {
         // Given
-        List<Game> availableGames = List.of(
-                Game.builder().id(UUID.randomUUID()).title("Available 1").isAvailable(true).build(),
-                Game.builder().id(UUID.randomUUID()).title("Available 2").isAvailable(true).build()
+        List<GameCardView> availableGames = List.of(
+                aCard("Available 1", true),
+                aCard("Available 2", true)
         );
 
-        when(gameRepository.findAllByIsAvailableTrueOrderByReleaseDateDesc()).thenReturn(availableGames);
+        when(gameRepository.findAllAvailableCards()).thenReturn(availableGames);
 
         // When
-        List<Game> result = gameService.getAllAvailableGames();
+        List<GameCardView> result = gameService.getAllAvailableGames();
 
         // Then
         assertNotNull(result);
         assertEquals(2, result.size());
-        assertTrue(result.stream().allMatch(Game::isAvailable));
-        verify(gameRepository, times(1)).findAllByIsAvailableTrueOrderByReleaseDateDesc();
+        assertTrue(result.stream().allMatch(GameCardView::isAvailable));
+        verify(gameRepository, times(1)).findAllAvailableCards();
     }
 
 
@@ -266,15 +277,77 @@ public class GameServiceUTest {
     @Test
     void givenNoAvailableGames_whenGetAllAvailableGames_thenReturnEmptyList() {
         // Given
-        when(gameRepository.findAllByIsAvailableTrueOrderByReleaseDateDesc()).thenReturn(Collections.emptyList());
+        when(gameRepository.findAllAvailableCards()).thenReturn(Collections.emptyList());
 
         // When
-        List<Game> result = gameService.getAllAvailableGames();
+        List<GameCardView> result = gameService.getAllAvailableGames();
 
         // Then
         assertNotNull(result);
         assertTrue(result.isEmpty());
-        verify(gameRepository, times(1)).findAllByIsAvailableTrueOrderByReleaseDateDesc();
+        verify(gameRepository, times(1)).findAllAvailableCards();
+    }
+
+
+    // getAvailableGamesPage()  -  GameService
+    // Първа страница, има още игри  ->  size елемента + курсор към последния
+    @Test
+    void givenMoreGamesThanPageSize_whenGetAvailableGamesPage_thenReturnPageWithNextCursor() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        List<GameCardView> games = List.of(
+                new GameCardView(UUID.randomUUID(), "Newest", BigDecimal.TEN, Genre.RPG, "cover.png", now, true, "admin"),
+                new GameCardView(UUID.randomUUID(), "Middle", BigDecimal.TEN, Genre.RPG, "cover.png", now.minusDays(1), true, "admin"),
+                new GameCardView(UUID.randomUUID(), "Oldest", BigDecimal.TEN, Genre.RPG, "cover.png", now.minusDays(2), true, "admin")
+        );
+
+        when(gameRepository.findAvailableCatalogFirstPage(Limit.of(3))).thenReturn(games);
+
+        // When
+        KeysetPage<GameCardView> result = gameService.getAvailableGamesPage(null, 2);
+
+        // Then
+        assertEquals(2, result.getItems().size());
+        assertEquals("Middle", result.getItems().get(1).getTitle());
+        assertTrue(result.hasNext());
+
+        KeysetCursor cursor = KeysetCursor.decode(result.getNextCursor());
+        assertEquals(games.get(1).getId(), cursor.getId());
+        assertEquals(games.get(1).getReleaseDate(), cursor.getTimestamp());
+    }
+
+
+    // getAvailableGamesPage()  -  GameService
+    // Със курсор  ->  seek след (releaseDate, id); последна страница няма курсор
+    @Test
+    void givenCursor_whenGetAvailableGamesPage_thenSeekAfterCursorAndReturnLastPage() {
+        // Given
+        LocalDateTime releaseDate = LocalDateTime.now().minusDays(1);
+        UUID lastSeenId = UUID.randomUUID();
+        String cursor = new KeysetCursor(releaseDate, lastSeenId).encode();
+
+        List<GameCardView> games = List.of(new GameCardView(UUID.randomUUID(), "Last", BigDecimal.TEN, Genre.RPG, "cover.png", releaseDate.minusDays(1), true, "admin"));
+
+        when(gameRepository.findAvailableCatalogPageAfter(releaseDate, lastSeenId, Limit.of(3))).thenReturn(games);
+
+        // When
+        KeysetPage<GameCardView> result = gameService.getAvailableGamesPage(cursor, 2);
+
+        // Then
+        assertEquals(1, result.getItems().size());
+        assertFalse(result.hasNext());
+        assertNull(result.getNextCursor());
+        verify(gameRepository, never()).findAvailableCatalogFirstPage(any());
+    }
+
+
+    // getAvailableGamesPage()  -  GameService
+    // Невалиден курсор  ->  DomainException
+    @Test
+    void givenInvalidCursor_whenGetAvailableGamesPage_thenThrowDomainException() {
+        assertThrows(DomainException.class, () -> gameService.getAvailableGamesPage("not-a-cursor", 10));
+
+        verifyNoInteractions(gameRepository);
     }
 
 
@@ -319,6 +392,27 @@ public class GameServiceUTest {
     }
 
 
+    // getGameDetails()  -  GameService
+    // Игра съществува  ->  immutable GameDetailsView от проекцията, без Game entity
+    @Test
+    void givenExistingGameId_whenGetGameDetails_thenReturnDetailsView() {
+        // Given
+        UUID gameId = UUID.randomUUID();
+        UUID publisherId = UUID.randomUUID();
+        GameDetailsView details = new GameDetailsView(gameId, "Test Game", "Description", new BigDecimal("10.00"), Genre.ACTION,
+                "cover.jpg", LocalDateTime.now(), LocalDateTime.now(), true, publisherId, "admin");
+
+        when(gameRepository.findDetailsById(gameId)).thenReturn(Optional.of(details));
+
+        // When
+        GameDetailsView result = gameService.getGameDetails(gameId);
+
+        // Then
+        assertSame(details, result);
+        verify(gameRepository, never()).findById(any());
+    }
+
+
     // deleteGameById()  -  GameService
     // Валидно gameId	->   Извиква се deleteById() точно веднъж
     @Test
@@ -326,11 +420,16 @@ public class GameServiceUTest {
         // Given
         UUID gameId = UUID.randomUUID();
 
+        UUID publisherId = UUID.randomUUID();
+        when(gameRepository.findPublisherIdById(gameId)).thenReturn(Optional.of(publisherId));
+
         // When
         gameService.deleteGameById(gameId);
 
         // Then
         verify(gameRepository, times(1)).deleteById(gameId);
+        verify(eventPublisher, times(1)).publishEvent(GameSearchIndexEvent.removed(gameId));
+        verify(gameCacheService, times(1)).evictGameAndListings(gameId, publisherId);
     }
 
 
@@ -354,6 +453,8 @@ public class GameServiceUTest {
         // Then
         assertFalse(game.isAvailable());
         verify(gameRepository).save(game);
+        verify(eventPublisher).publishEvent(argThat((GameSearchIndexEvent event) -> event.gameId().equals(gameId) && !event.isRemoval() && !event.document().isAvailable()));
+        verify(gameCacheService).evictGameAndListings(gameId, null);
     }
 
 
@@ -615,6 +716,7 @@ public class GameServiceUTest {
         Game game = Game.builder().id(UUID.randomUUID()).publisher(user).build();
 
         assertThrows(DomainException.class, () -> gameService.purchaseGame(game, user));
+        assertEquals(1, purchaseCount("own_game"));
     }
 
 
@@ -631,6 +733,7 @@ public class GameServiceUTest {
                 .build();
 
         assertThrows(DomainException.class, () -> gameService.purchaseGame(game, user));
+        assertEquals(1, purchaseCount("already_owned"));
     }
 
 
@@ -665,9 +768,11 @@ public class GameServiceUTest {
 
         // Then
         assertEquals(TransactionStatus.FAILED, result.getStatus());
+        assertEquals(1, purchaseCount("insufficient_funds"));
+        assertEquals(0, purchaseCount("success"));
         verify(userService, never()).saveUser(any());
         verify(gameRepository, never()).save(any());
-        verify(noticeService, never()).createNotice(any(), any(), any(), any(), any(), any(), any());
+        verify(noticeService, never()).enqueueNotice(any(), any(), any(), any(), any(), any(), any());
     }
 
 
@@ -709,13 +814,17 @@ public class GameServiceUTest {
 
         // Then
         assertEquals(TransactionStatus.APPROVED, result.getStatus());
+        assertEquals(1, purchaseCount("success"));
         assertTrue(user.getBoughtGames().contains(game));
-        assertTrue(game.getPurchasedByUsers().contains(user));
+        // играта (и cache-натият й изглед) не се променя  ->  само ред в games_users
+        assertTrue(game.getPurchasedByUsers().isEmpty());
 
         verify(userService).saveUser(user);
-        verify(gameRepository).save(game);
+        verify(gameRepository).addPurchase(gameId, userId);
+        verify(gameRepository, never()).save(game);
+        verifyNoInteractions(gameCacheService);
         verify(loyaltyService).updateLoyaltyAfterPurchase(user);
-        verify(noticeService).createNotice(eq(userId), eq(gameId), any(), any(), eq("player"), any(), eq("admin"));
+        verify(noticeService).enqueueNotice(eq(userId), eq(gameId), any(), any(), eq("player"), any(), eq("admin"));
     }
 
 
@@ -727,21 +836,21 @@ public class GameServiceUTest {
         // Given
         User user = User.builder().id(UUID.randomUUID()).username("player1").build();
 
-        List<Game> games = List.of(
-                Game.builder().title("Game A").build(),
-                Game.builder().title("Game B").build()
+        List<GameCardView> games = List.of(
+                aCard("Game A", true),
+                aCard("Game B", true)
         );
 
-        when(gameRepository.findAllByPurchasedByUsersOrderByReleaseDateDesc(user)).thenReturn(games);
+        when(gameRepository.findAllCardsPurchasedByUserId(user.getId())).thenReturn(games);
 
         // When
-        List<Game> result = gameService.getMyPurchasedGames(user);
+        List<GameCardView> result = gameService.getMyPurchasedGames(user.getId());
 
         // Then
         assertNotNull(result);
         assertEquals(2, result.size());
         assertEquals("Game A", result.get(0).getTitle());
-        verify(gameRepository).findAllByPurchasedByUsersOrderByReleaseDateDesc(user);
+        verify(gameRepository).findAllCardsPurchasedByUserId(user.getId());
     }
 
     // getMyPurchasedGames()  -  GameService
@@ -752,15 +861,15 @@ public class GameServiceUTest {
         // Given
         User user = User.builder().id(UUID.randomUUID()).username("newUser").build();
 
-        when(gameRepository.findAllByPurchasedByUsersOrderByReleaseDateDesc(user)).thenReturn(Collections.emptyList());
+        when(gameRepository.findAllCardsPurchasedByUserId(user.getId())).thenReturn(Collections.emptyList());
 
         // When
-        List<Game> result = gameService.getMyPurchasedGames(user);
+        List<GameCardView> result = gameService.getMyPurchasedGames(user.getId());
 
         // Then
         assertNotNull(result);
         assertTrue(result.isEmpty());
-        verify(gameRepository).findAllByPurchasedByUsersOrderByReleaseDateDesc(user);
+        verify(gameRepository).findAllCardsPurchasedByUserId(user.getId());
     }
 
 
@@ -794,4 +903,12 @@ public class GameServiceUTest {
     }
 
 
-}
\ No newline at end of file
+    private static GameCardView aCard(String title, boolean isAvailable) {
+        return new GameCardView(UUID.randomUUID(), title, new BigDecimal("19.99"), Genre.ACTION, "cover.png", LocalDateTime.now(), isAvailable, "publisher");
+    }
+
+
+    private long purchaseCount(String outcome) {
+        return meterRegistry.get("games.purchase").tag("outcome", outcome).timer().count();
+    }
+}
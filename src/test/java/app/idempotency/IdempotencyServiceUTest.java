@@ -0,0 +1,263 @@
+package app.idempotency;
+
+import app.idempotency.model.*;
+import app.idempotency.repository.*;
+import app.idempotency.service.*;
+import app.shared.exception.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.*;
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+import org.springframework.dao.*;
+import org.springframework.transaction.*;
+import org.springframework.transaction.support.*;
+
+import java.time.*;
+import java.util.*;
+import java.util.function.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+
+@ExtendWith(MockitoExtension.class)
+public class IdempotencyServiceUTest {
+
+    private static final String KEY = "a1b2c3d4e5";
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Mock
+    private Supplier<UUID> operation;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private IdempotencyService idempotencyService;
+
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(idempotencyKeyRepository, new TransactionTemplate(transactionManager),
+                Duration.ofHours(24), Duration.ofSeconds(30), 200);
+    }
+
+
+    // executeOnce()  -  IdempotencyService
+    // Нов ключ  ->  операцията се изпълнява веднъж и transactionId се записва към ключа
+    @Test
+    void givenNewKey_whenExecuteOnce_thenOperationRunsAndResultIsStored() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        UUID transactionId = UUID.randomUUID();
+
+        UUID reservationId = givenReservationIsSaved();
+
+        when(idempotencyKeyRepository.findByUserIdAndIdempotencyKey(userId, KEY)).thenReturn(Optional.empty());
+        when(operation.get()).thenReturn(transactionId);
+        when(idempotencyKeyRepository.complete(reservationId, transactionId)).thenReturn(1);
+
+        // When
+        UUID result = idempotencyService.executeOnce(userId, KEY, "buy:1", operation);
+
+        // Then - операцията и complete() са в една транзакция
+        assertEquals(transactionId, result);
+        verify(idempotencyKeyRepository).saveAndFlush(any(IdempotencyKey.class));
+        verify(operation, times(1)).get();
+        verify(idempotencyKeyRepository).complete(reservationId, transactionId);
+        verify(transactionManager).commit(any());
+    }
+
+
+    // executeOnce()  -  IdempotencyService
+    // Завършен ключ (дубликат)  ->  връща оригиналния transactionId, операцията НЕ се изпълнява
+    @Test
+    void givenCompletedKey_whenExecuteOnce_thenOriginalTransactionIsReplayed() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        UUID transactionId = UUID.randomUUID();
+
+        when(idempotencyKeyRepository.findByUserIdAndIdempotencyKey(userId, KEY))
+                .thenReturn(Optional.of(aKey(userId, "buy:1", transactionId)));
+
+        // When
+        UUID result = idempotencyService.executeOnce(userId, KEY, "buy:1", operation);
+
+        // Then
+        assertEquals(transactionId, result);
+        verifyNoInteractions(operation);
+        verify(idempotencyKeyRepository, never()).saveAndFlush(any());
+    }
+
+
+    // executeOnce()  -  IdempotencyService
+    // Паралелна заявка е резервирала първа (UNIQUE)  ->  изчаква резултата ѝ, без да изпълнява операцията
+    @Test
+    void givenConcurrentReservation_whenExecuteOnce_thenWaitsForOriginalResult() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        UUID transactionId = UUID.randomUUID();
+
+        when(idempotencyKeyRepository.findByUserIdAndIdempotencyKey(userId, KEY))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(aKey(userId, "buy:1", null)));
+        when(idempotencyKeyRepository.saveAndFlush(any(IdempotencyKey.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_idempotency_user_key"));
+        when(idempotencyKeyRepository.findTransactionId(userId, KEY)).thenReturn(Optional.of(transactionId));
+
+        // When
+        UUID result = idempotencyService.executeOnce(userId, KEY, "buy:1", operation);
+
+        // Then
+        assertEquals(transactionId, result);
+        verifyNoInteractions(operation);
+    }
+
+
+    // executeOnce()  -  IdempotencyService
+    // Операцията гърми  ->  ключът се освобождава, за да може да се опита отново
+    @Test
+    void givenFailingOperation_whenExecuteOnce_thenKeyIsReleasedAndExceptionPropagates() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        UUID reservationId = givenReservationIsSaved();
+
+        when(idempotencyKeyRepository.findByUserIdAndIdempotencyKey(userId, KEY)).thenReturn(Optional.empty());
+        when(operation.get()).thenThrow(new DomainException("You already own this game."));
+
+        // When & Then
+        assertThrows(DomainException.class, () -> idempotencyService.executeOnce(userId, KEY, "buy:1", operation));
+        verify(idempotencyKeyRepository).release(reservationId);
+        verify(idempotencyKeyRepository, never()).complete(any(), any());
+        verify(transactionManager).rollback(any());
+    }
+
+
+    // executeOnce()  -  IdempotencyService
+    // Същият ключ за друга заявка (друга игра)  ->  DomainException
+    @Test
+    void givenKeyUsedForDifferentScope_whenExecuteOnce_thenThrowsDomainException() {
+        // Given
+        UUID userId = UUID.randomUUID();
+
+        when(idempotencyKeyRepository.findByUserIdAndIdempotencyKey(userId, KEY))
+                .thenReturn(Optional.of(aKey(userId, "buy:1", UUID.randomUUID())));
+
+        // When & Then
+        assertThrows(DomainException.class, () -> idempotencyService.executeOnce(userId, KEY, "buy:2", operation));
+        verifyNoInteractions(operation);
+    }
+
+
+    // executeOnce()  -  IdempotencyService
+    // Изтекъл ключ  ->  изтрива се и заявката се изпълнява като нова
+    @Test
+    void givenExpiredKey_whenExecuteOnce_thenKeyIsReplacedAndOperationRuns() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        UUID transactionId = UUID.randomUUID();
+        IdempotencyKey expired = aKey(userId, "buy:1", UUID.randomUUID());
+        expired.setExpiresOn(LocalDateTime.now().minusMinutes(1));
+
+        UUID reservationId = givenReservationIsSaved();
+
+        when(idempotencyKeyRepository.findByUserIdAndIdempotencyKey(userId, KEY)).thenReturn(Optional.of(expired));
+        when(operation.get()).thenReturn(transactionId);
+        when(idempotencyKeyRepository.complete(reservationId, transactionId)).thenReturn(1);
+
+        // When
+        UUID result = idempotencyService.executeOnce(userId, KEY, "buy:1", operation);
+
+        // Then
+        assertEquals(transactionId, result);
+        verify(idempotencyKeyRepository).deleteIfExpired(eq(userId), eq(KEY), any(LocalDateTime.class));
+        verify(idempotencyKeyRepository).complete(reservationId, transactionId);
+    }
+
+
+    // executeOnce()  -  IdempotencyService
+    // Изоставена резервация (процесът е паднал преди COMMIT)  ->  retry-ят я поема и изпълнява операцията, без да чака
+    @Test
+    void givenAbandonedReservation_whenExecuteOnce_thenKeyIsReclaimedAndOperationRuns() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        UUID transactionId = UUID.randomUUID();
+        IdempotencyKey abandoned = aKey(userId, "buy:1", null);
+        abandoned.setCreatedOn(LocalDateTime.now().minusMinutes(5));
+        UUID reservationId = givenReservationIsSaved();
+
+        when(idempotencyKeyRepository.findByUserIdAndIdempotencyKey(userId, KEY)).thenReturn(Optional.of(abandoned));
+        when(idempotencyKeyRepository.deleteIfAbandoned(eq(userId), eq(KEY), any(LocalDateTime.class))).thenReturn(1);
+        when(operation.get()).thenReturn(transactionId);
+        when(idempotencyKeyRepository.complete(reservationId, transactionId)).thenReturn(1);
+
+        // When
+        UUID result = idempotencyService.executeOnce(userId, KEY, "buy:1", operation);
+
+        // Then
+        assertEquals(transactionId, result);
+        verify(operation, times(1)).get();
+        verify(idempotencyKeyRepository, never()).findTransactionId(any(), any());
+    }
+
+
+    // executeOnce()  -  IdempotencyService
+    // Резервацията е поета от retry, докато операцията още върви  ->  complete() не намира ред, операцията се връща с rollback
+    @Test
+    void givenReservationReclaimedMeanwhile_whenExecuteOnce_thenOperationIsRolledBack() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        UUID transactionId = UUID.randomUUID();
+        UUID reservationId = givenReservationIsSaved();
+
+        when(idempotencyKeyRepository.findByUserIdAndIdempotencyKey(userId, KEY)).thenReturn(Optional.empty());
+        when(operation.get()).thenReturn(transactionId);
+        when(idempotencyKeyRepository.complete(reservationId, transactionId)).thenReturn(0);
+
+        // When & Then
+        assertThrows(DomainException.class, () -> idempotencyService.executeOnce(userId, KEY, "buy:1", operation));
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+
+    // executeOnce()  -  IdempotencyService
+    // Прекалено дълъг ключ  ->  DomainException
+    @Test
+    void givenTooLongKey_whenExecuteOnce_thenThrowsDomainException() {
+        String key = "x".repeat(IdempotencyService.MAX_KEY_LENGTH + 1);
+
+        assertThrows(DomainException.class, () -> idempotencyService.executeOnce(UUID.randomUUID(), key, "buy:1", operation));
+        verifyNoInteractions(idempotencyKeyRepository, operation);
+    }
+
+
+    // saveAndFlush връща резервацията с id  ->  по него се правят complete() / release()
+    private UUID givenReservationIsSaved() {
+        UUID reservationId = UUID.randomUUID();
+
+        when(idempotencyKeyRepository.saveAndFlush(any(IdempotencyKey.class))).thenAnswer(invocation -> {
+            IdempotencyKey reservation = invocation.getArgument(0);
+            reservation.setId(reservationId);
+            return reservation;
+        });
+
+        return reservationId;
+    }
+
+
+    private static IdempotencyKey aKey(UUID userId, String scope, UUID transactionId) {
+        return IdempotencyKey.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .idempotencyKey(KEY)
+                .scope(scope)
+                .transactionId(transactionId)
+                .createdOn(LocalDateTime.now())
+                .expiresOn(LocalDateTime.now().plusHours(24))
+                .build();
+    }
+}
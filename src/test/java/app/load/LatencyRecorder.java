@@ -0,0 +1,88 @@
+package app.load;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+
+// Латентности по endpoint (етикет като "GET /games/{id}/explore")  ->  p50 / p95 / p99 и заявки / сек за целия run.
+// Thread-safe  -  всички виртуални потребители пишат в един recorder.
+public class LatencyRecorder {
+
+    private final Map<String, Samples> samples = new ConcurrentSkipListMap<>();
+
+
+    public void record(String endpoint, long nanos, boolean error) {
+        samples.computeIfAbsent(endpoint, key -> new Samples()).add(nanos, error);
+    }
+
+
+    public List<EndpointReport> report(long runNanos) {
+
+        double runSeconds = runNanos / 1_000_000_000.0;
+        List<EndpointReport> reports = new ArrayList<>();
+
+        samples.forEach((endpoint, endpointSamples) -> reports.add(endpointSamples.report(endpoint, runSeconds)));
+
+        return reports;
+    }
+
+
+    private static final class Samples {
+
+        private long[] nanos = new long[1024];
+        private int count;
+        private int errors;
+
+        private synchronized void add(long value, boolean error) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = value;
+            if (error) {
+                errors++;
+            }
+        }
+
+        private synchronized EndpointReport report(String endpoint, double runSeconds) {
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+
+            return new EndpointReport(endpoint, count, errors,
+                    millis(percentile(sorted, 50)), millis(percentile(sorted, 95)), millis(percentile(sorted, 99)),
+                    count == 0 ? 0 : millis(sorted[count - 1]),
+                    count / runSeconds);
+        }
+
+        // nearest-rank
+        private static long percentile(long[] sorted, int percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+
+
+    public record EndpointReport(String endpoint, int requests, int errors,
+                                 double p50Millis, double p95Millis, double p99Millis, double maxMillis,
+                                 double requestsPerSecond) {
+
+        public static final String CSV_HEADER = "endpoint,requests,errors,p50_ms,p95_ms,p99_ms,max_ms,requests_per_s";
+
+        public String toCsv() {
+            return String.format(Locale.ROOT, "%s,%d,%d,%.2f,%.2f,%.2f,%.2f,%.1f",
+                    endpoint, requests, errors, p50Millis, p95Millis, p99Millis, maxMillis, requestsPerSecond);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-32s %7d req %5d err   p50 %8.2f ms   p95 %8.2f ms   p99 %8.2f ms   max %8.2f ms   %8.1f req/s",
+                    endpoint, requests, errors, p50Millis, p95Millis, p99Millis, maxMillis, requestsPerSecond);
+        }
+    }
+}
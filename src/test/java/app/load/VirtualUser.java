@@ -0,0 +1,119 @@
+package app.load;
+
+import java.io.*;
+import java.net.*;
+import java.net.http.*;
+import java.nio.charset.*;
+import java.time.*;
+import java.util.*;
+import java.util.regex.*;
+
+
+// Един виртуален потребител:  собствена сесия (JSESSIONID cookie), CSRF token-ът от последната HTML страница.
+// Redirect-ите НЕ се следват  ->  всяка заявка мери само своя endpoint (POST /login -> 302 /home, buy -> 302 /transactions/{id}).
+public class VirtualUser {
+
+    private static final Pattern CSRF = Pattern.compile("name=\"_csrf\"\\s+value=\"([^\"]+)\"");
+    private static final Pattern GAME_ID = Pattern.compile("/games/([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})/");
+
+    private final String baseUrl;
+    private final LatencyRecorder recorder;
+    private final HttpClient client;
+
+    private String csrfToken;
+
+
+    public VirtualUser(String baseUrl, LatencyRecorder recorder) {
+        this.baseUrl = baseUrl;
+        this.recorder = recorder;
+        this.client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+
+    public boolean login(String username, String password) throws IOException, InterruptedException {
+
+        // login страницата не се мери  -  само взимаме CSRF token-а
+        HttpResponse<String> page = send(HttpRequest.newBuilder(URI.create(baseUrl + "/login")).GET().build());
+        rememberCsrf(page.body());
+
+        HttpResponse<String> response = timed("POST /login", form("/login", Map.of("username", username, "password", password)));
+
+        // успешен login  ->  302 /home;  грешна парола  ->  302 /login?error
+        return response.headers().firstValue("Location").map(location -> location.endsWith("/home")).orElse(false);
+    }
+
+
+    // HTML страница  ->  id-тата на игрите в нея (линкове /games/{id}/explore и форми /games/{id}/buy)
+    public List<UUID> get(String endpoint, String path) throws IOException, InterruptedException {
+
+        HttpResponse<String> response = timed(endpoint, HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build());
+        rememberCsrf(response.body());
+
+        Set<UUID> gameIds = new LinkedHashSet<>();
+        Matcher matcher = GAME_ID.matcher(response.body());
+        while (matcher.find()) {
+            gameIds.add(UUID.fromString(matcher.group(1)));
+        }
+
+        return new ArrayList<>(gameIds);
+    }
+
+
+    // като формата в games-public.html  -  скрито поле idempotencyKey
+    public boolean buy(UUID gameId) throws IOException, InterruptedException {
+
+        HttpResponse<String> response = timed("POST /games/{id}/buy",
+                form("/games/" + gameId + "/buy", Map.of("idempotencyKey", UUID.randomUUID().toString())));
+
+        return response.statusCode() == 302
+                && response.headers().firstValue("Location").map(location -> location.contains("/transactions/")).orElse(false);
+    }
+
+
+    private HttpResponse<String> timed(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+
+        long start = System.nanoTime();
+        HttpResponse<String> response = send(request);
+        long nanos = System.nanoTime() - start;
+
+        recorder.record(endpoint, nanos, response.statusCode() >= 400);
+        return response;
+    }
+
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+
+    private HttpRequest form(String path, Map<String, String> fields) {
+
+        StringJoiner body = new StringJoiner("&");
+        fields.forEach((name, value) -> body.add(encode(name) + "=" + encode(value)));
+        if (csrfToken != null) {
+            body.add("_csrf=" + encode(csrfToken));
+        }
+
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+    }
+
+
+    private void rememberCsrf(String html) {
+        Matcher matcher = CSRF.matcher(html);
+        if (matcher.find()) {
+            csrfToken = matcher.group(1);
+        }
+    }
+
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
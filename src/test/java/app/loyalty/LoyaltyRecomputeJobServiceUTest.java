@@ -0,0 +1,85 @@
+package app.loyalty;
+
+import app.loyalty.model.*;
+import app.loyalty.service.*;
+import app.schedulerlock.service.*;
+import io.micrometer.core.instrument.simple.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.*;
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+
+import java.time.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+
+@ExtendWith(MockitoExtension.class)
+public class LoyaltyRecomputeJobServiceUTest {
+
+    @Mock
+    private LoyaltyRecomputeService loyaltyRecomputeService;
+    @Mock
+    private SchedulerLockService schedulerLockService;
+
+    private static final int CHUNK_SIZE = 500;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private LoyaltyRecomputeJobService loyaltyRecomputeJobService;
+
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        loyaltyRecomputeJobService = new LoyaltyRecomputeJobService(loyaltyRecomputeService, schedulerLockService, meterRegistry, CHUNK_SIZE);
+    }
+
+
+    // Lock-ът е взет → recomputeAll() с chunk size-а;  метриките (брой, време, throughput) се обновяват
+    @Test
+    void givenLockAcquired_whenRecompute_thenRecomputeCalledAndMetricsRecorded() {
+        // Given
+        givenLockIsAcquired();
+        when(loyaltyRecomputeService.recomputeAll(CHUNK_SIZE))
+                .thenReturn(new LoyaltyRecomputeReport(20_000, 150, 40, false, Duration.ofSeconds(4)));
+
+        // When
+        loyaltyRecomputeJobService.recompute();
+
+        // Then
+        verify(loyaltyRecomputeService).recomputeAll(CHUNK_SIZE);
+
+        assertEquals(20_000, meterRegistry.get("loyalty.recompute.processed").counter().count());
+        assertEquals(150, meterRegistry.get("loyalty.recompute.updated").counter().count());
+        assertEquals(4_000, meterRegistry.get("loyalty.recompute.duration").timer().totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(5_000, meterRegistry.get("loyalty.recompute.last.throughput").gauge().value());
+    }
+
+
+    // Друг node вече преизчислява → job-ът се пропуска
+    @Test
+    void givenLockHeldByAnotherNode_whenRecompute_thenJobIsSkipped() {
+        // Given
+        when(schedulerLockService.runLocked(eq("loyaltyRecompute"), any(), any(), any())).thenReturn(false);
+
+        // When
+        loyaltyRecomputeJobService.recompute();
+
+        // Then
+        verifyNoInteractions(loyaltyRecomputeService);
+        assertEquals(0, meterRegistry.get("loyalty.recompute.duration").timer().count());
+    }
+
+
+    private void givenLockIsAcquired() {
+        when(schedulerLockService.runLocked(eq("loyaltyRecompute"), any(), any(), any())).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(3).run();
+            return true;
+        });
+    }
+}
@@ -0,0 +1,145 @@
+package app.loyalty;
+
+import app.loyalty.model.*;
+import app.loyalty.repository.*;
+import app.loyalty.service.*;
+import app.shared.config.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.*;
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+import org.springframework.cache.*;
+import org.springframework.cache.concurrent.*;
+import org.springframework.data.domain.*;
+import org.springframework.transaction.*;
+import org.springframework.transaction.support.*;
+
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+
+@ExtendWith(MockitoExtension.class)
+public class LoyaltyRecomputeServiceUTest {
+
+    @Mock
+    private LoyaltyRepository loyaltyRepository;
+    @Mock
+    private LoyaltyRecomputeCheckpointRepository checkpointRepository;
+
+    private CacheManager cacheManager;
+
+    private LoyaltyRecomputeService loyaltyRecomputeService;
+
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new ConcurrentMapCacheManager(CacheConfiguration.LOYALTY_TYPES_CACHE);
+        loyaltyRecomputeService = new LoyaltyRecomputeService(loyaltyRepository, checkpointRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), cacheManager);
+        lenient().when(checkpointRepository.save(any(LoyaltyRecomputeCheckpoint.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+
+    // recomputeAll()  -  LoyaltyRecomputeService
+    // Ново пускане → keyset chunk-ове до непълен chunk;  checkpoint-ът следва последния member;  кешираните типове се evict-ват
+    @Test
+    void givenNoUnfinishedRun_whenRecomputeAll_thenAllChunksAreRecomputedAndRunCompleted() {
+        // Given
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID c = UUID.randomUUID();
+        cacheManager.getCache(CacheConfiguration.LOYALTY_TYPES_CACHE).put(a, LoyaltyType.PREMIUM);
+
+        when(checkpointRepository.findFirstByCompletedOnIsNullOrderByStartedOnDesc()).thenReturn(Optional.empty());
+        when(loyaltyRepository.count()).thenReturn(3L);
+        when(loyaltyRepository.findMemberIdsFirstChunk(Limit.of(2))).thenReturn(List.of(a, b));
+        when(loyaltyRepository.findMemberIdsAfter(b, Limit.of(2))).thenReturn(List.of(c));
+        when(loyaltyRepository.recomputeByMemberIds(List.of(a, b), 2)).thenReturn(1);
+        when(loyaltyRepository.recomputeByMemberIds(List.of(c), 2)).thenReturn(0);
+
+        // When
+        LoyaltyRecomputeReport report = loyaltyRecomputeService.recomputeAll(2);
+
+        // Then
+        assertFalse(report.isResumed());
+        assertEquals(3, report.getProcessedCount());
+        assertEquals(1, report.getUpdatedCount());
+        assertEquals(2, report.getChunks());
+        assertNull(cacheManager.getCache(CacheConfiguration.LOYALTY_TYPES_CACHE).get(a));
+
+        ArgumentCaptor<LoyaltyRecomputeCheckpoint> captor = ArgumentCaptor.forClass(LoyaltyRecomputeCheckpoint.class);
+        verify(checkpointRepository, atLeastOnce()).save(captor.capture());
+        LoyaltyRecomputeCheckpoint last = captor.getValue();
+        assertEquals(c, last.getLastMemberId());
+        assertEquals(3, last.getProcessedCount());
+        assertNotNull(last.getCompletedOn());
+    }
+
+
+    // recomputeAll()  -  LoyaltyRecomputeService
+    // Недовършено пускане (срив) → продължава след lastMemberId, без да повтаря обработените chunk-ове
+    @Test
+    void givenUnfinishedRun_whenRecomputeAll_thenResumesAfterCheckpoint() {
+        // Given
+        UUID lastDone = UUID.randomUUID();
+        UUID next = UUID.randomUUID();
+        LoyaltyRecomputeCheckpoint unfinished = LoyaltyRecomputeCheckpoint.builder()
+                .id(UUID.randomUUID())
+                .lastMemberId(lastDone)
+                .processedCount(1_000)
+                .totalCount(1_001)
+                .premiumThreshold(2)
+                .startedOn(LocalDateTime.now().minusMinutes(3))
+                .updatedOn(LocalDateTime.now().minusMinutes(2))
+                .build();
+
+        when(checkpointRepository.findFirstByCompletedOnIsNullOrderByStartedOnDesc()).thenReturn(Optional.of(unfinished));
+        when(loyaltyRepository.findMemberIdsAfter(lastDone, Limit.of(500))).thenReturn(List.of(next));
+        when(loyaltyRepository.recomputeByMemberIds(List.of(next), 2)).thenReturn(1);
+
+        // When
+        LoyaltyRecomputeReport report = loyaltyRecomputeService.recomputeAll(500);
+
+        // Then
+        assertTrue(report.isResumed());
+        assertEquals(1, report.getProcessedCount());
+        assertEquals(1_001, unfinished.getProcessedCount());
+        assertNotNull(unfinished.getCompletedOn());
+        verify(loyaltyRepository, never()).findMemberIdsFirstChunk(any());
+        verify(loyaltyRepository, never()).count();
+    }
+
+
+    // recomputeAll()  -  LoyaltyRecomputeService
+    // Недовършено пускане със стар праг → затваря се, започва ново пускане отначало
+    @Test
+    void givenUnfinishedRunWithOtherThreshold_whenRecomputeAll_thenStartsOver() {
+        // Given
+        LoyaltyRecomputeCheckpoint stale = LoyaltyRecomputeCheckpoint.builder()
+                .id(UUID.randomUUID())
+                .lastMemberId(UUID.randomUUID())
+                .premiumThreshold(5)
+                .startedOn(LocalDateTime.now().minusDays(1))
+                .updatedOn(LocalDateTime.now().minusDays(1))
+                .build();
+
+        when(checkpointRepository.findFirstByCompletedOnIsNullOrderByStartedOnDesc()).thenReturn(Optional.of(stale));
+        when(loyaltyRepository.findMemberIdsFirstChunk(Limit.of(100))).thenReturn(List.of());
+
+        // When
+        LoyaltyRecomputeReport report = loyaltyRecomputeService.recomputeAll(100);
+
+        // Then
+        assertFalse(report.isResumed());
+        assertEquals(0, report.getProcessedCount());
+        assertNotNull(stale.getCompletedOn());
+        verify(loyaltyRepository, never()).findMemberIdsAfter(any(), any());
+        verify(loyaltyRepository, never()).recomputeByMemberIds(any(), anyInt());
+        verify(checkpointRepository, atLeastOnce()).save(argThat(checkpoint -> checkpoint != stale && checkpoint.getPremiumThreshold() == 2));
+    }
+}
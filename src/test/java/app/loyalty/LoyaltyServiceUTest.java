@@ -3,6 +3,7 @@ package app.loyalty;
 import app.loyalty.model.*;
 import app.loyalty.repository.*;
 import app.loyalty.service.*;
+import app.shared.config.*;
 import app.shared.exception.*;
 import app.user.model.*;
 import app.user.service.*;
@@ -10,6 +11,8 @@ import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.*;
 import org.mockito.*;
 import org.mockito.junit.jupiter.*;
+import org.springframework.cache.*;
+import org.springframework.cache.concurrent.*;
 
 import java.util.*;
 
@@ -45,10 +48,18 @@ public class LoyaltyServiceUTest {
     @Mock
     private LoyaltyRepository loyaltyRepository;
 
-    @InjectMocks
+    private CacheManager cacheManager;
+
     private LoyaltyService loyaltyService;
 
 
+    @BeforeEach
+    void setUp() {
+        cacheManager = new ConcurrentMapCacheManager(CacheConfiguration.LOYALTY_TYPES_CACHE);
+        loyaltyService = new LoyaltyService(loyaltyRepository, cacheManager);
+    }
+
+
     // getById() - LoyaltyService
     //  Намира се Loyalty	=>   Връща обекта
     // Съществуващ id → връща обект
@@ -124,66 +135,59 @@ public class LoyaltyServiceUTest {
 
 
     // updateLoyaltyAfterPurchase() - LoyaltyService
-    // < Threshold → увеличава броя, тип остава DEFAULT
+    // Атомарен UPDATE (+1 и PREMIUM при прага в базата)  ->  без SELECT / save на entity-то;  новият тип се записва в cache-а
     @Test
-    void givenDefaultUser_whenUpdateLoyalty_thenIncrementGamesOnly() {
+    void givenDefaultUser_whenUpdateLoyalty_thenAtomicIncrementAndNewTypeCached() {
         // Given
         UUID userId = UUID.randomUUID();
         User user = User.builder().id(userId).build();
+        cacheManager.getCache(CacheConfiguration.LOYALTY_TYPES_CACHE).put(userId, LoyaltyType.DEFAULT);
 
-        Loyalty loyalty = Loyalty.builder()
-                .member(user)
-                .gamesPurchased(1)
-                .type(LoyaltyType.DEFAULT)
-                .build();
-
-        when(loyaltyRepository.findByMemberId(userId)).thenReturn(Optional.of(loyalty));
+        when(loyaltyRepository.incrementGamesPurchased(userId, PREMIUM_THRESHOLD)).thenReturn(1);
+        when(loyaltyRepository.findTypeByMemberId(userId)).thenReturn(Optional.of(LoyaltyType.PREMIUM));
 
         // When
         loyaltyService.updateLoyaltyAfterPurchase(user);
 
         // Then
-        assertEquals(2, loyalty.getGamesPurchased());
-        assertEquals(LoyaltyType.PREMIUM, loyalty.getType()); // 2 == threshold
-        verify(loyaltyRepository).save(loyalty);
+        InOrder inOrder = inOrder(loyaltyRepository);
+        inOrder.verify(loyaltyRepository).incrementGamesPurchased(userId, PREMIUM_THRESHOLD);
+        inOrder.verify(loyaltyRepository).findTypeByMemberId(userId);
+        verify(loyaltyRepository, never()).findByMemberId(any());
+        verify(loyaltyRepository, never()).save(any());
+        assertEquals(LoyaltyType.PREMIUM, cacheManager.getCache(CacheConfiguration.LOYALTY_TYPES_CACHE).get(userId, LoyaltyType.class));
     }
 
 
     // updateLoyaltyAfterPurchase() - LoyaltyService
-    // >= Threshold → става PREMIUM
+    // Вече PREMIUM → остава PREMIUM, кешираният тип е още валиден
     @Test
     void givenUserAlreadyPremium_whenUpdateLoyalty_thenKeepPremiumStatus() {
         // Given
         UUID userId = UUID.randomUUID();
         User user = User.builder().id(userId).build();
+        cacheManager.getCache(CacheConfiguration.LOYALTY_TYPES_CACHE).put(userId, LoyaltyType.PREMIUM);
 
-        Loyalty loyalty = Loyalty.builder()
-                .member(user)
-                .gamesPurchased(5)
-                .type(LoyaltyType.PREMIUM)
-                .build();
-
-        when(loyaltyRepository.findByMemberId(userId)).thenReturn(Optional.of(loyalty));
+        when(loyaltyRepository.incrementGamesPurchased(userId, PREMIUM_THRESHOLD)).thenReturn(1);
 
         // When
         loyaltyService.updateLoyaltyAfterPurchase(user);
 
         // Then
-        assertEquals(6, loyalty.getGamesPurchased());
-        assertEquals(LoyaltyType.PREMIUM, loyalty.getType());
-        verify(loyaltyRepository).save(loyalty);
+        assertEquals(LoyaltyType.PREMIUM, cacheManager.getCache(CacheConfiguration.LOYALTY_TYPES_CACHE).get(userId, LoyaltyType.class));
+        verifyNoMoreInteractions(loyaltyRepository);
     }
 
 
     // updateLoyaltyAfterPurchase() - LoyaltyService
-    // Loyalty липсва → хвърля грешка
+    // Loyalty липсва (0 засегнати реда) → хвърля грешка
     @Test
     void givenMissingLoyalty_whenUpdate_thenThrowException() {
         // Given
         UUID userId = UUID.randomUUID();
         User user = User.builder().id(userId).build();
 
-        when(loyaltyRepository.findByMemberId(userId)).thenReturn(Optional.empty());
+        when(loyaltyRepository.incrementGamesPurchased(userId, PREMIUM_THRESHOLD)).thenReturn(0);
 
         // Then
         DomainException exception = assertThrows(DomainException.class,
@@ -240,11 +244,7 @@ public class LoyaltyServiceUTest {
     void givenPremiumUser_whenHasPremiumDiscount_thenReturnTrue() {
         // Given
         UUID userId = UUID.randomUUID();
-        Loyalty loyalty = Loyalty.builder()
-                .type(LoyaltyType.PREMIUM)
-                .build();
-
-        when(loyaltyRepository.findByMemberId(userId)).thenReturn(Optional.of(loyalty));
+        when(loyaltyRepository.findTypeByMemberId(userId)).thenReturn(Optional.of(LoyaltyType.PREMIUM));
 
         // When
         boolean result = loyaltyService.hasPremiumDiscount(userId);
@@ -260,11 +260,7 @@ public class LoyaltyServiceUTest {
     void givenDefaultUser_whenHasPremiumDiscount_thenReturnFalse() {
         // Given
         UUID userId = UUID.randomUUID();
-        Loyalty loyalty = Loyalty.builder()
-                .type(LoyaltyType.DEFAULT)
-                .build();
-
-        when(loyaltyRepository.findByMemberId(userId)).thenReturn(Optional.of(loyalty));
+        when(loyaltyRepository.findTypeByMemberId(userId)).thenReturn(Optional.of(LoyaltyType.DEFAULT));
 
         // When
         boolean result = loyaltyService.hasPremiumDiscount(userId);
@@ -280,9 +276,7 @@ public class LoyaltyServiceUTest {
     void givenPremiumUser_whenGetDiscountPercentage_thenReturn30Percent() {
         // Given
         UUID userId = UUID.randomUUID();
-        Loyalty loyalty = Loyalty.builder().type(LoyaltyType.PREMIUM).build();
-
-        when(loyaltyRepository.findByMemberId(userId)).thenReturn(Optional.of(loyalty));
+        when(loyaltyRepository.findTypeByMemberId(userId)).thenReturn(Optional.of(LoyaltyType.PREMIUM));
 
         // When
         double discount = loyaltyService.getDiscountPercentage(userId);
@@ -298,9 +292,7 @@ public class LoyaltyServiceUTest {
     void givenDefaultUser_whenGetDiscountPercentage_thenReturnZero() {
         // Given
         UUID userId = UUID.randomUUID();
-        Loyalty loyalty = Loyalty.builder().type(LoyaltyType.DEFAULT).build();
-
-        when(loyaltyRepository.findByMemberId(userId)).thenReturn(Optional.of(loyalty));
+        when(loyaltyRepository.findTypeByMemberId(userId)).thenReturn(Optional.of(LoyaltyType.DEFAULT));
 
         // When
         double discount = loyaltyService.getDiscountPercentage(userId);
@@ -309,4 +301,81 @@ public class LoyaltyServiceUTest {
         assertEquals(0.0, discount, 0.001);
     }
 
+
+    // getDiscountPercentage() - LoyaltyService
+    // Топъл cache  ->  второто извикване не стига до базата
+    @Test
+    void givenWarmCache_whenGetDiscountPercentage_thenRepositoryIsQueriedOnce() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        when(loyaltyRepository.findTypeByMemberId(userId)).thenReturn(Optional.of(LoyaltyType.PREMIUM));
+
+        // When
+        loyaltyService.getDiscountPercentage(userId);
+        double discount = loyaltyService.getDiscountPercentage(userId);
+
+        // Then
+        assertEquals(0.3, discount, 0.001);
+        verify(loyaltyRepository, times(1)).findTypeByMemberId(userId);
+        verify(loyaltyRepository, never()).findByMemberId(any());
+    }
+
+
+    // getDiscountPercentage() - LoyaltyService
+    // Покупката прави потребителя PREMIUM  ->  новият тип е в cache-а, отстъпката веднага е 30% (без нова заявка)
+    @Test
+    void givenCachedDefaultType_whenPurchaseReachesThreshold_thenNextDiscountIsPremium() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        User user = User.builder().id(userId).build();
+
+        when(loyaltyRepository.findTypeByMemberId(userId)).thenReturn(Optional.of(LoyaltyType.DEFAULT), Optional.of(LoyaltyType.PREMIUM));
+        when(loyaltyRepository.incrementGamesPurchased(userId, PREMIUM_THRESHOLD)).thenReturn(1);
+        assertEquals(0.0, loyaltyService.getDiscountPercentage(userId), 0.001);
+
+        // When
+        loyaltyService.updateLoyaltyAfterPurchase(user);
+
+        // Then
+        assertEquals(0.3, loyaltyService.getDiscountPercentage(userId), 0.001);
+        verify(loyaltyRepository, times(2)).findTypeByMemberId(userId);
+    }
+
+
+    // getLoyaltyType() - LoyaltyService
+    // Четене, започнало преди покупката, не презаписва новия тип, записан от покупката междувременно
+    @Test
+    void givenTypeCachedByPurchaseDuringLookup_whenGetLoyaltyType_thenStaleTypeIsNotWritten() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        Cache loyaltyTypes = cacheManager.getCache(CacheConfiguration.LOYALTY_TYPES_CACHE);
+
+        when(loyaltyRepository.findTypeByMemberId(userId)).thenAnswer(invocation -> {
+            // покупката COMMIT-ва и записва PREMIUM, докато това четене още връща стария DEFAULT
+            loyaltyTypes.put(userId, LoyaltyType.PREMIUM);
+            return Optional.of(LoyaltyType.DEFAULT);
+        });
+
+        // When
+        LoyaltyType type = loyaltyService.getLoyaltyType(userId);
+
+        // Then
+        assertEquals(LoyaltyType.PREMIUM, type);
+        assertEquals(LoyaltyType.PREMIUM, loyaltyTypes.get(userId, LoyaltyType.class));
+    }
+
+
+    // getLoyaltyType() - LoyaltyService
+    // Loyalty липсва → DomainException, нищо не се кешира
+    @Test
+    void givenMissingLoyalty_whenGetLoyaltyType_thenThrowException() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        when(loyaltyRepository.findTypeByMemberId(userId)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(DomainException.class, () -> loyaltyService.getLoyaltyType(userId));
+        assertNull(cacheManager.getCache(CacheConfiguration.LOYALTY_TYPES_CACHE).get(userId));
+    }
+
 }
\ No newline at end of file
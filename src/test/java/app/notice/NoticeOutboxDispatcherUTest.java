@@ -0,0 +1,209 @@
+package app.notice;
+
+import app.notice.model.*;
+import app.notice.repository.*;
+import app.notice.service.*;
+import app.schedulerlock.service.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.*;
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+import org.springframework.data.domain.*;
+
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+
+@ExtendWith(MockitoExtension.class)
+public class NoticeOutboxDispatcherUTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Mock
+    private NoticeOutboxRepository noticeOutboxRepository;
+    @Mock
+    private NoticeService noticeService;
+    @Mock
+    private SchedulerLockService schedulerLockService;
+
+    private NoticeOutboxDispatcher noticeOutboxDispatcher;
+
+
+    @BeforeEach
+    void setUp() {
+        noticeOutboxDispatcher = new NoticeOutboxDispatcher(noticeOutboxRepository, noticeService, schedulerLockService,
+                10, MAX_ATTEMPTS, Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofMinutes(1), Duration.ofDays(7));
+    }
+
+
+    // dispatchPendingNotices()  -  NoticeOutboxDispatcher
+    // notice-svc приема всички  ->  всяко съобщение се маркира SENT веднага след изпращането си
+    @Test
+    void givenDueMessages_whenDispatch_thenEachIsMarkedSentRightAfterItIsSent() {
+        // Given
+        NoticeOutboxMessage first = aMessage(0);
+        NoticeOutboxMessage second = aMessage(0);
+
+        when(noticeService.isNoticeSvcAvailable()).thenReturn(true);
+        when(noticeOutboxRepository.findDue(any(LocalDateTime.class), any(Limit.class))).thenReturn(List.of(first, second));
+        when(noticeOutboxRepository.claim(any(), any(), any())).thenReturn(1);
+        when(noticeService.createNotice(any(), any(), any(), any(), any(), any(), any())).thenReturn(true);
+
+        // When
+        noticeOutboxDispatcher.dispatchPendingNotices();
+
+        // Then
+        InOrder inOrder = inOrder(noticeService, noticeOutboxRepository);
+        inOrder.verify(noticeService).createNotice(eq(first.getUserId()), any(), any(), any(), any(), any(), any());
+        inOrder.verify(noticeOutboxRepository).markSent(eq(first.getId()), any(LocalDateTime.class));
+        inOrder.verify(noticeService).createNotice(eq(second.getUserId()), any(), any(), any(), any(), any(), any());
+        inOrder.verify(noticeOutboxRepository).markSent(eq(second.getId()), any(LocalDateTime.class));
+        verify(noticeOutboxRepository, never()).markFailedAttempt(any(), any(), anyInt(), any(), anyString());
+    }
+
+
+    // dispatchPendingNotices()  -  NoticeOutboxDispatcher
+    // Съобщението е claim-нато от друг dispatcher  ->  не се изпраща
+    @Test
+    void givenMessageClaimedByAnotherDispatcher_whenDispatch_thenItIsSkipped() {
+        // Given
+        when(noticeService.isNoticeSvcAvailable()).thenReturn(true);
+        when(noticeOutboxRepository.findDue(any(LocalDateTime.class), any(Limit.class))).thenReturn(List.of(aMessage(0)));
+        when(noticeOutboxRepository.claim(any(), any(), any())).thenReturn(0);
+
+        // When
+        noticeOutboxDispatcher.dispatchPendingNotices();
+
+        // Then
+        verify(noticeService, never()).createNotice(any(), any(), any(), any(), any(), any(), any());
+        verify(noticeOutboxRepository, never()).markSent(any(), any());
+    }
+
+
+    // dispatchPendingNotices()  -  NoticeOutboxDispatcher
+    // notice-svc не отговаря  ->  attempts++ и следващ опит след backoff
+    @Test
+    void givenNoticeSvcDown_whenDispatch_thenRetryIsScheduledWithBackoff() {
+        // Given
+        NoticeOutboxMessage message = aMessage(1);
+
+        when(noticeService.isNoticeSvcAvailable()).thenReturn(true);
+        when(noticeOutboxRepository.findDue(any(LocalDateTime.class), any(Limit.class))).thenReturn(List.of(message));
+        when(noticeOutboxRepository.claim(any(), any(), any())).thenReturn(1);
+        when(noticeService.createNotice(any(), any(), any(), any(), any(), any(), any())).thenReturn(false);
+
+        LocalDateTime before = LocalDateTime.now();
+
+        // When
+        noticeOutboxDispatcher.dispatchPendingNotices();
+
+        // Then
+        ArgumentCaptor<LocalDateTime> nextAttempt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(noticeOutboxRepository).markFailedAttempt(eq(message.getId()), eq(NoticeOutboxStatus.PENDING), eq(2), nextAttempt.capture(), anyString());
+
+        // 2-ри опит  ->  5s * 2
+        assertFalse(nextAttempt.getValue().isBefore(before.plusSeconds(10)));
+        verify(noticeOutboxRepository, never()).markSent(any(), any());
+    }
+
+
+    // dispatchPendingNotices()  -  NoticeOutboxDispatcher
+    // Последен позволен опит гърми  ->  FAILED (спира да се опитва)
+    @Test
+    void givenLastAttemptFails_whenDispatch_thenMessageIsMarkedFailed() {
+        // Given
+        NoticeOutboxMessage message = aMessage(MAX_ATTEMPTS - 1);
+
+        when(noticeService.isNoticeSvcAvailable()).thenReturn(true);
+        when(noticeOutboxRepository.findDue(any(LocalDateTime.class), any(Limit.class))).thenReturn(List.of(message));
+        when(noticeOutboxRepository.claim(any(), any(), any())).thenReturn(1);
+        when(noticeService.createNotice(any(), any(), any(), any(), any(), any(), any())).thenThrow(new RuntimeException("Connection refused"));
+
+        // When
+        noticeOutboxDispatcher.dispatchPendingNotices();
+
+        // Then
+        verify(noticeOutboxRepository).markFailedAttempt(eq(message.getId()), eq(NoticeOutboxStatus.FAILED), eq(MAX_ATTEMPTS), any(), eq("Connection refused"));
+    }
+
+
+    // dispatchPendingNotices()  -  NoticeOutboxDispatcher
+    // Circuit-ът към notice-svc е OPEN  ->  нищо не се чете/claim-ва, опитите не се харчат
+    @Test
+    void givenOpenCircuit_whenDispatch_thenNothingIsClaimedOrSent() {
+        // Given
+        when(noticeService.isNoticeSvcAvailable()).thenReturn(false);
+
+        // When
+        noticeOutboxDispatcher.dispatchPendingNotices();
+
+        // Then
+        verify(noticeOutboxRepository, never()).findDue(any(), any());
+        verify(noticeOutboxRepository, never()).claim(any(), any(), any());
+        verify(noticeService, never()).createNotice(any(), any(), any(), any(), any(), any(), any());
+    }
+
+
+    // purgeSentNotices()  -  NoticeOutboxDispatcher
+    @Test
+    void whenPurgeSentNotices_thenSentMessagesOlderThanRetentionAreDeleted() {
+        // Given
+        givenPurgeLockIsAcquired();
+
+        // When
+        noticeOutboxDispatcher.purgeSentNotices();
+
+        // Then
+        ArgumentCaptor<LocalDateTime> before = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(noticeOutboxRepository).deleteSentBefore(before.capture());
+        assertTrue(before.getValue().isBefore(LocalDateTime.now().minusDays(6)));
+    }
+
+
+    // purgeSentNotices()  -  NoticeOutboxDispatcher
+    // друг node държи lock-а  ->  нищо не се трие
+    @Test
+    void givenPurgeLockHeldByAnotherNode_whenPurgeSentNotices_thenNothingIsDeleted() {
+        // Given
+        when(schedulerLockService.runLocked(eq("noticeOutboxPurge"), any(), any(), any())).thenReturn(false);
+
+        // When
+        noticeOutboxDispatcher.purgeSentNotices();
+
+        // Then
+        verify(noticeOutboxRepository, never()).deleteSentBefore(any());
+    }
+
+
+    private static NoticeOutboxMessage aMessage(int attempts) {
+        return NoticeOutboxMessage.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .gameId(UUID.randomUUID())
+                .title("Game Purchased")
+                .description("You have successfully purchased 'Epic Game'!")
+                .username("player")
+                .gameUrl("http://localhost:8080/games")
+                .publisher("admin")
+                .status(NoticeOutboxStatus.PENDING)
+                .attempts(attempts)
+                .nextAttemptOn(LocalDateTime.now())
+                .createdOn(LocalDateTime.now())
+                .build();
+    }
+
+
+    private void givenPurgeLockIsAcquired() {
+        when(schedulerLockService.runLocked(eq("noticeOutboxPurge"), any(), any(), any())).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(3).run();
+            return true;
+        });
+    }
+}
@@ -1,7 +1,13 @@
 package app.notice;
 
 import app.notice.client.*;
+import app.notice.model.*;
+import app.notice.repository.*;
 import app.notice.service.*;
+import io.github.resilience4j.bulkhead.*;
+import io.github.resilience4j.circuitbreaker.*;
+import io.micrometer.core.instrument.simple.*;
+import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.*;
 import org.mockito.*;
 import org.mockito.junit.jupiter.*;
@@ -13,10 +19,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.*;
 import org.springframework.core.io.*;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import java.time.Duration;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,10 +38,28 @@ public class NoticeServiceUTest {
 
     @Mock
     private NoticeClient noticeClient;
+    @Mock
+    private NoticeOutboxRepository noticeOutboxRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private BulkheadRegistry bulkheadRegistry;
+    private SimpleMeterRegistry meterRegistry;
 
-    @InjectMocks
     private NoticeService noticeService;
 
+
+    @BeforeEach
+    void setUp() {
+        circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom().maxConcurrentCalls(1).maxWaitDuration(Duration.ZERO).build());
+
+        meterRegistry = new SimpleMeterRegistry();
+
+        noticeService = new NoticeService(noticeClient, noticeOutboxRepository, eventPublisher, circuitBreakerRegistry, bulkheadRegistry, meterRegistry);
+    }
+
     // createNotice  -  NoticeService
     // 2xx от noticeClient → всичко е наред
     @Test
@@ -51,9 +77,10 @@ public class NoticeServiceUTest {
         when(noticeClient.createNotice(any(NoticeRequest.class))).thenReturn(successResponse);
 
         // When
-        noticeService.createNotice(userId, gameId, title, content, username, gameUrl, publisher);
+        boolean created = noticeService.createNotice(userId, gameId, title, content, username, gameUrl, publisher);
 
         // Then
+        assertTrue(created);
         ArgumentCaptor<NoticeRequest> captor = ArgumentCaptor.forClass(NoticeRequest.class);
         verify(noticeClient).createNotice(captor.capture());
 
@@ -75,11 +102,12 @@ public class NoticeServiceUTest {
         when(noticeClient.createNotice(any())).thenReturn(new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
 
         // When
-        noticeService.createNotice(
+        boolean created = noticeService.createNotice(
                 UUID.randomUUID(), UUID.randomUUID(),
                 "title", "desc", "user", "url", "pub");
 
         // Then
+        assertFalse(created);
         verify(noticeClient).createNotice(any());       // Still called, but response not 2xx
     }
 
@@ -91,16 +119,93 @@ public class NoticeServiceUTest {
         when(noticeClient.createNotice(any())).thenThrow(new RuntimeException("Downstream error"));
 
         // When
-        noticeService.createNotice(
+        boolean created = noticeService.createNotice(
                 UUID.randomUUID(), UUID.randomUUID(),
                 "title", "desc", "user", "url", "pub");
 
         // Then
+        assertFalse(created);
         verify(noticeClient).createNotice(any());
         // No exception thrown up — handled internally
     }
 
 
+    // createNotice  -  NoticeService
+    // Circuit-ът е OPEN  ->  отказва веднага, без HTTP извикване към notice-svc
+    @Test
+    void givenOpenCircuit_whenCreateNotice_thenFailsFastWithoutCallingClient() {
+        // Given
+        circuitBreakerRegistry.circuitBreaker(NoticeService.NOTICE_SVC).transitionToOpenState();
+
+        // When
+        boolean created = noticeService.createNotice(
+                UUID.randomUUID(), UUID.randomUUID(),
+                "title", "desc", "user", "url", "pub");
+
+        // Then
+        assertFalse(created);
+        assertFalse(noticeService.isNoticeSvcAvailable());
+        assertEquals(1, meterRegistry.get("notice.svc.requests").tag("operation", "create").tag("outcome", "rejected").timer().count());
+        verifyNoInteractions(noticeClient);
+    }
+
+
+    // createNotice  -  NoticeService
+    // Bulkhead-ът е пълен (друга нишка чака notice-svc)  ->  отказва веднага
+    @Test
+    void givenFullBulkhead_whenCreateNotice_thenFailsFastWithoutCallingClient() {
+        // Given
+        Bulkhead bulkhead = bulkheadRegistry.bulkhead(NoticeService.NOTICE_SVC);
+        assertTrue(bulkhead.tryAcquirePermission());
+
+        // When
+        boolean created = noticeService.createNotice(
+                UUID.randomUUID(), UUID.randomUUID(),
+                "title", "desc", "user", "url", "pub");
+
+        // Then
+        assertFalse(created);
+        verifyNoInteractions(noticeClient);
+        bulkhead.releasePermission();
+    }
+
+
+    // enqueueNotice  -  NoticeService
+    // Записва PENDING съобщение в outbox-а и публикува събитие - БЕЗ извикване на notice-svc
+    @Test
+    void givenValidInput_whenEnqueueNotice_thenOutboxMessageIsSavedAndClientIsNotCalled() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        UUID gameId = UUID.randomUUID();
+        UUID messageId = UUID.randomUUID();
+
+        when(noticeOutboxRepository.save(any(NoticeOutboxMessage.class))).thenAnswer(invocation -> {
+            NoticeOutboxMessage message = invocation.getArgument(0);
+            message.setId(messageId);
+            return message;
+        });
+
+        // When
+        noticeService.enqueueNotice(userId, gameId, "Game Purchased", "content", "lubo", "url", "admin");
+
+        // Then
+        ArgumentCaptor<NoticeOutboxMessage> captor = ArgumentCaptor.forClass(NoticeOutboxMessage.class);
+        verify(noticeOutboxRepository).save(captor.capture());
+
+        NoticeOutboxMessage saved = captor.getValue();
+        assertEquals(userId, saved.getUserId());
+        assertEquals(gameId, saved.getGameId());
+        assertEquals("Game Purchased", saved.getTitle());
+        assertEquals(NoticeOutboxStatus.PENDING, saved.getStatus());
+        assertEquals(0, saved.getAttempts());
+        assertNotNull(saved.getNextAttemptOn());
+
+        verify(eventPublisher).publishEvent(new NoticeEnqueuedEvent(messageId));
+        assertEquals(1, meterRegistry.get("notice.outbox.enqueued").counter().count());
+        verifyNoInteractions(noticeClient);
+    }
+
+
     // downloadNotice  -  NoticeService
     // Успешен отговор с Resource → връща се Resource
     @Test
@@ -0,0 +1,83 @@
+package app.notice;
+
+import app.notice.client.*;
+import app.notice.service.*;
+import io.github.resilience4j.circuitbreaker.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.*;
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+import org.springframework.boot.actuate.health.*;
+import org.springframework.http.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+
+@ExtendWith(MockitoExtension.class)
+public class NoticeSvcHealthIndicatorUTest {
+
+    @Mock
+    private NoticeClient noticeClient;
+
+    private NoticeSvcHealthIndicator noticeSvcHealthIndicator;
+
+
+    @BeforeEach
+    void setUp() {
+        noticeSvcHealthIndicator = new NoticeSvcHealthIndicator(noticeClient, CircuitBreakerRegistry.ofDefaults());
+    }
+
+
+    // health()  -  NoticeSvcHealthIndicator
+    // Преди първата проверка  ->  UNKNOWN, без извикване към notice-svc
+    @Test
+    void givenNoProbeYet_whenHealth_thenUnknownAndNoticeSvcIsNotCalled() {
+        // When
+        Health health = noticeSvcHealthIndicator.health();
+
+        // Then
+        assertEquals(Status.UNKNOWN, health.getStatus());
+        assertEquals(CircuitBreaker.State.CLOSED, health.getDetails().get("circuitBreakerState"));
+        verifyNoInteractions(noticeClient);
+    }
+
+
+    // probe()  -  NoticeSvcHealthIndicator
+    // notice-svc отговаря 2xx  ->  UP
+    @Test
+    void givenNoticeSvcUp_whenProbe_thenHealthIsUp() {
+        // Given
+        when(noticeClient.getHelloMessage(anyString())).thenReturn(ResponseEntity.ok("Hello"));
+
+        // When
+        noticeSvcHealthIndicator.probe();
+        Health health = noticeSvcHealthIndicator.health();
+
+        // Then
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals(200, health.getDetails().get("httpStatus"));
+        assertTrue(health.getDetails().containsKey("latencyMs"));
+    }
+
+
+    // probe()  -  NoticeSvcHealthIndicator
+    // notice-svc е недостъпен  ->  DEGRADED (не DOWN), health() не вика notice-svc отново
+    @Test
+    void givenNoticeSvcUnreachable_whenProbe_thenHealthIsDegraded() {
+        // Given
+        when(noticeClient.getHelloMessage(anyString())).thenThrow(new RuntimeException("Connection refused"));
+
+        // When
+        noticeSvcHealthIndicator.probe();
+        Health first = noticeSvcHealthIndicator.health();
+        Health second = noticeSvcHealthIndicator.health();
+
+        // Then
+        assertEquals(NoticeSvcHealthIndicator.DEGRADED, first.getStatus());
+        assertEquals("RuntimeException", first.getDetails().get("error"));
+        assertEquals(first.getStatus(), second.getStatus());
+        verify(noticeClient, times(1)).getHelloMessage(anyString());
+    }
+}
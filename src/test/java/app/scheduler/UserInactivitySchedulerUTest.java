@@ -1,22 +1,20 @@
 package app.scheduler;
 
+import app.schedulerlock.service.*;
+import app.user.model.*;
 import app.user.service.*;
+import io.micrometer.core.instrument.simple.*;
+import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.*;
 import org.mockito.*;
 import org.mockito.junit.jupiter.*;
-import app.scheduler.UserInactivityScheduler;
-import app.user.model.User;
-import app.user.service.UserService;
-import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
-
-import java.util.Collections;
-import java.util.List;
-import java.util.UUID;
 
+import java.time.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 
@@ -25,44 +23,82 @@ public class UserInactivitySchedulerUTest {
 
     @Mock
     private UserService userService;
+    @Mock
+    private SchedulerLockService schedulerLockService;
 
     private static final int INACTIVITY_DAYS_LIMIT = 60;
+    private static final int CHUNK_SIZE = 500;
+
+    private SimpleMeterRegistry meterRegistry;
 
-    @InjectMocks
     private UserInactivityScheduler userInactivityScheduler;
 
-    // Има неактивни → извиква deactivateUsers()
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userInactivityScheduler = new UserInactivityScheduler(userService, schedulerLockService, meterRegistry, CHUNK_SIZE);
+    }
+
+
+    // Има неактивни → deactivateInactiveUsers() с лимита и chunk size-а;  метриките се обновяват
     @Test
-    void givenInactiveUsersExist_whenDeactivateInactiveUsers_thenDeactivateCalled() {
+    void givenInactiveUsersExist_whenDeactivateInactiveUsers_thenDeactivateCalledAndMetricsRecorded() {
         // Given
-        List<User> inactiveUsers = List.of(
-                User.builder().id(UUID.randomUUID()).isActive(true).build(),
-                User.builder().id(UUID.randomUUID()).isActive(true).build()
-        );
+        givenLockIsAcquired();
+        when(userService.deactivateInactiveUsers(INACTIVITY_DAYS_LIMIT, CHUNK_SIZE))
+                .thenReturn(new DeactivationReport(1200, 1150, 3, Duration.ofMillis(420)));
 
-        when(userService.getInactiveUsersByLastActivity(INACTIVITY_DAYS_LIMIT)).thenReturn(inactiveUsers);
+        // When
+        userInactivityScheduler.deactivateInactiveUsers();
+
+        // Then
+        verify(userService).deactivateInactiveUsers(INACTIVITY_DAYS_LIMIT, CHUNK_SIZE);
+
+        assertEquals(1200, meterRegistry.get("users.inactivity.scanned").counter().count());
+        assertEquals(1150, meterRegistry.get("users.inactivity.deactivated").counter().count());
+        assertEquals(1, meterRegistry.get("users.inactivity.duration").timer().count());
+        assertEquals(420, meterRegistry.get("users.inactivity.duration").timer().totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(1150, meterRegistry.get("users.inactivity.last.deactivated").gauge().value());
+    }
+
+    // Няма неактивни → броячите остават 0, но изпълнението се отчита
+    @Test
+    void givenNoInactiveUsers_whenDeactivateInactiveUsers_thenNoDeactivationIsCounted() {
+        // Given
+        givenLockIsAcquired();
+        when(userService.deactivateInactiveUsers(INACTIVITY_DAYS_LIMIT, CHUNK_SIZE))
+                .thenReturn(new DeactivationReport(0, 0, 0, Duration.ofMillis(3)));
 
         // When
         userInactivityScheduler.deactivateInactiveUsers();
 
         // Then
-        verify(userService).getInactiveUsersByLastActivity(INACTIVITY_DAYS_LIMIT);
-        verify(userService).deactivateUsers(inactiveUsers);
+        verify(userService).deactivateInactiveUsers(INACTIVITY_DAYS_LIMIT, CHUNK_SIZE);
+        assertEquals(0, meterRegistry.get("users.inactivity.deactivated").counter().count());
+        assertEquals(1, meterRegistry.get("users.inactivity.duration").timer().count());
+        assertEquals(0, meterRegistry.get("users.inactivity.last.scanned").gauge().value());
     }
 
-    // Няма неактивни → не се извиква нищо
+    // Друг node държи lock-а → job-ът се пропуска
     @Test
-    void givenNoInactiveUsers_whenDeactivateInactiveUsers_thenNoDeactivation() {
+    void givenLockHeldByAnotherNode_whenDeactivateInactiveUsers_thenJobIsSkipped() {
         // Given
-        when(userService.getInactiveUsersByLastActivity(INACTIVITY_DAYS_LIMIT)).thenReturn(Collections.emptyList());
+        when(schedulerLockService.runLocked(eq("userInactivity"), any(), any(), any())).thenReturn(false);
 
         // When
         userInactivityScheduler.deactivateInactiveUsers();
 
         // Then
-        verify(userService).getInactiveUsersByLastActivity(INACTIVITY_DAYS_LIMIT);
-        verify(userService, never()).deactivateUsers(any());
+        verifyNoInteractions(userService);
+        assertEquals(0, meterRegistry.get("users.inactivity.duration").timer().count());
     }
 
 
-}
\ No newline at end of file
+    private void givenLockIsAcquired() {
+        when(schedulerLockService.runLocked(eq("userInactivity"), any(), any(), any())).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(3).run();
+            return true;
+        });
+    }
+}
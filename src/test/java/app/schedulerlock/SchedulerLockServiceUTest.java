@@ -0,0 +1,159 @@
+package app.schedulerlock;
+
+import app.schedulerlock.model.*;
+import app.schedulerlock.repository.*;
+import app.schedulerlock.service.*;
+import io.micrometer.core.instrument.simple.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.*;
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+import org.springframework.dao.*;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+
+@ExtendWith(MockitoExtension.class)
+public class SchedulerLockServiceUTest {
+
+    private static final String JOB = "testJob";
+    private static final String NODE = "node-1";
+
+    @Mock
+    private SchedulerLockRepository schedulerLockRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private SchedulerLockService schedulerLockService;
+
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        schedulerLockService = new SchedulerLockService(schedulerLockRepository, meterRegistry, NODE);
+    }
+
+
+    // runLocked()  -  SchedulerLockService
+    // Lock-ът е свободен  ->  job-ът се изпълнява и lock-ът се освобождава, но не по-рано от lockAtLeastFor
+    @Test
+    void givenFreeLock_whenRunLocked_thenJobRunsAndLockIsReleasedAfterLockAtLeastFor() {
+        // Given
+        when(schedulerLockRepository.acquire(eq(JOB), any(), any(), eq(NODE), any())).thenReturn(1);
+        when(schedulerLockRepository.release(eq(JOB), any(), any())).thenReturn(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        // When
+        boolean ran = schedulerLockService.runLocked(JOB, Duration.ofMinutes(10), Duration.ofMinutes(1), runs::incrementAndGet);
+
+        // Then
+        assertTrue(ran);
+        assertEquals(1, runs.get());
+
+        ArgumentCaptor<LocalDateTime> now = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> lockUntil = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<UUID> token = ArgumentCaptor.forClass(UUID.class);
+        verify(schedulerLockRepository).acquire(eq(JOB), now.capture(), lockUntil.capture(), eq(NODE), token.capture());
+        assertEquals(now.getValue().plusMinutes(10), lockUntil.getValue());
+
+        ArgumentCaptor<LocalDateTime> releasedUntil = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(schedulerLockRepository).release(eq(JOB), eq(token.getValue()), releasedUntil.capture());
+        assertEquals(now.getValue().plusMinutes(1), releasedUntil.getValue());
+
+        assertEquals(1, meterRegistry.get("scheduler.lock.acquired").tag("job", JOB).counter().count());
+        assertEquals(1, meterRegistry.get("scheduler.lock.held").tag("job", JOB).timer().count());
+        verify(schedulerLockRepository, never()).saveAndFlush(any());
+    }
+
+
+    // runLocked()  -  SchedulerLockService
+    // Lock-ът е зает от друг node  ->  job-ът се пропуска
+    @Test
+    void givenLockHeldByAnotherNode_whenRunLocked_thenJobIsSkipped() {
+        // Given
+        when(schedulerLockRepository.acquire(eq(JOB), any(), any(), eq(NODE), any())).thenReturn(0);
+        when(schedulerLockRepository.existsById(JOB)).thenReturn(true);
+        AtomicInteger runs = new AtomicInteger();
+
+        // When
+        boolean ran = schedulerLockService.runLocked(JOB, Duration.ofMinutes(10), Duration.ZERO, runs::incrementAndGet);
+
+        // Then
+        assertFalse(ran);
+        assertEquals(0, runs.get());
+        assertEquals(1, meterRegistry.get("scheduler.lock.skipped").tag("job", JOB).counter().count());
+        verify(schedulerLockRepository, never()).release(any(), any(), any());
+        verify(schedulerLockRepository, never()).saveAndFlush(any());
+    }
+
+
+    // runLocked()  -  SchedulerLockService
+    // Първо изпълнение (няма ред)  ->  INSERT с вече взет lock
+    @Test
+    void givenNoLockRow_whenRunLocked_thenRowIsInsertedAsHeldAndJobRuns() {
+        // Given
+        when(schedulerLockRepository.acquire(eq(JOB), any(), any(), eq(NODE), any())).thenReturn(0);
+        when(schedulerLockRepository.existsById(JOB)).thenReturn(false);
+        when(schedulerLockRepository.release(eq(JOB), any(), any())).thenReturn(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        // When
+        boolean ran = schedulerLockService.runLocked(JOB, Duration.ofMinutes(10), Duration.ZERO, runs::incrementAndGet);
+
+        // Then
+        assertTrue(ran);
+        assertEquals(1, runs.get());
+
+        ArgumentCaptor<SchedulerLock> inserted = ArgumentCaptor.forClass(SchedulerLock.class);
+        verify(schedulerLockRepository).saveAndFlush(inserted.capture());
+        assertEquals(JOB, inserted.getValue().getName());
+        assertEquals(NODE, inserted.getValue().getLockedBy());
+        assertTrue(inserted.getValue().isNew());
+        verify(schedulerLockRepository).release(eq(JOB), eq(inserted.getValue().getLockToken()), any());
+    }
+
+
+    // runLocked()  -  SchedulerLockService
+    // Два node-а вмъкват реда едновременно  ->  губещият получава DataIntegrityViolationException и пропуска job-а
+    @Test
+    void givenConcurrentInsertByAnotherNode_whenRunLocked_thenJobIsSkipped() {
+        // Given
+        when(schedulerLockRepository.acquire(eq(JOB), any(), any(), eq(NODE), any())).thenReturn(0);
+        when(schedulerLockRepository.existsById(JOB)).thenReturn(false);
+        when(schedulerLockRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        AtomicInteger runs = new AtomicInteger();
+
+        // When
+        boolean ran = schedulerLockService.runLocked(JOB, Duration.ofMinutes(10), Duration.ZERO, runs::incrementAndGet);
+
+        // Then
+        assertFalse(ran);
+        assertEquals(0, runs.get());
+        assertEquals(1, meterRegistry.get("scheduler.lock.skipped").tag("job", JOB).counter().count());
+    }
+
+
+    // runLocked()  -  SchedulerLockService
+    // Job-ът хвърля грешка  ->  lock-ът пак се освобождава, грешката се пропагира
+    @Test
+    void givenFailingJob_whenRunLocked_thenLockIsReleasedAndExceptionPropagates() {
+        // Given
+        when(schedulerLockRepository.acquire(eq(JOB), any(), any(), eq(NODE), any())).thenReturn(1);
+        when(schedulerLockRepository.release(eq(JOB), any(), any())).thenReturn(1);
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> schedulerLockService.runLocked(JOB, Duration.ofMinutes(10), Duration.ZERO, () -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        verify(schedulerLockRepository).release(eq(JOB), any(), any());
+        assertEquals(1, meterRegistry.get("scheduler.lock.held").tag("job", JOB).timer().count());
+    }
+}
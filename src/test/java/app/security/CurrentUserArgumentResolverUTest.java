@@ -0,0 +1,76 @@
+package app.security;
+
+import app.user.model.*;
+import app.user.service.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.*;
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+import org.springframework.mock.web.*;
+import org.springframework.security.authentication.*;
+import org.springframework.security.core.context.*;
+import org.springframework.web.context.request.*;
+
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+
+@ExtendWith(MockitoExtension.class)
+public class CurrentUserArgumentResolverUTest {
+
+    @Mock
+    private UserService userService;
+
+    @InjectMocks
+    private CurrentUserArgumentResolver currentUserArgumentResolver;
+
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+
+    // resolveArgument()  -  CurrentUserArgumentResolver
+    // Логнат потребител  ->  CurrentUserView се зарежда само веднъж за една заявка
+    @Test
+    void givenLoggedUser_whenResolvedTwiceInSameRequest_thenUserViewIsLoadedOnce() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        AuthenticationMetadata principal = new AuthenticationMetadata(userId, "player", "pass", UserRole.USER, true);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        CurrentUserView view = new CurrentUserView(userId, "player", UserRole.USER, true, LocalDateTime.now());
+        when(userService.getCurrentUserView(userId)).thenReturn(view);
+
+        NativeWebRequest webRequest = new ServletWebRequest(new MockHttpServletRequest());
+
+        // When
+        Object first = currentUserArgumentResolver.resolveArgument(null, null, webRequest, null);
+        Object second = currentUserArgumentResolver.resolveArgument(null, null, webRequest, null);
+
+        // Then
+        assertSame(view, first);
+        assertSame(view, second);
+        verify(userService, times(1)).getCurrentUserView(userId);
+    }
+
+
+    // resolveArgument()  -  CurrentUserArgumentResolver
+    // Анонимен посетител  ->  null, без заявка към базата
+    @Test
+    void givenAnonymousVisitor_whenResolve_thenReturnNull() {
+        // Given
+        NativeWebRequest webRequest = new ServletWebRequest(new MockHttpServletRequest());
+
+        // When
+        Object result = currentUserArgumentResolver.resolveArgument(null, null, webRequest, null);
+
+        // Then
+        assertNull(result);
+        verifyNoInteractions(userService);
+    }
+}
@@ -0,0 +1,143 @@
+package app.transaction;
+
+import app.transaction.model.*;
+import app.transaction.repository.*;
+import app.transaction.service.*;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.datatype.jsr310.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.*;
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+
+import java.io.*;
+import java.math.*;
+import java.nio.charset.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.stream.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+
+@ExtendWith(MockitoExtension.class)
+public class TransactionExportServiceUTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private TransactionExportService transactionExportService;
+
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        transactionExportService = new TransactionExportService(transactionRepository, objectMapper);
+    }
+
+
+    // export()  -  TransactionExportService
+    // CSV  ->  header + по един ред на транзакция;  запетаи/кавички се escape-ват, формули се неутрализират
+    @Test
+    void givenTransactions_whenExportCsv_thenHeaderAndEscapedRowsAreWritten() {
+        // Given
+        UUID ownerId = UUID.randomUUID();
+        TransactionRow purchase = aTransactionRow("Purchase of game \"Turbo Blitz\", deluxe", null);
+        TransactionRow failed = aTransactionRow("Purchase of game", "=HYPERLINK(\"x\")");
+        when(transactionRepository.streamHistory(ownerId)).thenReturn(Stream.of(purchase, failed));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        long rows = transactionExportService.export(ownerId, TransactionExportFormat.CSV, out);
+
+        // Then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, rows);
+        assertEquals(3, lines.length);
+        assertEquals("id,created_on,type,status,amount,currency,description,failure_reason", lines[0]);
+        assertTrue(lines[1].startsWith(purchase.getId() + ","));
+        assertTrue(lines[1].endsWith(",9.99,EUR,\"Purchase of game \"\"Turbo Blitz\"\", deluxe\","));
+        assertTrue(lines[2].endsWith(",Purchase of game,\"'=HYPERLINK(\"\"x\"\")\""));
+    }
+
+
+    // export()  -  TransactionExportService
+    // NDJSON  ->  един JSON обект на ред, без обграждащ масив
+    @Test
+    void givenTransactions_whenExportNdjson_thenOneJsonObjectPerLine() throws Exception {
+        // Given
+        UUID ownerId = UUID.randomUUID();
+        TransactionRow row = aTransactionRow("Purchase of game", null);
+        when(transactionRepository.streamHistory(ownerId)).thenReturn(Stream.of(row, aTransactionRow("Deposit", null)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        long rows = transactionExportService.export(ownerId, TransactionExportFormat.NDJSON, out);
+
+        // Then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, rows);
+        assertEquals(2, lines.length);
+
+        JsonNode first = new ObjectMapper().readTree(lines[0]);
+        assertEquals(row.getId().toString(), first.get("id").asText());
+        assertEquals("EUR", first.get("currency").asText());
+        assertEquals("WITHDRAWAL", first.get("type").asText());
+        assertEquals(row.getCreatedOn().toString(), first.get("createdOn").asText());
+    }
+
+
+    // export()  -  TransactionExportService
+    // Stream-ът (JDBC cursor-ът) се затваря винаги - и при грешка при писане (прекъснат download)
+    @Test
+    void givenClientAbort_whenExport_thenCursorIsClosedAndUncheckedIOExceptionIsThrown() {
+        // Given
+        UUID ownerId = UUID.randomUUID();
+        AtomicBoolean closed = new AtomicBoolean(false);
+        when(transactionRepository.streamHistory(ownerId)).thenReturn(
+                Stream.generate(() -> aTransactionRow("Purchase of game", null)).limit(10_000).onClose(() -> closed.set(true)));
+
+        OutputStream brokenPipe = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        // When & Then
+        assertThrows(UncheckedIOException.class, () -> transactionExportService.export(ownerId, TransactionExportFormat.CSV, brokenPipe));
+        assertTrue(closed.get());
+    }
+
+
+    // export()  -  TransactionExportService
+    // Няма транзакции  ->  CSV само с header
+    @Test
+    void givenNoTransactions_whenExportCsv_thenOnlyHeaderIsWritten() {
+        // Given
+        UUID ownerId = UUID.randomUUID();
+        when(transactionRepository.streamHistory(ownerId)).thenReturn(Stream.empty());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        long rows = transactionExportService.export(ownerId, TransactionExportFormat.CSV, out);
+
+        // Then
+        assertEquals(0, rows);
+        assertEquals("id,created_on,type,status,amount,currency,description,failure_reason\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+
+    private static TransactionRow aTransactionRow(String description, String failureReason) {
+        return new TransactionRow(UUID.randomUUID(), new BigDecimal("9.99"), Currency.getInstance("EUR"),
+                TransactionType.WITHDRAWAL, failureReason == null ? TransactionStatus.APPROVED : TransactionStatus.FAILED,
+                description, failureReason, LocalDateTime.now().withNano(0));
+    }
+}
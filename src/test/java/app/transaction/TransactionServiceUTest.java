@@ -1,5 +1,6 @@
 package app.transaction;
 
+import app.shared.pagination.*;
 import app.transaction.model.*;
 import app.transaction.repository.*;
 import app.transaction.service.*;
@@ -18,10 +19,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import org.springframework.data.domain.*;
+
 import java.math.BigDecimal;
+import java.time.*;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 
@@ -77,41 +82,78 @@ public class TransactionServiceUTest {
         assertEquals(saved, result);      // трябва да върне точно същия обект
     }
 
-    // getAllByOwnerId()  -  TransactionService
-    // Съществуват транзакции за даден потребител → връща списък
+    // getHistoryPage()  -  TransactionService
+    // Има повече от една страница → връща size реда + курсор към (createdOn, id) на последния
     @Test
-    void givenTransactionsExist_whenGetAllByOwnerId_thenReturnList() {
+    void givenMoreTransactionsThanPageSize_whenGetHistoryPage_thenReturnPageAndNextCursor() {
         // Given
         UUID ownerId = UUID.randomUUID();
-        List<Transaction> transactions = List.of(
-                Transaction.builder().id(UUID.randomUUID()).build(),
-                Transaction.builder().id(UUID.randomUUID()).build()
-        );
+        LocalDateTime now = LocalDateTime.now();
+        TransactionRow newest = aTransactionRow(now);
+        TransactionRow middle = aTransactionRow(now.minusMinutes(1));
+        TransactionRow oldest = aTransactionRow(now.minusMinutes(2));
+
+        when(transactionRepository.findHistoryFirstPage(ownerId, Limit.of(3))).thenReturn(List.of(newest, middle, oldest));
+
+        // When
+        KeysetPage<TransactionRow> page = transactionService.getHistoryPage(ownerId, null, 2);
+
+        // Then
+        assertEquals(List.of(newest, middle), page.getItems());
+        assertTrue(page.hasNext());
+
+        KeysetCursor cursor = KeysetCursor.decode(page.getNextCursor());
+        assertEquals(middle.getCreatedOn(), cursor.getTimestamp());
+        assertEquals(middle.getId(), cursor.getId());
+    }
+
+    // getHistoryPage()  -  TransactionService
+    // С курсор → seek след (createdOn, id);  последна страница → без курсор
+    @Test
+    void givenCursor_whenGetHistoryPage_thenSeekAfterCursorAndReturnLastPage() {
+        // Given
+        UUID ownerId = UUID.randomUUID();
+        TransactionRow last = aTransactionRow(LocalDateTime.now().minusDays(1));
+        KeysetCursor after = new KeysetCursor(LocalDateTime.now(), UUID.randomUUID());
 
-        when(transactionRepository.findAllByOwnerIdOrderByCreatedOnDesc(ownerId)).thenReturn(transactions);
+        when(transactionRepository.findHistoryPageAfter(ownerId, after.getTimestamp(), after.getId(), Limit.of(26))).thenReturn(List.of(last));
 
         // When
-        List<Transaction> result = transactionService.getAllByOwnerId(ownerId);
+        KeysetPage<TransactionRow> page = transactionService.getHistoryPage(ownerId, after.encode(), TransactionService.DEFAULT_HISTORY_PAGE_SIZE);
 
         // Then
-        assertEquals(2, result.size());
-        verify(transactionRepository, times(1)).findAllByOwnerIdOrderByCreatedOnDesc(ownerId);
+        assertEquals(List.of(last), page.getItems());
+        assertFalse(page.hasNext());
+        assertNull(page.getNextCursor());
+        verify(transactionRepository, never()).findHistoryFirstPage(any(), any());
     }
 
-    // getAllByOwnerId()  -  TransactionService
-    // Няма транзакции → връща празен списък
+    // getHistoryPage()  -  TransactionService
+    // Няма транзакции → празна страница;  прекалено голям size се ограничава до MAX_HISTORY_PAGE_SIZE
     @Test
-    void givenNoTransactions_whenGetAllByOwnerId_thenReturnEmptyList() {
+    void givenNoTransactionsAndHugePageSize_whenGetHistoryPage_thenEmptyPageAndSizeIsCapped() {
         // Given
         UUID ownerId = UUID.randomUUID();
-        when(transactionRepository.findAllByOwnerIdOrderByCreatedOnDesc(ownerId)).thenReturn(List.of());
+        when(transactionRepository.findHistoryFirstPage(ownerId, Limit.of(TransactionService.MAX_HISTORY_PAGE_SIZE + 1))).thenReturn(List.of());
 
         // When
-        List<Transaction> result = transactionService.getAllByOwnerId(ownerId);
+        KeysetPage<TransactionRow> page = transactionService.getHistoryPage(ownerId, "", 10_000);
 
         // Then
-        assertTrue(result.isEmpty());
-        verify(transactionRepository, times(1)).findAllByOwnerIdOrderByCreatedOnDesc(ownerId);
+        assertTrue(page.getItems().isEmpty());
+        assertFalse(page.hasNext());
+    }
+
+    // getHistoryPage()  -  TransactionService
+    // Невалиден курсор → DomainException
+    @Test
+    void givenInvalidCursor_whenGetHistoryPage_thenThrowsDomainException() {
+        // Given
+        UUID ownerId = UUID.randomUUID();
+
+        // When & Then
+        assertThrows(DomainException.class, () -> transactionService.getHistoryPage(ownerId, "not-a-cursor", 25));
+        verifyNoInteractions(transactionRepository);
     }
 
     // getById()  -  TransactionService
@@ -151,5 +193,8 @@ public class TransactionServiceUTest {
     }
 
 
-
-}
\ No newline at end of file
+    private static TransactionRow aTransactionRow(LocalDateTime createdOn) {
+        return new TransactionRow(UUID.randomUUID(), new BigDecimal("10.00"), Currency.getInstance("EUR"),
+                TransactionType.WITHDRAWAL, TransactionStatus.APPROVED, "Purchase of game", null, createdOn);
+    }
+}
@@ -6,9 +6,12 @@ import app.treasury.repository.*;
 import app.treasury.service.*;
 import app.user.service.*;
 import app.wallet.service.*;
+import io.micrometer.core.instrument.simple.*;
 import org.junit.jupiter.api.extension.*;
 import org.mockito.*;
 import org.mockito.junit.jupiter.*;
+import org.springframework.transaction.*;
+import org.springframework.transaction.support.*;
 import app.transaction.model.Transaction;
 import app.transaction.model.TransactionStatus;
 import app.transaction.model.TransactionType;
@@ -20,10 +23,13 @@ import app.user.service.UserService;
 import app.wallet.model.Wallet;
 import app.wallet.service.WalletService;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
 import java.util.Currency;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -54,18 +60,30 @@ public class TreasuryServiceUTest {
     @Mock
     private TreasuryRepository treasuryRepository;
     @Mock
+    private TreasuryShardService treasuryShardService;
+    @Mock
     private UserService userService;
     @Mock
     private WalletService walletService;
     @Mock
     private TransactionService transactionService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
 
+    private SimpleMeterRegistry meterRegistry;
 
-    @Spy
-    @InjectMocks
     private TreasuryService treasuryService;
 
 
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        treasuryService = spy(new TreasuryService(treasuryRepository, treasuryShardService, userService, walletService, transactionService,
+                new TransactionTemplate(transactionManager), meterRegistry, new BigDecimal("1000.00")));
+    }
+
+
     // processTransaction()  -  TreasuryService
     // Успешна транзакция
     @Test
@@ -73,9 +91,10 @@ public class TreasuryServiceUTest {
         // Given
         UUID userId = UUID.randomUUID();
         Treasury treasury = Treasury.builder()
+                .id(UUID.randomUUID())
                 .name("Treasury vault")
-                .balance(new BigDecimal("500.00"))
                 .build();
+        UUID shardId = UUID.randomUUID();
 
         Wallet wallet = Wallet.builder()
                 .id(UUID.randomUUID())
@@ -96,14 +115,25 @@ public class TreasuryServiceUTest {
 
         when(treasuryRepository.findByName("Treasury vault")).thenReturn(Optional.of(treasury));
         when(userService.getById(userId)).thenReturn(user);
+        when(treasuryShardService.findCandidateShards(treasury.getId(), new BigDecimal("100.00"))).thenReturn(List.of(shardId));
+        when(treasuryShardService.withdrawFromShard(treasury.getId(), shardId, new BigDecimal("100.00"))).thenReturn(true);
         when(walletService.addFunds(wallet.getId(), new BigDecimal("100.00"))).thenReturn(transaction);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
 
         // When
         boolean result = treasuryService.processTransaction(userId);
 
-        // Then
+        // Then  -  депозитът и тегленето (последно) са в една транзакция
         assertTrue(result);
-        verify(treasuryRepository).save(treasury);
+        InOrder inOrder = inOrder(transactionManager, walletService, treasuryShardService);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(walletService).addFunds(wallet.getId(), new BigDecimal("100.00"));
+        inOrder.verify(treasuryShardService).withdrawFromShard(treasury.getId(), shardId, new BigDecimal("100.00"));
+        inOrder.verify(transactionManager).commit(any());
+        verify(treasuryShardService, never()).withdrawAcrossShards(any(), any());
+        verify(treasuryRepository, never()).save(any());
+        assertEquals(1.0, meterRegistry.get("treasury.payouts").tag("result", "approved").counter().count());
+        assertEquals(1, meterRegistry.get("treasury.payout.duration").timer().count());
     }
 
     // processTransaction()  -  TreasuryService
@@ -128,12 +158,18 @@ public class TreasuryServiceUTest {
         wallet.setOwner(user);
 
         Treasury treasury = Treasury.builder()
+                .id(UUID.randomUUID())
                 .name("Treasury vault")
-                .balance(new BigDecimal("10.00")) // по-малко от 100
                 .build();
 
         when(treasuryRepository.findByName("Treasury vault")).thenReturn(Optional.of(treasury));
         when(userService.getById(userId)).thenReturn(user);
+        when(walletService.addFunds(wallet.getId(), new BigDecimal("100.00"))).thenReturn(Transaction.builder().status(TransactionStatus.APPROVED).build());
+        // нито един shard (и всички заедно) не покриват 100  ->  нищо не е изтеглено
+        when(treasuryShardService.findCandidateShards(treasury.getId(), new BigDecimal("100.00"))).thenReturn(List.of());
+        when(treasuryShardService.withdrawAcrossShards(treasury.getId(), new BigDecimal("100.00"))).thenReturn(Map.of());
+        SimpleTransactionStatus status = new SimpleTransactionStatus();
+        when(transactionManager.getTransaction(any())).thenReturn(status);
         when(transactionService.createNewTransaction(
                 eq(user),
                 anyString(),
@@ -164,6 +200,10 @@ public class TreasuryServiceUTest {
                 any(),
                 any()
         );
+        // депозитът в wallet-а се връща с rollback
+        assertTrue(status.isRollbackOnly());
+        verify(transactionManager).commit(status);
+        assertEquals(1.0, meterRegistry.get("treasury.payouts").tag("result", "insufficient_funds").counter().count());
     }
 
 
@@ -174,8 +214,8 @@ public class TreasuryServiceUTest {
         // Given
         UUID userId = UUID.randomUUID();
         Treasury treasury = Treasury.builder()
+                .id(UUID.randomUUID())
                 .name("Treasury vault")
-                .balance(new BigDecimal("500.00"))
                 .build();
 
         Wallet wallet = Wallet.builder()
@@ -196,13 +236,78 @@ public class TreasuryServiceUTest {
 
         when(treasuryRepository.findByName("Treasury vault")).thenReturn(Optional.of(treasury));
         when(userService.getById(userId)).thenReturn(user);
+        when(treasuryShardService.findCandidateShards(treasury.getId(), new BigDecimal("100.00"))).thenReturn(List.of(UUID.randomUUID()));
         when(walletService.addFunds(wallet.getId(), new BigDecimal("100.00"))).thenReturn(failedTransaction);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
 
         // When
         boolean result = treasuryService.processTransaction(userId);
 
-        // Then
+        // Then  -  Treasury не се пипа
         assertFalse(result);
+        verify(treasuryShardService, never()).withdrawFromShard(any(), any(), any());
+        verify(treasuryShardService, never()).withdrawAcrossShards(any(), any());
+        assertEquals(1.0, meterRegistry.get("treasury.payouts").tag("result", "inactive_wallet").counter().count());
+    }
+
+
+    // processTransaction()  -  TreasuryService
+    // тегленето от shard-а гърми → депозитът в wallet-а се връща с rollback, грешката се пропагира
+    @Test
+    void givenWithdrawThrows_whenProcessTransaction_thenDepositIsRolledBack() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        Treasury treasury = Treasury.builder().id(UUID.randomUUID()).name("Treasury vault").build();
+        Wallet wallet = Wallet.builder().id(UUID.randomUUID()).currency(Currency.getInstance("EUR")).build();
+        User user = User.builder().id(userId).wallet(wallet).username("user123").build();
+        SimpleTransactionStatus status = new SimpleTransactionStatus();
+
+        when(treasuryRepository.findByName("Treasury vault")).thenReturn(Optional.of(treasury));
+        when(userService.getById(userId)).thenReturn(user);
+        when(walletService.addFunds(wallet.getId(), new BigDecimal("100.00"))).thenReturn(Transaction.builder().status(TransactionStatus.APPROVED).build());
+        UUID shardId = UUID.randomUUID();
+        when(treasuryShardService.findCandidateShards(treasury.getId(), new BigDecimal("100.00"))).thenReturn(List.of(shardId));
+        when(treasuryShardService.withdrawFromShard(treasury.getId(), shardId, new BigDecimal("100.00"))).thenThrow(new DomainException("Shard update failed"));
+        when(transactionManager.getTransaction(any())).thenReturn(status);
+
+        // When & Then
+        assertThrows(DomainException.class, () -> treasuryService.processTransaction(userId));
+        verify(transactionManager).rollback(status);
+        verify(transactionManager, never()).commit(any());
+    }
+
+
+    // processTransaction()  -  TreasuryService
+    // кандидатът е изпразнен междувременно → rollback на депозита и нов опит (нова транзакция) през бавния път
+    @Test
+    void givenCandidateShardDrainedConcurrently_whenProcessTransaction_thenRetriedInNewTransaction() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        Treasury treasury = Treasury.builder().id(UUID.randomUUID()).name("Treasury vault").build();
+        Wallet wallet = Wallet.builder().id(UUID.randomUUID()).currency(Currency.getInstance("EUR")).build();
+        User user = User.builder().id(userId).wallet(wallet).username("user123").build();
+        UUID drainedShardId = UUID.randomUUID();
+        SimpleTransactionStatus firstAttempt = new SimpleTransactionStatus();
+        SimpleTransactionStatus secondAttempt = new SimpleTransactionStatus();
+
+        when(treasuryRepository.findByName("Treasury vault")).thenReturn(Optional.of(treasury));
+        when(userService.getById(userId)).thenReturn(user);
+        when(walletService.addFunds(wallet.getId(), new BigDecimal("100.00"))).thenReturn(Transaction.builder().status(TransactionStatus.APPROVED).build());
+        when(treasuryShardService.findCandidateShards(treasury.getId(), new BigDecimal("100.00"))).thenReturn(List.of(drainedShardId));
+        when(treasuryShardService.withdrawFromShard(treasury.getId(), drainedShardId, new BigDecimal("100.00"))).thenReturn(false);
+        when(treasuryShardService.withdrawAcrossShards(treasury.getId(), new BigDecimal("100.00")))
+                .thenReturn(Map.of(UUID.randomUUID(), new BigDecimal("100.00")));
+        when(transactionManager.getTransaction(any())).thenReturn(firstAttempt, secondAttempt);
+
+        // When
+        boolean result = treasuryService.processTransaction(userId);
+
+        // Then
+        assertTrue(result);
+        assertTrue(firstAttempt.isRollbackOnly());
+        assertFalse(secondAttempt.isRollbackOnly());
+        verify(walletService, times(2)).addFunds(wallet.getId(), new BigDecimal("100.00"));
+        verifyNoInteractions(transactionService);
     }
 
 
@@ -239,51 +344,85 @@ public class TreasuryServiceUTest {
 
 
 
-    // getByName()  -  TreasuryService
+    // getTreasurySnapshot()  -  TreasuryService
     // Успешно намиране на Treasury
     @Test
-    void givenExistingTreasury_whenGetByName_thenReturnsTreasury() {
+    void givenExistingTreasury_whenGetTreasurySnapshot_thenReturnsTreasury() {
         // Given
-        String name = "Treasury vault";
+        String name = TreasuryService.TREASURY_NAME;
         Treasury mockTreasury = Treasury.builder()
+                .id(UUID.randomUUID())
                 .name(name)
-                .balance(BigDecimal.valueOf(500.00))
                 .currency(Currency.getInstance("EUR"))
                 .build();
 
         when(treasuryRepository.findByName(name)).thenReturn(Optional.of(mockTreasury));
+        when(treasuryShardService.getBalance(mockTreasury.getId())).thenReturn(BigDecimal.valueOf(500.00));
 
         // When
-        Treasury result = treasuryService.getByName(name);
+        Treasury result = treasuryService.getTreasurySnapshot();
 
         // Then
         assertNotNull(result);
         assertEquals(name, result.getName());
-        assertEquals(BigDecimal.valueOf(500.00), result.getBalance());
+        assertEquals(BigDecimal.valueOf(500.00), result.getBalance());    // SUM по shard-овете
         verify(treasuryRepository).findByName(name);
     }
 
 
-    // getByName()  -  TreasuryService
+    // getTreasurySnapshot()  -  TreasuryService
     // Treasury не съществува → хвърля се DomainException
     @Test
-    void givenNonExistentTreasury_whenGetByName_thenThrowsDomainException() {
+    void givenNonExistentTreasury_whenGetTreasurySnapshot_thenThrowsDomainException() {
         // Given
-        String name = "Treasury vault";
+        String name = TreasuryService.TREASURY_NAME;
         when(treasuryRepository.findByName(name)).thenReturn(Optional.empty());
 
         // When / Then
-        DomainException ex = assertThrows(DomainException.class, () -> treasuryService.getByName(name));
+        DomainException ex = assertThrows(DomainException.class, () -> treasuryService.getTreasurySnapshot());
         assertTrue(ex.getMessage().contains("Treasury with this name [Treasury vault] does not exist."));
         verify(treasuryRepository).findByName(name);
     }
 
+
+    // getTreasurySnapshot()  -  TreasuryService
+    // Treasury се търси по име само веднъж;  всяко извикване връща собствено копие с текущия баланс
+    @Test
+    void givenRepeatedCalls_whenGetTreasurySnapshot_thenTreasuryIsLookedUpOnce() {
+        // Given
+        Treasury treasury = Treasury.builder()
+                .id(UUID.randomUUID())
+                .name("Treasury vault")
+                .currency(Currency.getInstance("EUR"))
+                .build();
+
+        when(treasuryRepository.findByName("Treasury vault")).thenReturn(Optional.of(treasury));
+        when(treasuryShardService.getBalance(treasury.getId())).thenReturn(new BigDecimal("900.00"), new BigDecimal("800.00"));
+
+        // When
+        Treasury first = treasuryService.getTreasurySnapshot();
+        Treasury second = treasuryService.getTreasurySnapshot();
+
+        // Then
+        assertEquals(new BigDecimal("900.00"), first.getBalance());
+        assertEquals(new BigDecimal("800.00"), second.getBalance());
+        assertNotSame(first, second);
+        assertNull(treasury.getBalance());
+        verify(treasuryRepository, times(1)).findByName("Treasury vault");
+    }
+
     // initializeTreasury()  -  TreasuryService
     // Treasury все още не съществува → инициализира се нова
     @Test
     void givenTreasuryDoesNotExist_whenInitializeTreasury_thenTreasuryIsSaved() {
         // Given
+        UUID treasuryId = UUID.randomUUID();
         when(treasuryRepository.findByName("Treasury vault")).thenReturn(Optional.empty());
+        when(treasuryRepository.save(any())).thenAnswer(invocation -> {
+            Treasury saved = invocation.getArgument(0);
+            saved.setId(treasuryId);
+            return saved;
+        });
 
         // When
         treasuryService.initializeTreasury();
@@ -291,9 +430,10 @@ public class TreasuryServiceUTest {
         // Then
         verify(treasuryRepository).save(argThat(t ->
                 t.getName().equals("Treasury vault") &&
-                        t.getBalance().compareTo(BigDecimal.valueOf(1000.00)) == 0 &&
+                        t.getOpeningBalance().compareTo(BigDecimal.valueOf(1000.00)) == 0 &&
                         t.getCurrency().equals(Currency.getInstance("EUR"))
         ));
+        verify(treasuryShardService).createShards(treasuryId, new BigDecimal("1000.00"));
     }
 
 
@@ -304,14 +444,40 @@ public class TreasuryServiceUTest {
     void givenTreasuryAlreadyExists_whenInitializeTreasury_thenTreasuryIsNotSavedAgain() {
         // Given
         Treasury existingTreasury = new Treasury();
+        existingTreasury.setId(UUID.randomUUID());
         existingTreasury.setName("Treasury vault");
 
         when(treasuryRepository.findByName("Treasury vault")).thenReturn(Optional.of(existingTreasury));
+        when(treasuryShardService.hasShards(existingTreasury.getId())).thenReturn(true);
+
+        // When
+        treasuryService.initializeTreasury();
+
+        // Then
+        verify(treasuryRepository, never()).save(any());
+        verify(treasuryShardService, never()).createShards(any(), any());
+    }
+
+
+    // initializeTreasury()  -  TreasuryService
+    // Treasury отпреди шардирането (без shard-ове) → shard-овете се създават от стария баланс
+    @Test
+    void givenTreasuryWithoutShards_whenInitializeTreasury_thenShardsAreCreatedFromExistingBalance() {
+        // Given
+        Treasury legacyTreasury = Treasury.builder()
+                .id(UUID.randomUUID())
+                .name("Treasury vault")
+                .openingBalance(new BigDecimal("700.00"))
+                .build();
+
+        when(treasuryRepository.findByName("Treasury vault")).thenReturn(Optional.of(legacyTreasury));
+        when(treasuryShardService.hasShards(legacyTreasury.getId())).thenReturn(false);
 
         // When
         treasuryService.initializeTreasury();
 
         // Then
+        verify(treasuryShardService).createShards(legacyTreasury.getId(), new BigDecimal("700.00"));
         verify(treasuryRepository, never()).save(any());
     }
 
@@ -0,0 +1,159 @@
+package app.treasury;
+
+import app.treasury.model.*;
+import app.treasury.repository.*;
+import app.treasury.service.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.*;
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+
+import java.math.*;
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+
+@ExtendWith(MockitoExtension.class)
+public class TreasuryShardServiceUTest {
+
+    private static final BigDecimal PAYOUT = new BigDecimal("100.00");
+
+    @Mock
+    private TreasuryShardRepository treasuryShardRepository;
+
+    private TreasuryShardService treasuryShardService;
+
+
+    @BeforeEach
+    void setUp() {
+        treasuryShardService = new TreasuryShardService(treasuryShardRepository, 4);
+    }
+
+
+    // createShards()  -  TreasuryShardService
+    // Балансът се разделя поравно, остатъкът отива в shard 0 - сумата се запазва до стотинка
+    @Test
+    void givenOpeningBalance_whenCreateShards_thenBalanceIsSplitWithoutLosingCents() {
+        // Given
+        UUID treasuryId = UUID.randomUUID();
+
+        // When
+        treasuryShardService.createShards(treasuryId, new BigDecimal("1000.03"));
+
+        // Then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TreasuryShard>> shards = ArgumentCaptor.forClass(List.class);
+        verify(treasuryShardRepository).saveAll(shards.capture());
+
+        assertEquals(4, shards.getValue().size());
+        assertEquals(new BigDecimal("250.03"), shards.getValue().get(0).getBalance());
+        assertEquals(new BigDecimal("250.00"), shards.getValue().get(3).getBalance());
+        assertEquals(0, new BigDecimal("1000.03").compareTo(shards.getValue().stream().map(TreasuryShard::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add)));
+        assertEquals(List.of(0, 1, 2, 3), shards.getValue().stream().map(TreasuryShard::getShardIndex).toList());
+    }
+
+
+    // findCandidateShards()  -  TreasuryShardService
+    // Кандидатите са всички shard-ове, които покриват сумата, в случаен ред
+    @Test
+    void givenShardsWithEnoughBalance_whenFindCandidateShards_thenAllAreReturnedShuffled() {
+        // Given
+        UUID treasuryId = UUID.randomUUID();
+        List<UUID> shardIds = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        when(treasuryShardRepository.findShardIdsWithBalanceAtLeast(treasuryId, PAYOUT)).thenReturn(shardIds);
+
+        // When
+        List<UUID> candidates = treasuryShardService.findCandidateShards(treasuryId, PAYOUT);
+
+        // Then
+        assertEquals(Set.copyOf(shardIds), Set.copyOf(candidates));
+        assertEquals(3, candidates.size());
+    }
+
+
+    // withdrawFromShard()  -  TreasuryShardService
+    // Бърз път - един атомарен UPDATE, без заключване на всички shard-ове
+    @Test
+    void givenShardWithEnoughBalance_whenWithdrawFromShard_thenSingleAtomicUpdate() {
+        // Given
+        UUID treasuryId = UUID.randomUUID();
+        UUID shardId = UUID.randomUUID();
+        when(treasuryShardRepository.withdrawIfSufficientBalance(eq(shardId), eq(PAYOUT), any(LocalDateTime.class))).thenReturn(1);
+
+        // When / Then
+        assertTrue(treasuryShardService.withdrawFromShard(treasuryId, shardId, PAYOUT));
+        verify(treasuryShardRepository, never()).findAllByTreasuryIdForUpdate(any());
+    }
+
+
+    // withdrawFromShard()  -  TreasuryShardService
+    // Друго плащане е изпразнило shard-а след snapshot-а  ->  false
+    @Test
+    void givenShardDrainedConcurrently_whenWithdrawFromShard_thenReturnsFalse() {
+        // Given
+        UUID shardId = UUID.randomUUID();
+        when(treasuryShardRepository.withdrawIfSufficientBalance(eq(shardId), eq(PAYOUT), any(LocalDateTime.class))).thenReturn(0);
+
+        // When / Then
+        assertFalse(treasuryShardService.withdrawFromShard(UUID.randomUUID(), shardId, PAYOUT));
+    }
+
+
+    // withdrawAcrossShards()  -  TreasuryShardService
+    // Бавен път - нито един shard не покрива сумата, но всички заедно да  ->  тегли от няколко заключени shard-а
+    @Test
+    void givenFundsSpreadAcrossShards_whenWithdraw_thenLockedShardsAreCombined() {
+        // Given
+        UUID treasuryId = UUID.randomUUID();
+        TreasuryShard first = aShard(treasuryId, 0, "60.00");
+        TreasuryShard second = aShard(treasuryId, 1, "25.00");
+        TreasuryShard third = aShard(treasuryId, 2, "30.00");
+        when(treasuryShardRepository.findAllByTreasuryIdForUpdate(treasuryId)).thenReturn(List.of(first, second, third));
+
+        // When
+        Map<UUID, BigDecimal> withdrawals = treasuryShardService.withdrawAcrossShards(treasuryId, PAYOUT);
+
+        // Then
+        assertEquals(new BigDecimal("60.00"), withdrawals.get(first.getId()));
+        assertEquals(new BigDecimal("25.00"), withdrawals.get(second.getId()));
+        assertEquals(new BigDecimal("15.00"), withdrawals.get(third.getId()));
+        assertEquals(0, first.getBalance().signum());
+        assertEquals(new BigDecimal("15.00"), third.getBalance());
+    }
+
+
+    // withdrawAcrossShards()  -  TreasuryShardService
+    // Общият баланс е по-малък от сумата  ->  празен Map, нищо не е променено
+    @Test
+    void givenInsufficientTotalBalance_whenWithdraw_thenNothingIsWithdrawn() {
+        // Given
+        UUID treasuryId = UUID.randomUUID();
+        TreasuryShard first = aShard(treasuryId, 0, "40.00");
+        TreasuryShard second = aShard(treasuryId, 1, "50.00");
+        when(treasuryShardRepository.findAllByTreasuryIdForUpdate(treasuryId)).thenReturn(List.of(first, second));
+
+        // When
+        Map<UUID, BigDecimal> withdrawals = treasuryShardService.withdrawAcrossShards(treasuryId, PAYOUT);
+
+        // Then
+        assertTrue(withdrawals.isEmpty());
+        assertEquals(new BigDecimal("40.00"), first.getBalance());
+        assertEquals(new BigDecimal("50.00"), second.getBalance());
+    }
+
+
+    private static TreasuryShard aShard(UUID treasuryId, int index, String balance) {
+        return TreasuryShard.builder()
+                .id(UUID.randomUUID())
+                .treasuryId(treasuryId)
+                .shardIndex(index)
+                .balance(new BigDecimal(balance))
+                .updatedOn(LocalDateTime.now())
+                .build();
+    }
+}
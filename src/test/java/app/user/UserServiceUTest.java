@@ -14,6 +14,7 @@ import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.*;
 import org.mockito.*;
 import org.mockito.junit.jupiter.*;
+import org.springframework.data.domain.*;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.security.crypto.password.*;
 
@@ -668,6 +669,38 @@ public class UserServiceUTest {
     }
 
 
+    // getCurrentUserView()  -  UserService
+    // Проекцията съществува  ->  Връща се CurrentUserView, без да се зарежда User entity
+    @Test
+    void givenExistingUserId_whenGetCurrentUserView_thenReturnProjectionWithoutLoadingEntity() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        CurrentUserView view = new CurrentUserView(userId, "user123", UserRole.USER, true, LocalDateTime.now());
+
+        when(userRepository.findCurrentUserViewById(userId)).thenReturn(Optional.of(view));
+
+        // When
+        CurrentUserView result = userService.getCurrentUserView(userId);
+
+        // Then
+        assertSame(view, result);
+        verify(userRepository, never()).findById(any());
+    }
+
+
+    // getCurrentUserView()  -  UserService
+    // User не съществува  ->  Хвърля DomainException
+    @Test
+    void givenNonExistingUserId_whenGetCurrentUserView_thenThrowsDomainException() {
+        // Given
+        UUID userId = UUID.randomUUID();
+        when(userRepository.findCurrentUserViewById(userId)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(DomainException.class, () -> userService.getCurrentUserView(userId));
+    }
+
+
     // saveUser()  -  UserService
     // Подаден валиден потребител -> Методът връща същия резултат, който save() връща
     // Проверка дали userRepository.save() се извиква точно веднъж
@@ -699,135 +732,95 @@ public class UserServiceUTest {
 
 
     // SCHEDULER  -  UserService
-    // getInactiveUsersByLastActivity()
-    // Има активни и неактивни потребители – филтрират се правилно
+    // deactivateInactiveUsers()
+    // Повече неактивни от един chunk  ->  keyset продължава след последното id, всеки chunk е един bulk UPDATE
     @Test
-    void givenUsersWithDifferentActivity_whenGetInactiveUsers_thenReturnFilteredList() {
+    void givenMoreInactiveUsersThanChunkSize_whenDeactivateInactiveUsers_thenChunksAreUpdatedByKeyset() {
         // Given
-        LocalDateTime now = LocalDateTime.now();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
 
-        User activeOldUser = User.builder()
-                .id(UUID.randomUUID())
-                .isActive(true)
-                .updatedOn(now.minusDays(10))
-                .build();
-
-        User activeRecentUser = User.builder()
-                .id(UUID.randomUUID())
-                .isActive(true)
-                .updatedOn(now.minusDays(1))
-                .build();
-
-        User inactiveUser = User.builder()
-                .id(UUID.randomUUID())
-                .isActive(false)
-                .updatedOn(now.minusDays(20))
-                .build();
-
-        List<User> allUsers = List.of(activeOldUser, activeRecentUser, inactiveUser);
-
-        when(userRepository.findAll()).thenReturn(allUsers);
+        when(userRepository.findInactiveUserIdsFirstChunk(any(LocalDateTime.class), eq(Limit.of(2)))).thenReturn(List.of(first, second));
+        when(userRepository.findInactiveUserIdsAfter(any(LocalDateTime.class), eq(second), eq(Limit.of(2)))).thenReturn(List.of(third));
+        when(userRepository.deactivateInactiveByIds(eq(List.of(first, second)), any(LocalDateTime.class))).thenReturn(2);
+        when(userRepository.deactivateInactiveByIds(eq(List.of(third)), any(LocalDateTime.class))).thenReturn(1);
 
         // When
-        List<User> result = userService.getInactiveUsersByLastActivity(7);
+        DeactivationReport report = userService.deactivateInactiveUsers(60, 2);
 
         // Then
-        assertEquals(1, result.size());
-        assertTrue(result.contains(activeOldUser));
-        assertFalse(result.contains(activeRecentUser));
-        assertFalse(result.contains(inactiveUser));
-    }
-
-
-    // SCHEDULER  -  UserService
-    // getInactiveUsersByLastActivity()
-    // Няма потребители в db
-    @Test
-    void givenNoUsersInRepository_whenGetInactiveUsers_thenReturnEmptyList() {
-        when(userRepository.findAll()).thenReturn(Collections.emptyList());
-
-        List<User> result = userService.getInactiveUsersByLastActivity(7);
-
-        assertTrue(result.isEmpty());
-        verify(userRepository, times(1)).findAll();
-    }
-
-
-    // SCHEDULER  -  UserService
-    // getInactiveUsersByLastActivity()
-    // Всички потребители са активни, но са скоро обновени – не се връщат
-    @Test
-    void givenAllUsersRecentlyActive_whenGetInactiveUsers_thenReturnEmptyList() {
-        LocalDateTime now = LocalDateTime.now();
-
-        List<User> users = List.of(
-                User.builder().isActive(true).updatedOn(now.minusDays(1)).build(),
-                User.builder().isActive(true).updatedOn(now).build()
-        );
-
-        when(userRepository.findAll()).thenReturn(users);
-
-        List<User> result = userService.getInactiveUsersByLastActivity(5);
-
-        assertTrue(result.isEmpty());
+        assertEquals(3, report.getScannedCount());
+        assertEquals(3, report.getDeactivatedCount());
+        assertEquals(2, report.getChunks());
+        assertNotNull(report.getDuration());
+        verify(userRepository, never()).findAll();
+        verify(userRepository, never()).saveAll(any());
     }
 
 
     // SCHEDULER  -  UserService
-    // deactivateUsers()
-    // Подаваме списък с активни потребители  =>   всички стават неактивни и се записват
+    // deactivateInactiveUsers()
+    // cutoff = сега - inactiveDays;  същият cutoff се ползва и в SELECT-а, и в UPDATE-а
     @Test
-    void givenActiveUsers_whenDeactivateUsers_thenAllBecomeInactiveAndSaved() {
+    void givenInactiveDays_whenDeactivateInactiveUsers_thenCutoffIsAppliedToSelectAndUpdate() {
         // Given
-        User user1 = User.builder().id(UUID.randomUUID()).isActive(true).build();
-        User user2 = User.builder().id(UUID.randomUUID()).isActive(true).build();
-        List<User> users = List.of(user1, user2);
+        UUID userId = UUID.randomUUID();
+        when(userRepository.findInactiveUserIdsFirstChunk(any(LocalDateTime.class), any(Limit.class))).thenReturn(List.of(userId));
+        when(userRepository.deactivateInactiveByIds(any(), any(LocalDateTime.class))).thenReturn(0);
 
         // When
-        userService.deactivateUsers(users);
+        DeactivationReport report = userService.deactivateInactiveUsers(7, 100);
 
         // Then
-        assertFalse(user1.isActive());
-        assertFalse(user2.isActive());
+        ArgumentCaptor<LocalDateTime> selectCutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> updateCutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(userRepository).findInactiveUserIdsFirstChunk(selectCutoff.capture(), eq(Limit.of(100)));
+        verify(userRepository).deactivateInactiveByIds(eq(List.of(userId)), updateCutoff.capture());
 
-        verify(userRepository, times(1)).saveAll(users);
+        assertEquals(selectCutoff.getValue(), updateCutoff.getValue());
+        assertTrue(selectCutoff.getValue().isBefore(LocalDateTime.now().minusDays(7).plusMinutes(1)));
+
+        // потребителят е влязъл между SELECT-а и UPDATE-а  ->  не е деактивиран
+        assertEquals(1, report.getScannedCount());
+        assertEquals(0, report.getDeactivatedCount());
+        verify(userRepository, never()).findInactiveUserIdsAfter(any(), any(), any());
     }
 
 
     // SCHEDULER  -  UserService
-    // deactivateUsers()
-    // Подаваме празен списък =>   saveAll() пак се вика, но с празно
+    // deactivateInactiveUsers()
+    // Няма неактивни потребители  ->  няма UPDATE
     @Test
-    void givenEmptyUserList_whenDeactivateUsers_thenSaveAllCalledWithEmptyList() {
+    void givenNoInactiveUsers_whenDeactivateInactiveUsers_thenNothingIsUpdated() {
         // Given
-        List<User> emptyList = Collections.emptyList();
+        when(userRepository.findInactiveUserIdsFirstChunk(any(LocalDateTime.class), any(Limit.class))).thenReturn(Collections.emptyList());
 
         // When
-        userService.deactivateUsers(emptyList);
+        DeactivationReport report = userService.deactivateInactiveUsers(60, 1000);
 
         // Then
-        verify(userRepository, times(1)).saveAll(emptyList);
+        assertEquals(0, report.getScannedCount());
+        assertEquals(0, report.getDeactivatedCount());
+        assertEquals(0, report.getChunks());
+        verify(userRepository, never()).deactivateInactiveByIds(any(), any());
     }
 
     // SCHEDULER  -  UserService
     // countActiveUsers()
-    // Комбинация от активни и неактивни потребители ->	Връща правилния брой активни
+    // Комбинация от активни и неактивни потребители ->	Връща броя активни, преброен от базата (без findAll())
     @Test
     void givenUsersWithMixedStatus_whenCountActiveUsers_thenReturnCorrectCount() {
         // Given
-        List<User> users = List.of(
-                User.builder().isActive(true).build(),
-                User.builder().isActive(false).build(),
-                User.builder().isActive(true).build()
-        );
-        when(userRepository.findAll()).thenReturn(users);
+        when(userRepository.countByIsActive(true)).thenReturn(2L);
 
         // When
         long result = userService.countActiveUsers();
 
         // Then
         assertEquals(2, result);
-        verify(userRepository, times(1)).findAll();
+        verify(userRepository, times(1)).countByIsActive(true);
+        verify(userRepository, never()).findAll();
     }
 
     // SCHEDULER  -  UserService
@@ -835,11 +828,7 @@ public class UserServiceUTest {
     // Всички потребители са неактивни
     @Test
     void givenAllUsersInactive_whenCountActiveUsers_thenReturnZero() {
-        List<User> users = List.of(
-                User.builder().isActive(false).build(),
-                User.builder().isActive(false).build()
-        );
-        when(userRepository.findAll()).thenReturn(users);
+        when(userRepository.countByIsActive(true)).thenReturn(0L);
 
         long result = userService.countActiveUsers();
 
@@ -849,10 +838,10 @@ public class UserServiceUTest {
 
     // SCHEDULER  -  UserService
     // countActiveUsers()
-    // Списъкът от базата е празен
+    // Няма потребители в базата
     @Test
     void givenNoUsersInRepository_whenCountActiveUsers_thenReturnZero() {
-        when(userRepository.findAll()).thenReturn(Collections.emptyList());
+        when(userRepository.countByIsActive(true)).thenReturn(0L);
 
         long result = userService.countActiveUsers();
 
@@ -866,19 +855,15 @@ public class UserServiceUTest {
     @Test
     void givenUsersWithMixedStatus_whenCountInactiveUsers_thenReturnCorrectCount() {
         // Given
-        List<User> users = List.of(
-                User.builder().isActive(true).build(),
-                User.builder().isActive(false).build(),
-                User.builder().isActive(false).build()
-        );
-        when(userRepository.findAll()).thenReturn(users);
+        when(userRepository.countByIsActive(false)).thenReturn(2L);
 
         // When
         long result = userService.countInactiveUsers();
 
         // Then
         assertEquals(2, result);
-        verify(userRepository, times(1)).findAll();
+        verify(userRepository, times(1)).countByIsActive(false);
+        verify(userRepository, never()).findAll();
     }
 
     // SCHEDULER  -  UserService
@@ -887,11 +872,7 @@ public class UserServiceUTest {
     @Test
     void givenAllUsersActive_whenCountInactiveUsers_thenReturnZero() {
         // Given
-        List<User> users = List.of(
-                User.builder().isActive(true).build(),
-                User.builder().isActive(true).build()
-        );
-        when(userRepository.findAll()).thenReturn(users);
+        when(userRepository.countByIsActive(false)).thenReturn(0L);
 
         // When
         long result = userService.countInactiveUsers();
@@ -907,7 +888,7 @@ public class UserServiceUTest {
     @Test
     void givenNoUsersInRepository_whenCountInactiveUsers_thenReturnZero() {
         // Given
-        when(userRepository.findAll()).thenReturn(Collections.emptyList());
+        when(userRepository.countByIsActive(false)).thenReturn(0L);
 
         // When
         long result = userService.countInactiveUsers();
@@ -917,4 +898,73 @@ public class UserServiceUTest {
     }
 
 
+    // getUserStats()  -  UserService
+    // GROUP BY редовете се сглобяват в броячи по статус, роля и държава
+    @Test
+    void givenGroupedCounts_whenGetUserStats_thenTotalsByStatusRoleAndCountryAreAggregated() {
+        // Given
+        when(userRepository.countGroupedByStatusRoleAndCountry()).thenReturn(List.of(
+                new UserCountRow(true, UserRole.USER, Country.BULGARIA, 5L),
+                new UserCountRow(true, UserRole.ADMIN, Country.BULGARIA, 1L),
+                new UserCountRow(false, UserRole.USER, Country.GERMANY, 3L),
+                new UserCountRow(true, UserRole.USER, Country.GERMANY, 7L)
+        ));
+
+        // When
+        UserStats stats = userService.getUserStats();
+
+        // Then
+        assertEquals(16, stats.getTotalCount());
+        assertEquals(13, stats.getActiveCount());
+        assertEquals(3, stats.getInactiveCount());
+        assertEquals(15L, stats.getCountByRole().get(UserRole.USER));
+        assertEquals(1L, stats.getCountByRole().get(UserRole.ADMIN));
+        assertEquals(List.of(Country.GERMANY, Country.BULGARIA), new ArrayList<>(stats.getCountByCountry().keySet()));
+        assertEquals(10L, stats.getCountByCountry().get(Country.GERMANY));
+        verify(userRepository, never()).findAll();
+    }
+
+
+    // getUsersPage()  -  UserService
+    // Филтрите се подават на заявката, username става escape-нат prefix, size се ограничава
+    @Test
+    void givenFilterAndOversizedPage_whenGetUsersPage_thenRepositoryIsQueriedWithPrefixAndClampedPageable() {
+        // Given
+        UserFilter filter = UserFilter.builder().active(true).role(UserRole.USER).country(Country.BULGARIA).username(" lub_1 ").build();
+        when(userRepository.findUserListPage(any(), any(), any(), any(), any())).thenReturn(Page.empty());
+
+        // When
+        userService.getUsersPage(filter, 2, 10_000, "username", Sort.Direction.ASC);
+
+        // Then
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(userRepository).findUserListPage(eq(true), eq(UserRole.USER), eq(Country.BULGARIA), eq("lub!_1%"), pageable.capture());
+
+        assertEquals(2, pageable.getValue().getPageNumber());
+        assertEquals(UserService.MAX_USERS_PAGE_SIZE, pageable.getValue().getPageSize());
+        assertEquals(Sort.Direction.ASC, pageable.getValue().getSort().getOrderFor("username").getDirection());
+        assertNotNull(pageable.getValue().getSort().getOrderFor("id"));
+    }
+
+
+    // getUsersPage()  -  UserService
+    // Непозволена колона за сортиране  ->  createdOn;  празен username  ->  без филтър
+    @Test
+    void givenUnknownSortProperty_whenGetUsersPage_thenDefaultSortIsUsed() {
+        // Given
+        when(userRepository.findUserListPage(any(), any(), any(), any(), any())).thenReturn(Page.empty());
+
+        // When
+        userService.getUsersPage(UserFilter.builder().username("  ").build(), -1, 25, "password", Sort.Direction.DESC);
+
+        // Then
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(userRepository).findUserListPage(isNull(), isNull(), isNull(), isNull(), pageable.capture());
+
+        assertEquals(0, pageable.getValue().getPageNumber());
+        assertNull(pageable.getValue().getSort().getOrderFor("password"));
+        assertEquals(Sort.Direction.DESC, pageable.getValue().getSort().getOrderFor("createdOn").getDirection());
+    }
+
+
 }
\ No newline at end of file
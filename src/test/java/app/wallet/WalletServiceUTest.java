@@ -7,6 +7,7 @@ import app.user.model.*;
 import app.wallet.model.*;
 import app.wallet.repository.*;
 import app.wallet.service.*;
+import io.micrometer.core.instrument.simple.*;
 import org.junit.jupiter.api.extension.*;
 import org.mockito.*;
 import org.mockito.junit.jupiter.*;
@@ -24,6 +25,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Currency;
 import java.util.UUID;
 
@@ -41,6 +43,8 @@ public class WalletServiceUTest {
     private WalletRepository walletRepository;
     @Mock
     private TransactionService transactionService;
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
 
     @InjectMocks
@@ -106,15 +110,17 @@ public class WalletServiceUTest {
                 .owner(User.builder().id(UUID.randomUUID()).build())
                 .build();
 
-        Transaction mockTransaction = new Transaction(); // or build a mock
+        Transaction mockTransaction = Transaction.builder().status(TransactionStatus.APPROVED).build();
 
         when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
+        when(walletRepository.deposit(eq(walletId), eq(amountToAdd), eq(WalletStatus.ACTIVE), any(LocalDateTime.class))).thenReturn(1);
+        when(walletRepository.findBalanceById(walletId)).thenReturn(new BigDecimal("150.00"));
         when(transactionService.createNewTransaction(
                 eq(wallet.getOwner()),
                 eq("Jubbisoft Ltd."),
                 eq(walletId.toString()),
                 eq(amountToAdd),
-                any(BigDecimal.class),
+                eq(new BigDecimal("150.00")),
                 eq(wallet.getCurrency()),
                 eq(TransactionType.DEPOSIT),
                 eq(TransactionStatus.APPROVED),
@@ -127,8 +133,9 @@ public class WalletServiceUTest {
 
         // Then
         assertEquals(mockTransaction, result);
-        assertEquals(new BigDecimal("150.00"), wallet.getBalance()); // balance is updated
-        verify(walletRepository, times(1)).save(wallet);
+        // balance се променя с atomic UPDATE, а не с read-modify-write върху entity-то
+        verify(walletRepository, times(1)).deposit(eq(walletId), eq(amountToAdd), eq(WalletStatus.ACTIVE), any(LocalDateTime.class));
+        verify(walletRepository, never()).save(any());
     }
 
 
@@ -149,7 +156,7 @@ public class WalletServiceUTest {
                 .owner(User.builder().id(UUID.randomUUID()).build())
                 .build();
 
-        Transaction failedTransaction = new Transaction(); // or build a mock
+        Transaction failedTransaction = Transaction.builder().status(TransactionStatus.FAILED).build();
 
         when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
         when(transactionService.createNewTransaction(
@@ -185,6 +192,7 @@ public class WalletServiceUTest {
 
         // When & Then
         assertThrows(DomainException.class, () -> walletService.addFunds(walletId, BigDecimal.TEN));
+        assertEquals(1, meterRegistry.get("wallet.add.funds").tag("status", "error").timer().count());
         verify(walletRepository, never()).save(any());
         verify(transactionService, never()).createNewTransaction(any(), any(), any(), any(), any(), any(), any(), any(), any(), any());
     }
@@ -208,9 +216,11 @@ public class WalletServiceUTest {
                 .owner(user)
                 .build();
 
-        Transaction approvedTransaction = new Transaction();
+        Transaction approvedTransaction = Transaction.builder().status(TransactionStatus.APPROVED).build();
 
         when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
+        when(walletRepository.withdrawIfSufficientBalance(eq(walletId), eq(amountToCharge), eq(WalletStatus.ACTIVE), any(LocalDateTime.class))).thenReturn(1);
+        when(walletRepository.findBalanceById(walletId)).thenReturn(new BigDecimal("50.00"));
         when(transactionService.createNewTransaction(
                 eq(user),
                 eq(walletId.toString()),
@@ -229,8 +239,54 @@ public class WalletServiceUTest {
 
         // Then
         assertEquals(approvedTransaction, result);
-        assertEquals(new BigDecimal("50.00"), wallet.getBalance());
-        verify(walletRepository, times(1)).save(wallet);
+        assertEquals(1, meterRegistry.get("wallet.charge").tag("status", "approved").timer().count());
+        verify(walletRepository, times(1)).withdrawIfSufficientBalance(eq(walletId), eq(amountToCharge), eq(WalletStatus.ACTIVE), any(LocalDateTime.class));
+        verify(walletRepository, never()).save(any());
+    }
+
+
+    // charge()  -  WalletService
+    // Прочетеният баланс стига, но паралелна покупка го е изхарчила  ->  UPDATE засяга 0 реда  ->  FAILED
+    @Test
+    void givenBalanceSpentConcurrently_whenCharge_thenTransactionFailsWithCurrentBalance() {
+        // Given
+        UUID walletId = UUID.randomUUID();
+        BigDecimal amountToCharge = new BigDecimal("80.00");
+
+        User user = User.builder().id(UUID.randomUUID()).username("Lub123").build();
+
+        Wallet wallet = Wallet.builder()
+                .id(walletId)
+                .status(WalletStatus.ACTIVE)
+                .balance(new BigDecimal("100.00"))
+                .currency(Currency.getInstance("EUR"))
+                .owner(user)
+                .build();
+
+        Transaction failedTransaction = Transaction.builder().status(TransactionStatus.FAILED).build();
+
+        when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
+        when(walletRepository.withdrawIfSufficientBalance(eq(walletId), eq(amountToCharge), eq(WalletStatus.ACTIVE), any(LocalDateTime.class))).thenReturn(0);
+        when(walletRepository.findBalanceById(walletId)).thenReturn(new BigDecimal("20.00"));
+        when(transactionService.createNewTransaction(
+                eq(user),
+                eq(walletId.toString()),
+                eq("Jubbisoft Ltd."),
+                eq(amountToCharge),
+                eq(new BigDecimal("20.00")),
+                eq(wallet.getCurrency()),
+                eq(TransactionType.WITHDRAWAL),
+                eq(TransactionStatus.FAILED),
+                anyString(),
+                eq("Not enough balance to purchase this game!")
+        )).thenReturn(failedTransaction);
+
+        // When
+        Transaction result = walletService.charge(user, walletId, amountToCharge, "Buy game");
+
+        // Then
+        assertEquals(failedTransaction, result);
+        verify(walletRepository, never()).save(any());
     }
 
 
@@ -253,7 +309,7 @@ public class WalletServiceUTest {
                 .owner(user)
                 .build();
 
-        Transaction failedTransaction = new Transaction();
+        Transaction failedTransaction = Transaction.builder().status(TransactionStatus.FAILED).build();
 
         when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
         when(transactionService.createNewTransaction(
@@ -297,7 +353,7 @@ public class WalletServiceUTest {
                 .owner(user)
                 .build();
 
-        Transaction failedTransaction = new Transaction();
+        Transaction failedTransaction = Transaction.builder().status(TransactionStatus.FAILED).build();
 
         when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
         when(transactionService.createNewTransaction(
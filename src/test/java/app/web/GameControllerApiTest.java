@@ -3,9 +3,11 @@ package app.web;
 import app.*;
 import app.game.model.*;
 import app.game.service.*;
+import app.idempotency.service.*;
 import app.notice.service.*;
 import app.security.*;
 import app.shared.exception.*;
+import app.shared.pagination.*;
 import app.transaction.model.*;
 import app.user.model.*;
 import app.user.service.*;
@@ -46,6 +48,10 @@ public class GameControllerApiTest {
     private GameService gameService;
     @MockitoBean
     private NoticeService noticeService;
+    @MockitoBean
+    private GameSearchService gameSearchService;
+    @MockitoBean
+    private IdempotencyService idempotencyService;
 
     @Autowired
     private MockMvc mockMvc;
@@ -54,20 +60,77 @@ public class GameControllerApiTest {
     // getAllPublicGames
     @Test
     void getAllPublicGames_shouldReturnPublicGamesView() throws Exception {
-        List<Game> games = List.of(
-                TestBuilder.aRandomGame(),
-                TestBuilder.aRandomGame()
+        List<GameCardView> games = List.of(
+                TestBuilder.aRandomGameCardView(),
+                TestBuilder.aRandomGameCardView()
         );
 
-        when(gameService.getAllAvailableGames()).thenReturn(games);
+        when(gameService.getAvailableGamesPage(null, GameService.DEFAULT_CATALOG_PAGE_SIZE)).thenReturn(new KeysetPage<>(games, null));
 
         mockMvc.perform(get("/games/explore"))
                 .andExpect(status().isOk())
                 .andExpect(view().name("games-public"))
                 .andExpect(model().attributeExists("allAvailablePublicGames"))
+                .andExpect(model().attribute("nextCursor", nullValue()))
                 .andExpect(model().attribute("user", nullValue()));
 
-        verify(gameService).getAllAvailableGames();
+        verify(gameService).getAvailableGamesPage(null, GameService.DEFAULT_CATALOG_PAGE_SIZE);
+    }
+
+
+    // getAllPublicGames
+    // Cursor-ът се подава към keyset страницата и следващият курсор влиза в модела
+    @Test
+    void getAllPublicGames_withCursor_shouldRequestNextKeysetPage() throws Exception {
+        List<GameCardView> games = List.of(TestBuilder.aRandomGameCardView());
+
+        when(gameService.getAvailableGamesPage("abc", GameService.DEFAULT_CATALOG_PAGE_SIZE)).thenReturn(new KeysetPage<>(games, "next"));
+
+        mockMvc.perform(get("/games/explore").param("cursor", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("games-public"))
+                .andExpect(model().attribute("allAvailablePublicGames", games))
+                .andExpect(model().attribute("nextCursor", "next"));
+
+        verify(gameService).getAvailableGamesPage("abc", GameService.DEFAULT_CATALOG_PAGE_SIZE);
+    }
+
+
+    // getPublicGamesPage
+    // Infinite scroll - връща само фрагмента с картите, без login
+    @Test
+    void getPublicGamesPage_shouldReturnGameCardsFragment() throws Exception {
+        List<GameCardView> games = List.of(TestBuilder.aRandomGameCardView());
+
+        when(gameService.getAvailableGamesPage("abc", GameService.DEFAULT_CATALOG_PAGE_SIZE)).thenReturn(new KeysetPage<>(games, null));
+
+        mockMvc.perform(get("/games/explore/page").param("cursor", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("games-public :: gameCards"))
+                .andExpect(model().attribute("allAvailablePublicGames", games))
+                .andExpect(model().attribute("nextCursor", nullValue()));
+
+        verify(gameService).getAvailableGamesPage("abc", GameService.DEFAULT_CATALOG_PAGE_SIZE);
+        verifyNoInteractions(userService);
+    }
+
+
+    // searchGames
+    // Търсенето е публично, genre / price се подават като enum филтри
+    @Test
+    void searchGames_shouldReturnSearchViewWithResult() throws Exception {
+        GameSearchResult result = new GameSearchResult("space", Genre.ACTION, PriceBucket.UNDER_10,
+                List.of(TestBuilder.aRandomGameCardView()), 1, Map.of(Genre.ACTION, 1L), Map.of(PriceBucket.UNDER_10, 1L));
+
+        when(gameSearchService.search("space", Genre.ACTION, PriceBucket.UNDER_10)).thenReturn(result);
+
+        mockMvc.perform(get("/games/search").param("q", "space").param("genre", "ACTION").param("price", "UNDER_10"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("games-search"))
+                .andExpect(model().attribute("searchResult", result))
+                .andExpect(model().attribute("user", nullValue()));
+
+        verify(gameSearchService).search("space", Genre.ACTION, PriceBucket.UNDER_10);
     }
 
 
@@ -76,10 +139,10 @@ public class GameControllerApiTest {
     void getAllPublicGames_withLoggedUser_shouldIncludeUserInModel() throws Exception {
         User user = TestBuilder.aRandomUser();
         UUID userId = user.getId();
-        List<Game> games = List.of(TestBuilder.aRandomGame());
+        List<GameCardView> games = List.of(TestBuilder.aRandomGameCardView());
 
-        when(userService.getById(userId)).thenReturn(user);
-        when(gameService.getAllAvailableGames()).thenReturn(games);
+        when(userService.getCurrentUserView(userId)).thenReturn(TestBuilder.aCurrentUserView(user));
+        when(gameService.getAvailableGamesPage(null, GameService.DEFAULT_CATALOG_PAGE_SIZE)).thenReturn(new KeysetPage<>(games, null));
 
         AuthenticationMetadata principal = new AuthenticationMetadata(userId, user.getUsername(), user.getPassword(), UserRole.USER, true);
 
@@ -87,10 +150,10 @@ public class GameControllerApiTest {
                 .andExpect(status().isOk())
                 .andExpect(view().name("games-public"))
                 .andExpect(model().attributeExists("allAvailablePublicGames", "user"))
-                .andExpect(model().attribute("user", user));
+                .andExpect(model().attribute("user", TestBuilder.aCurrentUserView(user)));
 
-        verify(gameService).getAllAvailableGames();
-        verify(userService).getById(userId);
+        verify(gameService).getAvailableGamesPage(null, GameService.DEFAULT_CATALOG_PAGE_SIZE);
+        verify(userService).getCurrentUserView(userId);
     }
 
 
@@ -100,7 +163,7 @@ public class GameControllerApiTest {
         User admin = TestBuilder.aRandomAdmin();
         admin.setId(UUID.randomUUID());
 
-        when(userService.getById(admin.getId())).thenReturn(admin);
+        when(userService.getCurrentUserView(admin.getId())).thenReturn(TestBuilder.aCurrentUserView(admin));
 
         AuthenticationMetadata principal = new AuthenticationMetadata(
                 admin.getId(), admin.getUsername(), admin.getPassword(), UserRole.ADMIN, true
@@ -111,7 +174,7 @@ public class GameControllerApiTest {
                 .andExpect(view().name("add-game"))
                 .andExpect(model().attributeExists("user", "createGameRequest"));
 
-        verify(userService).getById(admin.getId());
+        verify(userService).getCurrentUserView(admin.getId());
     }
 
 
@@ -190,8 +253,8 @@ public class GameControllerApiTest {
 
         Game game = TestBuilder.aTestGame(admin);
 
-        when(userService.getById(admin.getId())).thenReturn(admin);
-        when(gameService.getGameById(game.getId())).thenReturn(game);
+        when(userService.getCurrentUserView(admin.getId())).thenReturn(TestBuilder.aCurrentUserView(admin));
+        when(gameService.getGameDetails(game.getId())).thenReturn(GameDetailsView.of(game));
 
         AuthenticationMetadata principal = new AuthenticationMetadata(
                 admin.getId(), admin.getUsername(), admin.getPassword(), UserRole.ADMIN, true
@@ -219,8 +282,8 @@ public class GameControllerApiTest {
 
         Game game = TestBuilder.aTestGame(owner);
 
-        when(userService.getById(anotherAdmin.getId())).thenReturn(anotherAdmin);
-        when(gameService.getGameById(game.getId())).thenReturn(game);
+        when(userService.getCurrentUserView(anotherAdmin.getId())).thenReturn(TestBuilder.aCurrentUserView(anotherAdmin));
+        when(gameService.getGameDetails(game.getId())).thenReturn(GameDetailsView.of(game));
 
         AuthenticationMetadata principal = new AuthenticationMetadata(
                 anotherAdmin.getId(), anotherAdmin.getUsername(), anotherAdmin.getPassword(), UserRole.ADMIN, true
@@ -252,15 +315,15 @@ public class GameControllerApiTest {
     void viewGame_asGuest_shouldReturnGameViewWithoutUser() throws Exception {
         Game game = TestBuilder.aTestGame(TestBuilder.aRandomAdmin());
 
-        when(gameService.getGameById(game.getId())).thenReturn(game);
+        when(gameService.getGameDetails(game.getId())).thenReturn(GameDetailsView.of(game));
 
         mockMvc.perform(get("/games/{gameId}/explore", game.getId()))
                 .andExpect(status().isOk())
                 .andExpect(view().name("game"))
-                .andExpect(model().attribute("game", game))
+                .andExpect(model().attribute("game", GameDetailsView.of(game)))
                 .andExpect(model().attribute("user", nullValue())); // Проверяваме, че user е null за гости
 
-        verify(gameService).getGameById(game.getId());
+        verify(gameService).getGameDetails(game.getId());
     }
 
 
@@ -271,8 +334,8 @@ public class GameControllerApiTest {
         User user = TestBuilder.aRandomUser();
         Game game = TestBuilder.aTestGame(user);
 
-        when(gameService.getGameById(game.getId())).thenReturn(game);
-        when(userService.getById(user.getId())).thenReturn(user);
+        when(gameService.getGameDetails(game.getId())).thenReturn(GameDetailsView.of(game));
+        when(userService.getCurrentUserView(user.getId())).thenReturn(TestBuilder.aCurrentUserView(user));
 
         AuthenticationMetadata principal = new AuthenticationMetadata(
                 user.getId(), user.getUsername(), user.getPassword(), UserRole.USER, true
@@ -281,11 +344,11 @@ public class GameControllerApiTest {
         mockMvc.perform(get("/games/{gameId}/explore", game.getId()).with(user(principal)))
                 .andExpect(status().isOk())
                 .andExpect(view().name("game"))
-                .andExpect(model().attribute("game", game))
-                .andExpect(model().attribute("user", user)); // Проверяваме, че user е в модела
+                .andExpect(model().attribute("game", GameDetailsView.of(game)))
+                .andExpect(model().attribute("user", TestBuilder.aCurrentUserView(user))); // Проверяваме, че user е в модела
 
-        verify(gameService).getGameById(game.getId());
-        verify(userService).getById(user.getId());
+        verify(gameService).getGameDetails(game.getId());
+        verify(userService).getCurrentUserView(user.getId());
     }
 
 
@@ -295,7 +358,7 @@ public class GameControllerApiTest {
         // Arrange
         UUID gameId = UUID.randomUUID();
 
-        when(gameService.getGameById(gameId)).thenThrow(new DomainException("Game not found"));
+        when(gameService.getGameDetails(gameId)).thenThrow(new DomainException("Game not found"));
 
         // Act & Assert
         mockMvc.perform(get("/games/{gameId}/explore", gameId))
@@ -304,7 +367,7 @@ public class GameControllerApiTest {
                 .andExpect(model().attribute("errorClass", "DomainException"))
                 .andExpect(model().attribute("errorLocalizedMessage", "Game not found"));
 
-        verify(gameService).getGameById(gameId);
+        verify(gameService).getGameDetails(gameId);
     }
 
 
@@ -317,8 +380,8 @@ public class GameControllerApiTest {
 
         Game game = TestBuilder.aTestGame(admin); // играта е негова
 
-        when(userService.getById(admin.getId())).thenReturn(admin);
-        when(gameService.getGameById(game.getId())).thenReturn(game);
+        when(userService.getCurrentUserView(admin.getId())).thenReturn(TestBuilder.aCurrentUserView(admin));
+        when(gameService.getGameDetails(game.getId())).thenReturn(GameDetailsView.of(game));
 
         AuthenticationMetadata principal = new AuthenticationMetadata(
                 admin.getId(), admin.getUsername(), admin.getPassword(), UserRole.ADMIN, true
@@ -347,8 +410,8 @@ public class GameControllerApiTest {
 
         Game game = TestBuilder.aTestGame(owner);
 
-        when(userService.getById(anotherAdmin.getId())).thenReturn(anotherAdmin);
-        when(gameService.getGameById(game.getId())).thenReturn(game);
+        when(userService.getCurrentUserView(anotherAdmin.getId())).thenReturn(TestBuilder.aCurrentUserView(anotherAdmin));
+        when(gameService.getGameDetails(game.getId())).thenReturn(GameDetailsView.of(game));
 
         AuthenticationMetadata principal = new AuthenticationMetadata(
                 anotherAdmin.getId(), anotherAdmin.getUsername(), anotherAdmin.getPassword(), UserRole.ADMIN, true
@@ -381,9 +444,9 @@ public class GameControllerApiTest {
         User admin = TestBuilder.aRandomAdmin();
         admin.setId(UUID.randomUUID());
 
-        List<Game> ownedGames = List.of(TestBuilder.aTestGame(admin));
+        List<GameCardView> ownedGames = List.of(TestBuilder.aGameCardView(TestBuilder.aTestGame(admin)));
 
-        when(userService.getById(admin.getId())).thenReturn(admin);
+        when(userService.getCurrentUserView(admin.getId())).thenReturn(TestBuilder.aCurrentUserView(admin));
         when(gameService.getAllGamesByPublisherId(admin.getId())).thenReturn(ownedGames);
 
         AuthenticationMetadata principal = new AuthenticationMetadata(
@@ -394,10 +457,10 @@ public class GameControllerApiTest {
         mockMvc.perform(get("/games/owned").with(user(principal)))
                 .andExpect(status().isOk())
                 .andExpect(view().name("owned-games"))
-                .andExpect(model().attribute("user", admin))
+                .andExpect(model().attribute("user", TestBuilder.aCurrentUserView(admin)))
                 .andExpect(model().attribute("ownedGames", ownedGames));
 
-        verify(userService).getById(admin.getId());
+        verify(userService).getCurrentUserView(admin.getId());
         verify(gameService).getAllGamesByPublisherId(admin.getId());
     }
 
@@ -419,8 +482,8 @@ public class GameControllerApiTest {
 
         Game game = TestBuilder.aTestGame(admin);
 
-        when(userService.getById(admin.getId())).thenReturn(admin);
-        when(gameService.getGameById(game.getId())).thenReturn(game);
+        when(userService.getCurrentUserView(admin.getId())).thenReturn(TestBuilder.aCurrentUserView(admin));
+        when(gameService.getGameDetails(game.getId())).thenReturn(GameDetailsView.of(game));
 
         AuthenticationMetadata principal = new AuthenticationMetadata(
                 admin.getId(), admin.getUsername(), admin.getPassword(), UserRole.ADMIN, true
@@ -429,11 +492,11 @@ public class GameControllerApiTest {
         mockMvc.perform(get("/games/{gameId}/owned", game.getId()).with(user(principal)))
                 .andExpect(status().isOk())
                 .andExpect(view().name("game-owned"))
-                .andExpect(model().attribute("user", admin))
-                .andExpect(model().attribute("game", game));
+                .andExpect(model().attribute("user", TestBuilder.aCurrentUserView(admin)))
+                .andExpect(model().attribute("game", GameDetailsView.of(game)));
 
-        verify(userService).getById(admin.getId());
-        verify(gameService).getGameById(game.getId());
+        verify(userService).getCurrentUserView(admin.getId());
+        verify(gameService).getGameDetails(game.getId());
     }
 
 
@@ -448,8 +511,8 @@ public class GameControllerApiTest {
 
         Game game = TestBuilder.aTestGame(owner);
 
-        when(userService.getById(anotherAdmin.getId())).thenReturn(anotherAdmin);
-        when(gameService.getGameById(game.getId())).thenReturn(game);
+        when(userService.getCurrentUserView(anotherAdmin.getId())).thenReturn(TestBuilder.aCurrentUserView(anotherAdmin));
+        when(gameService.getGameDetails(game.getId())).thenReturn(GameDetailsView.of(game));
 
         AuthenticationMetadata principal = new AuthenticationMetadata(
                 anotherAdmin.getId(), anotherAdmin.getUsername(), anotherAdmin.getPassword(), UserRole.ADMIN, true
@@ -459,8 +522,8 @@ public class GameControllerApiTest {
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/games/owned"));
 
-        verify(userService).getById(anotherAdmin.getId());
-        verify(gameService).getGameById(game.getId());
+        verify(userService).getCurrentUserView(anotherAdmin.getId());
+        verify(gameService).getGameDetails(game.getId());
     }
 
 
@@ -481,8 +544,8 @@ public class GameControllerApiTest {
 
         Game game = TestBuilder.aTestGame(admin);
 
-        when(userService.getById(admin.getId())).thenReturn(admin);
-        when(gameService.getGameById(game.getId())).thenReturn(game);
+        when(userService.getCurrentUserView(admin.getId())).thenReturn(TestBuilder.aCurrentUserView(admin));
+        when(gameService.getGameDetails(game.getId())).thenReturn(GameDetailsView.of(game));
 
         AuthenticationMetadata principal = new AuthenticationMetadata(
                 admin.getId(), admin.getUsername(), admin.getPassword(), UserRole.ADMIN, true
@@ -491,12 +554,12 @@ public class GameControllerApiTest {
         mockMvc.perform(get("/games/{gameId}/profile", game.getId()).with(user(principal)))
                 .andExpect(status().isOk())
                 .andExpect(view().name("game-profile"))
-                .andExpect(model().attribute("user", admin))
-                .andExpect(model().attribute("game", game))
+                .andExpect(model().attribute("user", TestBuilder.aCurrentUserView(admin)))
+                .andExpect(model().attribute("game", GameDetailsView.of(game)))
                 .andExpect(model().attributeExists("gameEditRequest"));
 
-        verify(userService).getById(admin.getId());
-        verify(gameService).getGameById(game.getId());
+        verify(userService).getCurrentUserView(admin.getId());
+        verify(gameService).getGameDetails(game.getId());
     }
 
     // Не-собственик админ → AccessDeniedException → статус 404
@@ -510,8 +573,8 @@ public class GameControllerApiTest {
 
         Game game = TestBuilder.aTestGame(owner);
 
-        when(userService.getById(anotherAdmin.getId())).thenReturn(anotherAdmin);
-        when(gameService.getGameById(game.getId())).thenReturn(game);
+        when(userService.getCurrentUserView(anotherAdmin.getId())).thenReturn(TestBuilder.aCurrentUserView(anotherAdmin));
+        when(gameService.getGameDetails(game.getId())).thenReturn(GameDetailsView.of(game));
 
         AuthenticationMetadata principal = new AuthenticationMetadata(
                 anotherAdmin.getId(), anotherAdmin.getUsername(), anotherAdmin.getPassword(), UserRole.ADMIN, true
@@ -520,8 +583,8 @@ public class GameControllerApiTest {
         mockMvc.perform(get("/games/{gameId}/profile", game.getId()).with(user(principal)))
                 .andExpect(status().isNotFound());
 
-        verify(userService).getById(anotherAdmin.getId());
-        verify(gameService).getGameById(game.getId());
+        verify(userService).getCurrentUserView(anotherAdmin.getId());
+        verify(gameService).getGameDetails(game.getId());
     }
 
     // Без логин → redirect към login
@@ -542,8 +605,8 @@ public class GameControllerApiTest {
 
         Game game = TestBuilder.aTestGame(admin);
 
-        when(userService.getById(admin.getId())).thenReturn(admin);
-        when(gameService.getGameById(game.getId())).thenReturn(game);
+        when(userService.getCurrentUserView(admin.getId())).thenReturn(TestBuilder.aCurrentUserView(admin));
+        when(gameService.getGameDetails(game.getId())).thenReturn(GameDetailsView.of(game));
         when(gameService.isTitleInUseByAnotherGame(eq(game.getId()), any())).thenReturn(false);
 
         AuthenticationMetadata principal = new AuthenticationMetadata(
@@ -575,8 +638,8 @@ public class GameControllerApiTest {
 
         Game game = TestBuilder.aTestGame(admin);
 
-        when(userService.getById(admin.getId())).thenReturn(admin);
-        when(gameService.getGameById(game.getId())).thenReturn(game);
+        when(userService.getCurrentUserView(admin.getId())).thenReturn(TestBuilder.aCurrentUserView(admin));
+        when(gameService.getGameDetails(game.getId())).thenReturn(GameDetailsView.of(game));
 
         AuthenticationMetadata principal = new AuthenticationMetadata(
                 admin.getId(), admin.getUsername(), admin.getPassword(), UserRole.ADMIN, true
@@ -607,8 +670,8 @@ public class GameControllerApiTest {
 
         Game game = TestBuilder.aTestGame(admin);
 
-        when(userService.getById(admin.getId())).thenReturn(admin);
-        when(gameService.getGameById(game.getId())).thenReturn(game);
+        when(userService.getCurrentUserView(admin.getId())).thenReturn(TestBuilder.aCurrentUserView(admin));
+        when(gameService.getGameDetails(game.getId())).thenReturn(GameDetailsView.of(game));
         when(gameService.isTitleInUseByAnotherGame(eq(game.getId()), eq("Taken Title"))).thenReturn(true);
 
         AuthenticationMetadata principal = new AuthenticationMetadata(
@@ -642,8 +705,8 @@ public class GameControllerApiTest {
 
         Game game = TestBuilder.aTestGame(owner);
 
-        when(userService.getById(anotherAdmin.getId())).thenReturn(anotherAdmin);
-        when(gameService.getGameById(game.getId())).thenReturn(game);
+        when(userService.getCurrentUserView(anotherAdmin.getId())).thenReturn(TestBuilder.aCurrentUserView(anotherAdmin));
+        when(gameService.getGameDetails(game.getId())).thenReturn(GameDetailsView.of(game));
 
         AuthenticationMetadata principal = new AuthenticationMetadata(
                 anotherAdmin.getId(), anotherAdmin.getUsername(), anotherAdmin.getPassword(), UserRole.ADMIN, true
@@ -706,6 +769,62 @@ public class GameControllerApiTest {
         verify(gameService).purchaseGame(game, user);
     }
 
+
+    // buyGame  -  idempotency ключ от формата
+    @Test
+    void buyGame_withIdempotencyKeyParam_shouldPurchaseThroughIdempotencyService() throws Exception {
+        User user = TestBuilder.aRandomUser();
+        Game game = TestBuilder.aTestGame(TestBuilder.aRandomAdmin());
+        Transaction transaction = new Transaction();
+        transaction.setId(UUID.randomUUID());
+
+        when(userService.getById(user.getId())).thenReturn(user);
+        when(gameService.getGameById(game.getId())).thenReturn(game);
+        when(gameService.purchaseGame(game, user)).thenReturn(transaction);
+        when(idempotencyService.executeOnce(eq(user.getId()), eq("form-key-1"), eq("buy:" + game.getId()), any()))
+                .thenAnswer(invocation -> invocation.<java.util.function.Supplier<UUID>>getArgument(3).get());
+
+        AuthenticationMetadata principal = new AuthenticationMetadata(
+                user.getId(), user.getUsername(), user.getPassword(), UserRole.USER, true
+        );
+
+        mockMvc.perform(post("/games/{gameId}/buy", game.getId())
+                        .param("idempotencyKey", "form-key-1")
+                        .with(user(principal))
+                        .with(csrf()))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/transactions/" + transaction.getId()));
+
+        verify(gameService).purchaseGame(game, user);
+    }
+
+
+    // buyGame  -  дубликат с Idempotency-Key header  ->  replay, без нова покупка
+    @Test
+    void buyGame_withReplayedIdempotencyKeyHeader_shouldRedirectToOriginalTransactionWithoutPurchasing() throws Exception {
+        User user = TestBuilder.aRandomUser();
+        UUID gameId = UUID.randomUUID();
+        UUID originalTransactionId = UUID.randomUUID();
+
+        when(idempotencyService.executeOnce(eq(user.getId()), eq("header-key-1"), eq("buy:" + gameId), any()))
+                .thenReturn(originalTransactionId);
+
+        AuthenticationMetadata principal = new AuthenticationMetadata(
+                user.getId(), user.getUsername(), user.getPassword(), UserRole.USER, true
+        );
+
+        mockMvc.perform(post("/games/{gameId}/buy", gameId)
+                        .header("Idempotency-Key", "header-key-1")
+                        .param("idempotencyKey", "ignored-form-key")
+                        .with(user(principal))
+                        .with(csrf()))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/transactions/" + originalTransactionId));
+
+        verify(gameService, never()).purchaseGame(any(), any());
+        verify(userService, never()).getById(any());
+    }
+
     // POST /games/{gameId}/buy
     // Покупка без логнат потребител – очакваме redirect към /login
     @Test
@@ -748,13 +867,13 @@ public class GameControllerApiTest {
     @Test
     void getPurchasedGames_withLoggedUser_shouldReturnPurchasedGamesView() throws Exception {
         User user = TestBuilder.aRandomUser();
-        List<Game> purchasedGames = List.of(
-                TestBuilder.aTestGame(user),
-                TestBuilder.aTestGame(user)
+        List<GameCardView> purchasedGames = List.of(
+                TestBuilder.aGameCardView(TestBuilder.aTestGame(user)),
+                TestBuilder.aGameCardView(TestBuilder.aTestGame(user))
         );
 
-        when(userService.getById(user.getId())).thenReturn(user);
-        when(gameService.getMyPurchasedGames(user)).thenReturn(purchasedGames);
+        when(userService.getCurrentUserView(user.getId())).thenReturn(TestBuilder.aCurrentUserView(user));
+        when(gameService.getMyPurchasedGames(user.getId())).thenReturn(purchasedGames);
 
         AuthenticationMetadata principal = new AuthenticationMetadata(
                 user.getId(), user.getUsername(), user.getPassword(), UserRole.USER, true
@@ -763,11 +882,11 @@ public class GameControllerApiTest {
         mockMvc.perform(get("/games/purchased").with(user(principal)))
                 .andExpect(status().isOk())
                 .andExpect(view().name("purchased-games"))
-                .andExpect(model().attribute("user", user))
+                .andExpect(model().attribute("user", TestBuilder.aCurrentUserView(user)))
                 .andExpect(model().attribute("purchasedGames", purchasedGames));
 
-        verify(userService).getById(user.getId());
-        verify(gameService).getMyPurchasedGames(user);
+        verify(userService).getCurrentUserView(user.getId());
+        verify(gameService).getMyPurchasedGames(user.getId());
     }
 
     // GET /games/purchased
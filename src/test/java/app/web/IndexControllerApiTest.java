@@ -226,7 +226,7 @@ public class IndexControllerApiTest {
     void getRequestToAboutUs_shouldReturnAboutUsViewWithUserInModel() throws Exception {
         UUID userId = UUID.randomUUID();
         User user = aRandomUser();
-        when(userService.getById(userId)).thenReturn(user);
+        when(userService.getCurrentUserView(userId)).thenReturn(TestBuilder.aCurrentUserView(user));
 
         AuthenticationMetadata principal = new AuthenticationMetadata(
                 userId, user.getUsername(), user.getPassword(), user.getRole(), true);
@@ -237,13 +237,17 @@ public class IndexControllerApiTest {
                 .andExpect(status().isOk())
                 .andExpect(view().name("about-us"))
                 .andExpect(model().attributeExists("user"));
+
+        // статичната страница не зарежда целия User граф
+        verify(userService, times(1)).getCurrentUserView(userId);
+        verify(userService, never()).getById(any());
     }
 
     @Test
     void getRequestToTerms_shouldReturnTermsViewWithUserInModel() throws Exception {
         UUID userId = UUID.randomUUID();
         User user = aRandomUser();
-        when(userService.getById(userId)).thenReturn(user);
+        when(userService.getCurrentUserView(userId)).thenReturn(TestBuilder.aCurrentUserView(user));
 
         AuthenticationMetadata principal = new AuthenticationMetadata(
                 userId, user.getUsername(), user.getPassword(), user.getRole(), true);
@@ -260,7 +264,7 @@ public class IndexControllerApiTest {
     void getRequestToContact_shouldReturnContactViewWithUserInModel() throws Exception {
         UUID userId = UUID.randomUUID();
         User user = aRandomUser();
-        when(userService.getById(userId)).thenReturn(user);
+        when(userService.getCurrentUserView(userId)).thenReturn(TestBuilder.aCurrentUserView(user));
 
         AuthenticationMetadata principal = new AuthenticationMetadata(
                 userId, user.getUsername(), user.getPassword(), user.getRole(), true);
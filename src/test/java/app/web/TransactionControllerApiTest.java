@@ -0,0 +1,149 @@
+package app.web;
+
+import app.*;
+import app.security.*;
+import app.shared.pagination.*;
+import app.transaction.model.*;
+import app.transaction.service.*;
+import app.user.model.*;
+import app.user.service.*;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.boot.test.autoconfigure.web.servlet.*;
+import org.springframework.http.*;
+import org.springframework.test.context.bean.override.mockito.*;
+import org.springframework.test.web.servlet.*;
+
+import java.io.*;
+import java.math.*;
+import java.nio.charset.*;
+import java.time.*;
+import java.util.*;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+
+@WebMvcTest(TransactionController.class)
+public class TransactionControllerApiTest {
+
+    @MockitoBean
+    private TransactionService transactionService;
+    @MockitoBean
+    private TransactionExportService transactionExportService;
+    @MockitoBean
+    private UserService userService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+
+    // GET /transactions  -  първа страница от историята + курсор към по-старите
+    @Test
+    void getTransactions_shouldRenderFirstHistoryPageWithNextCursor() throws Exception {
+        // Given
+        User user = TestBuilder.aRandomUser();
+        AuthenticationMetadata principal = new AuthenticationMetadata(user.getId(), user.getUsername(), user.getPassword(), UserRole.USER, true);
+        TransactionRow row = new TransactionRow(UUID.randomUUID(), new BigDecimal("9.99"), Currency.getInstance("EUR"),
+                TransactionType.WITHDRAWAL, TransactionStatus.APPROVED, "Purchase of game", null, LocalDateTime.now());
+
+        when(userService.getCurrentUserView(user.getId())).thenReturn(TestBuilder.aCurrentUserView(user));
+        when(transactionService.getHistoryPage(user.getId(), null, TransactionService.DEFAULT_HISTORY_PAGE_SIZE))
+                .thenReturn(new KeysetPage<>(List.of(row), "next-token"));
+
+        // When & Then
+        mockMvc.perform(get("/transactions").with(user(principal)))
+                .andExpect(status().isOk())
+                .andExpect(view().name("transactions"))
+                .andExpect(model().attribute("transactions", List.of(row)))
+                .andExpect(model().attribute("nextCursor", "next-token"))
+                .andExpect(model().attribute("isFirstPage", true));
+    }
+
+
+    // GET /transactions?cursor=...  -  следваща (по-стара) страница
+    @Test
+    void getTransactionsWithCursor_shouldSeekAfterCursor() throws Exception {
+        // Given
+        User user = TestBuilder.aRandomUser();
+        AuthenticationMetadata principal = new AuthenticationMetadata(user.getId(), user.getUsername(), user.getPassword(), UserRole.USER, true);
+
+        when(userService.getCurrentUserView(user.getId())).thenReturn(TestBuilder.aCurrentUserView(user));
+        when(transactionService.getHistoryPage(eq(user.getId()), eq("abc"), anyInt())).thenReturn(new KeysetPage<>(List.of(), null));
+
+        // When & Then
+        mockMvc.perform(get("/transactions").param("cursor", "abc").with(user(principal)))
+                .andExpect(status().isOk())
+                .andExpect(view().name("transactions"))
+                .andExpect(model().attribute("isFirstPage", false));
+
+        verify(transactionService).getHistoryPage(user.getId(), "abc", TransactionService.DEFAULT_HISTORY_PAGE_SIZE);
+    }
+
+
+    // GET /transactions  -  без логнат потребител  ->  login
+    @Test
+    void getTransactionsUnauthenticated_shouldNotLoadHistory() throws Exception {
+        mockMvc.perform(get("/transactions"))
+                .andExpect(status().is3xxRedirection());
+
+        verify(transactionService, never()).getHistoryPage(any(), any(), anyInt());
+    }
+
+
+    // GET /transactions/export?format=CSV  -  async streaming, attachment с CSV
+    @Test
+    void exportTransactionsAsCsv_shouldStreamAttachment() throws Exception {
+        // Given
+        User user = TestBuilder.aRandomUser();
+        AuthenticationMetadata principal = new AuthenticationMetadata(user.getId(), user.getUsername(), user.getPassword(), UserRole.USER, true);
+
+        when(userService.getCurrentUserView(user.getId())).thenReturn(TestBuilder.aCurrentUserView(user));
+        when(transactionExportService.export(eq(user.getId()), eq(TransactionExportFormat.CSV), any())).thenAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(2);
+            out.write("id,created_on\n".getBytes(StandardCharsets.UTF_8));
+            return 0L;
+        });
+
+        // When
+        MvcResult result = mockMvc.perform(get("/transactions/export").param("format", "CSV").with(user(principal)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions-%s.csv\"".formatted(user.getUsername())))
+                .andExpect(content().string("id,created_on\n"));
+    }
+
+
+    // GET /transactions/export?format=NDJSON  -  без логнат потребител  ->  нищо не се експортира
+    @Test
+    void exportTransactionsUnauthenticated_shouldNotExport() throws Exception {
+        mockMvc.perform(get("/transactions/export").param("format", "NDJSON"))
+                .andExpect(status().is3xxRedirection());
+
+        verifyNoInteractions(transactionExportService);
+    }
+
+
+    // GET /transactions/export?format=XML  -  непознат формат  ->  not-found
+    @Test
+    void exportTransactionsWithUnknownFormat_shouldReturnNotFound() throws Exception {
+        User user = TestBuilder.aRandomUser();
+        AuthenticationMetadata principal = new AuthenticationMetadata(user.getId(), user.getUsername(), user.getPassword(), UserRole.USER, true);
+
+        mockMvc.perform(get("/transactions/export").param("format", "XML").with(user(principal)))
+                .andExpect(status().isNotFound());
+
+        verifyNoInteractions(transactionExportService);
+    }
+}
@@ -10,6 +10,7 @@ import app.user.service.*;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.*;
 import org.springframework.boot.test.autoconfigure.web.servlet.*;
+import org.springframework.data.domain.*;
 import org.springframework.http.*;
 import org.springframework.test.context.bean.override.mockito.*;
 import org.springframework.test.web.servlet.*;
@@ -115,10 +116,9 @@ public class UserControllerApiTest {
                 true
         );
 
-        when(userService.getById(adminId)).thenReturn(testUser);
-        when(userService.getAllUsers()).thenReturn(List.of(testUser));
-        when(userService.countActiveUsers()).thenReturn(1L);
-        when(userService.countInactiveUsers()).thenReturn(0L);
+        when(userService.getCurrentUserView(adminId)).thenReturn(TestBuilder.aCurrentUserView(testUser));
+        when(userService.getUsersPage(any(), anyInt(), anyInt(), any(), any())).thenReturn(new PageImpl<>(List.of(TestBuilder.aUserListRow(testUser))));
+        when(userService.getUserStats()).thenReturn(UserStats.of(List.of(new UserCountRow(true, UserRole.USER, Country.BULGARIA, 1L))));
 
         // When
         MockHttpServletRequestBuilder request = get("/users")
@@ -130,8 +130,9 @@ public class UserControllerApiTest {
                 .andExpect(view().name("users"))
                 .andExpect(model().attributeExists("users", "user", "activeCount", "inactiveCount"));
 
-        verify(userService).getById(adminId);
-        verify(userService).getAllUsers();
+        verify(userService).getCurrentUserView(adminId);
+        verify(userService).getUsersPage(any(), eq(0), eq(UserService.DEFAULT_USERS_PAGE_SIZE), eq("createdOn"), eq(Sort.Direction.DESC));
+        verify(userService, never()).getAllUsers();
     }
 
     // Обикновен потребител
@@ -252,10 +253,12 @@ public class UserControllerApiTest {
 
         List<User> users = List.of(TestBuilder.aRandomUser(), TestBuilder.aRandomUser());
 
-        when(userService.getById(adminId)).thenReturn(admin);
-        when(userService.getAllUsers()).thenReturn(users);
-        when(userService.countActiveUsers()).thenReturn(2L);
-        when(userService.countInactiveUsers()).thenReturn(1L);
+        when(userService.getCurrentUserView(adminId)).thenReturn(TestBuilder.aCurrentUserView(admin));
+        when(userService.getUsersPage(any(), anyInt(), anyInt(), any(), any()))
+                .thenReturn(new PageImpl<>(users.stream().map(TestBuilder::aUserListRow).toList()));
+        when(userService.getUserStats()).thenReturn(UserStats.of(List.of(
+                new UserCountRow(true, UserRole.USER, Country.BULGARIA, 2L),
+                new UserCountRow(false, UserRole.USER, Country.GERMANY, 1L))));
 
         AuthenticationMetadata principal = new AuthenticationMetadata(
                 adminId, "admin", "pass", UserRole.ADMIN, true
@@ -366,7 +369,7 @@ public class UserControllerApiTest {
                 .gamesPurchased(5)
                 .build();
 
-        when(userService.getById(adminId)).thenReturn(admin);
+        when(userService.getCurrentUserView(adminId)).thenReturn(TestBuilder.aCurrentUserView(admin));
         when(userService.getById(targetUserId)).thenReturn(targetUser);
         when(loyaltyService.getLoyaltyByUserId(targetUserId)).thenReturn(loyalty);
         when(loyaltyService.getDiscountPercentage(targetUserId)).thenReturn(0.10); // 10%